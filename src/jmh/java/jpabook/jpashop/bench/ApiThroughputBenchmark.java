@@ -0,0 +1,108 @@
+package jpabook.jpashop.bench;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * /api/** 실행 방식별 초당 요청 수 (jpashop.api.execution.mode)
+ * 내장 톰캣을 띄우고 JMH 스레드 1024 개가 각각 클라이언트 하나처럼 응답을 기다렸다가 다음 요청을 보낸다 -> ops/s = 초당 요청 수
+ * 503 (엔드포인트 제한, 대기열 초과) 은 성공에서 빼고 rejected 로 따로 센다
+ * ./gradlew jmh -Pjmh.includes=ApiThroughputBenchmark -Pjmh.params="mode=PLATFORM,OFFLOAD"
+ * VIRTUAL 은 JDK 21 이상에서 실행해야 의미가 있다 (낮은 JDK 에서는 PLATFORM 과 같다)
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 3, time = 10)
+@Threads(1024)
+@Fork(1)
+public class ApiThroughputBenchmark {
+
+    @Param({"PLATFORM", "OFFLOAD", "VIRTUAL"})
+    public String mode;
+
+    @Param({"/api/v5/orders/seek?limit=20", "/api/v2/members"})
+    public String endpoint;
+
+    @Param({"10000"})
+    public int orders;
+
+    @Param({"20"})
+    public int poolSize;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient client;
+    private HttpRequest request;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchContext.startWeb("api-" + mode, orders,
+                "server.port=0",
+                "server.tomcat.threads.max=200",
+                "server.tomcat.max-connections=10000",
+                "server.tomcat.accept-count=2000",
+                "spring.datasource.hikari.maximum-pool-size=" + poolSize,
+                "jpashop.api.execution.mode=" + mode,
+                "jpashop.sql-monitor.headers=false",
+                "logging.level.org.hibernate.SQL=warn");
+        int port = context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+        client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + endpoint))
+                .timeout(Duration.ofSeconds(60))
+                .GET()
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Responses {
+        public long ok;
+        public long rejected;
+        public long errors;
+    }
+
+    @Benchmark
+    public int request(Responses responses) throws IOException, InterruptedException {
+        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+        int status = response.statusCode();
+        if (status == 200) {
+            responses.ok++;
+        } else if (status == 503) {
+            responses.rejected++;
+        } else {
+            responses.errors++;
+        }
+        return status;
+    }
+}
@@ -0,0 +1,58 @@
+package jpabook.jpashop.bench;
+
+import jpabook.jpashop.JpashopApplication;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+ * 벤치마크용 스프링 컨텍스트
+ * 기본은 웹 서버 없이 JPA 계층만 띄우고 (API 부하 측정은 startWeb), 임베디드 H2 에 loadtest 프로필의 데이터 생성기로 orders 규모의 데이터를 넣는다
+ * */
+public final class BenchContext {
+
+    private BenchContext() {
+    }
+
+    public static ConfigurableApplicationContext start(String name, int orders, String... extraProperties) {
+        return start(WebApplicationType.NONE, name, orders, extraProperties);
+    }
+
+    // 내장 톰캣까지 띄운다 (server.port=0 이면 임의 포트, local.server.port 로 확인)
+    public static ConfigurableApplicationContext startWeb(String name, int orders, String... extraProperties) {
+        return start(WebApplicationType.SERVLET, name, orders, extraProperties);
+    }
+
+    private static ConfigurableApplicationContext start(WebApplicationType type, String name, int orders, String... extraProperties) {
+        List<String> properties = new ArrayList<>(Arrays.asList(
+                "spring.datasource.url=jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1",
+                "spring.datasource.username=sa",
+                "spring.datasource.password=",
+                "spring.jpa.hibernate.ddl-auto=create",
+                "spring.jpa.properties.hibernate.generate_statistics=true",
+                "logging.level.org.hibernate.SQL=warn",
+                "logging.level.org.hibernate.type=warn",
+                "decorator.datasource.p6spy.enable-logging=false",
+                "datagen.orders=" + orders,
+                "datagen.members=" + Math.max(10, orders / 10),
+                "datagen.items=" + Math.max(100, orders / 100),
+                "datagen.chunk-size=" + Math.max(100, Math.min(5000, orders / 4))));
+        properties.addAll(Arrays.asList(extraProperties));
+        return new SpringApplicationBuilder(JpashopApplication.class)
+                .web(type)
+                .profiles("loadtest")
+                .properties(properties.toArray(new String[0]))
+                .run();
+    }
+
+    public static Statistics statistics(ConfigurableApplicationContext context) {
+        return context.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+    }
+}
@@ -0,0 +1,136 @@
+package jpabook.jpashop.bench;
+
+import jpabook.jpashop.domain.Category;
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.service.CategoryService;
+import org.hibernate.stat.Statistics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/*
+ * 상품 items 개를 가진 카테고리에서 연관관계 유지 / 조회 비교
+ * 엔티티 방식: Set 컬렉션에 추가/삭제 (컬렉션 초기화 비용 포함) vs 조인 테이블 벌크 insert/delete
+ * 조회: 상품 페이지마다 categories 지연로딩 vs 배치 조회 한번
+ * 매 호출은 롤백되는 트랜잭션 안에서 실행해서 데이터가 바뀌지 않게 한다
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class CategoryItemBenchmark {
+
+    @Param({"100000"})
+    public int items;
+
+    @Param({"1000"})
+    public int changed; // 한번에 재분류하는 상품 수
+
+    @Param({"100"})
+    public int pageSize;
+
+    private ConfigurableApplicationContext context;
+    private TransactionTemplate tx;
+    private Statistics statistics;
+    private EntityManager em;
+    private CategoryService categoryService;
+    private Long bigCategoryId;
+    private Long otherCategoryId;
+    private List<Long> changedIds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchContext.start("category", 1000, "datagen.items=" + items);
+        tx = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        statistics = BenchContext.statistics(context);
+        em = context.getBean(EntityManager.class);
+        categoryService = context.getBean(CategoryService.class);
+
+        List<Long> itemIds = tx.execute(status -> em.createQuery("select i.id from Item i order by i.id", Long.class).getResultList());
+        bigCategoryId = categoryService.saveCategory("big", null);
+        otherCategoryId = categoryService.saveCategory("other", null);
+        categoryService.assignItems(bigCategoryId, itemIds);
+        changedIds = itemIds.subList(itemIds.size() - changed, itemIds.size());
+        categoryService.unassignItems(bigCategoryId, changedIds); // 재분류 대상은 큰 카테고리에서 빼둔다
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    private <T> T rollback(OrderFetchBenchmark.SqlCounter counter, Supplier<T> supplier) {
+        long before = statistics.getPrepareStatementCount();
+        T result = tx.execute(status -> {
+            status.setRollbackOnly();
+            return supplier.get();
+        });
+        counter.sqlStatements += statistics.getPrepareStatementCount() - before;
+        counter.calls++;
+        return result;
+    }
+
+    @Benchmark
+    public Object assign_entitySet(OrderFetchBenchmark.SqlCounter counter) {
+        return rollback(counter, () -> {
+            Category category = em.find(Category.class, bigCategoryId);
+            for (Long itemId : changedIds) {
+                category.addItem(em.find(Item.class, itemId)); // Set.add 가 100k 컬렉션 초기화를 일으킨다
+            }
+            em.flush();
+            return category.getItems().size();
+        });
+    }
+
+    @Benchmark
+    public Object assign_bulk(OrderFetchBenchmark.SqlCounter counter) {
+        return rollback(counter, () -> categoryService.assignItems(bigCategoryId, changedIds));
+    }
+
+    @Benchmark
+    public Object move_bulk(OrderFetchBenchmark.SqlCounter counter) {
+        return rollback(counter, () -> {
+            categoryService.moveItems(otherCategoryId, bigCategoryId, changedIds);
+            return changedIds.size();
+        });
+    }
+
+    @Benchmark
+    public Object itemPage_lazyCategories(OrderFetchBenchmark.SqlCounter counter) {
+        return rollback(counter, () -> categoryService.findItemsInSubtree(bigCategoryId, 0, pageSize).stream()
+                .map(item -> item.getCategories().stream().map(Category::getName).collect(Collectors.toList()))
+                .collect(Collectors.toList()));
+    }
+
+    @Benchmark
+    public Object itemPage_batchCategories(OrderFetchBenchmark.SqlCounter counter) {
+        return rollback(counter, () -> {
+            List<Item> page = categoryService.findItemsInSubtree(bigCategoryId, 0, pageSize);
+            Map<Long, ?> categories = categoryService.findCategoriesByItemIds(
+                    page.stream().map(Item::getId).collect(Collectors.toList()));
+            return categories.size();
+        });
+    }
+}
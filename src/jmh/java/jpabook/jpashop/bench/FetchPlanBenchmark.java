@@ -0,0 +1,102 @@
+package jpabook.jpashop.bench;
+
+import jpabook.jpashop.api.OrderApiController;
+import jpabook.jpashop.repository.OrderFetchPlan;
+import org.hibernate.stat.Statistics;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/*
+ * 조회 계획(OrderFetchPlan) x 연관별 배치 페치 크기 (jpashop.fetch.batch-sizes)
+ * 주문 DTO 가 회원/배송/주문상품/상품 이름까지 읽으므로 계획이 조인하지 않은 연관은 배치 페치로 읽힌다
+ * 호출당 SQL 수 = sqlStatements / calls, 가장 빠르면서 SQL 수가 적은 조합을 application.yml 에 옮긴다
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class FetchPlanBenchmark {
+
+    @Param({"1000"})
+    public int orders;
+
+    @Param({"NONE", "SUMMARY", "WITH_ITEMS", "FULL"})
+    public OrderFetchPlan plan;
+
+    @Param({"3", "16", "100"})
+    public int orderItemsBatchSize;
+
+    @Param({"16", "128"})
+    public int itemBatchSize;
+
+    private ConfigurableApplicationContext context;
+    private TransactionTemplate readOnlyTx;
+    private Statistics statistics;
+    private OrderApiController orderApi;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchContext.start("fetchplan", orders,
+                "jpashop.fetch.batch-sizes.[Order.orderItems]=" + orderItemsBatchSize,
+                "jpashop.fetch.batch-sizes.[Item]=" + itemBatchSize);
+        readOnlyTx = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readOnlyTx.setReadOnly(true);
+        statistics = BenchContext.statistics(context);
+        orderApi = context.getBean(OrderApiController.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class SqlCounter {
+        public long sqlStatements;
+        public long calls;
+    }
+
+    private Object call(SqlCounter counter, Supplier<Object> supplier) {
+        long before = statistics.getPrepareStatementCount();
+        Object result = readOnlyTx.execute(status -> supplier.get());
+        counter.sqlStatements += statistics.getPrepareStatementCount() - before;
+        counter.calls++;
+        return result;
+    }
+
+    @Benchmark
+    public Object all(SqlCounter counter) {
+        return call(counter, () -> orderApi.ordersV3(plan));
+    }
+
+    @Benchmark
+    public Object page(SqlCounter counter) {
+        return call(counter, () -> orderApi.ordersV3_page(0, 100, plan));
+    }
+
+    @Benchmark
+    public Object seek(SqlCounter counter) {
+        return call(counter, () -> orderApi.ordersV3_seek(null, 100, plan));
+    }
+}
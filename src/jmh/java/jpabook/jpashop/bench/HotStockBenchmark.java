@@ -0,0 +1,83 @@
+package jpabook.jpashop.bench;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.service.ItemService;
+import jpabook.jpashop.service.MemberService;
+import jpabook.jpashop.service.OrderService;
+import jpabook.jpashop.stock.HotStockLedger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * 인기 상품 하나에 64 스레드가 동시에 주문할때 초당 주문 수
+ * ATOMIC : 주문마다 item 행에 조건부 update (orderAtomic)
+ * HOT    : HotStockLedger 메모리 카운터에서 차감, item 행 update 는 flush 주기마다 한번 (order)
+ * 재고는 측정 중에 바닥나지 않을 만큼 넣는다
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(64)
+@Fork(1)
+public class HotStockBenchmark {
+
+    @Param({"ATOMIC", "HOT"})
+    public String mode;
+
+    private ConfigurableApplicationContext context;
+    private OrderService orderService;
+    private boolean hot;
+    private Long memberId;
+    private Long itemId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        hot = "HOT".equals(mode);
+        context = BenchContext.start("hotstock", 0, "jpashop.stock.hot.enabled=" + hot);
+        orderService = context.getBean(OrderService.class);
+
+        Member member = new Member();
+        member.setName("bench-member");
+        member.setAddress(new Address("서울", "강가", "123-123"));
+        memberId = context.getBean(MemberService.class).join(member);
+
+        Book book = new Book();
+        book.setName("bench-hot-item");
+        book.setPrice(10000);
+        book.setStockQuantity(Integer.MAX_VALUE / 2);
+        context.getBean(ItemService.class).saveItem(book);
+        itemId = book.getId();
+        if (hot) {
+            context.getBean(HotStockLedger.class).track(itemId);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Long order() {
+        return hot ? orderService.order(memberId, itemId, 1) : orderService.orderAtomic(memberId, itemId, 1);
+    }
+}
@@ -0,0 +1,178 @@
+package jpabook.jpashop.bench;
+
+import jpabook.jpashop.api.OrderApiController;
+import jpabook.jpashop.api.OrderSimpleApiController;
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.repository.OrderFetchPlan;
+import jpabook.jpashop.repository.OrderRepository;
+import jpabook.jpashop.repository.OrderSearch;
+import jpabook.jpashop.repository.order.query.OrderQueryRepository;
+import org.hibernate.stat.Statistics;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/*
+ * 주문 API 버전별 조회 전략 비교 (처리량 / gc 프로파일러 할당률 / 호출당 SQL 수)
+ * 컨트롤러 메서드를 직접 호출한다, OSIV 대신 읽기 전용 트랜잭션 안에서 실행해서 지연로딩도 포함시킨다
+ * 호출당 SQL 수 = sqlStatements / calls (hibernate statistics 의 prepareStatementCount)
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class OrderFetchBenchmark {
+
+    @Param({"1000"})
+    public int orders;
+
+    private ConfigurableApplicationContext context;
+    private TransactionTemplate readOnlyTx;
+    private Statistics statistics;
+    private OrderApiController orderApi;
+    private OrderSimpleApiController simpleOrderApi;
+    private OrderRepository orderRepository;
+    private OrderQueryRepository orderQueryRepository;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchContext.start("fetch", orders);
+        readOnlyTx = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readOnlyTx.setReadOnly(true);
+        statistics = BenchContext.statistics(context);
+        orderApi = context.getBean(OrderApiController.class);
+        simpleOrderApi = context.getBean(OrderSimpleApiController.class);
+        orderRepository = context.getBean(OrderRepository.class);
+        orderQueryRepository = context.getBean(OrderQueryRepository.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class SqlCounter {
+        public long sqlStatements;
+        public long calls;
+    }
+
+    private Object call(SqlCounter counter, Supplier<Object> supplier) {
+        long before = statistics.getPrepareStatementCount();
+        Object result = readOnlyTx.execute(status -> supplier.get());
+        counter.sqlStatements += statistics.getPrepareStatementCount() - before;
+        counter.calls++;
+        return result;
+    }
+
+    //== OrderApiController ==//
+    @Benchmark
+    public Object ordersV1_entity(SqlCounter counter) {
+        return call(counter, orderApi::ordersV1);
+    }
+
+    @Benchmark
+    public Object ordersV2_lazyDto(SqlCounter counter) {
+        return call(counter, orderApi::ordersV2);
+    }
+
+    @Benchmark
+    public Object ordersV3_findAllWithItem(SqlCounter counter) {
+        return call(counter, () -> orderApi.ordersV3(null));
+    }
+
+    @Benchmark
+    public Object ordersV3_1_findAllWithMemberDelivery_page(SqlCounter counter) {
+        return call(counter, () -> orderApi.ordersV3_page(0, 100, null));
+    }
+
+    @Benchmark
+    public Object ordersV4_findOrderQueryDtos(SqlCounter counter) {
+        return call(counter, orderApi::ordersV4);
+    }
+
+    @Benchmark
+    public Object ordersV5_findAllByDto_optimization(SqlCounter counter) {
+        return call(counter, orderApi::ordersV5);
+    }
+
+    @Benchmark
+    public Object ordersV6_findAllByDto_flat(SqlCounter counter) {
+        return call(counter, orderApi::ordersV6);
+    }
+
+    //== OrderSimpleApiController ==//
+    @Benchmark
+    public Object simpleOrdersV1_entity(SqlCounter counter) {
+        return call(counter, () -> { // 컨트롤러 메서드가 private 이라 같은 로직을 직접 실행한다
+            List<Order> all = orderRepository.findAllByString(new OrderSearch());
+            for (Order order : all) {
+                order.getMember().getName();
+                order.getDelivery().getAddress();
+            }
+            return all;
+        });
+    }
+
+    @Benchmark
+    public Object simpleOrdersV2_lazyDto(SqlCounter counter) {
+        return call(counter, simpleOrderApi::ordersV2);
+    }
+
+    @Benchmark
+    public Object simpleOrdersV3_findAllWithMemberDelivery(SqlCounter counter) {
+        return call(counter, () -> simpleOrderApi.ordersV3(null));
+    }
+
+    @Benchmark
+    public Object simpleOrdersV4_findOrderDtos(SqlCounter counter) {
+        return call(counter, simpleOrderApi::ordersV4);
+    }
+
+    //== 리포지토리 단독 ==//
+    @Benchmark
+    public Object repository_findAllWithItem(SqlCounter counter) {
+        return call(counter, () -> orderRepository.findAll(OrderFetchPlan.FULL));
+    }
+
+    @Benchmark
+    public Object repository_findAllWithMemberDelivery(SqlCounter counter) {
+        return call(counter, () -> orderRepository.findAll(OrderFetchPlan.SUMMARY));
+    }
+
+    @Benchmark
+    public Object repository_findOrderQueryDtos(SqlCounter counter) {
+        return call(counter, orderQueryRepository::findOrderQueryDtos);
+    }
+
+    @Benchmark
+    public Object repository_findAllByDto_optimization(SqlCounter counter) {
+        return call(counter, orderQueryRepository::findAllByDto_optimization);
+    }
+
+    @Benchmark
+    public Object repository_findAllByDto_flat(SqlCounter counter) {
+        return call(counter, orderQueryRepository::findAllByDto_flat);
+    }
+}
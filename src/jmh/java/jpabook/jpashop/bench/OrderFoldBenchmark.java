@@ -0,0 +1,77 @@
+package jpabook.jpashop.bench;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.repository.order.query.OrderFlatDto;
+import jpabook.jpashop.repository.order.query.OrderFlatFolder;
+import jpabook.jpashop.repository.order.query.OrderItemQueryDto;
+import jpabook.jpashop.repository.order.query.OrderQueryDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/*
+ * v6 평면 행 -> OrderQueryDto 변환, 기존 groupingBy 방식과 OrderFlatFolder 비교 (DB 없이 메모리만)
+ * 기본 250,000 주문 x 4 주문상품 = 1M 행, gc 프로파일러로 할당량도 같이 본다
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class OrderFoldBenchmark {
+
+    @Param({"250000"})
+    public int orders;
+
+    @Param({"4"})
+    public int itemsPerOrder;
+
+    private List<OrderFlatDto> rows;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        rows = new ArrayList<>(orders * itemsPerOrder);
+        LocalDateTime now = LocalDateTime.now();
+        Address address = new Address("서울", "강가", "123-123");
+        for (long orderId = 1; orderId <= orders; orderId++) {
+            for (int i = 1; i <= itemsPerOrder; i++) {
+                rows.add(new OrderFlatDto(orderId, "member" + orderId, now, OrderStatus.ORDER, address,
+                        "item-" + orderId + "-" + i, 1000 * i, i));
+            }
+        }
+    }
+
+    @Benchmark
+    public List<OrderQueryDto> fold() {
+        return OrderFlatFolder.fold(rows);
+    }
+
+    @Benchmark
+    public List<OrderQueryDto> groupingBy() { // 기존 v6 방식
+        Map<OrderQueryDto, List<OrderItemQueryDto>> map = rows.stream()
+                .collect(Collectors.groupingBy(o -> new OrderQueryDto(o.getOrderId(), o.getName(), o.getOrderDate(), o.getOrderStatus(), o.getAddress()),
+                        Collectors.mapping(o -> new OrderItemQueryDto(o.getOrderId(), o.getItemName(), o.getOrderPrice(), o.getCount()), Collectors.toList())));
+        return map.entrySet().stream()
+                .map(e -> new OrderQueryDto(e.getKey().getOrderId(), e.getKey().getName(), e.getKey().getOrderDate(),
+                        e.getKey().getOrderStatus(), e.getKey().getAddress(), e.getValue()))
+                .collect(Collectors.toList());
+    }
+}
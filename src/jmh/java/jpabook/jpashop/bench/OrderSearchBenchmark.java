@@ -0,0 +1,136 @@
+package jpabook.jpashop.bench;
+
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.repository.MemberNameMatch;
+import jpabook.jpashop.repository.OrderCursor;
+import jpabook.jpashop.repository.OrderRepository;
+import jpabook.jpashop.repository.OrderSearch;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * 주문 검색 지연시간, 인덱스 적용 전(indexes=false) / 후(indexes=true)
+ * indexes=false 는 이번에 추가한 인덱스를 지우고 트라이그램 인덱스도 쓰지 않는다 (기존 idx_orders_order_date_id 는 남긴다)
+ * 10M 주문은 데이터 생성에 시간이 오래 걸리므로 -Pjmh.params=orders=100000 처럼 줄여서 먼저 확인한다
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class OrderSearchBenchmark {
+
+    private static final String[] ADDED_INDEXES = {
+            "idx_orders_status_order_date_id", "idx_orders_member_order_date", "idx_orders_delivery",
+            "idx_order_item_order", "idx_order_item_item", "idx_member_name"};
+
+    @Param({"10000000"})
+    public int orders;
+
+    @Param({"true", "false"})
+    public boolean indexes;
+
+    @Param({"50"})
+    public int limit;
+
+    private ConfigurableApplicationContext context;
+    private TransactionTemplate readOnlyTx;
+    private OrderRepository orderRepository;
+    private int members;
+    private OrderCursor middle;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchContext.start("search", orders, "jpashop.search.member-name-trigram=" + indexes);
+        readOnlyTx = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readOnlyTx.setReadOnly(true);
+        orderRepository = context.getBean(OrderRepository.class);
+
+        JdbcTemplate jdbc = new JdbcTemplate(context.getBean(DataSource.class));
+        if (!indexes) {
+            for (String index : ADDED_INDEXES) {
+                jdbc.execute("drop index if exists " + index);
+            }
+        }
+        members = jdbc.queryForObject("select count(*) from member", Integer.class);
+        // 중간쯤 위치한 주문을 커서로 잡아서 깊은 페이지도 같이 본다
+        middle = jdbc.queryForObject("select order_date, order_id from orders order by order_date, order_id limit 1 offset ?",
+                (rs, rowNum) -> new OrderCursor(rs.getTimestamp(1).toLocalDateTime(), rs.getLong(2)), orders / 2);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @State(Scope.Thread)
+    public static class Names {
+        private final Random random = new Random(42);
+
+        String next(int members) {
+            return "member" + random.nextInt(members);
+        }
+    }
+
+    private Object search(OrderSearch orderSearch, OrderCursor cursor) {
+        return readOnlyTx.execute(status -> orderRepository.search(orderSearch, cursor, limit, indexes));
+    }
+
+    @Benchmark
+    public Object status_latestFirst_firstPage() {
+        OrderSearch orderSearch = new OrderSearch();
+        orderSearch.setOrderStatus(OrderStatus.CANCEL);
+        orderSearch.setLatestFirst(true);
+        return search(orderSearch, null);
+    }
+
+    @Benchmark
+    public Object status_deepPage() {
+        OrderSearch orderSearch = new OrderSearch();
+        orderSearch.setOrderStatus(OrderStatus.CANCEL);
+        return search(orderSearch, middle);
+    }
+
+    @Benchmark
+    public Object name_like(Names names) {
+        OrderSearch orderSearch = new OrderSearch();
+        orderSearch.setMemberName(names.next(members));
+        return search(orderSearch, null);
+    }
+
+    @Benchmark
+    public Object name_prefix(Names names) {
+        OrderSearch orderSearch = new OrderSearch();
+        orderSearch.setMemberName(names.next(members));
+        orderSearch.setNameMatch(MemberNameMatch.PREFIX);
+        return search(orderSearch, null);
+    }
+
+    @Benchmark
+    public Object name_infix(Names names) {
+        OrderSearch orderSearch = new OrderSearch();
+        orderSearch.setMemberName(names.next(members).substring(2)); // "mber1234" 처럼 앞부분을 잘라서 중간 일치로 찾는다
+        orderSearch.setNameMatch(MemberNameMatch.INFIX);
+        return search(orderSearch, null);
+    }
+}
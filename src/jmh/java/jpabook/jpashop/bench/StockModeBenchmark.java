@@ -0,0 +1,95 @@
+package jpabook.jpashop.bench;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.service.ItemService;
+import jpabook.jpashop.service.MemberService;
+import jpabook.jpashop.service.StockMode;
+import jpabook.jpashop.service.StockOrderService;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * 같은 상품 하나에 8 스레드가 동시에 주문할때 재고 차감 방식(StockMode)별 초당 주문 수
+ * ENTITY     : 변경감지로 차감, 버전 충돌이면 그대로 실패
+ * OPTIMISTIC : 버전 충돌이면 backoff 후 재시도 (최대 5번)
+ * ATOMIC     : 조건부 update 한번
+ * 성공(success) 과 실패(failure, 버전 충돌 / 재시도 소진) 를 따로 센다, 재고는 측정 중에 바닥나지 않을 만큼 넣는다
+ * ./gradlew jmh -Pjmh.includes=StockModeBenchmark -Pjmh.params="mode=ENTITY,ATOMIC"
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(8)
+@Fork(1)
+public class StockModeBenchmark {
+
+    @Param({"ENTITY", "OPTIMISTIC", "ATOMIC"})
+    public StockMode mode;
+
+    private ConfigurableApplicationContext context;
+    private StockOrderService stockOrderService;
+    private Long memberId;
+    private Long itemId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchContext.start("stock-" + mode, 0, "jpashop.stock.hot.enabled=false");
+        stockOrderService = context.getBean(StockOrderService.class);
+
+        Member member = new Member();
+        member.setName("bench-member");
+        member.setAddress(new Address("서울", "강가", "123-123"));
+        memberId = context.getBean(MemberService.class).join(member);
+
+        Book book = new Book();
+        book.setName("bench-stock-item");
+        book.setPrice(10000);
+        book.setStockQuantity(Integer.MAX_VALUE / 2);
+        context.getBean(ItemService.class).saveItem(book);
+        itemId = book.getId();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Orders {
+        public long success;
+        public long failure;
+    }
+
+    @Benchmark
+    public Long order(Orders orders) {
+        try {
+            Long orderId = stockOrderService.order(mode, memberId, itemId, 1);
+            orders.success++;
+            return orderId;
+        } catch (RuntimeException e) {
+            orders.failure++;
+            return null;
+        }
+    }
+}
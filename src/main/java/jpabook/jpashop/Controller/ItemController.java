@@ -39,7 +39,7 @@ public class ItemController {
 
     @GetMapping("/items")
     public String list(Model model) {
-        model.addAttribute("items", itemService.findItems() );
+        model.addAttribute("items", itemService.findItemViews());
         return "items/itemList";
     }
 
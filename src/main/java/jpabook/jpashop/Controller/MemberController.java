@@ -42,7 +42,7 @@ public class MemberController {
 
     @GetMapping("/members")
     public String list(Model model) {
-        model.addAttribute("members", memberService.findMembers() );
+        model.addAttribute("members", memberService.findMemberViews());
 
         return "members/memberList";
     }
@@ -1,12 +1,14 @@
 package jpabook.jpashop.Controller;
 
-import jpabook.jpashop.domain.Member;
-import jpabook.jpashop.domain.Order;
-import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.intake.OrderIntakeService;
 import jpabook.jpashop.repository.OrderSearch;
+import jpabook.jpashop.repository.view.ItemListView;
+import jpabook.jpashop.repository.view.MemberListView;
+import jpabook.jpashop.repository.view.OrderListView;
 import jpabook.jpashop.service.ItemService;
 import jpabook.jpashop.service.MemberService;
 import jpabook.jpashop.service.OrderService;
+import jpabook.jpashop.service.StockOrderService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
@@ -21,12 +23,14 @@ public class OrderController {
     private final OrderService orderService;
     private final MemberService memberService;
     private final ItemService itemService;
+    private final StockOrderService stockOrderService;
+    private final OrderIntakeService orderIntakeService;
 
 
     @GetMapping("/order")
     public String createForm(Model model) {
-        List<Member> members = memberService.findMembers();
-        List<Item> items = itemService.findItems();
+        List<MemberListView> members = memberService.findMemberViews();
+        List<ItemListView> items = itemService.findItemViews();
 
         model.addAttribute("members", members);
         model.addAttribute("items", items);
@@ -38,13 +42,17 @@ public class OrderController {
     public String order(@RequestParam("memberId") Long meberId,
                         @RequestParam("itemId") Long itemId,
                         @RequestParam("count") int count) {
-        orderService.order(meberId, itemId, count);
+        if (orderIntakeService.isEnabled()) {
+            orderIntakeService.accept(meberId, itemId, count); // 재고만 예약하고 저장은 쓰기 스레드가 모아서 한다
+        } else {
+            stockOrderService.order(meberId, itemId, count); // 재고 차감 방식은 jpashop.order.stock-mode 설정을 따른다
+        }
         return "redirect:/orders";
     }
 
     @GetMapping("/orders")
     public String orderList(@ModelAttribute("orderSearch")OrderSearch orderSearch, Model model) {
-        List<Order> orders = orderService.findOrders(orderSearch);
+        List<OrderListView> orders = orderService.findOrderViews(orderSearch); // 화면에 필요한 값만 쿼리 한번으로, 렌더링 중 지연로딩 없음
         model.addAttribute("orders", orders);
         return "order/orderList";
     }
@@ -2,6 +2,8 @@ package jpabook.jpashop;
 
 import jpabook.jpashop.domain.*;
 import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.service.DailyRevenueRecorder;
+import jpabook.jpashop.service.OrderSummaryRecorder;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
@@ -28,6 +30,8 @@ public class InitDB {
     static class InitService {
 
         private final EntityManager manager;
+        private final OrderSummaryRecorder orderSummaryRecorder;
+        private final DailyRevenueRecorder dailyRevenueRecorder;
 
         public void dbInit1() {
             Member member = createMember("userA", "서울", "1", "1111");
@@ -45,6 +49,8 @@ public class InitDB {
             Delivery delivery = createDelivery(member);
             Order order = Order.createOrder(member, delivery, orderItem1, orderItem2);
             manager.persist(order);
+            orderSummaryRecorder.orderPlaced(order);
+            dailyRevenueRecorder.orderPlaced(order);
         }
 
         public void dbInit2() {
@@ -63,6 +69,8 @@ public class InitDB {
             Delivery delivery = createDelivery(member);
             Order order = Order.createOrder(member, delivery, orderItem1, orderItem2);
             manager.persist(order);
+            orderSummaryRecorder.orderPlaced(order);
+            dailyRevenueRecorder.orderPlaced(order);
         }
 
         private Delivery createDelivery(Member member) {
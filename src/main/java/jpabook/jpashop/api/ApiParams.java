@@ -0,0 +1,40 @@
+package jpabook.jpashop.api;
+
+import jpabook.jpashop.exception.InvalidRequestException;
+import jpabook.jpashop.repository.OrderCursor;
+
+/*
+ * 페이징 파라미터 검증
+ * limit 0 은 hibernate 에서 제한 없음(전체 조회), 음수는 IllegalArgumentException(500) 이 되므로 1..MAX_LIMIT 만 받는다
+ * offset 도 음수면 IllegalArgumentException(500) 이 되므로 400 으로 돌려준다
+ * 깨진 커서 토큰도 400 으로 돌려준다
+ * */
+final class ApiParams {
+
+    static final int MAX_LIMIT = 1000;
+
+    private ApiParams() {
+    }
+
+    static int limit(int limit) {
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new InvalidRequestException("limit 은 1 ~ " + MAX_LIMIT + " 사이여야 합니다: " + limit);
+        }
+        return limit;
+    }
+
+    static int offset(int offset) {
+        if (offset < 0) {
+            throw new InvalidRequestException("offset 은 0 이상이어야 합니다: " + offset);
+        }
+        return offset;
+    }
+
+    static OrderCursor cursor(String token) {
+        try {
+            return OrderCursor.decode(token);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidRequestException(e.getMessage(), e);
+        }
+    }
+}
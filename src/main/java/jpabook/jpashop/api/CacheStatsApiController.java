@@ -0,0 +1,52 @@
+package jpabook.jpashop.api;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/*
+ * 2차 캐시 리전별 hit / miss 통계
+ * JCache 구현체가 리전마다 등록하는 CacheStatisticsMXBean 을 읽어서 보여준다 (application.conf 의 monitoring.statistics)
+ * */
+@RestController
+public class CacheStatsApiController {
+
+    private static final String STATISTICS_MBEANS = "javax.cache:type=CacheStatistics,*";
+
+    @GetMapping("/api/v1/cache-stats")
+    public List<CacheStatDto> cacheStats() throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        Set<ObjectName> names = server.queryNames(new ObjectName(STATISTICS_MBEANS), null);
+        List<CacheStatDto> result = new ArrayList<>();
+        for (ObjectName name : names) {
+            result.add(new CacheStatDto(
+                    name.getKeyProperty("Cache"),
+                    (Long) server.getAttribute(name, "CacheHits"),
+                    (Long) server.getAttribute(name, "CacheMisses"),
+                    (Float) server.getAttribute(name, "CacheHitPercentage"),
+                    (Long) server.getAttribute(name, "CachePuts"),
+                    (Long) server.getAttribute(name, "CacheEvictions")));
+        }
+        return result;
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class CacheStatDto {
+        private String region;
+        private long hits;
+        private long misses;
+        private float hitPercentage;
+        private long puts;
+        private long evictions;
+    }
+}
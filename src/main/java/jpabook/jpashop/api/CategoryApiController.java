@@ -0,0 +1,135 @@
+package jpabook.jpashop.api;
+
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.repository.CategoryNode;
+import jpabook.jpashop.repository.ItemCategoryDto;
+import jpabook.jpashop.service.CategoryService;
+import jpabook.jpashop.service.CategoryTree;
+import jpabook.jpashop.service.CategoryTreeCache;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotEmpty;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+@RestController
+@RequiredArgsConstructor
+public class CategoryApiController {
+
+    private final CategoryService categoryService;
+    private final CategoryTreeCache treeCache;
+
+    // 전체 트리, 캐시에서 바로 만든다 (쿼리 없음)
+    @GetMapping("/api/v1/categories")
+    public List<CategoryTreeDto> tree() {
+        CategoryTree tree = treeCache.get();
+        return tree.roots().stream().map(root -> toTreeDto(tree, root)).collect(Collectors.toList());
+    }
+
+    @GetMapping("/api/v1/categories/{id}/descendants")
+    public List<CategoryDto> descendants(@PathVariable Long id) {
+        return treeCache.get().descendants(id).stream().map(CategoryDto::new).collect(Collectors.toList());
+    }
+
+    @GetMapping("/api/v1/categories/{id}/breadcrumb")
+    public List<CategoryDto> breadcrumb(@PathVariable Long id) {
+        return treeCache.get().breadcrumb(id).stream().map(CategoryDto::new).collect(Collectors.toList());
+    }
+
+    // 서브트리 상품은 자주 바뀌므로 캐시하지 않고 클로저 테이블로 한번에 조회한다
+    @GetMapping("/api/v1/categories/{id}/items")
+    public CategoryItemPage items(@PathVariable Long id,
+                                  @RequestParam(value = "offset", defaultValue = "0") int offset,
+                                  @RequestParam(value = "limit", defaultValue = "100") int limit) {
+        List<Item> page = categoryService.findItemsInSubtree(id, ApiParams.offset(offset), ApiParams.limit(limit));
+        Map<Long, List<ItemCategoryDto>> categories = categoryService.findCategoriesByItemIds(
+                page.stream().map(Item::getId).collect(Collectors.toList())); // 상품마다 categories 를 지연로딩하지 않고 한번에
+        List<CategoryItemDto> items = page.stream()
+                .map(item -> new CategoryItemDto(item, categories.getOrDefault(item.getId(), Collections.emptyList())))
+                .collect(Collectors.toList());
+        return new CategoryItemPage(items, categoryService.countItemsInSubtree(id));
+    }
+
+    @PostMapping("/api/v1/categories/{id}/items/assign")
+    public CategoryItemsResponse assign(@PathVariable Long id, @RequestBody @Valid CategoryItemsRequest request) {
+        return new CategoryItemsResponse(categoryService.assignItems(id, request.getItemIds()));
+    }
+
+    @PostMapping("/api/v1/categories/{id}/items/unassign")
+    public CategoryItemsResponse unassign(@PathVariable Long id, @RequestBody @Valid CategoryItemsRequest request) {
+        return new CategoryItemsResponse(categoryService.unassignItems(id, request.getItemIds()));
+    }
+
+    private CategoryTreeDto toTreeDto(CategoryTree tree, CategoryNode node) {
+        List<CategoryTreeDto> children = tree.children(node.getId()).stream()
+                .map(child -> toTreeDto(tree, child))
+                .collect(Collectors.toList());
+        return new CategoryTreeDto(node.getId(), node.getName(), children);
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class CategoryTreeDto {
+        private Long id;
+        private String name;
+        private List<CategoryTreeDto> children;
+    }
+
+    @Data
+    static class CategoryDto {
+        private Long id;
+        private String name;
+        private Long parentId;
+
+        CategoryDto(CategoryNode node) {
+            id = node.getId();
+            name = node.getName();
+            parentId = node.getParentId();
+        }
+    }
+
+    @Data
+    static class CategoryItemDto {
+        private Long itemId;
+        private String name;
+        private int price;
+        private List<String> categories;
+
+        CategoryItemDto(Item item, List<ItemCategoryDto> itemCategories) {
+            itemId = item.getId();
+            name = item.getName();
+            price = item.getPrice();
+            categories = itemCategories.stream().map(ItemCategoryDto::getName).collect(Collectors.toList());
+        }
+    }
+
+    @Data
+    static class CategoryItemsRequest {
+        @NotEmpty
+        private List<Long> itemIds;
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class CategoryItemsResponse {
+        private int changed;
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class CategoryItemPage {
+        private List<CategoryItemDto> data;
+        private long total;
+    }
+}
@@ -1,23 +1,52 @@
 package jpabook.jpashop.api;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.DeliveryStatus;
 import jpabook.jpashop.domain.Order;
 import jpabook.jpashop.domain.OrderItem;
 import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.domain.OrderSummary;
+import jpabook.jpashop.domain.OrderSummaryItem;
+import jpabook.jpashop.repository.MemberNameMatch;
+import jpabook.jpashop.repository.OrderCursor;
+import jpabook.jpashop.repository.OrderFetchPlan;
 import jpabook.jpashop.repository.OrderRepository;
 import jpabook.jpashop.repository.OrderSearch;
-import jpabook.jpashop.repository.order.query.OrderFlatDto;
-import jpabook.jpashop.repository.order.query.OrderItemQueryDto;
 import jpabook.jpashop.repository.order.query.OrderQueryDto;
 import jpabook.jpashop.repository.order.query.OrderQueryRepository;
+import jpabook.jpashop.service.BulkCancelCondition;
+import jpabook.jpashop.service.BulkCancelResult;
+import jpabook.jpashop.service.BulkOrderCommand;
+import jpabook.jpashop.service.OrderBulkCancelService;
+import jpabook.jpashop.service.OrderService;
+import jpabook.jpashop.service.OrderSummaryService;
+import lombok.AllArgsConstructor;
+import lombok.Data;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import javax.validation.Valid;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Positive;
+import javax.validation.constraints.Size;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @RestController
@@ -26,6 +55,13 @@ public class OrderApiController {
 
     private final OrderRepository orderRepository;
     private final OrderQueryRepository orderQuery;
+    private final OrderService orderService;
+    private final OrderSummaryService orderSummaryService;
+    private final OrderBulkCancelService orderBulkCancelService;
+    private final OrderFetchPlanProperties fetchPlans;
+    private final ObjectMapper objectMapper;
+
+    private static final String NDJSON = "application/x-ndjson";
 
     @GetMapping("/api/v1/orders")
     public List<Order> ordersV1() {
@@ -47,8 +83,8 @@ public class OrderApiController {
     } // dto가 필드값으로 엔티티를 가지고 있다면 안좋은 상태다, 또한 쿼리문이 지연로딩으로 필요한 만큼 실행된다
 
     @GetMapping("/api/v3/orders")
-    public List<OrderDto> ordersV3() {
-       List<Order> orders = orderRepository.findAllWithItem();
+    public List<OrderDto> ordersV3(@RequestParam(value = "fetch", required = false) OrderFetchPlan fetch) {
+        List<Order> orders = orderRepository.findAll(fetchPlans.resolve("orders-v3", fetch, OrderFetchPlan.FULL));
         List<OrderDto> result = orders.stream().map(o -> new OrderDto(o)).collect(Collectors.toList());
         return result;
     } // 컬렉션 값을 가진 테이블에서의 페치조인 시도, 컬렉션 값과의 조인은 가져올 데이터의 양을 조인될 컬렉션 값의 수 많큼 늘림 ( 1 x n = n )
@@ -56,17 +92,55 @@ public class OrderApiController {
     // 하지만 jpql에서 출력타입 엔티티의 id값이 같다면 중복제거 한다 다만 전송 데이터량은 많다
     // ** 단점 컬렉션 페치 조인시 페이징이 불가능해진다!
     // 컬렉션 페치 조인은 하나만! 1 x N x M 식의 데이터 증가로 데이터가 깨질수 있다.
+    // fetch=SUMMARY|WITH_ITEMS 로 조인 깊이를 바꿔 볼 수 있다 (설정 jpashop.order.fetch-plan.apis.orders-v3)
 
     @GetMapping("/api/v3.1/orders")
     public List<OrderDto> ordersV3_page(
             @RequestParam(value = "offset", defaultValue = "0") int offset,
-            @RequestParam(value = "limit", defaultValue = "100") int limit) {
-        List<Order> orders = orderRepository.findAllWithMemberDelivery(offset, limit);
+            @RequestParam(value = "limit", defaultValue = "100") int limit,
+            @RequestParam(value = "fetch", required = false) OrderFetchPlan fetch) {
+        List<Order> orders = orderRepository.findPage(offset, limit, fetchPlans.resolve("orders-v3-1", fetch, OrderFetchPlan.SUMMARY));
         List<OrderDto> result = orders.stream().map(o -> new OrderDto(o)).collect(Collectors.toList());
         return result;
     } // 단일 상관관계만 페치 조인으로 끌어오고 나머지는 지연로딩 방식으로 끌어왔다, 생성자에서 초기화 됬음 1xNxM -페이징은 가능
     // 전역 설정에서 default_batch_fetch_size 또는 지역 @Batchsize 어노테이션을 통해 쿼리문을 사이즈 만큼 in 조건절로 땡겨올수 있다 (넘기면 사이즈만큼 반복).
     // 데이터 전송량 감축 가능
+    // 컬렉션 계획(WITH_ITEMS, FULL) 이면 페이지는 그대로 자르고 주문상품은 id in 쿼리 한번으로 채운다
+
+    @GetMapping("/api/v3.1/orders/seek")
+    public CursorResult<List<OrderDto>> ordersV3_seek(
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", defaultValue = "100") int limit,
+            @RequestParam(value = "fetch", required = false) OrderFetchPlan fetch) {
+        List<Order> orders = orderRepository.findPage(ApiParams.cursor(cursor), ApiParams.limit(limit),
+                fetchPlans.resolve("orders-v3-1-seek", fetch, OrderFetchPlan.SUMMARY));
+        List<OrderDto> result = orders.stream().map(o -> new OrderDto(o)).collect(Collectors.toList());
+        String next = orders.size() < limit ? null
+                : new OrderCursor(orders.get(orders.size() - 1).getOrderDate(), orders.get(orders.size() - 1).getId()).encode();
+        return new CursorResult<>(result, next);
+    } // v3.1 의 키셋 페이징 버전, 응답의 next 토큰을 다음 요청의 cursor 로 넘기면 된다 (마지막 페이지면 null)
+
+    @GetMapping("/api/v3.2/orders/search")
+    public CursorResult<List<OrderDto>> ordersV3_search(
+            @RequestParam(value = "memberName", required = false) String memberName,
+            @RequestParam(value = "nameMatch", defaultValue = "LIKE") MemberNameMatch nameMatch,
+            @RequestParam(value = "orderStatus", required = false) OrderStatus orderStatus,
+            @RequestParam(value = "latestFirst", defaultValue = "false") boolean latestFirst,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", defaultValue = "100") int limit,
+            @RequestParam(value = "fetch", required = false) OrderFetchPlan fetch) {
+        OrderSearch orderSearch = new OrderSearch();
+        orderSearch.setMemberName(memberName);
+        orderSearch.setNameMatch(nameMatch);
+        orderSearch.setOrderStatus(orderStatus);
+        orderSearch.setLatestFirst(latestFirst);
+        List<Order> orders = orderService.searchOrders(orderSearch, ApiParams.cursor(cursor), ApiParams.limit(limit),
+                fetchPlans.resolve("orders-v3-2-search", fetch, OrderFetchPlan.SUMMARY));
+        List<OrderDto> result = orders.stream().map(o -> new OrderDto(o)).collect(Collectors.toList());
+        String next = orders.size() < limit ? null
+                : new OrderCursor(orders.get(orders.size() - 1).getOrderDate(), orders.get(orders.size() - 1).getId()).encode();
+        return new CursorResult<>(result, next);
+    } // 검색 조건 + orderDate 정렬(latestFirst 면 최신순) 키셋 페이징, 커서는 같은 조건/정렬로만 이어서 쓴다
 
     @GetMapping("/api/v4/orders")
     public List<OrderQueryDto> ordersV4() {
@@ -83,22 +157,167 @@ public class OrderApiController {
         // 정규화되어서 데이터의 선택을 데이터베이스 에서 한다 하지만 엔티티방식으로 조회하면 batchsize로 똑같은 이득을 얻을수 있다
     }
 
+    @GetMapping("/api/v5/orders/seek")
+    public CursorResult<List<OrderQueryDto>> ordersV5_seek(
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", defaultValue = "100") int limit) {
+        List<OrderQueryDto> result = orderQuery.findAllByDto_optimization(ApiParams.cursor(cursor), ApiParams.limit(limit));
+        String next = result.size() < limit ? null
+                : new OrderCursor(result.get(result.size() - 1).getOrderDate(), result.get(result.size() - 1).getOrderId()).encode();
+        return new CursorResult<>(result, next);
+    }
+
     @GetMapping("/api/v6/orders")
     public List<OrderQueryDto> ordersV6() {
-        List<OrderFlatDto> flats = orderQuery.findAllByDto_flat();
-        return flats.stream()
-                .collect(Collectors.groupingBy(o -> new OrderQueryDto(o.getOrderId(),o.getName(), o.getOrderDate(), o.getOrderStatus(), o.getAddress()),
-                        Collectors.mapping(o -> new OrderItemQueryDto(o.getOrderId(),o.getItemName(), o.getOrderPrice(), o.getCount()), Collectors.toList())))
-                .entrySet().stream()
-                .map(e -> new OrderQueryDto(e.getKey().getOrderId(),e.getKey().getName(), e.getKey().getOrderDate(),
-                        e.getKey().getOrderStatus(),e.getKey().getAddress(), e.getValue())).collect(Collectors.toList());
+        List<OrderQueryDto> result = new ArrayList<>();
+        orderQuery.streamAllByDto_grouped(result::add);
+        return result;
         // dto 하나에 필요한 테이블을 다 조인해서 다 가져오게 만들었다.
         // 한 행에 다 가져오므로 1 x N 문제가 발생한다 즉 컬렉션 행 수 만큼 늘어난다
         // 그래도 쿼리는 한번에 된다
-        // 페이징도 잘 안된다
         // 어플리케이션 에서 추가작업이 크다
         // dto내용을 분할해서 다시 collection 형으로 넣어서 dto 를 변환시킬수 있다.
+        // 쿼리를 o.id 순으로 정렬하면 같은 주문의 행이 연속으로 오므로 groupingBy 없이 커서에서 읽는 대로 접을수 있다 (순서도 유지된다)
+    }
+
+    @GetMapping("/api/v6/orders/page")
+    public List<OrderQueryDto> ordersV6_page(
+            @RequestParam(value = "lastOrderId", required = false) Long lastOrderId,
+            @RequestParam(value = "limit", defaultValue = "100") int limit) {
+        return orderQuery.findAllByDto_grouped(lastOrderId, ApiParams.limit(limit));
+    } // 주문 경계 단위로 페이징, 마지막으로 받은 주문 id 를 lastOrderId 로 넘긴다
+
+    @GetMapping("/api/v7/orders")
+    public CursorResult<List<SummaryOrderDto>> ordersV7(
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", defaultValue = "100") int limit) {
+        List<OrderSummary> summaries = orderSummaryService.findSummaries(ApiParams.cursor(cursor), ApiParams.limit(limit));
+        List<SummaryOrderDto> result = summaries.stream().map(SummaryOrderDto::new).collect(Collectors.toList());
+        String next = summaries.size() < limit ? null
+                : new OrderCursor(summaries.get(summaries.size() - 1).getOrderDate(), summaries.get(summaries.size() - 1).getOrderId()).encode();
+        return new CursorResult<>(result, next);
+    } // 주문 요약 읽기 모델(order_summary) 에서 테이블 하나, 쿼리 한번으로 읽는다, 주문상품은 행에 JSON 으로 들어있다
+
+    @PostMapping("/api/v1/order-summaries/rebuild")
+    public long rebuildOrderSummaries(@RequestParam(value = "workers", defaultValue = "4") int workers) {
+        return orderSummaryService.rebuild(workers);
+    }
+
+    @GetMapping(value = "/api/v5/orders/stream", produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> ordersV5_stream() {
+        return ndjson(orderQuery::streamAllByDto_optimization);
+    }
+
+    @GetMapping(value = "/api/v6/orders/stream", produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> ordersV6_stream() {
+        return ndjson(orderQuery::streamAllByDto_grouped);
+    }
+    // 대량 추출용, 결과를 List 로 모으지 않고 커서에서 읽는 대로 한 줄에 하나씩 json 으로 내보낸다 (NDJSON)
+    // 응답 쓰기는 별도 스레드에서 실행되므로 리포지토리 메서드 자체가 트랜잭션을 연다
+
+    private <T> ResponseEntity<StreamingResponseBody> ndjson(Consumer<Consumer<T>> source) {
+        StreamingResponseBody body = out -> {
+            SequenceWriter writer = objectMapper.writer()
+                    .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE) // 매 행마다 flush 하지 않고 버퍼가 차면 내보낸다
+                    .withRootValueSeparator("\n")
+                    .writeValues(out);
+            source.accept(row -> {
+                try {
+                    writer.write(row);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            writer.close();
+        };
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON)).body(body);
+    }
+
+    @PostMapping("/api/v1/orders/bulk")
+    public BulkOrderResponse bulkOrderV1(@RequestBody @Valid BulkOrderRequest request) {
+        List<BulkOrderCommand> commands = request.getOrders().stream()
+                .map(o -> new BulkOrderCommand(o.getMemberId(), o.getItems().stream()
+                        .map(i -> new BulkOrderCommand.OrderLine(i.getItemId(), i.getCount()))
+                        .collect(Collectors.toList())))
+                .collect(Collectors.toList());
+        List<Long> orderIds = orderService.bulkOrder(commands);
+        return new BulkOrderResponse(orderIds.size(), orderIds);
+    } // 주문 여러건을 한 트랜잭션에서 jdbc 배치로 저장한다, 하나라도 실패하면 전체 롤백
+
+    @PostMapping("/api/v1/orders/cancel")
+    public BulkCancelResult bulkCancelV1(@RequestBody @Valid BulkCancelRequest request) {
+        return orderBulkCancelService.cancel(new BulkCancelCondition(request.getOrderIds(),
+                request.getOrderDateFrom(), request.getOrderDateTo(), request.getDeliveryStatus()));
+    } // 주문 id 목록 또는 조건으로 일괄 취소, 1000건 단위 트랜잭션이라 일부가 실패해도 나머지는 취소되고 실패한 주문과 사유를 돌려준다
+
+    @Data
+    static class BulkCancelRequest {
+        @Size(max = 100000)
+        private List<@NotNull Long> orderIds;
+        private LocalDateTime orderDateFrom;
+        private LocalDateTime orderDateTo;
+        private DeliveryStatus deliveryStatus;
+    }
+
+    @Data
+    static class BulkOrderRequest {
+        @NotEmpty
+        @Size(max = 10000)
+        private List<@Valid BulkOrderItemsRequest> orders;
+    }
+
+    @Data
+    static class BulkOrderItemsRequest {
+        @NotNull
+        private Long memberId;
+        @NotEmpty
+        private List<@Valid BulkOrderLineRequest> items;
+    }
+
+    @Data
+    static class BulkOrderLineRequest {
+        @NotNull
+        private Long itemId;
+        @Positive
+        private int count;
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class BulkOrderResponse {
+        private int count;
+        private List<Long> orderIds;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    static class CursorResult<T> {
+        private T data;
+        private String next; // 다음 페이지 커서, 없으면 null
+    }
+
+    @Getter
+    static class SummaryOrderDto {
+        private Long orderId;
+        private String name;
+        private LocalDateTime orderDate;
+        private OrderStatus orderStatus;
+        private Address address;
+        private int totalPrice;
+        private int itemCount;
+        private List<OrderSummaryItem> orderItems;
+
+        SummaryOrderDto(OrderSummary summary) {
+            orderId = summary.getOrderId();
+            name = summary.getMemberName();
+            orderDate = summary.getOrderDate();
+            orderStatus = summary.getStatus();
+            address = summary.getAddress();
+            totalPrice = summary.getTotalPrice();
+            itemCount = summary.getItemCount();
+            orderItems = summary.getItems();
         }
+    }
 
     @Getter
     static class OrderDto {
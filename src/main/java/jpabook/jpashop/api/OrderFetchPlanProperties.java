@@ -0,0 +1,31 @@
+package jpabook.jpashop.api;
+
+import jpabook.jpashop.repository.OrderFetchPlan;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+ * 주문 API 별 기본 조회 계획
+ * 요청의 fetch 파라미터 > 설정(apis) > 엔드포인트 기본값 순서로 고른다
+ * 예) jpashop.order.fetch-plan.apis.orders-v3: WITH_ITEMS -> 코드 수정 없이 v3 가 상품을 배치 페치로 읽는다
+ * */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties("jpashop.order.fetch-plan")
+public class OrderFetchPlanProperties {
+
+    private Map<String, OrderFetchPlan> apis = new LinkedHashMap<>(); // api 이름별 계획, 예) orders-v3: FULL
+
+    public OrderFetchPlan resolve(String api, OrderFetchPlan requested, OrderFetchPlan defaultPlan) {
+        if (requested != null) {
+            return requested;
+        }
+        return apis.getOrDefault(api, defaultPlan);
+    }
+}
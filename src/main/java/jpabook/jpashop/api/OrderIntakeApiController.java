@@ -0,0 +1,55 @@
+package jpabook.jpashop.api;
+
+import jpabook.jpashop.intake.OrderIntakeService;
+import jpabook.jpashop.intake.OrderIntakeStats;
+import jpabook.jpashop.intake.OrderIntakeStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Positive;
+
+// 비동기 주문 접수, jpashop.order.intake.enabled=true 일때 사용한다
+@RestController
+@RequiredArgsConstructor
+public class OrderIntakeApiController {
+
+    private final OrderIntakeService orderIntakeService;
+
+    @PostMapping("/api/v1/orders/intake")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public IntakeResponse intake(@RequestBody @Valid IntakeRequest request) {
+        long intakeId = orderIntakeService.accept(request.getMemberId(), request.getItemId(), request.getCount());
+        return new IntakeResponse(intakeId);
+    } // 재고만 예약하고 바로 응답한다, 대기열이 가득 차면 503
+
+    @GetMapping("/api/v1/orders/intake/{intakeId}")
+    public OrderIntakeStatus intakeStatus(@PathVariable("intakeId") long intakeId) {
+        return orderIntakeService.status(intakeId);
+    } // QUEUED -> WRITTEN(orderId) 또는 FAILED
+
+    @GetMapping("/api/v1/orders/intake")
+    public OrderIntakeStats intakeStats() {
+        return orderIntakeService.stats();
+    }
+
+    @Data
+    static class IntakeRequest {
+        @NotNull
+        private Long memberId;
+        @NotNull
+        private Long itemId;
+        @Positive
+        private int count;
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class IntakeResponse {
+        private long intakeId;
+    }
+}
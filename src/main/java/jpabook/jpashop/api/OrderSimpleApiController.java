@@ -3,13 +3,17 @@ package jpabook.jpashop.api;
 import jpabook.jpashop.domain.Address;
 import jpabook.jpashop.domain.Order;
 import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.repository.OrderFetchPlan;
 import jpabook.jpashop.repository.OrderRepository;
 import jpabook.jpashop.repository.OrderSearch;
 import jpabook.jpashop.repository.order.simplequery.OrderSimpleQueryDto;
 import jpabook.jpashop.repository.order.simplequery.OrderSimpleQueryRepository;
+import jpabook.jpashop.repository.summary.OrderSummarySimpleDto;
+import jpabook.jpashop.service.OrderSummaryService;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.time.LocalDateTime;
@@ -28,6 +32,8 @@ import static java.util.stream.Collectors.toList;
 public class OrderSimpleApiController {
     private final OrderRepository orderRepository;
     private final OrderSimpleQueryRepository orderSimpleQueryRepository;
+    private final OrderSummaryService orderSummaryService;
+    private final OrderFetchPlanProperties fetchPlans;
 
     @GetMapping("/api/v1/simple-orders")
     private List<Order> ordersV1() {
@@ -47,9 +53,10 @@ public class OrderSimpleApiController {
     } // 도메인을 dto로 변환 하지만 컬렉션 형태를 그대로 반환하기 보다는 래핑해서 출력하는것이 맞다
 
     @GetMapping("/api/v3/simple-orders")
-    public List<SimpleOrderDto> ordersV3() {
-        return orderRepository.findAllWithMemberDelivery().stream().map(SimpleOrderDto::new).collect(toList());
-    } // fetch 조인으로 성능 최적화 단 데이터의 무게가 크다면...
+    public List<SimpleOrderDto> ordersV3(@RequestParam(value = "fetch", required = false) OrderFetchPlan fetch) {
+        return orderRepository.findAll(fetchPlans.resolve("simple-orders-v3", fetch, OrderFetchPlan.SUMMARY))
+                .stream().map(SimpleOrderDto::new).collect(toList());
+    } // fetch 조인으로 성능 최적화 단 데이터의 무게가 크다면... (fetch=NONE 이면 회원/배송을 배치 페치로 읽는다)
 
     @GetMapping("/api/v4/simple-orders")
     public List<OrderSimpleQueryDto> ordersV4() {
@@ -57,6 +64,13 @@ public class OrderSimpleApiController {
     }
     // jpql의 결과를 바로 dto로 만들어서 반환시킬수 있다.
 
+    @GetMapping("/api/v5/simple-orders")
+    public List<OrderSummarySimpleDto> ordersV5(
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", defaultValue = "100") int limit) {
+        return orderSummaryService.findSimpleSummaries(ApiParams.cursor(cursor), ApiParams.limit(limit));
+    } // 주문 요약 읽기 모델에서 조인 없이 읽는다, 다음 페이지는 마지막 행의 (orderDate, orderId) 로 만든 커서를 넘긴다
+
     @Data
     static class SimpleOrderDto {
         private Long orderId;
@@ -0,0 +1,48 @@
+package jpabook.jpashop.api;
+
+import jpabook.jpashop.repository.report.DailyRevenueDto;
+import jpabook.jpashop.repository.report.ItemSalesDto;
+import jpabook.jpashop.repository.report.MemberRevenueDto;
+import jpabook.jpashop.service.ReportService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDate;
+import java.util.List;
+
+// 기간은 [from, to) 로 받는다 (to 는 포함하지 않음)
+@RestController
+@RequiredArgsConstructor
+public class ReportApiController {
+
+    private final ReportService reportService;
+
+    @GetMapping("/api/v1/reports/daily-revenue")
+    public List<DailyRevenueDto> dailyRevenue(@RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                              @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return reportService.dailyRevenue(from, to);
+    }
+
+    @GetMapping("/api/v1/reports/top-items")
+    public List<ItemSalesDto> topItems(@RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                       @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                       @RequestParam(value = "limit", defaultValue = "10") int limit) {
+        return reportService.topItems(from, to, ApiParams.limit(limit));
+    }
+
+    @GetMapping("/api/v1/reports/member-revenue")
+    public List<MemberRevenueDto> memberRevenue(@RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                @RequestParam(value = "limit", defaultValue = "10") int limit) {
+        return reportService.memberRevenue(from, to, ApiParams.limit(limit));
+    }
+
+    @PostMapping("/api/v1/reports/daily-revenue/rebuild")
+    public int rebuildDailyRevenue() {
+        return reportService.rebuildDailyRevenue();
+    }
+}
@@ -0,0 +1,261 @@
+package jpabook.jpashop.datagen;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Delivery;
+import jpabook.jpashop.domain.DeliveryStatus;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderItem;
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.domain.item.Album;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.domain.item.Movie;
+import jpabook.jpashop.service.DailyRevenueRecorder;
+import jpabook.jpashop.service.OrderSummaryRecorder;
+import jpabook.jpashop.service.OrderSummaryService;
+import jpabook.jpashop.service.ReportService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/*
+ * 부하 테스트용 대량 데이터 생성기
+ * loadtest 프로필에서만 빈으로 등록되므로 일반 실행시에는 비용이 없다
+ * 회원 -> 상품 -> 주문 순으로 chunkSize 단위 트랜잭션을 workers 개 스레드에서 병렬로 실행한다
+ * */
+@Slf4j
+@Component
+@Profile("loadtest")
+@RequiredArgsConstructor
+public class LoadDataGenerator implements ApplicationRunner {
+
+    private static final String[] CITIES = {"서울", "부산", "대구", "인천", "광주", "대전", "울산", "진주"};
+
+    private final LoadDataProperties props;
+    private final EntityManager em;
+    private final PlatformTransactionManager transactionManager;
+    private final OrderSummaryRecorder orderSummaryRecorder;
+    private final OrderSummaryService orderSummaryService;
+    private final DailyRevenueRecorder dailyRevenueRecorder;
+    private final ReportService reportService;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        generate();
+    }
+
+    public void generate() {
+        ExecutorService executor = Executors.newFixedThreadPool(props.getWorkers());
+        try {
+            long[] memberIds = runChunks(executor, "member", props.getMembers(), this::insertMembers);
+            long[] itemIds = runChunks(executor, "item", props.getItems(), this::insertItems);
+            int[] prices = loadPrices(itemIds);
+            ZipfSampler popularity = new ZipfSampler(itemIds.length, props.getZipfExponent());
+            runChunks(executor, "order", props.getOrders(), chunk -> insertOrders(chunk, memberIds, itemIds, prices, popularity));
+        } finally {
+            executor.shutdown();
+        }
+        if (orderSummaryRecorder.isEnabled()) {
+            // 주문을 서비스 밖에서 넣었으므로 요약은 한번에 만든다 (작업자 수는 커넥션 풀 상한 안에서)
+            orderSummaryService.rebuild(Math.min(props.getWorkers(), orderSummaryService.getMaxWorkers()));
+        }
+        if (dailyRevenueRecorder.isEnabled()) {
+            log.info("datagen daily_revenue : {} rows", reportService.rebuildDailyRevenue());
+        }
+    }
+
+    // total 개를 chunkSize 로 나눠 병렬 트랜잭션으로 실행하고, 생성된 id 를 순서대로 모아서 반환한다
+    private long[] runChunks(ExecutorService executor, String label, int total, Function<Chunk, long[]> writer) {
+        long start = System.nanoTime();
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        List<Future<long[]>> futures = new ArrayList<>();
+        for (int from = 0; from < total; from += props.getChunkSize()) {
+            Chunk chunk = new Chunk(from, Math.min(from + props.getChunkSize(), total), new Random(props.getSeed() + from));
+            futures.add(executor.submit(() -> tx.execute(status -> writer.apply(chunk))));
+        }
+
+        long[] ids = new long[total];
+        int pos = 0;
+        try {
+            for (Future<long[]> future : futures) {
+                long[] chunkIds = future.get();
+                System.arraycopy(chunkIds, 0, ids, pos, chunkIds.length);
+                pos += chunkIds.length;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("데이터 생성이 중단되었습니다.", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(label + " 데이터 생성에 실패했습니다.", e.getCause());
+        }
+
+        double seconds = Math.max(1, System.nanoTime() - start) / 1_000_000_000.0;
+        log.info("datagen {} : {} rows in {}s ({} rows/sec)", label, total, String.format("%.1f", seconds), (long) (total / seconds));
+        return ids;
+    }
+
+    private long[] insertMembers(Chunk chunk) {
+        long[] ids = new long[chunk.size()];
+        for (int i = chunk.from; i < chunk.to; i++) {
+            Member member = new Member();
+            member.setName("member" + i);
+            member.setAddress(randomAddress(chunk.random));
+            em.persist(member);
+            ids[i - chunk.from] = member.getId();
+            flushIfNeeded(i - chunk.from + 1);
+        }
+        return ids;
+    }
+
+    private long[] insertItems(Chunk chunk) {
+        long[] ids = new long[chunk.size()];
+        for (int i = chunk.from; i < chunk.to; i++) {
+            Item item = randomItem(i, chunk.random);
+            item.setName("item" + i);
+            item.setPrice((1 + chunk.random.nextInt(500)) * 100);
+            item.setStockQuantity(Integer.MAX_VALUE / 2); // 재고는 주문으로 줄이지 않는다
+            em.persist(item);
+            ids[i - chunk.from] = item.getId();
+            flushIfNeeded(i - chunk.from + 1);
+        }
+        return ids;
+    }
+
+    private Item randomItem(int i, Random random) {
+        int type = random.nextInt(10);
+        if (type < 6) {
+            Book book = new Book();
+            book.setAuthor("author" + random.nextInt(1000));
+            book.setIsbn(String.valueOf(1_000_000_000L + i));
+            return book;
+        }
+        if (type < 8) {
+            Album album = new Album();
+            album.setArtist("artist" + random.nextInt(1000));
+            return album;
+        }
+        Movie movie = new Movie();
+        movie.setDirector("director" + random.nextInt(1000));
+        movie.setActor("actor" + random.nextInt(1000));
+        return movie;
+    }
+
+    private int[] loadPrices(long[] itemIds) {
+        Map<Long, Integer> priceById = new TransactionTemplate(transactionManager).execute(status ->
+                em.createQuery("select i.id, i.price from Item i", Object[].class).getResultList().stream()
+                        .collect(Collectors.toMap(row -> (Long) row[0], row -> (Integer) row[1])));
+        int[] prices = new int[itemIds.length];
+        for (int i = 0; i < itemIds.length; i++) {
+            prices[i] = priceById.get(itemIds[i]);
+        }
+        return prices;
+    }
+
+    // 주문마다 회원을 조회하지 않도록 flush 단위마다 쓸 회원을 미리 정하고 in 절 한번으로 가져온다
+    // 상품은 프록시(getReference)만 쓰고 재고는 건드리지 않는다 (createReservedOrderItem)
+    private long[] insertOrders(Chunk chunk, long[] memberIds, long[] itemIds, int[] prices, ZipfSampler popularity) {
+        long[] ids = new long[chunk.size()];
+        LocalDateTime now = LocalDateTime.now();
+        for (int from = 0; from < chunk.size(); from += props.getFlushSize()) {
+            int to = Math.min(from + props.getFlushSize(), chunk.size());
+            long[] orderMembers = new long[to - from];
+            Set<Long> distinctMembers = new HashSet<>();
+            for (int i = 0; i < orderMembers.length; i++) {
+                orderMembers[i] = memberIds[chunk.random.nextInt(memberIds.length)];
+                distinctMembers.add(orderMembers[i]);
+            }
+            Map<Long, Member> members = loadMembers(distinctMembers);
+
+            for (int i = 0; i < orderMembers.length; i++) {
+                Member member = members.get(orderMembers[i]);
+
+                Delivery delivery = new Delivery();
+                delivery.setAddress(member.getAddress());
+                delivery.setStatus(chunk.random.nextInt(3) == 0 ? DeliveryStatus.COMP : DeliveryStatus.READY);
+
+                OrderItem[] orderItems = new OrderItem[itemsPerOrder(chunk.random)];
+                for (int k = 0; k < orderItems.length; k++) {
+                    int idx = popularity.sample(chunk.random);
+                    orderItems[k] = OrderItem.createReservedOrderItem(em.getReference(Item.class, itemIds[idx]), prices[idx],
+                            1 + chunk.random.nextInt(3));
+                }
+
+                Order order = Order.createOrder(member, delivery, orderItems);
+                order.setOrderDate(now.minusSeconds(chunk.random.nextInt(props.getOrderDays() * 24 * 60 * 60)));
+                if (chunk.random.nextDouble() < props.getCancelRatio()) {
+                    order.setStatus(OrderStatus.CANCEL);
+                }
+                em.persist(order);
+                ids[from + i] = order.getId();
+            }
+            em.flush();
+            em.clear();
+        }
+        return ids;
+    }
+
+    private Map<Long, Member> loadMembers(Set<Long> memberIds) {
+        return em.createQuery("select m from Member m where m.id in :ids", Member.class)
+                .setParameter("ids", memberIds)
+                .getResultList().stream()
+                .collect(Collectors.toMap(Member::getId, m -> m));
+    }
+
+    // 1개가 가장 많고 max 로 갈수록 줄어드는 분포
+    private int itemsPerOrder(Random random) {
+        int count = 1;
+        while (count < props.getMaxItemsPerOrder() && random.nextDouble() < 0.4) {
+            count++;
+        }
+        return count;
+    }
+
+    private Address randomAddress(Random random) {
+        return new Address(CITIES[random.nextInt(CITIES.length)], "street" + random.nextInt(1000),
+                String.format("%05d", random.nextInt(100_000)));
+    }
+
+    private void flushIfNeeded(int written) {
+        if (written % props.getFlushSize() == 0) {
+            em.flush();
+            em.clear();
+        }
+    }
+
+    private static class Chunk {
+        final int from;
+        final int to;
+        final Random random;
+
+        Chunk(int from, int to, Random random) {
+            this.from = from;
+            this.to = to;
+            this.random = random;
+        }
+
+        int size() {
+            return to - from;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package jpabook.jpashop.datagen;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+// 부하 테스트용 데이터 생성 설정 (loadtest 프로필)
+@Getter
+@Setter
+@Component
+@Profile("loadtest")
+@ConfigurationProperties(prefix = "datagen")
+public class LoadDataProperties {
+
+    private int members = 100_000;
+    private int items = 10_000;
+    private int orders = 1_000_000;
+    private int maxItemsPerOrder = 5; // 주문당 상품 수는 1 ~ max, 적은 쪽으로 치우친다
+    private double zipfExponent = 1.0; // 상품 인기도 분포, 클수록 소수 상품에 주문이 몰린다
+    private int orderDays = 365; // 주문일시를 최근 며칠에 걸쳐 흩뿌린다
+    private double cancelRatio = 0.05;
+    private int workers = 4; // 병렬 트랜잭션 수
+    private int chunkSize = 5_000; // 트랜잭션 하나가 저장하는 행 수
+    private int flushSize = 500; // 이 단위로 flush / clear
+    private long seed = 42L;
+}
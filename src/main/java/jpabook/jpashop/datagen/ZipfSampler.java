@@ -0,0 +1,31 @@
+package jpabook.jpashop.datagen;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/*
+ * 0 ~ n-1 사이의 순위를 Zipf 분포로 뽑는다 (0 번이 가장 인기)
+ * 누적 분포를 미리 계산해두고 이분 탐색으로 뽑는다
+ * */
+public class ZipfSampler {
+
+    private final double[] cdf;
+
+    public ZipfSampler(int n, double exponent) {
+        cdf = new double[n];
+        double sum = 0;
+        for (int rank = 1; rank <= n; rank++) {
+            sum += 1.0 / Math.pow(rank, exponent);
+            cdf[rank - 1] = sum;
+        }
+        for (int i = 0; i < n; i++) {
+            cdf[i] /= sum;
+        }
+    }
+
+    public int sample(Random random) {
+        int idx = Arrays.binarySearch(cdf, random.nextDouble());
+        int rank = idx >= 0 ? idx : -idx - 1;
+        return Math.min(rank, cdf.length - 1);
+    }
+}
@@ -0,0 +1,93 @@
+package jpabook.jpashop.datasource;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * 복제본 상태 감시
+ * checkIntervalMillis 마다 복제본에 lagQuery 를 실행해서 지연이 maxLagMillis 를 넘거나 연결이 안되면 읽기 대상에서 뺀다
+ * 다시 따라잡으면 자동으로 돌아온다
+ * */
+@Slf4j
+public class ReplicaHealth implements AutoCloseable {
+
+    public static final long UNAVAILABLE = -1;
+
+    private final Map<String, DataSource> replicas;
+    private final RoutingProperties props;
+    private final Map<String, Long> lagMillis = new ConcurrentHashMap<>();
+    private ScheduledExecutorService scheduler;
+
+    public ReplicaHealth(Map<String, DataSource> replicas, RoutingProperties props, MeterRegistry registry) {
+        this.replicas = replicas;
+        this.props = props;
+        for (String name : replicas.keySet()) {
+            lagMillis.put(name, 0L); // 첫 검사 전에는 사용 가능으로 본다
+            if (registry != null) {
+                Gauge.builder("jpashop.datasource.replica.lag", lagMillis, m -> m.get(name))
+                        .tag("replica", name)
+                        .baseUnit("milliseconds")
+                        .register(registry);
+            }
+        }
+    }
+
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "replica-health");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::check, props.getCheckIntervalMillis(), props.getCheckIntervalMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public void check() {
+        replicas.forEach((name, dataSource) -> {
+            long lag = measure(dataSource);
+            Long previous = lagMillis.put(name, lag);
+            if (isAvailable(lag) != isAvailable(previous == null ? 0 : previous)) {
+                log.warn("replica {} {} (lag={}ms)", name, isAvailable(lag) ? "복구" : "읽기 대상에서 제외", lag);
+            }
+        });
+    }
+
+    private long measure(DataSource dataSource) {
+        try (Connection connection = dataSource.getConnection()) {
+            if (props.getLagQuery() == null) {
+                return connection.isValid(1) ? 0 : UNAVAILABLE;
+            }
+            try (Statement statement = connection.createStatement();
+                 ResultSet rs = statement.executeQuery(props.getLagQuery())) {
+                return rs.next() ? Math.max(0, rs.getLong(1)) : UNAVAILABLE;
+            }
+        } catch (Exception e) {
+            return UNAVAILABLE;
+        }
+    }
+
+    public boolean isAvailable(String name) {
+        return isAvailable(lagMillis.getOrDefault(name, UNAVAILABLE));
+    }
+
+    private boolean isAvailable(long lag) {
+        return lag != UNAVAILABLE && lag <= props.getMaxLagMillis();
+    }
+
+    @Override
+    public void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package jpabook.jpashop.datasource;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * readOnly 트랜잭션은 복제본으로, 나머지는 원본(primary) 으로 보낸다
+ * 트랜잭션 속성은 커넥션을 실제로 얻을때 보므로 LazyConnectionDataSourceProxy 로 감싸서 써야 한다
+ * 사용 가능한 복제본이 없거나 같은 요청에서 이미 쓰기를 했으면 읽기도 원본으로 보낸다 (복제 지연 때문에 방금 쓴 값이 안보이는 것 방지)
+ * OSIV 가 켜져있으면 요청의 첫 커넥션을 끝까지 써서 경로가 요청 단위로 고정되므로 OSIV 를 끄고 쓴다 (RoutingDataSourceConfig 가 확인)
+ * */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    public static final String PRIMARY = "primary";
+    static final String STICKY_ATTRIBUTE = ReplicaRoutingDataSource.class.getName() + ".sticky";
+
+    private final List<String> replicaNames;
+    private final ReplicaHealth health;
+    private final boolean stickyAfterWrite;
+    private final AtomicInteger next = new AtomicInteger();
+    private final Map<String, Counter> routeCounters = new HashMap<>();
+
+    public ReplicaRoutingDataSource(DataSource primary, Map<String, DataSource> replicas, ReplicaHealth health,
+                                    boolean stickyAfterWrite, MeterRegistry registry) {
+        this.replicaNames = new ArrayList<>(replicas.keySet());
+        this.health = health;
+        this.stickyAfterWrite = stickyAfterWrite;
+
+        Map<Object, Object> targets = new HashMap<>(replicas);
+        targets.put(PRIMARY, primary);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+
+        if (registry != null) {
+            for (Object route : targets.keySet()) {
+                routeCounters.put((String) route, Counter.builder("jpashop.datasource.route")
+                        .tag("route", (String) route)
+                        .register(registry));
+            }
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        String route = route();
+        Counter counter = routeCounters.get(route);
+        if (counter != null) {
+            counter.increment();
+        }
+        return route;
+    }
+
+    private String route() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                markSticky();
+            }
+            return PRIMARY;
+        }
+        if (isSticky()) {
+            return PRIMARY;
+        }
+        for (int i = 0; i < replicaNames.size(); i++) { // 라운드 로빈, 사용 불가능한 복제본은 건너뛴다
+            String name = replicaNames.get(Math.floorMod(next.getAndIncrement(), replicaNames.size()));
+            if (health.isAvailable(name)) {
+                return name;
+            }
+        }
+        return PRIMARY;
+    }
+
+    private void markSticky() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (stickyAfterWrite && attributes != null) {
+            attributes.setAttribute(STICKY_ATTRIBUTE, Boolean.TRUE, RequestAttributes.SCOPE_REQUEST);
+        }
+    }
+
+    private boolean isSticky() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        return stickyAfterWrite && attributes != null
+                && attributes.getAttribute(STICKY_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST) != null;
+    }
+}
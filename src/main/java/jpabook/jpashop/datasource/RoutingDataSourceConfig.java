@@ -0,0 +1,111 @@
+package jpabook.jpashop.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+ * jpashop.datasource.routing.enabled=true 일때만 원본/복제본 라우팅 DataSource 를 쓴다
+ * 원본은 spring.datasource(.hikari) 설정을 그대로 쓰고, 복제본은 jpashop.datasource.routing.replicas 로 추가한다
+ * 풀마다 이름을 붙여 hikaricp_* 지표가 pool 태그로 나뉘게 했다
+ * OSIV 와 같이 쓸 수 없다, 요청의 영속성 컨텍스트가 첫 트랜잭션의 커넥션을 요청이 끝날때까지 잡고 있어서
+ * 첫 트랜잭션이 readOnly 면 같은 요청의 쓰기 트랜잭션도 복제본에서 실행된다 -> 시작할때 막는다
+ * */
+@Configuration
+@ConditionalOnProperty(prefix = "jpashop.datasource.routing", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(RoutingProperties.class)
+public class RoutingDataSourceConfig {
+
+    // 풀들은 DataSource 빈으로 등록하지 않는다 (p6spy 가 원본/복제본과 라우팅 DataSource 를 이중으로 감싸지 않도록)
+    @Bean(destroyMethod = "close")
+    public RoutingPools routingPools(DataSourceProperties dataSourceProperties, Environment environment, RoutingProperties props,
+                                     ObjectProvider<MeterRegistry> registryProvider) {
+        checkOpenInView(environment);
+        MeterRegistry registry = registryProvider.getIfAvailable();
+        HikariDataSource primaryDataSource = dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(primaryDataSource));
+        primaryDataSource.setPoolName(ReplicaRoutingDataSource.PRIMARY);
+        if (registry != null) {
+            primaryDataSource.setMetricRegistry(registry);
+        }
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        for (int i = 0; i < props.getReplicas().size(); i++) {
+            RoutingProperties.Replica replica = props.getReplicas().get(i);
+            HikariDataSource dataSource = new HikariDataSource();
+            dataSource.setPoolName(replica.getName() != null ? replica.getName() : "replica-" + i);
+            dataSource.setJdbcUrl(replica.getUrl());
+            dataSource.setUsername(replica.getUsername());
+            dataSource.setPassword(replica.getPassword());
+            dataSource.setMaximumPoolSize(replica.getMaximumPoolSize());
+            dataSource.setReadOnly(true);
+            if (registry != null) {
+                dataSource.setMetricRegistry(registry);
+            }
+            replicas.put(dataSource.getPoolName(), dataSource);
+        }
+        ReplicaHealth health = new ReplicaHealth(replicas, props, registry);
+        health.start();
+        return new RoutingPools(primaryDataSource, replicas, health);
+    }
+
+    // spring.jpa.open-in-view 는 설정하지 않으면 켜져있다
+    static void checkOpenInView(Environment environment) {
+        if (environment.getProperty("spring.jpa.open-in-view", Boolean.class, true)) {
+            throw new IllegalStateException("jpashop.datasource.routing.enabled=true 는 spring.jpa.open-in-view=false 와 같이 써야 합니다." +
+                    " OSIV 는 요청의 첫 커넥션을 끝까지 잡으므로 readOnly 트랜잭션 뒤의 쓰기가 복제본으로 갑니다.");
+        }
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(RoutingPools routingPools, RoutingProperties props, ObjectProvider<MeterRegistry> registryProvider) {
+        return new LazyConnectionDataSourceProxy(new ReplicaRoutingDataSource(routingPools.getPrimary(), routingPools.getReplicas(),
+                routingPools.getHealth(), props.isStickyAfterWrite(), registryProvider.getIfAvailable()));
+    }
+
+    public static class RoutingPools implements AutoCloseable {
+
+        private final HikariDataSource primary;
+        private final Map<String, DataSource> replicas;
+        private final ReplicaHealth health;
+
+        RoutingPools(HikariDataSource primary, Map<String, DataSource> replicas, ReplicaHealth health) {
+            this.primary = primary;
+            this.replicas = replicas;
+            this.health = health;
+        }
+
+        public HikariDataSource getPrimary() {
+            return primary;
+        }
+
+        public Map<String, DataSource> getReplicas() {
+            return replicas;
+        }
+
+        public ReplicaHealth getHealth() {
+            return health;
+        }
+
+        @Override
+        public void close() {
+            health.close();
+            replicas.values().forEach(dataSource -> ((HikariDataSource) dataSource).close());
+            primary.close();
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package jpabook.jpashop.datasource;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@ConfigurationProperties("jpashop.datasource.routing")
+public class RoutingProperties {
+
+    private boolean enabled = false;
+    private List<Replica> replicas = new ArrayList<>();
+    private long maxLagMillis = 1000; // 이보다 뒤쳐진 복제본은 읽기에서 뺀다
+    private long checkIntervalMillis = 1000;
+    private String lagQuery; // 복제 지연(ms) 을 돌려주는 쿼리, 없으면 연결 가능 여부만 본다
+    private boolean stickyAfterWrite = true; // 같은 요청 안에서 쓰기 후 읽기는 원본으로 보낸다
+
+    @Getter
+    @Setter
+    public static class Replica {
+        private String name;
+        private String url;
+        private String username;
+        private String password;
+        private int maximumPoolSize = 10;
+    }
+}
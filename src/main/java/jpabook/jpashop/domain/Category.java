@@ -6,9 +6,12 @@ import lombok.Setter;
 
 import javax.persistence.*;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 @Entity
+@Table(indexes = @Index(name = "idx_category_parent", columnList = "parent_id"))
 @Getter @Setter
 public class Category {
 
@@ -23,7 +26,7 @@ public class Category {
         joinColumns = @JoinColumn(name ="category_id"),
             inverseJoinColumns = @JoinColumn(name = "item_id")
     )
-    private List<Item> items = new ArrayList<>();
+    private Set<Item> items = new HashSet<>(); // List(bag) 는 한건만 바뀌어도 조인 테이블을 전부 지우고 다시 넣는다, Set 은 바뀐 행만 insert/delete 한다
 
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name ="parent_id")
@@ -32,6 +35,17 @@ public class Category {
     @OneToMany(mappedBy = "parent")
     private List<Category> child = new ArrayList<>();
 
+    public void addItem(Item item) {
+        this.items.add(item);
+        item.getCategories().add(this);
+    }
+
+    public void removeItem(Item item) {
+        this.items.remove(item);
+        item.getCategories().remove(this);
+    }
+
+    // 계층 인덱스(category_closure) 도 같이 바뀌어야 하므로 CategoryService.addChild 를 통해 호출한다
     public void addChildCategory(Category child)  {
         this.child.add(child);
         child.setParent(this);
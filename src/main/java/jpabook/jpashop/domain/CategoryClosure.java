@@ -0,0 +1,46 @@
+package jpabook.jpashop.domain;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+
+/*
+ * 카테고리 계층 클로저 테이블
+ * 조상 -> 자손 모든 쌍을 (자기 자신 포함, depth 0) 한 행씩 저장한다
+ * 하위 전체 / 상위 경로 조회를 재귀 없이 인덱스 한번으로 처리하기 위한 용도이고 parent/child 매핑은 그대로 둔다
+ * 행 추가/삭제는 CategoryRepository 의 벌크 쿼리로만 한다
+ * */
+@Entity
+@Table(name = "category_closure", indexes = {
+        @Index(name = "idx_category_closure_descendant", columnList = "descendant_id, depth") // 상위 경로 조회용, 하위 조회는 PK (ancestor_id, descendant_id) 를 탄다
+})
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class CategoryClosure {
+
+    @EmbeddedId
+    private CategoryClosureId id;
+
+    @MapsId("ancestorId")
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "ancestor_id")
+    private Category ancestor;
+
+    @MapsId("descendantId")
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "descendant_id")
+    private Category descendant;
+
+    private int depth;
+
+    public static CategoryClosure self(Category category) {
+        CategoryClosure closure = new CategoryClosure();
+        closure.id = new CategoryClosureId(category.getId(), category.getId());
+        closure.ancestor = category;
+        closure.descendant = category;
+        closure.depth = 0;
+        return closure;
+    }
+}
@@ -0,0 +1,35 @@
+package jpabook.jpashop.domain;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.EmbeddedId;
+import javax.persistence.Entity;
+import javax.persistence.Table;
+
+/*
+ * 일별 / 주문상태별 매출 요약 (증분 집계 테이블)
+ * 주문, 취소 시점에 DailyRevenueRecorder 가 더하고 빼므로 대시보드는 주문 수가 아니라 일 수 만큼만 읽는다
+ * jpashop.report.summary.enabled=true 일때만 채워진다
+ * */
+@Entity
+@Table(name = "daily_revenue")
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class DailyRevenue {
+
+    @EmbeddedId
+    private DailyRevenueId id;
+
+    private long orderCount;
+    private long itemQuantity;
+    private long revenue;
+
+    public DailyRevenue(DailyRevenueId id, long orderCount, long itemQuantity, long revenue) {
+        this.id = id;
+        this.orderCount = orderCount;
+        this.itemQuantity = itemQuantity;
+        this.revenue = revenue;
+    }
+}
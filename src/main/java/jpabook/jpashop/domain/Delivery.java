@@ -10,7 +10,9 @@ import javax.persistence.*;
 @Getter
 @Setter
 public class Delivery {
-    @Id @GeneratedValue
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "delivery_seq_gen")
+    @SequenceGenerator(name = "delivery_seq_gen", sequenceName = "delivery_seq", allocationSize = 50)
     @Column(name = "delivery_id")
     private Long id;
 
@@ -3,6 +3,8 @@ package jpabook.jpashop.domain;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.*;
 import javax.validation.constraints.NotEmpty;
@@ -10,10 +12,15 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
+@Table(indexes = @Index(name = "idx_member_name", columnList = "name")) // 이름 일치 / 접두어(PREFIX) 검색용
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "member") // 주문시 마다 조회되고 수정은 드물다
 @Getter @Setter
 public class Member {
 
-    @Id @GeneratedValue
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "member_seq_gen")
+    @SequenceGenerator(name = "member_seq_gen", sequenceName = "member_seq", allocationSize = 50)
     @Column(name = "member_id")
     private Long id;
 
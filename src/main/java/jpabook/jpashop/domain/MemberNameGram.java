@@ -0,0 +1,29 @@
+package jpabook.jpashop.domain;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.EmbeddedId;
+import javax.persistence.Entity;
+import javax.persistence.Index;
+import javax.persistence.Table;
+
+/*
+ * 회원 이름 트라이그램 인덱스 (부가 테이블)
+ * 이름의 연속된 세 글자마다 한 행, PK (gram, member_id) 로 '%입력값%' 검색 후보를 인덱스로 찾는다
+ * MemberNameGramIndexer 가 채우고 jpashop.search.member-name-trigram 이 꺼져있으면 비어있다
+ * */
+@Entity
+@Table(name = "member_name_gram", indexes = @Index(name = "idx_member_name_gram_member", columnList = "member_id"))
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class MemberNameGram {
+
+    @EmbeddedId
+    private MemberNameGramId id;
+
+    public MemberNameGram(String gram, Long memberId) {
+        this.id = new MemberNameGramId(gram, memberId);
+    }
+}
@@ -12,12 +12,35 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name ="orders")
+@Table(name ="orders", indexes = {
+        @Index(name = "idx_orders_order_date_id", columnList = "orderDate, order_id"), // 키셋 페이징 (orderDate, id) 순서용
+        @Index(name = "idx_orders_status_order_date_id", columnList = "status, orderDate, order_id"), // 상태 검색 + orderDate 정렬/seek
+        @Index(name = "idx_orders_member_order_date", columnList = "member_id, orderDate"), // 회원 -> 주문 조인 (FK)
+        @Index(name = "idx_orders_delivery", columnList = "delivery_id"), // 배송 조인 (FK)
+        @Index(name = "uk_orders_intake_id", columnList = "intake_id", unique = true) // 비동기 접수 번호, 재처리시 중복 저장 방지
+})
+// 조회 계획 (OrderFetchPlan), 쿼리에 fetchgraph 힌트로 걸면 여기 적힌 연관만 한 쿼리로 같이 읽는다
+@NamedEntityGraphs({
+        @NamedEntityGraph(name = "Order.summary", attributeNodes = { // 회원, 배송 (to-one 만이라 페이징 가능)
+                @NamedAttributeNode("member"),
+                @NamedAttributeNode("delivery")}),
+        @NamedEntityGraph(name = "Order.withItems", attributeNodes = { // + 주문상품, 상품은 배치 페치
+                @NamedAttributeNode("member"),
+                @NamedAttributeNode("delivery"),
+                @NamedAttributeNode("orderItems")}),
+        @NamedEntityGraph(name = "Order.full", attributeNodes = { // + 주문상품의 상품까지
+                @NamedAttributeNode("member"),
+                @NamedAttributeNode("delivery"),
+                @NamedAttributeNode(value = "orderItems", subgraph = "orderItems.item")},
+                subgraphs = @NamedSubgraph(name = "orderItems.item", attributeNodes = @NamedAttributeNode("item")))
+})
 @Getter @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED) //프로텍디드 기본 컨스터럭터
 public class Order {
 
-    @Id @GeneratedValue
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_seq_gen")
+    @SequenceGenerator(name = "order_seq_gen", sequenceName = "orders_seq", allocationSize = 50) // pooled 방식, 시퀀스 한번 조회로 id 50개를 쓴다
     @Column(name ="order_id")
     private Long id;
 
@@ -26,10 +49,12 @@ public class Order {
     private Member member ;
 
     @OneToMany(mappedBy = "order", cascade = CascadeType.ALL)
-    @BatchSize(size = 3) // 특정 부분에만 배치사이즈 적용, Order를 통해 orderItems를 조회할때 적용된다 컬렉션에만 적용 가능
+    @BatchSize(size = 16) // 특정 부분에만 배치사이즈 적용, Order를 통해 orderItems를 조회할때 적용된다 컬렉션에만 적용 가능
+    // batch_fetch_style: padded 와 함께 2의 거듭제곱으로 맞춰 IdBatchLoader 와 같은 크기의 in 절을 쓰게 했다
     private List<OrderItem> orderItems = new ArrayList<>();
 
     @OneToOne(fetch = FetchType.LAZY, cascade = CascadeType.ALL)
+    @JoinColumn(name = "delivery_id")
     private Delivery delivery;
 
     private LocalDateTime orderDate;
@@ -37,6 +62,9 @@ public class Order {
     @Enumerated(EnumType.STRING)
     private OrderStatus status; //주문상태 주문, 취소
 
+    @Column(name = "intake_id")
+    private Long intakeId; // 비동기 접수(OrderIntakeService)로 들어온 주문의 접수 번호, 동기 주문은 null
+
     //==연관관계 메서드==//
     public  void setMember(Member member) {
         this.member = member;
@@ -11,12 +11,19 @@ import org.hibernate.annotations.BatchSize;
 import javax.persistence.*;
 
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_order_item_order", columnList = "order_id"), // 주문 -> 주문상품 (FK)
+        @Index(name = "idx_order_item_item", columnList = "witem_id"), // 상품 -> 주문상품 (FK)
+        @Index(name = "idx_order_item_stock_pending", columnList = "stock_pending") // 시작시 반영 안된 재고 차감 찾기
+})
 @Getter
 @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED) //프로텍디드 기본 컨스터럭터
 public class OrderItem {
 
-    @Id @GeneratedValue
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_item_seq_gen")
+    @SequenceGenerator(name = "order_item_seq_gen", sequenceName = "order_item_seq", allocationSize = 50)
     @Column(name = "order_item_id")
     private Long id;
 
@@ -32,6 +39,9 @@ public class OrderItem {
     private int orderPrice;
     private int count;
 
+    @Column(name = "stock_pending")
+    private boolean stockPending; // 재고를 HotStockLedger 메모리에서만 차감했고 아직 item.stock_quantity 에 반영하지 않았다
+
 
     //==생성 메서드==//
     public static OrderItem createOrderItem(Item item, int orderPrice, int count) {
@@ -44,8 +54,27 @@ public class OrderItem {
         return orderItem;
     }
 
+    // 재고를 이미 차감한 경우 (조건부 update 로 재고를 먼저 예약한 경우) 사용한다
+    public static OrderItem createReservedOrderItem(Item item, int orderPrice, int count) {
+        OrderItem orderItem = new OrderItem();
+        orderItem.setItem(item);
+        orderItem.setOrderPrice(orderPrice);
+        orderItem.setCount(count);
+        return orderItem;
+    }
+
+    // 인기 상품, 재고는 HotStockLedger 에서 예약했고 반영되면 stockPending 이 풀린다
+    public static OrderItem createHotOrderItem(Item item, int orderPrice, int count) {
+        OrderItem orderItem = createReservedOrderItem(item, orderPrice, count);
+        orderItem.setStockPending(true);
+        return orderItem;
+    }
+
     //==비즈니스 로직==//
     public void cancel() {
+        if (getItem().isHot()) {
+            return; // 인기 상품 재고는 엔티티로 바꾸지 않는다, HotStockLedger 가 되돌린다
+        }
         getItem().addStock(count);
     }
 
@@ -0,0 +1,66 @@
+package jpabook.jpashop.domain;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * 주문 요약 읽기 모델, 주문 하나당 한 행 (order_id 가 그대로 키)
+ * 회원 이름, 배송 주소, 상태, 총액, 상품 수, 주문상품 목록(JSON) 을 미리 펼쳐 두어서 목록 API 가 조인 없이 테이블 하나만 읽는다
+ * 주문/취소/회원 이름 변경시 OrderSummaryRecorder 가 같은 트랜잭션에서 갱신하고, 어긋나면 OrderSummaryService.rebuild 로 다시 만든다
+ * */
+@Entity
+@Table(name = "order_summary", indexes = {
+        @Index(name = "idx_order_summary_order_date_id", columnList = "orderDate, order_id"), // 키셋 페이징
+        @Index(name = "idx_order_summary_member", columnList = "member_id") // 회원 이름 변경시 갱신 대상
+})
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class OrderSummary {
+
+    @Id
+    @Column(name = "order_id")
+    private Long orderId;
+
+    @Column(name = "member_id")
+    private Long memberId;
+    private String memberName;
+
+    @Embedded
+    private Address address; // 배송 주소
+
+    private LocalDateTime orderDate;
+
+    @Enumerated(EnumType.STRING)
+    private OrderStatus status;
+
+    private int totalPrice;
+    private int itemCount; // 주문 수량 합
+
+    @Convert(converter = OrderSummaryItemsConverter.class)
+    @Lob // 주문상품 수에 제한이 없으므로 길이 제한이 있는 varchar 대신 clob
+    private List<OrderSummaryItem> items = new ArrayList<>();
+
+    // 주문 엔티티에서 만든다, 회원/배송/주문상품/상품이 읽히므로 주문을 만든 트랜잭션 안이나 배치 페치로 읽은 뒤에 호출한다
+    public static OrderSummary of(Order order) {
+        OrderSummary summary = new OrderSummary();
+        summary.orderId = order.getId();
+        summary.memberId = order.getMember().getId();
+        summary.memberName = order.getMember().getName();
+        summary.address = order.getDelivery().getAddress();
+        summary.orderDate = order.getOrderDate();
+        summary.status = order.getStatus();
+        for (OrderItem orderItem : order.getOrderItems()) {
+            summary.items.add(new OrderSummaryItem(orderItem.getItem().getId(), orderItem.getItem().getName(),
+                    orderItem.getOrderPrice(), orderItem.getCount()));
+            summary.itemCount += orderItem.getCount();
+        }
+        summary.totalPrice = order.getTotalPrice();
+        return summary;
+    }
+}
@@ -0,0 +1,19 @@
+package jpabook.jpashop.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+// OrderSummary 에 JSON 으로 들어가는 주문상품 한줄
+@Getter
+@EqualsAndHashCode
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderSummaryItem {
+
+    private Long itemId;
+    private String itemName;
+    private int orderPrice;
+    private int count;
+}
@@ -0,0 +1,40 @@
+package jpabook.jpashop.domain;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+import java.util.ArrayList;
+import java.util.List;
+
+// 주문상품 목록 <-> JSON 문자열 컬럼
+@Converter
+public class OrderSummaryItemsConverter implements AttributeConverter<List<OrderSummaryItem>, String> {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final TypeReference<List<OrderSummaryItem>> TYPE = new TypeReference<List<OrderSummaryItem>>() {
+    };
+
+    @Override
+    public String convertToDatabaseColumn(List<OrderSummaryItem> items) {
+        try {
+            return MAPPER.writeValueAsString(items == null ? new ArrayList<>() : items);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("주문상품 목록을 JSON 으로 바꿀 수 없습니다.", e);
+        }
+    }
+
+    @Override
+    public List<OrderSummaryItem> convertToEntityAttribute(String json) {
+        if (json == null || json.isEmpty()) {
+            return new ArrayList<>();
+        }
+        try {
+            return MAPPER.readValue(json, TYPE);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("주문상품 목록 JSON 을 읽을 수 없습니다.", e);
+        }
+    }
+}
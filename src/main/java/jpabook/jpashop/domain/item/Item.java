@@ -5,20 +5,25 @@ import jpabook.jpashop.exception.NotEnoughStockExcoption;
 import lombok.Getter;
 import lombok.Setter;
 import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.*;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.HashSet;
+import java.util.Set;
 
-@BatchSize(size = 100) // 대상 엔티티에 대한 쿼리문은 배치사이즈 100이 적용되게 된다
+@BatchSize(size = 128) // 대상 엔티티에 대한 쿼리문은 배치사이즈 128이 적용되게 된다 (padded 스타일로 in 절 크기 고정)
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "item") // 2차 캐시, 단일 테이블 상속이라 하위 타입도 같은 리전을 쓴다
 @Inheritance(strategy = InheritanceType.SINGLE_TABLE)
 @DiscriminatorColumn(name = "dtype")
 @Getter @Setter
 public abstract class Item {
 
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "item_seq_gen")
+    @SequenceGenerator(name = "item_seq_gen", sequenceName = "item_seq", allocationSize = 50)
     @Column(name = "item_id")
     private Long id;
 
@@ -28,8 +33,13 @@ public abstract class Item {
 
     private int stockQuantity;
 
+    private boolean hot; // 주문이 몰리는 상품, 재고를 HotStockLedger 가 메모리에서 차감하고 모아서 반영한다 (jpashop.stock.hot.enabled)
+
+    @Version
+    private Long version; // 낙관적 락, 동시에 같은 상품 재고를 바꾸면 나중에 커밋하는 쪽이 실패한다 (갱신 분실 방지)
+
     @ManyToMany(mappedBy = "items")
-    private List<Category> categories = new ArrayList<>();
+    private Set<Category> categories = new HashSet<>();
 
     //==비즈니스 로직==//
     public void addStock(int quantity) {
@@ -0,0 +1,13 @@
+package jpabook.jpashop.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+// OFFLOAD 모드에서 api 처리 풀(스레드 + 대기열) 이 가득 찬 경우, 클라이언트는 잠시 뒤 다시 시도한다
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class ApiOverloadedException extends RuntimeException {
+
+    public ApiOverloadedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,13 @@
+package jpabook.jpashop.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+// 비동기 주문 접수 대기열이 가득 찬 경우, 클라이언트는 잠시 뒤 다시 시도한다
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class IntakeQueueFullException extends RuntimeException {
+
+    public IntakeQueueFullException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,91 @@
+package jpabook.jpashop.execution;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.web.servlet.WebMvcRegistrations;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+
+import java.util.Collections;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * /api/** 실행 방식 (jpashop.api.execution.mode) 과 엔드포인트별 동시 실행 제한
+ * 동시 실행 제한(limitEnabled, 기본 꺼짐) 은 켜면 모드와 상관없이 걸린다, 스레드가 싸져도 커넥션 풀은 그대로이기 때문
+ * */
+@Slf4j
+@Configuration
+public class ApiExecutionConfig implements WebMvcConfigurer {
+
+    private final ApiExecutionProperties props;
+    private final MeterRegistry registry;
+    private final int poolSize;
+
+    public ApiExecutionConfig(ApiExecutionProperties props, MeterRegistry registry,
+                              @Value("${spring.datasource.hikari.maximum-pool-size:10}") int poolSize) {
+        this.props = props;
+        this.registry = registry;
+        this.poolSize = poolSize;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        if (props.isLimitEnabled()) {
+            registry.addInterceptor(new EndpointConcurrencyLimiter(props, poolSize, this.registry))
+                    .addPathPatterns("/api/**");
+        }
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    @ConditionalOnProperty(prefix = "jpashop.api.execution", name = "mode", havingValue = "OFFLOAD")
+    public ExecutorService apiOffloadExecutor() {
+        AtomicInteger sequence = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(props.getOffloadThreads(), props.getOffloadThreads(),
+                60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(props.getOffloadQueue()),
+                r -> new Thread(r, "api-offload-" + sequence.incrementAndGet()));
+        executor.allowCoreThreadTimeOut(true);
+        return ExecutorServiceMetrics.monitor(registry, executor, "api-offload", Collections.emptyList());
+    }
+
+    // 컨트롤러 호출을 WebAsyncTask 로 감싸는 핸들러 어댑터, 자리는 풀 스레드 + 대기열 수만큼이라 풀이 작업을 거절하지 않는다
+    @Bean
+    @ConditionalOnProperty(prefix = "jpashop.api.execution", name = "mode", havingValue = "OFFLOAD")
+    public WebMvcRegistrations offloadHandlerAdapter(ExecutorService apiOffloadExecutor) {
+        AsyncTaskExecutor executor = new TaskExecutorAdapter(apiOffloadExecutor);
+        int slots = props.getOffloadThreads() + props.getOffloadQueue();
+        return new WebMvcRegistrations() {
+            @Override
+            public RequestMappingHandlerAdapter getRequestMappingHandlerAdapter() {
+                return new OffloadHandlerAdapter(executor, slots, props.getOffloadExcludes(), registry);
+            }
+        };
+    }
+
+    // 톰캣 커넥터의 요청 처리 executor 를 가상 스레드로 바꾼다, 화면 요청까지 포함해서 모든 요청이 가상 스레드에서 실행된다
+    @Bean
+    @ConditionalOnProperty(prefix = "jpashop.api.execution", name = "mode", havingValue = "VIRTUAL")
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandler() {
+        return protocolHandler -> {
+            ExecutorService executor = VirtualThreads.newVirtualThreadPerTaskExecutor();
+            if (executor == null) {
+                log.warn("virtual threads are not available on Java {}, running with platform threads",
+                        System.getProperty("java.version"));
+                return;
+            }
+            protocolHandler.setExecutor(executor);
+        };
+    }
+}
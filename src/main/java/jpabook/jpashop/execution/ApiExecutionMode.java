@@ -0,0 +1,11 @@
+package jpabook.jpashop.execution;
+
+/*
+ * /api/** 요청을 어느 스레드에서 처리할지
+ * PLATFORM : 톰캣 워커 스레드에서 그대로 처리 (기본)
+ * OFFLOAD  : Spring MVC 비동기(WebAsyncTask) 로 톰캣 스레드를 바로 돌려주고 별도 풀(offloadThreads)에서 컨트롤러와 jdbc 호출을 실행
+ * VIRTUAL  : 톰캣 워커를 가상 스레드로 바꾼다 (JDK 21 이상), 그보다 낮은 JDK 에서는 경고 후 PLATFORM 으로 동작
+ * */
+public enum ApiExecutionMode {
+    PLATFORM, OFFLOAD, VIRTUAL
+}
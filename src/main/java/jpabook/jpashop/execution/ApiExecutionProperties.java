@@ -0,0 +1,28 @@
+package jpabook.jpashop.execution;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties("jpashop.api.execution")
+public class ApiExecutionProperties {
+
+    private ApiExecutionMode mode = ApiExecutionMode.PLATFORM;
+    private int offloadThreads = 256; // OFFLOAD 풀 크기
+    private int offloadQueue = 2000; // OFFLOAD 풀 대기열, 넘치면 503
+    private List<String> offloadExcludes = new ArrayList<>(List.of("/api/*/orders/stream")); // 스스로 비동기를 쓰는 엔드포인트
+
+    private boolean limitEnabled = false; // 엔드포인트별 동시 실행 제한, 켜면 제한을 넘는 요청이 기다리거나 503 을 받는다
+    private double poolShare = 1.0; // 엔드포인트 기본 제한 = 커넥션 풀 크기 * poolShare
+    private Map<String, Integer> limits = new LinkedHashMap<>(); // 엔드포인트 패턴별 제한, 예) "[/api/v1/orders]": 4
+    private long acquireTimeoutMillis = 1000; // 자리가 날때까지 기다리는 시간, 넘으면 503
+}
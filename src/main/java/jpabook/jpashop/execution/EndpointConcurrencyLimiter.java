@@ -0,0 +1,100 @@
+package jpabook.jpashop.execution;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * 엔드포인트(매핑 패턴)별 동시 실행 제한
+ * /api/** 요청은 대부분 처리 내내 커넥션을 잡고 있으므로 (OSIV, 지연로딩) 풀 크기보다 많이 들여보내도 hikari 에서 기다릴 뿐이다
+ * 기본 제한은 풀 크기 * poolShare, 자리가 acquireTimeoutMillis 안에 나지 않으면 503 으로 바로 돌려보낸다
+ * 지표: jpashop.api.inflight (엔드포인트별 실행중), jpashop.api.limit.rejected
+ * */
+public class EndpointConcurrencyLimiter implements AsyncHandlerInterceptor {
+
+    private static final String PERMIT_ATTRIBUTE = EndpointConcurrencyLimiter.class.getName() + ".PERMIT";
+
+    private final ApiExecutionProperties props;
+    private final int defaultLimit;
+    private final MeterRegistry registry;
+    private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+
+    public EndpointConcurrencyLimiter(ApiExecutionProperties props, int poolSize, MeterRegistry registry) {
+        this.props = props;
+        this.defaultLimit = Math.max(1, (int) Math.ceil(poolSize * props.getPoolShare()));
+        this.registry = registry;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        if (pattern == null || request.getAttribute(PERMIT_ATTRIBUTE) != null) {
+            return true; // OFFLOAD 로 넘어갔던 요청의 비동기 디스패치는 이미 자리를 잡고 있다
+        }
+        Endpoint endpoint = endpoints.computeIfAbsent(pattern.toString(), this::endpoint);
+        if (!endpoint.permits.tryAcquire(props.getAcquireTimeoutMillis(), TimeUnit.MILLISECONDS)) {
+            endpoint.rejected.increment();
+            response.setHeader("Retry-After", "1");
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(), "too many concurrent requests: " + endpoint.name);
+            return false;
+        }
+        request.setAttribute(PERMIT_ATTRIBUTE, endpoint);
+        return true;
+    }
+
+    // 스트리밍처럼 비동기로 넘어가는 요청은 여기서 돌려주고, 비동기 디스패치에서 다시 받는다
+    // OFFLOAD 로 넘어간 요청은 풀에서 컨트롤러가 실행되는 동안에도 자리를 잡고 있다가 비동기 디스패치가 끝날때 돌려준다
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (request.getAttribute(OffloadHandlerAdapter.OFFLOADED_ATTRIBUTE) == null) {
+            release(request);
+        }
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        release(request);
+    }
+
+    private void release(HttpServletRequest request) {
+        Object endpoint = request.getAttribute(PERMIT_ATTRIBUTE);
+        if (endpoint != null) {
+            request.removeAttribute(PERMIT_ATTRIBUTE);
+            ((Endpoint) endpoint).permits.release();
+        }
+    }
+
+    private Endpoint endpoint(String pattern) {
+        int limit = props.getLimits().getOrDefault(pattern, defaultLimit);
+        Endpoint endpoint = new Endpoint(pattern, limit,
+                Counter.builder("jpashop.api.limit.rejected").tag("endpoint", pattern).register(registry));
+        Gauge.builder("jpashop.api.inflight", endpoint, e -> e.limit - e.permits.availablePermits())
+                .tag("endpoint", pattern)
+                .register(registry);
+        return endpoint;
+    }
+
+    private static class Endpoint {
+        final String name;
+        final int limit;
+        final Semaphore permits;
+        final Counter rejected;
+
+        Endpoint(String name, int limit, Counter rejected) {
+            this.name = name;
+            this.limit = limit;
+            this.permits = new Semaphore(limit);
+            this.rejected = rejected;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package jpabook.jpashop.execution;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jpabook.jpashop.exception.ApiOverloadedException;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.http.HttpEntity;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.method.support.ModelAndViewContainer;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.ServletInvocableHandlerMethod;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Semaphore;
+
+/*
+ * OFFLOAD 모드, /api/** 의 @ResponseBody 핸들러 호출을 Spring MVC 비동기(WebAsyncTask) 로 바꿔서 offload 풀에서 실행한다
+ * 인자 바인딩은 톰캣 스레드에서 하고 컨트롤러 메서드 호출만 풀로 넘긴다, 톰캣 스레드는 바로 돌아간다
+ * 결과는 비동기 디스패치로 다시 들어와서 톰캣 스레드가 응답을 쓴다 (필터 체인을 다른 스레드에서 이어서 실행하지 않는다)
+ * OSIV, 요청 컨텍스트, SqlStats 는 Spring 의 CallableProcessingInterceptor 로 작업 스레드에 이어진다
+ * 스스로 비동기를 쓰는 핸들러(Callable, DeferredResult, StreamingResponseBody ...) 와 offloadExcludes 는 그대로 둔다
+ * 풀(스레드 + 대기열) 자리가 없으면 비동기로 넘어가기 전에 503
+ * 지표: jpashop.api.offload.rejected
+ * */
+public class OffloadHandlerAdapter extends RequestMappingHandlerAdapter {
+
+    public static final String OFFLOADED_ATTRIBUTE = OffloadHandlerAdapter.class.getName() + ".OFFLOADED";
+
+    private static final List<Class<?>> ASYNC_TYPES = List.of(Callable.class, WebAsyncTask.class, DeferredResult.class,
+            ListenableFuture.class, CompletionStage.class, ResponseBodyEmitter.class, StreamingResponseBody.class);
+
+    private final AsyncTaskExecutor executor;
+    private final Semaphore slots;
+    private final List<String> excludes;
+    private final Counter rejected;
+    private final AntPathMatcher matcher = new AntPathMatcher();
+
+    public OffloadHandlerAdapter(AsyncTaskExecutor executor, int slots, List<String> excludes, MeterRegistry registry) {
+        this.executor = executor;
+        this.slots = new Semaphore(slots);
+        this.excludes = excludes;
+        this.rejected = Counter.builder("jpashop.api.offload.rejected").register(registry);
+    }
+
+    @Override
+    protected ServletInvocableHandlerMethod createInvocableHandlerMethod(HandlerMethod handlerMethod) {
+        return offloadable(handlerMethod) ? new OffloadedHandlerMethod(handlerMethod) : super.createInvocableHandlerMethod(handlerMethod);
+    }
+
+    // 응답 본문을 돌려주는 동기 핸들러만
+    static boolean offloadable(HandlerMethod handlerMethod) {
+        Class<?> type = handlerMethod.getReturnType().getParameterType();
+        if (type == void.class) {
+            return false;
+        }
+        if (HttpEntity.class.isAssignableFrom(type)) {
+            type = handlerMethod.getReturnType().nested().getNestedParameterType();
+        }
+        for (Class<?> asyncType : ASYNC_TYPES) {
+            if (asyncType.isAssignableFrom(type)) {
+                return false;
+            }
+        }
+        return handlerMethod.hasMethodAnnotation(ResponseBody.class)
+                || AnnotatedElementUtils.hasAnnotation(handlerMethod.getBeanType(), ResponseBody.class);
+    }
+
+    private boolean excluded(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return !path.startsWith("/api/") || excludes.stream().anyMatch(pattern -> matcher.match(pattern, path));
+    }
+
+    private class OffloadedHandlerMethod extends ServletInvocableHandlerMethod {
+
+        OffloadedHandlerMethod(HandlerMethod handlerMethod) {
+            super(handlerMethod);
+        }
+
+        @Override
+        public Object invokeForRequest(NativeWebRequest request, ModelAndViewContainer mavContainer, Object... providedArgs) throws Exception {
+            HttpServletRequest servletRequest = request.getNativeRequest(HttpServletRequest.class);
+            if (servletRequest == null || !servletRequest.isAsyncSupported() || excluded(servletRequest)) {
+                return super.invokeForRequest(request, mavContainer, providedArgs);
+            }
+            Object[] args = getMethodArgumentValues(request, mavContainer, providedArgs);
+            if (!slots.tryAcquire()) {
+                rejected.increment();
+                HttpServletResponse response = request.getNativeResponse(HttpServletResponse.class);
+                if (response != null) {
+                    response.setHeader("Retry-After", "1");
+                }
+                throw new ApiOverloadedException("api offload pool is full");
+            }
+            request.setAttribute(OFFLOADED_ATTRIBUTE, Boolean.TRUE, RequestAttributes.SCOPE_REQUEST);
+            // 응답 시간 제한은 엔드포인트 제한과 커넥션 풀 타임아웃이 맡는다 (0 = 제한 없음)
+            return new WebAsyncTask<>(0L, executor, () -> {
+                try {
+                    return doInvoke(args);
+                } finally {
+                    slots.release();
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package jpabook.jpashop.execution;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// 빌드 기준이 Java 11 이라 가상 스레드 API 는 리플렉션으로 찾는다
+final class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    // 지원하지 않는 JDK 면 null
+    static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package jpabook.jpashop.intake;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/*
+ * 접수 시점 재고 예약 결과
+ * 가격은 접수 시점 값, held 는 인기 상품 장부 메모리에서 잡았는지 (OrderIntakeEntry.held 로 로그에 남는다)
+ * */
+@Getter
+@AllArgsConstructor
+public class IntakeReservation {
+
+    private final int price;
+    private final boolean held;
+}
@@ -0,0 +1,30 @@
+package jpabook.jpashop.intake;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/*
+ * 접수된 주문 한건, 재고는 접수 시점에 이미 차감되어 있다
+ * held 면 인기 상품 장부 메모리에서만 잡아둔 것이고 (item.stock_quantity 는 저장될 때 장부가 반영한다), 아니면 조건부 update 로 차감했다
+ * 가격과 접수 시각도 접수 시점 값으로 저장한다
+ * */
+@Getter
+@AllArgsConstructor
+public class OrderIntakeEntry {
+
+    private final long intakeId;
+    private final Long memberId;
+    private final Long itemId;
+    private final int count;
+    private final int price;
+    private final long acceptedAt; // epoch millis
+    private final boolean held;
+
+    public LocalDateTime getOrderDate() {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(acceptedAt), ZoneId.systemDefault());
+    }
+}
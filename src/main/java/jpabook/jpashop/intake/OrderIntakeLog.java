@@ -0,0 +1,148 @@
+package jpabook.jpashop.intake;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/*
+ * 접수 로그 (append-only)
+ * A <intakeId> <memberId> <itemId> <count> <price> <acceptedAt> <H|->  : 접수, 응답 전에 기록한다 (H 는 인기 상품 장부에서 잡아둔 접수)
+ * C <intakeId>                                                 : 이 번호까지 저장(또는 실패 처리) 완료
+ * F <intakeId>                                                 : 저장 실패, 재고를 되돌리기 전에 강제로 쓴다 (재처리하지 않는다)
+ * 접수 번호는 로그에 쓰는 순서대로 커지고 저장도 같은 순서로 하므로 마지막 C 보다 큰 A 가 아직 저장되지 않은 접수다
+ * 마지막 줄이 쓰다가 잘렸으면 (접수 응답 전에 죽은 경우) 버린다
+ * 동시 호출은 OrderIntakeService 가 막는다, read 는 시작시 인기 상품 장부가 접수 재처리 전에 읽는다
+ * */
+public class OrderIntakeLog implements AutoCloseable {
+
+    private final Path path;
+    private final boolean fsync;
+    private FileChannel channel;
+
+    public OrderIntakeLog(Path path, boolean fsync) {
+        this.path = path;
+        this.fsync = fsync;
+    }
+
+    // 저장되지 않은 접수를 로그 순서대로 돌려준다
+    public Replay open() throws IOException {
+        Replay replay = read(path);
+
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        if (channel.size() > replay.validLength) {
+            channel.truncate(replay.validLength); // 잘린 줄 뒤에 이어 쓰지 않도록 잘라낸다
+        }
+        return replay;
+    }
+
+    // 파일을 열지 않고 읽기만 한다
+    public static Replay read(Path path) throws IOException {
+        List<OrderIntakeEntry> accepted = new ArrayList<>();
+        Set<Long> failed = new LinkedHashSet<>();
+        long committed = 0;
+        long maxIntakeId = 0;
+        long validLength = 0;
+        if (Files.exists(path)) {
+            String content = new String(Files.readAllBytes(path), StandardCharsets.US_ASCII);
+            validLength = content.lastIndexOf('\n') + 1; // 줄바꿈으로 끝나지 않은 마지막 줄은 쓰다가 잘린 줄이다
+            for (String line : content.substring(0, (int) validLength).split("\n")) {
+                String[] f = line.split("\t");
+                if (f.length == 8 && f[0].equals("A")) {
+                    OrderIntakeEntry entry = new OrderIntakeEntry(Long.parseLong(f[1]), Long.valueOf(f[2]), Long.valueOf(f[3]),
+                            Integer.parseInt(f[4]), Integer.parseInt(f[5]), Long.parseLong(f[6]), f[7].equals("H"));
+                    accepted.add(entry);
+                    maxIntakeId = Math.max(maxIntakeId, entry.getIntakeId());
+                } else if (f.length == 2 && f[0].equals("C")) {
+                    committed = Math.max(committed, Long.parseLong(f[1]));
+                } else if (f.length == 2 && f[0].equals("F")) {
+                    failed.add(Long.parseLong(f[1]));
+                }
+            }
+        }
+        long lastCommitted = committed;
+        accepted.removeIf(entry -> entry.getIntakeId() <= lastCommitted || failed.contains(entry.getIntakeId()));
+        return new Replay(accepted, new ArrayList<>(failed), maxIntakeId, validLength);
+    }
+
+    public void append(OrderIntakeEntry entry) throws IOException {
+        write("A\t" + entry.getIntakeId() + "\t" + entry.getMemberId() + "\t" + entry.getItemId() + "\t" + entry.getCount()
+                + "\t" + entry.getPrice() + "\t" + entry.getAcceptedAt() + "\t" + (entry.isHeld() ? "H" : "-") + "\n", fsync);
+    }
+
+    // 완료 표시는 잃어버려도 재처리시 중복 저장을 거르므로 강제로 쓰지 않는다
+    // 실패한 접수는 F 가 먼저 디스크에 있으므로 C 를 잃어버려도 다시 저장되지 않는다
+    public void commit(long intakeId) throws IOException {
+        write("C\t" + intakeId + "\n", false);
+    }
+
+    // 재고를 되돌리기 전에 호출한다, 되돌린 뒤에 죽어도 재시작시 다시 저장(초과 판매)하거나 두번 되돌리지 않는다
+    public void fail(long intakeId) throws IOException {
+        write("F\t" + intakeId + "\n", true);
+    }
+
+    public long size() throws IOException {
+        return channel.size();
+    }
+
+    // 대기중인 접수가 하나도 없을때만 호출한다
+    public void truncate() throws IOException {
+        channel.truncate(0);
+        channel.force(true);
+    }
+
+    private void write(String line, boolean force) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(line.getBytes(StandardCharsets.US_ASCII));
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        if (force) {
+            channel.force(false);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    public static class Replay {
+        private final List<OrderIntakeEntry> pending;
+        private final List<Long> failed;
+        private final long maxIntakeId;
+        private final long validLength; // 잘린 마지막 줄을 뺀 길이
+
+        Replay(List<OrderIntakeEntry> pending, List<Long> failed, long maxIntakeId, long validLength) {
+            this.pending = pending;
+            this.failed = failed;
+            this.maxIntakeId = maxIntakeId;
+            this.validLength = validLength;
+        }
+
+        public List<OrderIntakeEntry> getPending() {
+            return pending;
+        }
+
+        // 실패 표시가 남은 접수 번호 (상태 조회용)
+        public List<Long> getFailed() {
+            return failed;
+        }
+
+        public long getMaxIntakeId() {
+            return maxIntakeId;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package jpabook.jpashop.intake;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties("jpashop.order.intake")
+public class OrderIntakeProperties {
+
+    private boolean enabled = false;
+    private int queueCapacity = 10_000; // 저장 대기중인 접수 최대 수, 넘으면 접수를 거절한다
+    private long offerTimeoutMillis = 50; // 대기열이 찼을때 자리가 나기를 기다리는 시간
+    private int batchSize = 500; // 트랜잭션 하나에 저장할 최대 주문 수
+    private long lingerMillis = 20; // 첫 접수를 꺼낸뒤 배치를 채우려고 더 기다리는 시간
+    private String logPath = "order-intake.log"; // 접수 로그 파일, 재시작시 저장되지 않은 접수를 다시 넣는다
+    private boolean fsync = true; // 접수 응답 전에 로그를 디스크에 강제로 쓴다
+    private long compactBytes = 64L * 1024 * 1024; // 대기중인 접수가 없고 로그가 이보다 크면 비운다
+    private int failedRetention = 10_000; // 상태 조회용으로 기억할 실패 접수 수
+}
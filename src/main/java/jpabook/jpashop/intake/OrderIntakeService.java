@@ -0,0 +1,326 @@
+package jpabook.jpashop.intake;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jpabook.jpashop.exception.IntakeQueueFullException;
+import jpabook.jpashop.service.OrderService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * 비동기 주문 접수 (jpashop.order.intake.enabled)
+ * 요청 스레드는 재고 예약(조건부 update 한번) -> 접수 로그 기록 -> 대기열에 넣고 접수 번호로 바로 응답한다
+ * 쓰기 스레드 하나가 대기열에서 batchSize 건까지 모아서 트랜잭션 한번, jdbc 배치로 주문/배송/주문상품을 저장한다
+ * - 대기열 자리는 재고를 예약하기 전에 먼저 잡는다, 자리가 없으면 offerTimeoutMillis 만큼 기다렸다가 거절(503) 한다
+ * - 배치 저장이 실패하면 한건씩 다시 저장하고, 그래도 실패한 접수는 로그에 실패 표시를 강제로 쓴 뒤 재고 예약을 되돌리고 FAILED 로 남긴다
+ * - 재시작시 로그에서 완료 표시 이후의 접수를 다시 넣는다, 이미 저장된 접수는 orders.intake_id 로 거른다
+ * 재고 예약 커밋과 로그 기록 사이에 죽으면 그 접수는 재고만 차감된 채 남는다 (초과 판매 대신 재고 누락 쪽을 택했다)
+ * */
+@Slf4j
+@Component
+public class OrderIntakeService {
+
+    private final OrderIntakeProperties props;
+    private final OrderService orderService;
+    private final MeterRegistry registry;
+
+    private final BlockingQueue<OrderIntakeEntry> queue = new LinkedBlockingQueue<>();
+    private final Map<Long, OrderIntakeEntry> pending = new ConcurrentHashMap<>();
+    private final Map<Long, String> failedEntries;
+    private final Object appendLock = new Object(); // 접수 번호 발급, 로그 기록, 대기열 순서를 맞춘다
+
+    private final Counter accepted;
+    private final Counter rejected;
+    private final Counter written;
+    private final Counter failed;
+    private final Timer batchTimer;
+
+    private Semaphore capacity;
+    private OrderIntakeLog intakeLog;
+    private long sequence;
+    private long replayed;
+    private volatile int lastBatchSize;
+    private volatile boolean running;
+    private Thread writer;
+
+    public OrderIntakeService(OrderIntakeProperties props, OrderService orderService, MeterRegistry registry) {
+        this.props = props;
+        this.orderService = orderService;
+        this.registry = registry;
+        int retention = props.getFailedRetention();
+        this.failedEntries = Collections.synchronizedMap(new LinkedHashMap<Long, String>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, String> eldest) {
+                return size() > retention;
+            }
+        });
+        this.accepted = counter("accepted");
+        this.rejected = counter("rejected");
+        this.written = counter("written");
+        this.failed = counter("failed");
+        this.batchTimer = Timer.builder("jpashop.order.intake.batch").register(registry);
+        Gauge.builder("jpashop.order.intake.queue", pending, Map::size).register(registry);
+    }
+
+    private Counter counter(String result) {
+        return Counter.builder("jpashop.order.intake").tag("result", result).register(registry);
+    }
+
+    public boolean isEnabled() {
+        return props.isEnabled();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startOnReady() {
+        if (props.isEnabled()) {
+            start();
+        }
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        intakeLog = new OrderIntakeLog(Paths.get(props.getLogPath()), props.isFsync());
+        OrderIntakeLog.Replay replay;
+        try {
+            replay = intakeLog.open();
+        } catch (IOException e) {
+            throw new UncheckedIOException("주문 접수 로그를 열 수 없습니다. path=" + props.getLogPath(), e);
+        }
+        // 로그가 비워진 뒤에도 이전 번호와 겹치지 않도록 시각 기반 값에서 시작한다
+        sequence = Math.max(replay.getMaxIntakeId(), System.currentTimeMillis() * 1000);
+        replayed = replay.getPending().size();
+        replay.getFailed().forEach(intakeId -> failedEntries.put(intakeId, "저장 실패 (재시작 전)"));
+        // 장부에서 잡아둔(held) 접수의 재고는 HotStockLedger 가 시작할 때 이미 다시 잡았다
+        for (OrderIntakeEntry entry : replay.getPending()) {
+            pending.put(entry.getIntakeId(), entry);
+            queue.add(entry);
+        }
+        capacity = new Semaphore(props.getQueueCapacity() - replay.getPending().size()); // 재처리분이 많으면 음수에서 시작한다
+        if (replayed > 0) {
+            log.info("order intake replay: {} entries from {}", replayed, props.getLogPath());
+        }
+
+        running = true;
+        writer = new Thread(this::writeLoop, "order-intake-writer");
+        writer.start();
+    }
+
+    // 재고를 예약하고 접수 번호를 돌려준다, 주문 id 는 저장된 뒤 status 로 확인한다
+    public long accept(Long memberId, Long itemId, int count) {
+        if (!running) {
+            throw new IllegalStateException("주문 접수 대기열이 실행중이 아닙니다.");
+        }
+        if (count <= 0) {
+            throw new IllegalArgumentException("주문 수량은 1 이상이어야 합니다.");
+        }
+        acquireSlot();
+
+        IntakeReservation reservation;
+        try {
+            reservation = orderService.reserveIntake(memberId, itemId, count);
+        } catch (RuntimeException e) {
+            capacity.release();
+            throw e;
+        }
+
+        OrderIntakeEntry entry;
+        synchronized (appendLock) {
+            entry = new OrderIntakeEntry(++sequence, memberId, itemId, count, reservation.getPrice(), System.currentTimeMillis(),
+                    reservation.isHeld());
+            try {
+                intakeLog.append(entry);
+            } catch (IOException e) {
+                capacity.release();
+                orderService.releaseIntake(entry);
+                throw new UncheckedIOException("주문 접수 로그 기록에 실패했습니다.", e);
+            }
+            pending.put(entry.getIntakeId(), entry);
+            queue.add(entry);
+        }
+        accepted.increment();
+        return entry.getIntakeId();
+    }
+
+    private void acquireSlot() {
+        try {
+            if (!capacity.tryAcquire(props.getOfferTimeoutMillis(), TimeUnit.MILLISECONDS)) {
+                rejected.increment();
+                throw new IntakeQueueFullException("주문 접수 대기열이 가득 찼습니다. 잠시 후 다시 시도해 주세요.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("주문 접수가 중단되었습니다.", e);
+        }
+    }
+
+    public OrderIntakeStatus status(long intakeId) {
+        if (pending.containsKey(intakeId)) {
+            return new OrderIntakeStatus(intakeId, OrderIntakeStatus.State.QUEUED, null, null);
+        }
+        String failure = failedEntries.get(intakeId);
+        if (failure != null) {
+            return new OrderIntakeStatus(intakeId, OrderIntakeStatus.State.FAILED, null, failure);
+        }
+        Long orderId = orderService.findOrderIdByIntakeId(intakeId);
+        if (orderId != null) {
+            return new OrderIntakeStatus(intakeId, OrderIntakeStatus.State.WRITTEN, orderId, null);
+        }
+        return new OrderIntakeStatus(intakeId, OrderIntakeStatus.State.UNKNOWN, null, null);
+    }
+
+    public OrderIntakeStats stats() {
+        return new OrderIntakeStats(running, pending.size(), props.getQueueCapacity(),
+                (long) accepted.count(), (long) rejected.count(), (long) written.count(), (long) failed.count(),
+                batchTimer.count(), lastBatchSize, replayed);
+    }
+
+    // 대기열이 빌 때까지 기다린다 (종료, 테스트용)
+    public boolean awaitIdle(long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (!pending.isEmpty()) {
+            if (System.currentTimeMillis() > deadline) {
+                return false;
+            }
+            Thread.sleep(10);
+        }
+        return true;
+    }
+
+    private void writeLoop() {
+        List<OrderIntakeEntry> batch = new ArrayList<>(props.getBatchSize());
+        while (running || !queue.isEmpty()) {
+            try {
+                if (!fill(batch)) {
+                    continue;
+                }
+                write(batch);
+            } catch (InterruptedException e) {
+                if (!running) {
+                    continue; // 종료중, 남은 접수를 마저 저장한다
+                }
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("order intake writer error", e); // 대기열은 계속 처리한다, 남은 접수는 재시작시 로그에서 다시 들어온다
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    // 첫 접수를 기다렸다가 lingerMillis 동안 batchSize 까지 더 모은다
+    private boolean fill(List<OrderIntakeEntry> batch) throws InterruptedException {
+        OrderIntakeEntry first = queue.poll(100, TimeUnit.MILLISECONDS);
+        if (first == null) {
+            return false;
+        }
+        batch.add(first);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(props.getLingerMillis());
+        while (batch.size() < props.getBatchSize()) {
+            queue.drainTo(batch, props.getBatchSize() - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= props.getBatchSize() || remaining <= 0) {
+                break;
+            }
+            OrderIntakeEntry next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                break;
+            }
+            batch.add(next);
+        }
+        return true;
+    }
+
+    private void write(List<OrderIntakeEntry> batch) {
+        lastBatchSize = batch.size();
+        batchTimer.record(() -> {
+            try {
+                orderService.writeIntake(batch);
+                written.increment(batch.size());
+            } catch (RuntimeException e) {
+                log.warn("order intake batch failed, retrying one by one: {}", e.getMessage());
+                batch.forEach(this::writeOne);
+            }
+        });
+        complete(batch);
+    }
+
+    private void writeOne(OrderIntakeEntry entry) {
+        try {
+            orderService.writeIntake(Collections.singletonList(entry));
+            written.increment();
+        } catch (RuntimeException e) {
+            log.warn("order intake failed intakeId={}: {}", entry.getIntakeId(), e.getMessage());
+            if (markFailed(entry)) {
+                try {
+                    orderService.releaseIntake(entry);
+                } catch (RuntimeException releaseFailure) {
+                    log.error("order intake stock release failed intakeId={}", entry.getIntakeId(), releaseFailure);
+                }
+            }
+            failedEntries.put(entry.getIntakeId(), e.getMessage());
+            failed.increment();
+        }
+    }
+
+    // 실패 표시가 디스크에 남은 뒤에만 재고를 되돌린다
+    // 표시를 못 남기면 재고는 잡아둔 채로 둔다 (완료 표시도 못 남긴 채 죽으면 재시작시 다시 저장을 시도하고, 아니면 재고 누락으로 남는다)
+    private boolean markFailed(OrderIntakeEntry entry) {
+        synchronized (appendLock) {
+            try {
+                intakeLog.fail(entry.getIntakeId());
+                return true;
+            } catch (IOException e) {
+                log.error("order intake failure mark failed intakeId={}, stock stays reserved", entry.getIntakeId(), e);
+                return false;
+            }
+        }
+    }
+
+    // 로그에 완료 표시를 남기고 대기열 자리를 돌려준다, 대기중인 접수가 없으면 커진 로그를 비운다
+    private void complete(List<OrderIntakeEntry> batch) {
+        synchronized (appendLock) {
+            batch.forEach(e -> pending.remove(e.getIntakeId()));
+            try {
+                intakeLog.commit(batch.get(batch.size() - 1).getIntakeId());
+                if (pending.isEmpty() && intakeLog.size() > props.getCompactBytes()) {
+                    intakeLog.truncate();
+                }
+            } catch (IOException e) {
+                log.error("order intake log commit failed", e); // 재시작시 다시 들어와도 intake_id 로 걸러진다
+            }
+        }
+        capacity.release(batch.size());
+    }
+
+    @PreDestroy
+    public synchronized void stop() throws InterruptedException, IOException {
+        if (!running) {
+            return;
+        }
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(30)); // 남은 접수를 저장할 시간을 준다, 못다한 접수는 다음 시작때 로그에서 다시 들어온다
+        intakeLog.close();
+    }
+}
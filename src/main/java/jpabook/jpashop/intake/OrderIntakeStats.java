@@ -0,0 +1,21 @@
+package jpabook.jpashop.intake;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// 접수 파이프라인 전체 상태 (GET /api/v1/orders/intake)
+@Getter
+@AllArgsConstructor
+public class OrderIntakeStats {
+
+    private boolean running;
+    private int queued; // 저장 대기중
+    private int capacity;
+    private long accepted;
+    private long rejected; // 대기열이 차서 거절
+    private long written;
+    private long failed;
+    private long batches;
+    private int lastBatchSize;
+    private long replayed; // 시작시 로그에서 다시 넣은 접수
+}
@@ -0,0 +1,21 @@
+package jpabook.jpashop.intake;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class OrderIntakeStatus {
+
+    public enum State {
+        QUEUED, // 재고 예약 완료, 저장 대기중
+        WRITTEN, // 주문 저장 완료
+        FAILED, // 저장 실패, 예약한 재고는 되돌렸다
+        UNKNOWN // 없는 접수 번호 (또는 실패 기록이 밀려난 경우)
+    }
+
+    private long intakeId;
+    private State state;
+    private Long orderId;
+    private String message;
+}
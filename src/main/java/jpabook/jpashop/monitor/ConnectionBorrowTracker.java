@@ -0,0 +1,211 @@
+package jpabook.jpashop.monitor;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.servlet.http.HttpServletRequest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/*
+ * 커넥션 대여/반납을 엔드포인트(요청 매핑 패턴) 단위로 기록한다 (SqlCountingListener 가 호출)
+ * 지표: jpashop.pool.acquire (풀에서 받기까지 기다린 시간), jpashop.pool.usage (반납까지 잡고 있던 시간), 태그 endpoint
+ * leakThresholdMillis 보다 오래 반납되지 않은 커넥션은 빌린 핸들러 메서드와 스택을 붙여 한번 경고하고 jpashop.pool.leak.suspected 를 올린다
+ * 요청 밖(스케줄러, 쓰기 스레드) 에서 빌린 커넥션은 endpoint 가 background 다
+ * */
+@Slf4j
+@Component
+public class ConnectionBorrowTracker {
+
+    static final String BACKGROUND = "background";
+
+    private final PoolMonitorProperties props;
+    private final MeterRegistry registry;
+    private final Map<Integer, Borrow> borrows = new ConcurrentHashMap<>();
+    private final Map<String, Usage> usageByEndpoint = new ConcurrentHashMap<>();
+    private ScheduledExecutorService scheduler;
+
+    public ConnectionBorrowTracker(PoolMonitorProperties props, MeterRegistry registry) {
+        this.props = props;
+        this.registry = registry;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!props.isEnabled() || props.getLeakThresholdMillis() <= 0) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "connection-leak-check");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = Math.max(100, props.getLeakThresholdMillis() / 2);
+        scheduler.scheduleWithFixedDelay(this::checkLeaks, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    void acquired(int connectionId, long waitNanos) {
+        if (!props.isEnabled()) {
+            return;
+        }
+        String endpoint = BACKGROUND;
+        String handler = Thread.currentThread().getName();
+        HttpServletRequest request = currentRequest();
+        if (request != null) {
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            endpoint = request.getMethod() + " " + (pattern == null ? "UNKNOWN" : pattern);
+            Object handlerMethod = request.getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE);
+            if (handlerMethod instanceof HandlerMethod) {
+                HandlerMethod method = (HandlerMethod) handlerMethod;
+                handler = method.getBeanType().getSimpleName() + "." + method.getMethod().getName();
+            }
+        }
+        Timer.builder("jpashop.pool.acquire").tag("endpoint", endpoint)
+                .register(registry).record(waitNanos, TimeUnit.NANOSECONDS);
+        Throwable stack = props.isCaptureStack() ? new Throwable("connection borrowed by " + handler) : null;
+        borrows.put(connectionId, new Borrow(endpoint, handler, Thread.currentThread().getName(), System.nanoTime(), stack));
+    }
+
+    void released(int connectionId) {
+        Borrow borrow = borrows.remove(connectionId);
+        if (borrow == null) {
+            return;
+        }
+        long heldNanos = System.nanoTime() - borrow.startNanos;
+        Timer.builder("jpashop.pool.usage").tag("endpoint", borrow.endpoint)
+                .register(registry).record(heldNanos, TimeUnit.NANOSECONDS);
+        usageByEndpoint.computeIfAbsent(borrow.endpoint, e -> new Usage()).record(heldNanos);
+        if (borrow.reported) {
+            log.info("누수 의심 커넥션 반납 [{}] {} held={}ms", borrow.endpoint, borrow.handler, heldNanos / 1_000_000);
+        }
+    }
+
+    public void checkLeaks() {
+        long threshold = TimeUnit.MILLISECONDS.toNanos(props.getLeakThresholdMillis());
+        long now = System.nanoTime();
+        for (Borrow borrow : borrows.values()) {
+            if (borrow.reported || now - borrow.startNanos < threshold) {
+                continue;
+            }
+            borrow.reported = true;
+            Counter.builder("jpashop.pool.leak.suspected").tag("endpoint", borrow.endpoint).register(registry).increment();
+            log.warn("커넥션 누수 의심 [{}] {} thread={} held={}ms{}", borrow.endpoint, borrow.handler, borrow.thread,
+                    (now - borrow.startNanos) / 1_000_000, borrow.stack == null ? "" : "\n" + appStack(borrow.stack));
+        }
+    }
+
+    // 지금 빌려가 있는 커넥션 중 누수로 의심되는 것
+    public List<LeakSuspect> suspects() {
+        long now = System.nanoTime();
+        return borrows.values().stream()
+                .filter(b -> b.reported)
+                .map(b -> new LeakSuspect(b.endpoint, b.handler, b.thread, (now - b.startNanos) / 1_000_000,
+                        b.stack == null ? null : appStack(b.stack)))
+                .collect(Collectors.toList());
+    }
+
+    // 커넥션 점유 시간 합이 큰 엔드포인트 순서
+    public List<EndpointUsage> topUsage(int limit) {
+        List<EndpointUsage> result = new ArrayList<>();
+        usageByEndpoint.forEach((endpoint, usage) -> result.add(new EndpointUsage(endpoint, usage.count.sum(),
+                usage.totalNanos.sum() / 1_000_000, usage.maxNanos / 1_000_000)));
+        result.sort(Comparator.comparingLong(EndpointUsage::getTotalMillis).reversed());
+        return result.size() > limit ? result.subList(0, limit) : result;
+    }
+
+    public int borrowed() {
+        return borrows.size();
+    }
+
+    // 프레임워크 프레임은 빼고 애플리케이션 코드만 남긴다
+    private String appStack(Throwable stack) {
+        return Arrays.stream(stack.getStackTrace())
+                .filter(frame -> frame.getClassName().startsWith("jpabook.jpashop")
+                        && !frame.getClassName().startsWith(ConnectionBorrowTracker.class.getPackage().getName()))
+                .map(frame -> "\tat " + frame)
+                .collect(Collectors.joining("\n"));
+    }
+
+    private HttpServletRequest currentRequest() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        return attributes instanceof ServletRequestAttributes ? ((ServletRequestAttributes) attributes).getRequest() : null;
+    }
+
+    private static class Borrow {
+        final String endpoint;
+        final String handler;
+        final String thread;
+        final long startNanos;
+        final Throwable stack;
+        volatile boolean reported;
+
+        Borrow(String endpoint, String handler, String thread, long startNanos, Throwable stack) {
+            this.endpoint = endpoint;
+            this.handler = handler;
+            this.thread = thread;
+            this.startNanos = startNanos;
+            this.stack = stack;
+        }
+    }
+
+    private static class Usage {
+        final LongAdder count = new LongAdder();
+        final LongAdder totalNanos = new LongAdder();
+        volatile long maxNanos;
+
+        void record(long nanos) {
+            count.increment();
+            totalNanos.add(nanos);
+            if (nanos > maxNanos) {
+                maxNanos = nanos; // 대략적인 최대값이면 된다
+            }
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class LeakSuspect {
+        private final String endpoint;
+        private final String handler;
+        private final String thread;
+        private final long heldMillis;
+        private final String stack;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class EndpointUsage {
+        private final String endpoint;
+        private final long count;
+        private final long totalMillis;
+        private final long maxMillis;
+    }
+}
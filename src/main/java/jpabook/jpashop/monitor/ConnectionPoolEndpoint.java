@@ -0,0 +1,32 @@
+package jpabook.jpashop.monitor;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+ * /actuator/connectionpool
+ * 풀별 추천 설정(PoolSizingAdvisor), 커넥션 점유 시간이 큰 엔드포인트, 지금 누수로 의심되는 커넥션
+ * */
+@Component
+@Endpoint(id = "connectionpool")
+@RequiredArgsConstructor
+public class ConnectionPoolEndpoint {
+
+    private final PoolSizingAdvisor advisor;
+    private final ConnectionBorrowTracker borrowTracker;
+
+    @ReadOperation
+    public Map<String, Object> connectionPool() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("pools", advisor.advise());
+        result.put("borrowed", borrowTracker.borrowed());
+        result.put("topUsage", borrowTracker.topUsage(10));
+        result.put("leakSuspects", borrowTracker.suspects());
+        return result;
+    }
+}
@@ -0,0 +1,196 @@
+package jpabook.jpashop.monitor;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.CollectionStatistics;
+import org.hibernate.stat.EntityStatistics;
+import org.hibernate.stat.QueryStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * /actuator/hibernate
+ * hibernate Statistics (hibernate.generate_statistics) 와 느린 쿼리 집계(SlowQueryListener)
+ * - summary : 세션/트랜잭션/flush/statement 수, 엔티티/컬렉션 전체 합, 가장 느린 쿼리, 2차 캐시/쿼리 캐시 적중률
+ * - entities : 엔티티별 load / fetch / insert / update / delete
+ * - collections : 컬렉션(Order.orderItems, Category.items ...)별 load / fetch, fetch 가 많으면 지연 로딩이 건건이 나간 것 (N+1)
+ * - queries : jpql 별 실행 횟수, 평균/최대 시간, 총 시간 순서로 TOP_QUERIES 개
+ * - caches : 2차 캐시 리전별 hit / miss / put, 적중률
+ * 통계 초기화(reset) 는 웹으로 열지 않고 JMX 로만 연다 (HibernateStatisticsJmxExtension, spring.jmx.enabled=true), 부하 테스트 구간만 보고 싶을때
+ * 통계를 끄면 (generate_statistics=false) enabled=false 와 느린 쿼리만 보여준다
+ * */
+@Component
+@Endpoint(id = "hibernate")
+public class HibernateStatisticsEndpoint {
+
+    private static final int TOP_QUERIES = 50;
+
+    private final Statistics statistics;
+    private final SlowQueryListener slowQueries;
+
+    public HibernateStatisticsEndpoint(EntityManagerFactory emf, SlowQueryListener slowQueries) {
+        this.statistics = emf.unwrap(SessionFactory.class).getStatistics();
+        this.slowQueries = slowQueries;
+    }
+
+    @ReadOperation
+    public Map<String, Object> hibernate() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", statistics.isStatisticsEnabled());
+        if (statistics.isStatisticsEnabled()) {
+            result.put("since", Instant.ofEpochMilli(statistics.getStartTime()));
+            result.put("summary", summary());
+            result.put("entities", entities());
+            result.put("collections", collections());
+            result.put("queries", queries());
+            result.put("caches", caches());
+        }
+        result.put("slowQueries", slowQueries.top(TOP_QUERIES));
+        return result;
+    }
+
+    public void reset() {
+        statistics.clear();
+        slowQueries.reset();
+    }
+
+    private Map<String, Object> summary() {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("sessions", statistics.getSessionOpenCount());
+        summary.put("transactions", statistics.getTransactionCount());
+        summary.put("flushes", statistics.getFlushCount());
+        summary.put("connections", statistics.getConnectCount());
+        summary.put("statements", statistics.getPrepareStatementCount());
+        summary.put("entityLoads", statistics.getEntityLoadCount());
+        summary.put("entityFetches", statistics.getEntityFetchCount());
+        summary.put("entityInserts", statistics.getEntityInsertCount());
+        summary.put("entityUpdates", statistics.getEntityUpdateCount());
+        summary.put("entityDeletes", statistics.getEntityDeleteCount());
+        summary.put("collectionLoads", statistics.getCollectionLoadCount());
+        summary.put("collectionFetches", statistics.getCollectionFetchCount());
+        summary.put("optimisticFailures", statistics.getOptimisticFailureCount());
+        summary.put("queryExecutions", statistics.getQueryExecutionCount());
+        summary.put("queryExecutionMaxMillis", statistics.getQueryExecutionMaxTime());
+        summary.put("slowestQuery", statistics.getQueryExecutionMaxTimeQueryString());
+        summary.put("queryPlanCacheHitRatio", ratio(statistics.getQueryPlanCacheHitCount(), statistics.getQueryPlanCacheMissCount()));
+        summary.put("secondLevelCacheHitRatio", ratio(statistics.getSecondLevelCacheHitCount(), statistics.getSecondLevelCacheMissCount()));
+        summary.put("queryCacheHitRatio", ratio(statistics.getQueryCacheHitCount(), statistics.getQueryCacheMissCount()));
+        return summary;
+    }
+
+    private List<EntityStat> entities() {
+        List<EntityStat> result = new ArrayList<>();
+        for (String name : statistics.getEntityNames()) {
+            EntityStatistics entity = statistics.getEntityStatistics(name);
+            result.add(new EntityStat(simpleName(name), entity.getLoadCount(), entity.getFetchCount(), entity.getInsertCount(),
+                    entity.getUpdateCount(), entity.getDeleteCount(), entity.getOptimisticFailureCount()));
+        }
+        result.sort(Comparator.comparingLong(EntityStat::getLoads).reversed());
+        return result;
+    }
+
+    private List<CollectionStat> collections() {
+        List<CollectionStat> result = new ArrayList<>();
+        for (String role : statistics.getCollectionRoleNames()) {
+            CollectionStatistics collection = statistics.getCollectionStatistics(role);
+            result.add(new CollectionStat(simpleName(role), collection.getLoadCount(), collection.getFetchCount(),
+                    collection.getRecreateCount(), collection.getUpdateCount(), collection.getRemoveCount()));
+        }
+        result.sort(Comparator.comparingLong(CollectionStat::getFetches).reversed());
+        return result;
+    }
+
+    private List<QueryStat> queries() {
+        List<QueryStat> result = new ArrayList<>();
+        for (String query : statistics.getQueries()) {
+            QueryStatistics stat = statistics.getQueryStatistics(query);
+            result.add(new QueryStat(query, stat.getExecutionCount(), stat.getExecutionAvgTime(), stat.getExecutionMaxTime(),
+                    stat.getExecutionAvgTime() * stat.getExecutionCount(), stat.getExecutionRowCount(),
+                    stat.getCacheHitCount(), stat.getCacheMissCount()));
+        }
+        result.sort(Comparator.comparingLong(QueryStat::getTotalMillis).reversed());
+        return result.size() > TOP_QUERIES ? new ArrayList<>(result.subList(0, TOP_QUERIES)) : result;
+    }
+
+    private List<CacheStat> caches() {
+        List<CacheStat> result = new ArrayList<>();
+        for (String region : statistics.getSecondLevelCacheRegionNames()) {
+            CacheRegionStatistics cache = statistics.getCacheRegionStatistics(region);
+            if (cache != null) {
+                result.add(new CacheStat(region, cache.getHitCount(), cache.getMissCount(), cache.getPutCount(),
+                        ratio(cache.getHitCount(), cache.getMissCount()), cache.getElementCountInMemory()));
+            }
+        }
+        return result;
+    }
+
+    // jpabook.jpashop.domain.Order.orderItems -> Order.orderItems
+    private static String simpleName(String name) {
+        int domain = name.lastIndexOf(".domain.");
+        return domain < 0 ? name : name.substring(domain + ".domain.".length());
+    }
+
+    private static double ratio(long hits, long misses) {
+        long total = hits + misses;
+        return total == 0 ? 0 : Math.round(hits * 1000.0 / total) / 1000.0;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class EntityStat {
+        private final String entity;
+        private final long loads;
+        private final long fetches; // 지연 로딩 프록시 초기화 등으로 따로 읽은 수
+        private final long inserts;
+        private final long updates;
+        private final long deletes;
+        private final long optimisticFailures;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class CollectionStat {
+        private final String role;
+        private final long loads;
+        private final long fetches;
+        private final long recreates;
+        private final long updates;
+        private final long removes;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class QueryStat {
+        private final String query;
+        private final long executions;
+        private final long avgMillis;
+        private final long maxMillis;
+        private final long totalMillis;
+        private final long rows;
+        private final long cacheHits;
+        private final long cacheMisses;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class CacheStat {
+        private final String region;
+        private final long hits;
+        private final long misses;
+        private final long puts;
+        private final double hitRatio;
+        private final long elementsInMemory;
+    }
+}
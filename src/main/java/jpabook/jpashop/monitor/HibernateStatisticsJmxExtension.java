@@ -0,0 +1,25 @@
+package jpabook.jpashop.monitor;
+
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.jmx.annotation.EndpointJmxExtension;
+import org.springframework.stereotype.Component;
+
+/*
+ * hibernate 통계 초기화는 JMX 로만 연다
+ * 웹으로 열면 actuator 에 접근할 수 있는 누구나 운영 통계를 지울 수 있다
+ * */
+@Component
+@EndpointJmxExtension(endpoint = HibernateStatisticsEndpoint.class)
+public class HibernateStatisticsJmxExtension {
+
+    private final HibernateStatisticsEndpoint endpoint;
+
+    public HibernateStatisticsJmxExtension(HibernateStatisticsEndpoint endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    @DeleteOperation
+    public void reset() {
+        endpoint.reset();
+    }
+}
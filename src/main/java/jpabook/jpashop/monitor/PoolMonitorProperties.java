@@ -0,0 +1,20 @@
+package jpabook.jpashop.monitor;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties("jpashop.pool-monitor")
+public class PoolMonitorProperties {
+
+    private boolean enabled = true;
+    private long leakThresholdMillis = 10_000; // 이보다 오래 반납하지 않은 커넥션을 누수로 의심한다, 0 이면 끈다
+    private boolean captureStack = false; // 커넥션을 빌린 시점의 스택을 남긴다 (누수 경고에 출력), 빌릴때마다 Throwable 을 만들므로 누수를 쫓을때만 켠다
+    private long sampleIntervalMillis = 1000; // 풀 상태 샘플링 주기
+    private int windowSeconds = 300; // 풀 크기 추천에 쓰는 최근 구간
+    private double headroom = 1.2; // 관측한 최대 수요 대비 여유
+}
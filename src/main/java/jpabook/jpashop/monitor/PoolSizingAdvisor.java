@@ -0,0 +1,174 @@
+package jpabook.jpashop.monitor;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * 풀 크기 추천
+ * sampleIntervalMillis 마다 hikaricp.connections.* 지표(풀 이름별 pool 태그)를 샘플링해서 최근 windowSeconds 구간으로 추천값을 낸다
+ * - 수요 = 사용중(active) + 대기중(pending) 커넥션 수, 구간 최대/p95 를 본다
+ * - 리틀의 법칙으로 구한 평균 동시 사용 = 초당 대여 수 * 평균 점유 시간 (hikaricp.connections.usage)
+ * - maximumPoolSize = 최대 수요 * headroom, 단 코어 수 * 2 + 1 을 넘기지 않는다 (그 이상은 DB 에서 경합만 늘어난다)
+ *   상한에 걸리면 풀을 키우기보다 커넥션 점유 시간을 줄여야 한다 (OSIV 끄기, 프로젝션, 쿼리 수)
+ * - minimumIdle = maximumPoolSize (hikari 권장, 고정 크기 풀)
+ * - leakDetectionThreshold = 최대 점유 시간의 3배 (최소 2초)
+ * */
+@Component
+public class PoolSizingAdvisor {
+
+    private final PoolMonitorProperties props;
+    private final MeterRegistry registry;
+    private final Map<String, Deque<Sample>> samples = new LinkedHashMap<>();
+    private ScheduledExecutorService scheduler;
+
+    public PoolSizingAdvisor(PoolMonitorProperties props, MeterRegistry registry) {
+        this.props = props;
+        this.registry = registry;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!props.isEnabled()) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "pool-sizing-sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::sample, props.getSampleIntervalMillis(), props.getSampleIntervalMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    public synchronized void sample() {
+        long now = System.currentTimeMillis();
+        long windowMillis = TimeUnit.SECONDS.toMillis(props.getWindowSeconds());
+        for (Gauge active : registry.find("hikaricp.connections.active").gauges()) {
+            String pool = active.getId().getTag("pool");
+            Timer usage = registry.find("hikaricp.connections.usage").tag("pool", pool).timer();
+            Deque<Sample> poolSamples = samples.computeIfAbsent(pool, p -> new ArrayDeque<>());
+            poolSamples.addLast(new Sample(now, (int) active.value(), (int) gauge("hikaricp.connections.pending", pool),
+                    (int) gauge("hikaricp.connections.max", pool), (int) gauge("hikaricp.connections.min", pool),
+                    usage == null ? 0 : usage.count(), usage == null ? 0 : usage.totalTime(TimeUnit.MILLISECONDS),
+                    usage == null ? 0 : usage.max(TimeUnit.MILLISECONDS),
+                    counter("hikaricp.connections.timeout", pool)));
+            while (!poolSamples.isEmpty() && poolSamples.peekFirst().time < now - windowMillis) {
+                poolSamples.removeFirst();
+            }
+        }
+    }
+
+    public synchronized List<PoolAdvice> advise() {
+        List<PoolAdvice> result = new ArrayList<>();
+        int cpuLimit = Runtime.getRuntime().availableProcessors() * 2 + 1;
+        samples.forEach((pool, poolSamples) -> {
+            if (poolSamples.size() < 2) {
+                return;
+            }
+            Sample first = poolSamples.peekFirst();
+            Sample last = poolSamples.peekLast();
+            int[] demand = poolSamples.stream().mapToInt(s -> s.active + s.pending).sorted().toArray();
+            int peakDemand = demand[demand.length - 1];
+            int p95Demand = demand[(int) Math.floor((demand.length - 1) * 0.95)];
+            int peakPending = poolSamples.stream().mapToInt(s -> s.pending).max().orElse(0);
+
+            double seconds = Math.max(1, last.time - first.time) / 1000.0;
+            long borrows = last.usageCount - first.usageCount;
+            double borrowsPerSecond = borrows / seconds;
+            double meanUsageMillis = borrows == 0 ? 0 : (last.usageTotalMillis - first.usageTotalMillis) / borrows;
+            double littleDemand = borrowsPerSecond * meanUsageMillis / 1000.0;
+            double maxUsageMillis = poolSamples.stream().mapToDouble(s -> s.usageMaxMillis).max().orElse(0);
+            long timeouts = (long) (last.timeouts - first.timeouts);
+
+            int wanted = (int) Math.ceil(Math.max(peakDemand, littleDemand) * props.getHeadroom());
+            int recommendedMax = Math.max(2, Math.min(wanted, cpuLimit));
+            long recommendedLeak = Math.max(2000, (long) Math.ceil(maxUsageMillis * 3 / 1000.0) * 1000);
+
+            List<String> notes = new ArrayList<>();
+            if (peakPending > 0 || timeouts > 0) {
+                notes.add("커넥션을 기다린 요청이 있었다 (최대 대기 " + peakPending + ", 타임아웃 " + timeouts + ")");
+            }
+            if (wanted > cpuLimit) {
+                notes.add("필요한 크기 " + wanted + " 가 코어 기준 상한 " + cpuLimit + " 을 넘는다, 풀을 키우기보다 커넥션 점유 시간을 줄여야 한다");
+            }
+            if (recommendedMax < last.max && peakPending == 0) {
+                notes.add("현재 크기 " + last.max + " 중 " + peakDemand + " 개까지만 썼다, 줄여도 된다");
+            }
+            result.add(new PoolAdvice(pool, poolSamples.size(), last.max, last.min, peakDemand, p95Demand, peakPending,
+                    round(borrowsPerSecond), round(meanUsageMillis), round(maxUsageMillis), round(littleDemand), timeouts,
+                    recommendedMax, recommendedMax, recommendedLeak, notes));
+        });
+        return result;
+    }
+
+    private double gauge(String name, String pool) {
+        Gauge gauge = registry.find(name).tag("pool", pool).gauge();
+        return gauge == null ? 0 : gauge.value();
+    }
+
+    private double counter(String name, String pool) {
+        Counter counter = registry.find(name).tag("pool", pool).counter();
+        return counter == null ? 0 : counter.count();
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 10) / 10.0;
+    }
+
+    @AllArgsConstructor
+    private static class Sample {
+        final long time;
+        final int active;
+        final int pending;
+        final int max;
+        final int min;
+        final long usageCount;
+        final double usageTotalMillis;
+        final double usageMaxMillis;
+        final double timeouts;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class PoolAdvice {
+        private final String pool;
+        private final int samples;
+        private final int currentMaximumPoolSize;
+        private final int currentMinimumIdle;
+        private final int peakDemand; // active + pending 최대
+        private final int p95Demand;
+        private final int peakPending;
+        private final double borrowsPerSecond;
+        private final double meanUsageMillis;
+        private final double maxUsageMillis;
+        private final double littleDemand; // 초당 대여 수 * 평균 점유 시간
+        private final long timeouts;
+        private final int recommendedMaximumPoolSize;
+        private final int recommendedMinimumIdle;
+        private final long recommendedLeakDetectionThresholdMillis;
+        private final List<String> notes;
+    }
+}
@@ -0,0 +1,100 @@
+package jpabook.jpashop.monitor;
+
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.SimpleJdbcEventListener;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * 느린 쿼리 로그 (jpashop.slow-query)
+ * org.hibernate.SQL debug 로그는 모든 쿼리를 남기므로 운영에서는 끄고, thresholdMillis 를 넘긴 쿼리만 남긴다
+ * - 로그는 sampleRate 비율만 남긴다 (느린 쿼리가 몰릴때 로그가 부하가 되지 않게), 지표 jpashop.sql.slow 와 모양별 집계는 전부 센다
+ * - 모양(파라미터 자리가 ? 인 SQL)별 횟수/최대/평균 시간을 /actuator/hibernate 의 slowQueries 로 보여준다
+ * - 로그에는 그 쿼리를 실행한 구간(요청 핸들러, 서비스 메서드) 이름을 같이 남긴다
+ * */
+@Slf4j
+@Component
+public class SlowQueryListener extends SimpleJdbcEventListener {
+
+    private final SlowQueryProperties props;
+    private final Counter slowCounter;
+    private final Map<String, Shape> shapes = new ConcurrentHashMap<>();
+
+    public SlowQueryListener(SlowQueryProperties props, MeterRegistry registry) {
+        this.props = props;
+        this.slowCounter = Counter.builder("jpashop.sql.slow").register(registry);
+    }
+
+    @Override
+    public void onAfterAnyExecute(StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+        if (!props.isEnabled()) {
+            return;
+        }
+        long elapsedMillis = timeElapsedNanos / 1_000_000;
+        if (elapsedMillis < props.getThresholdMillis()) {
+            return;
+        }
+        slowCounter.increment();
+        String sql = statementInformation.getSql();
+        if (sql != null && (shapes.size() < props.getMaxShapes() || shapes.containsKey(sql))) {
+            shapes.computeIfAbsent(sql, s -> new Shape()).record(elapsedMillis);
+        }
+        if (props.getSampleRate() >= 1.0 || ThreadLocalRandom.current().nextDouble() < props.getSampleRate()) {
+            SqlStats scope = SqlStatsHolder.current();
+            log.warn("slow query {}ms [{}] {}", elapsedMillis, scope == null ? "-" : scope.getName(),
+                    props.isWithValues() ? statementInformation.getSqlWithValues() : sql);
+        }
+    }
+
+    // 총 시간이 큰 순서
+    public List<SlowQuery> top(int limit) {
+        List<SlowQuery> result = new ArrayList<>();
+        shapes.forEach((sql, shape) -> {
+            long count = shape.count.sum();
+            long total = shape.totalMillis.sum();
+            result.add(new SlowQuery(sql, count, shape.maxMillis.get(), count == 0 ? 0 : total / count, total));
+        });
+        result.sort(Comparator.comparingLong(SlowQuery::getTotalMillis).reversed());
+        return result.size() > limit ? new ArrayList<>(result.subList(0, limit)) : result;
+    }
+
+    public void reset() {
+        shapes.clear();
+    }
+
+    private static class Shape {
+        final LongAdder count = new LongAdder();
+        final LongAdder totalMillis = new LongAdder();
+        final LongAccumulator maxMillis = new LongAccumulator(Math::max, 0);
+
+        void record(long millis) {
+            count.increment();
+            totalMillis.add(millis);
+            maxMillis.accumulate(millis);
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class SlowQuery {
+        private final String sql;
+        private final long count;
+        private final long maxMillis;
+        private final long avgMillis;
+        private final long totalMillis;
+    }
+}
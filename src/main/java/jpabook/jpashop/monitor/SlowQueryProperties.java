@@ -0,0 +1,19 @@
+package jpabook.jpashop.monitor;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties("jpashop.slow-query")
+public class SlowQueryProperties {
+
+    private boolean enabled = true;
+    private long thresholdMillis = 200; // 이보다 오래 걸린 SQL 을 느린 쿼리로 본다
+    private double sampleRate = 1.0; // 느린 쿼리 중 로그로 남길 비율 (0~1), 집계와 지표는 전부 센다
+    private boolean withValues = false; // 로그에 파라미터 값이 들어간 SQL 을 남긴다 (개인정보 주의)
+    private int maxShapes = 200; // 모양별 집계를 유지할 최대 SQL 수, 넘으면 새 모양은 집계하지 않는다
+}
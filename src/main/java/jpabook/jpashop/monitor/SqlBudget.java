@@ -0,0 +1,42 @@
+package jpabook.jpashop.monitor;
+
+import java.util.function.Supplier;
+
+/*
+ * 테스트용 쿼리 예산 검사
+ * SqlBudget.assertMaxStatements(2, () -> orderQueryRepository.findAllByDto_optimization());
+ * 예산을 넘거나 같은 모양 쿼리가 반복되면 AssertionError 로 빌드를 실패시킨다
+ * */
+public final class SqlBudget {
+
+    private SqlBudget() {
+    }
+
+    public static SqlStats measure(Runnable action) {
+        SqlStats stats = SqlStatsHolder.start("budget");
+        try {
+            action.run();
+        } finally {
+            SqlStatsHolder.stop(stats);
+        }
+        return stats;
+    }
+
+    public static <T> T assertMaxStatements(int maxStatements, Supplier<T> action) {
+        Object[] result = new Object[1];
+        SqlStats stats = measure(() -> result[0] = action.get());
+        if (stats.getStatements() > maxStatements) {
+            throw new AssertionError("쿼리 예산 초과: 예산 " + maxStatements + "개, 실행 " + stats.getStatements() + "개 (" + stats + ")");
+        }
+        @SuppressWarnings("unchecked")
+        T value = (T) result[0];
+        return value;
+    }
+
+    public static void assertNoRepeatedStatements(int threshold, Runnable action) {
+        SqlStats stats = measure(action);
+        if (stats.isNPlusOneSuspected(threshold)) {
+            throw new AssertionError("N+1 의심: 같은 쿼리 " + stats.getMaxRepeated() + "회 반복 - " + stats.getMostRepeatedSql());
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package jpabook.jpashop.monitor;
+
+import com.p6spy.engine.common.ConnectionInformation;
+import com.p6spy.engine.common.ResultSetInformation;
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.SimpleJdbcEventListener;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.sql.SQLException;
+
+/*
+ * p6spy 가 감싼 DataSource 의 jdbc 이벤트를 받아서 현재 스레드의 SqlStats 에 기록한다
+ * p6spy-spring-boot-starter 가 JdbcEventListener 빈을 자동으로 등록해준다
+ * */
+@Component
+@RequiredArgsConstructor
+public class SqlCountingListener extends SimpleJdbcEventListener {
+
+    private final ConnectionBorrowTracker borrowTracker;
+
+    @Override
+    public void onAfterGetConnection(ConnectionInformation connectionInformation, SQLException e) {
+        if (e == null) {
+            SqlStatsHolder.connectionAcquired(connectionInformation.getConnectionId());
+            borrowTracker.acquired(connectionInformation.getConnectionId(), connectionInformation.getTimeToGetConnectionNs());
+        }
+    }
+
+    // 풀 커넥션의 close 는 풀에 반납하는 시점이다
+    @Override
+    public void onAfterConnectionClose(ConnectionInformation connectionInformation, SQLException e) {
+        SqlStatsHolder.connectionReleased(connectionInformation.getConnectionId());
+        borrowTracker.released(connectionInformation.getConnectionId());
+    }
+
+    @Override
+    public void onAfterAnyExecute(StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+        SqlStatsHolder.recordStatement(statementInformation.getSql(), timeElapsedNanos);
+    }
+
+    @Override
+    public void onAfterResultSetNext(ResultSetInformation resultSetInformation, long timeElapsedNanos, boolean hasNext, SQLException e) {
+        if (hasNext) {
+            SqlStatsHolder.recordRow();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package jpabook.jpashop.monitor;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * 구간이 끝날때 SqlStats 를 Micrometer 지표로 남긴다
+ * type=http 는 요청 패턴(uri), type=service 는 서비스 메서드(Class.method) 로 태그를 단다
+ * */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SqlMetrics {
+
+    private final MeterRegistry registry;
+    private final SqlMonitorProperties props;
+
+    public void record(String type, String name, SqlStats stats) {
+        DistributionSummary.builder("jpashop.sql.statements")
+                .tag("type", type).tag("name", name)
+                .register(registry).record(stats.getStatements());
+        DistributionSummary.builder("jpashop.sql.rows")
+                .tag("type", type).tag("name", name)
+                .register(registry).record(stats.getRows());
+        Timer.builder("jpashop.sql.time")
+                .tag("type", type).tag("name", name)
+                .register(registry).record(stats.getJdbcNanos(), TimeUnit.NANOSECONDS);
+        Timer.builder("jpashop.sql.connection.hold") // OSIV 를 켜고 끈 상태를 비교할때 본다
+                .tag("type", type).tag("name", name)
+                .register(registry).record(stats.getConnectionHoldNanos(), TimeUnit.NANOSECONDS);
+
+        if (stats.isNPlusOneSuspected(props.getRepeatThreshold())) {
+            Counter.builder("jpashop.sql.nplusone")
+                    .tag("type", type).tag("name", name)
+                    .register(registry).increment();
+            log.warn("N+1 의심 [{} {}] 같은 쿼리 {}회 반복: {}", type, name, stats.getMaxRepeated(), stats.getMostRepeatedSql());
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package jpabook.jpashop.monitor;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties("jpashop.sql-monitor")
+public class SqlMonitorProperties {
+
+    private boolean enabled = true;
+    private boolean headers = true; // X-Sql-* 응답 헤더
+    private int repeatThreshold = 3; // 같은 모양 쿼리가 이 횟수 이상 반복되면 N+1 로 본다
+}
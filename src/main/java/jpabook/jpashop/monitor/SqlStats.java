@@ -0,0 +1,80 @@
+package jpabook.jpashop.monitor;
+
+import lombok.Getter;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+ * 한 구간(요청, 서비스 메서드, 테스트 블록)에서 실행된 SQL 통계
+ * 같은 모양(파라미터 자리가 ? 인 SQL 문자열)의 쿼리가 반복되면 N+1 로 의심한다
+ * */
+@Getter
+public class SqlStats {
+
+    private final String name;
+    private long statements;
+    private long rows;
+    private long jdbcNanos;
+    private final Map<String, Integer> shapes = new HashMap<>();
+    private long connections;
+    private long connectionHoldNanos; // 커넥션을 얻어서 풀에 돌려줄때까지 잡고 있던 시간 합
+    private final Map<Integer, Long> openConnections = new HashMap<>();
+
+    public SqlStats(String name) {
+        this.name = name;
+    }
+
+    void recordStatement(String sql, long elapsedNanos) {
+        statements++;
+        jdbcNanos += elapsedNanos;
+        if (sql != null) {
+            shapes.merge(sql, 1, Integer::sum);
+        }
+    }
+
+    void recordRow() {
+        rows++;
+    }
+
+    void connectionAcquired(int connectionId, long now) {
+        connections++;
+        openConnections.put(connectionId, now);
+    }
+
+    void connectionReleased(int connectionId, long now) {
+        Long acquired = openConnections.remove(connectionId);
+        if (acquired != null) {
+            connectionHoldNanos += now - acquired;
+        }
+    }
+
+    public long getConnectionHoldMillis() {
+        return connectionHoldNanos / 1_000_000;
+    }
+
+    public long getJdbcMillis() {
+        return jdbcNanos / 1_000_000;
+    }
+
+    // 가장 많이 반복된 같은 모양 쿼리의 실행 횟수
+    public int getMaxRepeated() {
+        return shapes.values().stream().mapToInt(Integer::intValue).max().orElse(0);
+    }
+
+    public String getMostRepeatedSql() {
+        return shapes.entrySet().stream()
+                .max(Map.Entry.comparingByValue())
+                .map(Map.Entry::getKey)
+                .orElse(null);
+    }
+
+    public boolean isNPlusOneSuspected(int threshold) {
+        return getMaxRepeated() >= threshold;
+    }
+
+    @Override
+    public String toString() {
+        return name + " statements=" + statements + ", rows=" + rows + ", jdbc=" + getJdbcMillis() + "ms, maxRepeated=" + getMaxRepeated();
+    }
+}
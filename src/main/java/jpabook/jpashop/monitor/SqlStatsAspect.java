@@ -0,0 +1,36 @@
+package jpabook.jpashop.monitor;
+
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+/*
+ * @Transactional 서비스 메서드 하나를 SqlStats 구간으로 잡는다
+ * 요청 구간 안에서 실행되면 두 구간 모두에 기록된다
+ * */
+@Aspect
+@Component
+@RequiredArgsConstructor
+public class SqlStatsAspect {
+
+    private final SqlMonitorProperties props;
+    private final SqlMetrics metrics;
+
+    @Around("execution(public * jpabook.jpashop.service..*(..)) && " +
+            "(@within(org.springframework.transaction.annotation.Transactional) || @annotation(org.springframework.transaction.annotation.Transactional))")
+    public Object measure(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (!props.isEnabled()) {
+            return joinPoint.proceed();
+        }
+        String name = joinPoint.getSignature().getDeclaringType().getSimpleName() + "." + joinPoint.getSignature().getName();
+        SqlStats stats = SqlStatsHolder.start(name);
+        try {
+            return joinPoint.proceed();
+        } finally {
+            SqlStatsHolder.stop(stats);
+            metrics.record("service", name, stats);
+        }
+    }
+}
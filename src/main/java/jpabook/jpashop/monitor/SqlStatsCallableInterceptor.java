@@ -0,0 +1,31 @@
+package jpabook.jpashop.monitor;
+
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+
+import java.util.concurrent.Callable;
+
+// Spring MVC 비동기 작업(Callable, WebAsyncTask, StreamingResponseBody) 을 실행하는 스레드에서 요청의 SqlStats 구간을 연다
+public class SqlStatsCallableInterceptor implements CallableProcessingInterceptor {
+
+    @Override
+    public <T> void preProcess(NativeWebRequest request, Callable<T> task) {
+        SqlStats stats = stats(request);
+        if (stats != null) {
+            SqlStatsHolder.bind(stats);
+        }
+    }
+
+    @Override
+    public <T> void postProcess(NativeWebRequest request, Callable<T> task, Object concurrentResult) {
+        SqlStats stats = stats(request);
+        if (stats != null) {
+            SqlStatsHolder.stop(stats);
+        }
+    }
+
+    private SqlStats stats(NativeWebRequest request) {
+        return (SqlStats) request.getAttribute(SqlStatsFilter.STATS_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+    }
+}
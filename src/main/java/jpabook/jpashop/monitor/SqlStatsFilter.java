@@ -0,0 +1,75 @@
+package jpabook.jpashop.monitor;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/*
+ * HTTP 요청 하나를 SqlStats 구간으로 잡는다
+ * 응답 헤더는 본문을 쓰기 직전에 SqlStatsHeaderAdvice / SqlStatsInterceptor 가 채운다 (본문을 버퍼링하지 않는다)
+ * 비동기 처리(OFFLOAD 모드, StreamingResponseBody) 는 SqlStatsCallableInterceptor 가 작업 스레드에서 같은 구간을 열고,
+ * 지표는 비동기 디스패치가 끝날때 한번 남긴다
+ * 커넥션 점유 시간은 OSIV 로 뷰 렌더링 끝까지 잡고 있는 시간까지 포함해서 요청이 끝날때 지표로 남긴다
+ * */
+@Component
+@RequiredArgsConstructor
+public class SqlStatsFilter extends OncePerRequestFilter {
+
+    public static final String STATS_ATTRIBUTE = SqlStatsFilter.class.getName() + ".stats";
+
+    private final SqlMonitorProperties props;
+    private final SqlMetrics metrics;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !props.isEnabled() || request.getRequestURI().startsWith("/actuator");
+    }
+
+    // 비동기 디스패치(응답 직렬화)에서도 같은 구간을 이어서 연다
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        SqlStats stats = isAsyncDispatch(request) ? (SqlStats) request.getAttribute(STATS_ATTRIBUTE) : null;
+        if (stats == null) {
+            stats = SqlStatsHolder.start(request.getMethod() + " " + request.getRequestURI());
+            request.setAttribute(STATS_ATTRIBUTE, stats);
+        } else {
+            SqlStatsHolder.bind(stats);
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            SqlStatsHolder.stop(stats);
+            if (!isAsyncStarted(request)) { // 비동기로 넘어갔으면 비동기 디스패치가 끝날때 남긴다
+                metrics.record("http", request.getMethod() + " " + uriPattern(request), stats);
+            }
+        }
+    }
+
+    // 태그 개수가 무한히 늘지 않도록 실제 uri 가 아닌 매핑 패턴을 쓴다
+    private String uriPattern(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return pattern == null ? "UNKNOWN" : pattern.toString();
+    }
+
+    static void writeHeaders(SqlStats stats, HttpServletResponse response) {
+        if (stats == null || response.isCommitted()) {
+            return;
+        }
+        response.setHeader("X-Sql-Statements", String.valueOf(stats.getStatements()));
+        response.setHeader("X-Sql-Rows", String.valueOf(stats.getRows()));
+        response.setHeader("X-Sql-Time-Ms", String.valueOf(stats.getJdbcMillis()));
+        response.setHeader("X-Sql-Max-Repeated", String.valueOf(stats.getMaxRepeated()));
+    }
+}
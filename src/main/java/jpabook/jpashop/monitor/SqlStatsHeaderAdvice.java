@@ -0,0 +1,36 @@
+package jpabook.jpashop.monitor;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+// @ResponseBody 응답은 직렬화 직전에 헤더를 채운다, 지연 로딩은 직렬화 중에도 일어나므로 그 쿼리는 헤더가 아닌 지표에만 잡힌다
+@ControllerAdvice
+@RequiredArgsConstructor
+public class SqlStatsHeaderAdvice implements ResponseBodyAdvice<Object> {
+
+    private final SqlMonitorProperties props;
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return props.isHeaders();
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        if (request instanceof ServletServerHttpRequest && response instanceof ServletServerHttpResponse) {
+            SqlStats stats = (SqlStats) ((ServletServerHttpRequest) request).getServletRequest().getAttribute(SqlStatsFilter.STATS_ATTRIBUTE);
+            SqlStatsFilter.writeHeaders(stats, ((ServletServerHttpResponse) response).getServletResponse());
+        }
+        return body;
+    }
+}
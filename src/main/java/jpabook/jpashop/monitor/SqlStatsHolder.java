@@ -0,0 +1,87 @@
+package jpabook.jpashop.monitor;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+
+/*
+ * 현재 스레드에서 열려있는 SqlStats 구간들
+ * 구간은 중첩될수 있고 (요청 > 서비스 메서드) 실행된 SQL 은 열려있는 모든 구간에 기록된다
+ * 구간 밖에서 실행된 SQL (스케줄러, 시작 시 초기화 등) 은 ThreadLocal 을 만들지 않는다
+ * */
+public final class SqlStatsHolder {
+
+    private static final ThreadLocal<Deque<SqlStats>> SCOPES = new ThreadLocal<>();
+
+    private SqlStatsHolder() {
+    }
+
+    public static SqlStats start(String name) {
+        SqlStats stats = new SqlStats(name);
+        bind(stats);
+        return stats;
+    }
+
+    // 이미 있는 구간을 현재 스레드에서 연다 (비동기 처리 스레드에서 요청 구간을 이어갈때), 끝나면 stop 으로 닫는다
+    public static void bind(SqlStats stats) {
+        Deque<SqlStats> scopes = SCOPES.get();
+        if (scopes == null) {
+            scopes = new ArrayDeque<>();
+            SCOPES.set(scopes);
+        }
+        scopes.push(stats);
+    }
+
+    public static void stop(SqlStats stats) {
+        Deque<SqlStats> scopes = SCOPES.get();
+        if (scopes == null) {
+            return;
+        }
+        scopes.remove(stats);
+        if (scopes.isEmpty()) {
+            SCOPES.remove();
+        }
+    }
+
+    public static SqlStats current() {
+        Deque<SqlStats> scopes = SCOPES.get();
+        return scopes == null ? null : scopes.peek();
+    }
+
+    // 열린 구간이 없으면 빈 목록, 빈 deque 를 ThreadLocal 에 남기지 않는다
+    private static Iterable<SqlStats> scopes() {
+        Deque<SqlStats> scopes = SCOPES.get();
+        return scopes == null ? Collections.emptyList() : scopes;
+    }
+
+    static void recordStatement(String sql, long elapsedNanos) {
+        for (SqlStats stats : scopes()) {
+            stats.recordStatement(sql, elapsedNanos);
+        }
+    }
+
+    static void connectionAcquired(int connectionId) {
+        long now = System.nanoTime();
+        for (SqlStats stats : scopes()) {
+            stats.connectionAcquired(connectionId, now);
+        }
+    }
+
+    static void connectionReleased(int connectionId) {
+        long now = System.nanoTime();
+        for (SqlStats stats : scopes()) {
+            stats.connectionReleased(connectionId, now);
+        }
+    }
+
+    static void recordRow() {
+        for (SqlStats stats : scopes()) {
+            stats.recordRow();
+        }
+    }
+
+    // 테스트용, 현재 스레드에 ThreadLocal 이 남아있는지
+    static boolean isBound() {
+        return SCOPES.get() != null;
+    }
+}
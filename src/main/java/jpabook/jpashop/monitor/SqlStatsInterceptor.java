@@ -0,0 +1,22 @@
+package jpabook.jpashop.monitor;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.ModelAndView;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+// 템플릿 화면은 뷰 렌더링 직전에 헤더를 채운다
+@RequiredArgsConstructor
+public class SqlStatsInterceptor implements HandlerInterceptor {
+
+    private final SqlMonitorProperties props;
+
+    @Override
+    public void postHandle(HttpServletRequest request, HttpServletResponse response, Object handler, ModelAndView modelAndView) {
+        if (props.isHeaders() && modelAndView != null) {
+            SqlStatsFilter.writeHeaders((SqlStats) request.getAttribute(SqlStatsFilter.STATS_ATTRIBUTE), response);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package jpabook.jpashop.repository;
+
+import lombok.Getter;
+
+// 카테고리 트리 캐시에 올라가는 노드, 엔티티 대신 id/이름/부모 id 만 들고있다
+@Getter
+public class CategoryNode {
+
+    private final Long id;
+    private final String name;
+    private final Long parentId;
+
+    public CategoryNode(Long id, String name, Long parentId) {
+        this.id = id;
+        this.name = name;
+        this.parentId = parentId;
+    }
+}
@@ -0,0 +1,179 @@
+package jpabook.jpashop.repository;
+
+import jpabook.jpashop.domain.Category;
+import jpabook.jpashop.domain.CategoryClosure;
+import jpabook.jpashop.domain.item.Item;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.query.NativeQuery;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+@Repository
+@RequiredArgsConstructor
+public class CategoryRepository {
+
+    public static final String CATEGORY_ITEM_TABLE = "categoey_item";
+
+    private final EntityManager em;
+    private final IdBatchLoader batchLoader;
+
+    // 카테고리와 자기 자신 클로저 행(depth 0) 을 같이 저장한다
+    public void save(Category category) {
+        em.persist(category);
+        em.persist(CategoryClosure.self(category));
+    }
+
+    public Category findOne(Long id) {
+        return em.find(Category.class, id);
+    }
+
+    // child 서브트리 전체를 parent 의 모든 조상 밑에 붙인다 (조상 수 x 서브트리 크기 만큼 행 추가)
+    public int linkSubtree(Long parentId, Long childId) {
+        em.flush(); // 아직 insert 안된 self 행이 있으면 먼저 내보낸다
+        return em.createNativeQuery(
+                "insert into category_closure (ancestor_id, descendant_id, depth)" +
+                        " select a.ancestor_id, d.descendant_id, a.depth + d.depth + 1" +
+                        " from category_closure a, category_closure d" +
+                        " where a.descendant_id = ? and d.ancestor_id = ?")
+                .setParameter(1, parentId)
+                .setParameter(2, childId)
+                .unwrap(NativeQuery.class)
+                .addSynchronizedEntityClass(CategoryClosure.class) // 2차 캐시 전체를 비우지 않게 한다
+                .executeUpdate();
+    }
+
+    // child 서브트리와 바깥 조상들 사이의 연결만 지운다, 서브트리 내부 행은 그대로 둔다
+    public int unlinkSubtree(Long childId) {
+        em.flush();
+        return em.createNativeQuery(
+                "delete from category_closure" +
+                        " where descendant_id in (select descendant_id from category_closure where ancestor_id = ?)" +
+                        " and ancestor_id not in (select descendant_id from category_closure where ancestor_id = ?)")
+                .setParameter(1, childId)
+                .setParameter(2, childId)
+                .unwrap(NativeQuery.class)
+                .addSynchronizedEntityClass(CategoryClosure.class)
+                .executeUpdate();
+    }
+
+    public boolean isDescendant(Long ancestorId, Long descendantId) {
+        return !em.createQuery(
+                "select cc.depth from CategoryClosure cc" +
+                        " where cc.ancestor.id = :ancestorId and cc.descendant.id = :descendantId", Integer.class)
+                .setParameter("ancestorId", ancestorId)
+                .setParameter("descendantId", descendantId)
+                .getResultList().isEmpty();
+    }
+
+    // 자기 자신을 제외한 하위 카테고리 전체, 가까운 깊이부터
+    public List<Category> findDescendants(Long categoryId) {
+        return em.createQuery(
+                "select c from CategoryClosure cc" +
+                        " join cc.descendant c" +
+                        " where cc.ancestor.id = :id and cc.depth > 0" +
+                        " order by cc.depth, c.id", Category.class)
+                .setParameter("id", categoryId)
+                .getResultList();
+    }
+
+    // 루트부터 자기 자신까지의 경로 (breadcrumb)
+    public List<Category> findAncestors(Long categoryId) {
+        return em.createQuery(
+                "select c from CategoryClosure cc" +
+                        " join cc.ancestor c" +
+                        " where cc.descendant.id = :id" +
+                        " order by cc.depth desc", Category.class)
+                .setParameter("id", categoryId)
+                .getResultList();
+    }
+
+    // 서브트리에 속한 상품, 여러 카테고리에 걸친 상품도 한번만 나오도록 in 서브쿼리를 쓴다
+    public List<Item> findItemsInSubtree(Long categoryId, int offset, int limit) {
+        return em.createQuery(
+                "select i from Item i" +
+                        " where i.id in (" +
+                        "   select ci.id from CategoryClosure cc" +
+                        "   join cc.descendant c" +
+                        "   join c.items ci" +
+                        "   where cc.ancestor.id = :id)" +
+                        " order by i.id", Item.class)
+                .setParameter("id", categoryId)
+                .setFirstResult(offset)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    public long countItemsInSubtree(Long categoryId) {
+        return em.createQuery(
+                "select count(distinct ci.id) from CategoryClosure cc" +
+                        " join cc.descendant c" +
+                        " join c.items ci" +
+                        " where cc.ancestor.id = :id", Long.class)
+                .setParameter("id", categoryId)
+                .getSingleResult();
+    }
+
+    // 트리 캐시 적재용, 전체 카테고리를 한번에 읽는다
+    public List<CategoryNode> findAllNodes() {
+        return em.createQuery(
+                "select new jpabook.jpashop.repository.CategoryNode(c.id, c.name, p.id)" +
+                        " from Category c" +
+                        " left join c.parent p" +
+                        " order by c.id", CategoryNode.class)
+                .getResultList();
+    }
+
+    // 상품 페이지의 카테고리를 한번에 가져온다, 상품마다 지연로딩하지 않는다 (in 절은 IdBatchLoader 가 나눈다)
+    public Map<Long, List<ItemCategoryDto>> findCategoriesByItemIds(Collection<Long> itemIds) {
+        return batchLoader.load(itemIds, (entityManager, chunk) -> entityManager.createQuery(
+                "select new jpabook.jpashop.repository.ItemCategoryDto(i.id, c.id, c.name, p.id)" +
+                        " from Category c" +
+                        " join c.items i" +
+                        " left join c.parent p" +
+                        " where i.id in :itemIds" +
+                        " order by c.id", ItemCategoryDto.class)
+                .setParameter("itemIds", chunk)
+                .getResultList(), ItemCategoryDto::getItemId);
+    }
+
+    // 조인 테이블에 없는 (카테고리, 상품) 행만 insert ... select 로 넣는다, 상품 엔티티를 읽지 않는다
+    // 영속성 컨텍스트에 올라온 Category.items / Item.categories 는 갱신되지 않으므로 호출한 쪽에서 clear 해야 한다
+    public int assignItems(Long categoryId, Collection<Long> itemIds) {
+        em.flush();
+        int inserted = 0;
+        for (List<Long> chunk : IdBatchLoader.chunk(itemIds)) {
+            inserted += em.createNativeQuery(
+                    "insert into " + CATEGORY_ITEM_TABLE + " (category_id, item_id)" +
+                            " select :categoryId, i.item_id from item i" +
+                            " where i.item_id in (:itemIds)" +
+                            " and not exists (select 1 from " + CATEGORY_ITEM_TABLE + " ci" +
+                            "   where ci.category_id = :categoryId and ci.item_id = i.item_id)")
+                    .setParameter("categoryId", categoryId)
+                    .setParameter("itemIds", chunk)
+                    .unwrap(NativeQuery.class)
+                    .addSynchronizedQuerySpace(CATEGORY_ITEM_TABLE) // 조인 테이블만 무효화, item/member 2차 캐시는 그대로 둔다
+                    .executeUpdate();
+        }
+        return inserted;
+    }
+
+    public int unassignItems(Long categoryId, Collection<Long> itemIds) {
+        em.flush();
+        int deleted = 0;
+        for (List<Long> chunk : IdBatchLoader.chunk(itemIds)) {
+            deleted += em.createNativeQuery(
+                    "delete from " + CATEGORY_ITEM_TABLE +
+                            " where category_id = :categoryId and item_id in (:itemIds)")
+                    .setParameter("categoryId", categoryId)
+                    .setParameter("itemIds", chunk)
+                    .unwrap(NativeQuery.class)
+                    .addSynchronizedQuerySpace(CATEGORY_ITEM_TABLE)
+                    .executeUpdate();
+        }
+        return deleted;
+    }
+}
@@ -0,0 +1,83 @@
+package jpabook.jpashop.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.boot.Metadata;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.hibernate.mapping.Collection;
+import org.hibernate.mapping.PersistentClass;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+ * jpashop.fetch.batch-sizes 를 매핑에 반영한다
+ * 세션 팩토리가 엔티티/컬렉션 persister 를 만들기 전에 integrator 로 매핑 정보(Metadata)의 배치 크기를 바꾼다
+ * 엔티티 크기는 하위 타입(Book, Album, Movie) 에도 같이 건다
+ * */
+@Slf4j
+@Configuration
+public class FetchTuningConfig {
+
+    @Bean
+    public HibernatePropertiesCustomizer fetchTuningCustomizer(FetchTuningProperties props) {
+        Map<String, Integer> batchSizes = new HashMap<>(props.getBatchSizes());
+        IntegratorProvider provider = () -> Collections.singletonList(new BatchSizeIntegrator(batchSizes));
+        return properties -> {
+            if (!batchSizes.isEmpty()) {
+                properties.put("hibernate.integrator_provider", provider);
+            }
+        };
+    }
+
+    static class BatchSizeIntegrator implements Integrator {
+
+        private final Map<String, Integer> batchSizes;
+
+        BatchSizeIntegrator(Map<String, Integer> batchSizes) {
+            this.batchSizes = batchSizes;
+        }
+
+        @Override
+        public void integrate(Metadata metadata, SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+            Map<String, Integer> unknown = new HashMap<>(batchSizes);
+            for (PersistentClass entity : metadata.getEntityBindings()) {
+                for (PersistentClass type = entity; type != null; type = type.getSuperclass()) {
+                    Integer size = batchSizes.get(type.getJpaEntityName());
+                    if (size != null) {
+                        entity.setBatchSize(size);
+                        unknown.remove(type.getJpaEntityName());
+                        break;
+                    }
+                }
+            }
+            for (Collection collection : metadata.getCollectionBindings()) {
+                String name = collection.getOwner().getJpaEntityName()
+                        + collection.getRole().substring(collection.getOwnerEntityName().length()); // Order.orderItems
+                Integer size = batchSizes.get(name);
+                if (size != null) {
+                    collection.setBatchSize(size);
+                    unknown.remove(name);
+                }
+            }
+            batchSizes.forEach((name, size) -> {
+                if (!unknown.containsKey(name)) {
+                    log.info("batch fetch size {} = {}", name, size);
+                }
+            });
+            if (!unknown.isEmpty()) {
+                log.warn("unknown entity/collection in jpashop.fetch.batch-sizes: {}", unknown.keySet());
+            }
+        }
+
+        @Override
+        public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package jpabook.jpashop.repository;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties("jpashop.fetch")
+public class FetchTuningProperties {
+
+    // 연관별 배치 페치 크기, @BatchSize 를 덮어쓴다 (FetchPlanBenchmark 로 고른 값)
+    // 엔티티는 엔티티 이름, 컬렉션은 엔티티.필드 예) "[Item]": 128, "[Order.orderItems]": 16
+    private Map<String, Integer> batchSizes = new LinkedHashMap<>();
+}
@@ -0,0 +1,149 @@
+package jpabook.jpashop.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/*
+ * where x.id in :ids 조회를 청크로 나눠서 실행한다
+ * - 한번에 넘기는 파라미터 수를 MAX_CHUNK_SIZE 로 제한한다 (DB 파라미터 제한)
+ * - 청크 크기를 2의 거듭제곱으로 맞추고 모자란 자리는 마지막 id 로 채운다
+ *   in 절 파라미터 개수가 몇가지로 고정되므로 statement / 실행계획 캐시가 재사용된다
+ * - 청크가 여러개면 제한된 스레드풀에서 동시에 실행하고 결과를 id 기준 map 으로 합친다
+ *   청크마다 readOnly 트랜잭션 안에서 조회하므로 복제본 라우팅을 따르고 커넥션은 스레드 수 만큼만 더 쓴다
+ * - 호출한 스레드가 이미 커넥션을 쥐고 있으면 (트랜잭션 또는 OSIV 로 묶인 EntityManager) 순서대로 실행한다
+ *   요청마다 커넥션 하나를 쥔 채 로더 스레드의 커넥션을 기다리면 동시 요청이 풀 크기쯤에서 서로를 기다리며 멈춘다
+ * */
+@Slf4j
+@Component
+public class IdBatchLoader {
+
+    public static final int MAX_CHUNK_SIZE = 512;
+    public static final int MIN_CHUNK_SIZE = 16;
+
+    private final EntityManager em;
+    private final EntityManagerFactory emf;
+    private final TransactionTemplate readOnlyTx;
+    private final ExecutorService executor;
+
+    public IdBatchLoader(EntityManager em, EntityManagerFactory emf, PlatformTransactionManager transactionManager,
+                         @Value("${jpashop.batch-loader.threads:4}") int threads) {
+        this.em = em;
+        this.emf = emf;
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+        AtomicInteger seq = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threads * 16),
+                r -> {
+                    Thread t = new Thread(r, "id-batch-loader-" + seq.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy()); // 큐가 차면 호출한 스레드가 직접 실행한다 (배압)
+    }
+
+    /*
+     * query : 청크 하나를 조회하는 함수, 넘겨받은 EntityManager 로 조회해야 한다
+     * keyMapper : 결과를 묶을 id (예: 주문상품의 주문 id)
+     * */
+    public <T> Map<Long, List<T>> load(Collection<Long> ids,
+                                       BiFunction<EntityManager, List<Long>, List<T>> query,
+                                       Function<T, Long> keyMapper) {
+        List<List<Long>> chunks = chunk(ids);
+        Map<Long, List<T>> result = new HashMap<>(Math.max(16, ids.size() * 4 / 3 + 1));
+        for (List<T> rows : execute(chunks, query)) {
+            for (T row : rows) {
+                result.computeIfAbsent(keyMapper.apply(row), k -> new ArrayList<>()).add(row);
+            }
+        }
+        return result;
+    }
+
+    private <T> List<List<T>> execute(List<List<Long>> chunks, BiFunction<EntityManager, List<Long>, List<T>> query) {
+        List<List<T>> results = new ArrayList<>(chunks.size());
+        // 청크가 하나거나 트랜잭션 안이라면 같은 영속성 컨텍스트(같은 커넥션)에서 순서대로 실행한다
+        // 다른 스레드는 현재 트랜잭션의 커밋되지 않은 변경을 볼 수 없기 때문
+        // 트랜잭션 없이 OSIV 로 EntityManager 가 묶여 있어도 이미 커넥션을 쥐고 있으므로 더 빌리지 않는다
+        if (chunks.size() <= 1 || TransactionSynchronizationManager.isActualTransactionActive()
+                || TransactionSynchronizationManager.hasResource(emf)) {
+            for (List<Long> chunk : chunks) {
+                results.add(query.apply(em, chunk));
+            }
+            return results;
+        }
+
+        List<Future<List<T>>> futures = new ArrayList<>(chunks.size());
+        for (List<Long> chunk : chunks) {
+            // 공유 EntityManager 는 트랜잭션이 묶인 스레드의 영속성 컨텍스트를 쓴다
+            futures.add(executor.submit(() -> readOnlyTx.execute(status -> query.apply(em, chunk))));
+        }
+        try {
+            for (Future<List<T>> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            futures.forEach(f -> f.cancel(true));
+            throw new IllegalStateException("배치 조회가 중단되었습니다.", e);
+        } catch (ExecutionException e) {
+            futures.forEach(f -> f.cancel(true));
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("배치 조회에 실패했습니다.", e.getCause());
+        }
+        return results;
+    }
+
+    // 중복 제거 후 정렬해서 MAX_CHUNK_SIZE 단위로 자르고, 마지막 청크는 2의 거듭제곱 크기로 채운다
+    public static List<List<Long>> chunk(Collection<Long> ids) {
+        List<Long> sorted = new ArrayList<>(new TreeSet<>(ids));
+        List<List<Long>> chunks = new ArrayList<>();
+        for (int from = 0; from < sorted.size(); from += MAX_CHUNK_SIZE) {
+            List<Long> chunk = new ArrayList<>(sorted.subList(from, Math.min(from + MAX_CHUNK_SIZE, sorted.size())));
+            int padded = paddedSize(chunk.size());
+            Long last = chunk.get(chunk.size() - 1);
+            while (chunk.size() < padded) {
+                chunk.add(last);
+            }
+            chunks.add(chunk);
+        }
+        return chunks;
+    }
+
+    static int paddedSize(int size) {
+        int padded = MIN_CHUNK_SIZE;
+        while (padded < size) {
+            padded <<= 1;
+        }
+        return padded;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
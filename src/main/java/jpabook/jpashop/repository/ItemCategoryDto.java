@@ -0,0 +1,20 @@
+package jpabook.jpashop.repository;
+
+import lombok.Getter;
+
+// 상품 id 별 카테고리 배치 조회 결과 한 행
+@Getter
+public class ItemCategoryDto {
+
+    private final Long itemId;
+    private final Long categoryId;
+    private final String name;
+    private final Long parentId;
+
+    public ItemCategoryDto(Long itemId, Long categoryId, String name, Long parentId) {
+        this.itemId = itemId;
+        this.categoryId = categoryId;
+        this.name = name;
+        this.parentId = parentId;
+    }
+}
@@ -1,16 +1,32 @@
 package jpabook.jpashop.repository;
 
 import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.repository.view.ItemListView;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.SessionFactory;
+import org.hibernate.cache.spi.CacheImplementor;
+import org.hibernate.cache.spi.TimestampsCache;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.jpa.QueryHints;
+import org.hibernate.query.NativeQuery;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 @Repository
 @RequiredArgsConstructor
 public class ItemRepository {
 
+    public static final String ITEM_ALL_QUERY_REGION = "item-all-query";
+    private static final String[] ITEM_QUERY_SPACES = {"item"}; // 단일 테이블 상속이라 Book/Album/Movie 도 item 테이블 하나
+
     private final EntityManager entityManager;
 
     public void save(Item item) {
@@ -26,7 +42,110 @@ public class ItemRepository {
         return entityManager.find(Item.class, id);
     }
 
+    public List<Item> findAllById(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return entityManager.createQuery("select i from Item i where i.id in :ids", Item.class)
+                .setParameter("ids", ids)
+                .getResultList();
+    }
+
     public List<Item> findAll() {
-        return entityManager.createQuery("SELECT i from Item i", Item.class).getResultList();
+        return entityManager.createQuery("SELECT i from Item i", Item.class)
+                .setHint(QueryHints.HINT_CACHEABLE, true)
+                .setHint(QueryHints.HINT_CACHE_REGION, ITEM_ALL_QUERY_REGION)
+                .getResultList();
+    } // 쿼리 캐시에는 id 목록만 저장되고 엔티티는 item 리전에서 가져온다
+
+    // 화면용 프로젝션, 스칼라 값(재고 포함)이 쿼리 캐시에 그대로 저장되고 evictFindAllCache 로 같이 비워진다
+    // 재고를 바꾸는 네이티브 update (decreaseStock, applyStockDelta, markHot) 는 item 타임스탬프를 갱신하므로 다음 조회는 DB 에서 읽는다
+    public List<ItemListView> findAllViews() {
+        return entityManager.createQuery(
+                "select new jpabook.jpashop.repository.view.ItemListView(i.id, i.name, i.price, i.stockQuantity)" +
+                        " from Item i order by i.id", ItemListView.class)
+                .setHint(QueryHints.HINT_CACHEABLE, true)
+                .setHint(QueryHints.HINT_CACHE_REGION, ITEM_ALL_QUERY_REGION)
+                .getResultList();
+    }
+
+    // 엔티티를 읽지 않고 재고가 충분할 때만 차감한다, 차감된 행 수(0 또는 1)를 반환한다
+    // 행 단위 원자적 update 라 락을 오래 잡지 않고 동시에 들어와도 재고가 음수가 되지 않는다
+    public int decreaseStock(Long itemId, int count) {
+        int updated = entityManager.createNativeQuery(
+                "update item set stock_quantity = stock_quantity - ?, version = version + 1" +
+                        " where item_id = ? and stock_quantity >= ?")
+                .setParameter(1, count)
+                .setParameter(2, itemId)
+                .setParameter(3, count)
+                .unwrap(NativeQuery.class)
+                .addSynchronizedQuerySpace("") // 벌크 연산이 item 리전 전체를 비우지 않게 한다, 해당 상품만 아래에서 비운다
+                .executeUpdate();
+        evictAfterCompletion(itemId);
+        return updated;
+    } // item 테이블 쿼리 캐시는 evictAfterCompletion 이 item 타임스탬프를 갱신해서 무효화한다
+
+    // 예약한 재고를 되돌린다 (비동기 접수 주문이 저장에 실패한 경우)
+    public int increaseStock(Long itemId, int count) {
+        return applyStockDelta(itemId, count);
+    }
+
+    // 재고를 delta 만큼 바꾼다, 재고 검사는 하지 않는다 (HotStockLedger 가 메모리에서 이미 검사한 차감/복구를 모아서 반영)
+    public int applyStockDelta(Long itemId, int delta) {
+        int updated = entityManager.createNativeQuery(
+                "update item set stock_quantity = stock_quantity + ?, version = version + 1 where item_id = ?")
+                .setParameter(1, delta)
+                .setParameter(2, itemId)
+                .unwrap(NativeQuery.class)
+                .addSynchronizedQuerySpace("")
+                .executeUpdate();
+        evictAfterCompletion(itemId);
+        return updated;
+    }
+
+    // 인기 상품 표시, 행 락을 잡으므로 진행중인 재고 차감이 끝난 뒤에 바뀐다
+    // version 을 올려서 표시 전에 읽은 엔티티가 변경감지로 재고를 덮어쓰지 못하게 한다
+    public int markHot(Long itemId) {
+        int updated = entityManager.createNativeQuery("update item set hot = true, version = version + 1 where item_id = ?")
+                .setParameter(1, itemId)
+                .unwrap(NativeQuery.class)
+                .addSynchronizedQuerySpace("")
+                .executeUpdate();
+        evictAfterCompletion(itemId);
+        return updated;
+    }
+
+    // 인기 상품 id -> 재고
+    public Map<Long, Integer> findHotStocks() {
+        return entityManager.createQuery("select i.id, i.stockQuantity from Item i where i.hot = true", Object[].class)
+                .getResultList().stream()
+                .collect(Collectors.toMap(r -> (Long) r[0], r -> (Integer) r[1]));
+    }
+
+    // 바뀐 상품만 엔티티 캐시에서 지우고, item 쿼리 공간의 타임스탬프를 갱신해서 item 을 읽는 쿼리 캐시를 무효화한다
+    // addSynchronizedQuerySpace("item") 은 타임스탬프와 함께 item 엔티티 리전 전체를 비우므로 타임스탬프만 직접 갱신한다
+    private void evictAfterCompletion(Long itemId) {
+        SharedSessionContractImplementor session = entityManager.unwrap(SharedSessionContractImplementor.class);
+        CacheImplementor cache = session.getFactory().getCache();
+        TimestampsCache timestamps = cache.getTimestampsCache();
+        cache.evictEntityData(Item.class, itemId);
+        timestamps.preInvalidate(ITEM_QUERY_SPACES, session); // 트랜잭션이 끝날때까지 item 쿼리 결과를 캐시하지 않는다
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    cache.evictEntityData(Item.class, itemId); // 커밋 전에 다시 캐시된 옛 값도 지운다
+                    timestamps.invalidate(ITEM_QUERY_SPACES, session);
+                }
+            });
+        } else {
+            timestamps.invalidate(ITEM_QUERY_SPACES, session);
+        }
+    }
+
+    // item 테이블이 바뀌면 hibernate 가 타임스탬프로 쿼리 캐시를 무효화 하지만 상품 수정시 명시적으로도 비운다
+    public void evictFindAllCache() {
+        entityManager.getEntityManagerFactory().unwrap(SessionFactory.class)
+                .getCache().evictQueryRegion(ITEM_ALL_QUERY_REGION);
     }
 }
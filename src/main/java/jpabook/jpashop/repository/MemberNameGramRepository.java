@@ -0,0 +1,74 @@
+package jpabook.jpashop.repository;
+
+import jpabook.jpashop.domain.MemberNameGram;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+@Repository
+@RequiredArgsConstructor
+public class MemberNameGramRepository {
+
+    public static final int GRAM_SIZE = 3;
+
+    private final EntityManager em;
+
+    // 연속된 세 글자 조각, 세 글자보다 짧으면 비어있다
+    public static Set<String> grams(String value) {
+        Set<String> grams = new LinkedHashSet<>();
+        if (value == null) {
+            return grams;
+        }
+        for (int i = 0; i + GRAM_SIZE <= value.length(); i++) {
+            grams.add(value.substring(i, i + GRAM_SIZE));
+        }
+        return grams;
+    }
+
+    public void index(Long memberId, String name) {
+        deleteByMemberId(memberId);
+        add(memberId, name);
+    }
+
+    public void add(Long memberId, String name) {
+        for (String gram : grams(name)) {
+            em.persist(new MemberNameGram(gram, memberId));
+        }
+    }
+
+    public int deleteByMemberId(Long memberId) {
+        return em.createQuery("delete from MemberNameGram g where g.id.memberId = :memberId")
+                .setParameter("memberId", memberId)
+                .executeUpdate();
+    }
+
+    // 재색인용, afterId < memberId <= toId 구간 (toId 가 null 이면 afterId 이후 전부)
+    public int deleteByMemberIdRange(Long afterId, Long toId) {
+        if (toId == null) {
+            return em.createQuery("delete from MemberNameGram g where g.id.memberId > :afterId")
+                    .setParameter("afterId", afterId)
+                    .executeUpdate();
+        }
+        return em.createQuery("delete from MemberNameGram g where g.id.memberId > :afterId and g.id.memberId <= :toId")
+                .setParameter("afterId", afterId)
+                .setParameter("toId", toId)
+                .executeUpdate();
+    }
+
+    // 재색인용, id 순서로 afterId 이후 limit 명의 (id, name)
+    public List<Object[]> findMemberNames(Long afterId, int limit) {
+        return em.createQuery("select m.id, m.name from Member m where m.id > :afterId order by m.id", Object[].class)
+                .setParameter("afterId", afterId)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    public void flushAndClear() {
+        em.flush();
+        em.clear();
+    }
+}
@@ -0,0 +1,8 @@
+package jpabook.jpashop.repository;
+
+// 주문 검색의 회원 이름 조건
+public enum MemberNameMatch {
+    LIKE,   // 입력값 그대로 like (기존 동작), 와일드카드는 입력에 포함시킨다
+    PREFIX, // name like '입력값%', idx_member_name 을 탄다
+    INFIX   // name like '%입력값%', 트라이그램 인덱스를 켜면 member_name_gram 으로 후보를 좁힌뒤 확인한다
+}
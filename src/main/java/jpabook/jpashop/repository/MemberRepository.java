@@ -1,7 +1,9 @@
 package jpabook.jpashop.repository;
 
 import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.repository.view.MemberListView;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
 import java.util.List;
 
@@ -9,4 +11,8 @@ public interface MemberRepository extends JpaRepository<Member, Long> {
 
     List<Member> findByName(String name);
     // select m from Member m where m.name = ?
+
+    @Query("select new jpabook.jpashop.repository.view.MemberListView(m.id, m.name, m.address.city, m.address.street, m.address.zipcode)" +
+            " from Member m order by m.id")
+    List<MemberListView> findAllViews();
 }
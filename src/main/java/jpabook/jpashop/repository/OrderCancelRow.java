@@ -0,0 +1,19 @@
+package jpabook.jpashop.repository;
+
+import jpabook.jpashop.domain.DeliveryStatus;
+import jpabook.jpashop.domain.OrderStatus;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+// 일괄 취소 대상 주문 한 행, 잠근 주문 행에서 엔티티를 올리지 않고 읽는다
+@Getter
+@AllArgsConstructor
+public class OrderCancelRow {
+
+    private Long orderId;
+    private OrderStatus status;
+    private LocalDateTime orderDate;
+    private DeliveryStatus deliveryStatus;
+}
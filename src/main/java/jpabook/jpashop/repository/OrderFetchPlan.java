@@ -0,0 +1,46 @@
+package jpabook.jpashop.repository;
+
+import org.hibernate.jpa.QueryHints;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+
+/*
+ * 주문 조회 계획, Order 의 @NamedEntityGraph 를 fetchgraph 힌트로 건다
+ * NONE       : 주문만, 연관은 지연 로딩 (배치 페치)
+ * SUMMARY    : 회원, 배송
+ * WITH_ITEMS : 회원, 배송, 주문상품 (상품은 배치 페치)
+ * FULL       : 회원, 배송, 주문상품, 상품
+ * 컬렉션을 읽는 계획(WITH_ITEMS, FULL) 은 페치 조인이라 페이징 쿼리에 그대로 걸면 hibernate 가 메모리에서 페이징한다
+ * 그래서 OrderRepository 는 페이지를 SUMMARY 로 읽고 컬렉션은 id in 쿼리 한번으로 채운다
+ * */
+public enum OrderFetchPlan {
+
+    NONE(null, false),
+    SUMMARY("Order.summary", false),
+    WITH_ITEMS("Order.withItems", true),
+    FULL("Order.full", true);
+
+    private final String graph;
+    private final boolean collection;
+
+    OrderFetchPlan(String graph, boolean collection) {
+        this.graph = graph;
+        this.collection = collection;
+    }
+
+    public boolean fetchesCollection() {
+        return collection;
+    }
+
+    public String getGraph() {
+        return graph;
+    }
+
+    public <T> TypedQuery<T> apply(EntityManager em, TypedQuery<T> query) {
+        if (graph != null) {
+            query.setHint(QueryHints.HINT_FETCHGRAPH, em.getEntityGraph(graph));
+        }
+        return query;
+    }
+}
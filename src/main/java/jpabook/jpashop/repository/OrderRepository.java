@@ -1,11 +1,18 @@
 package jpabook.jpashop.repository;
 
+import com.querydsl.core.types.OrderSpecifier;
 import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.Param;
+import com.querydsl.jpa.JPAExpressions;
+import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
 import jpabook.jpashop.domain.*;
 import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.repository.OrderSearchQueryPlans.Path;
+import jpabook.jpashop.repository.OrderSearchQueryPlans.Shape;
 import lombok.RequiredArgsConstructor;
 import org.hibernate.annotations.BatchSize;
+import org.hibernate.jpa.QueryHints;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 import org.springframework.util.StringUtils;
@@ -13,31 +20,179 @@ import org.springframework.util.StringUtils;
 import javax.persistence.EntityManager;
 import javax.persistence.TypedQuery;
 import javax.persistence.criteria.*;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
 
 @Repository
 public class OrderRepository {
 
+    private static final Param<OrderStatus> STATUS_PARAM = new Param<>(OrderStatus.class, "status");
+    private static final Param<String> NAME_PARAM = new Param<>(String.class, "name");
+
     private final EntityManager entityManager;
     private final JPAQueryFactory query;
+    private final OrderSearchQueryPlans queryPlans;
 
     @Autowired
-    public OrderRepository(EntityManager entityManager) {
+    public OrderRepository(EntityManager entityManager, OrderSearchQueryPlans queryPlans) {
         this.entityManager = entityManager;
         this.query = new JPAQueryFactory(entityManager);
+        this.queryPlans = queryPlans;
     }
 
     public void save(Order order) {
         entityManager.persist(order);
     }
 
+    // 대량 저장시 쌓인 insert 를 배치로 내보내고 영속성 컨텍스트를 비운다
+    public void flushAndClear() {
+        entityManager.flush();
+        entityManager.clear();
+    }
+
     public Order findOne(Long id) {
         return entityManager.find(Order.class, id);
     }
 
+    // 접수 번호 -> 주문 id, 이미 저장된 접수를 다시 저장하지 않도록 확인할때 쓴다
+    public Map<Long, Long> findIdsByIntakeIds(Collection<Long> intakeIds) {
+        Map<Long, Long> result = new HashMap<>();
+        if (intakeIds.isEmpty()) {
+            return result;
+        }
+        entityManager.createQuery("select o.intakeId, o.id from Order o where o.intakeId in :intakeIds", Object[].class)
+                .setParameter("intakeIds", intakeIds)
+                .getResultList()
+                .forEach(row -> result.put((Long) row[0], (Long) row[1]));
+        return result;
+    }
+
+    // 일괄 취소 - 주문 행을 id 순서로 잠그고 상태/주문일/배송 상태만 읽는다 (엔티티를 올리지 않는다)
+    // 배송 행은 잠그지 않는다, Order.cancel 과 같이 읽은 시점의 배송 상태로 판단한다
+    public List<OrderCancelRow> lockForCancel(Collection<Long> orderIds) {
+        List<Object[]> rows = entityManager.createNativeQuery(
+                "select o.order_id, o.status, o.order_date," +
+                        " (select d.status from delivery d where d.delivery_id = o.delivery_id)" +
+                        " from orders o where o.order_id in (:ids) order by o.order_id for update")
+                .setParameter("ids", orderIds)
+                .getResultList();
+        List<OrderCancelRow> result = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            result.add(new OrderCancelRow(((Number) row[0]).longValue(), OrderStatus.valueOf((String) row[1]),
+                    ((Timestamp) row[2]).toLocalDateTime(), row[3] == null ? null : DeliveryStatus.valueOf((String) row[3])));
+        }
+        return result;
+    }
+
+    // 조건에 맞는 주문 상태 주문 id, afterId 이후 id 순서로 limit 개 (일괄 취소 대상 페이징)
+    public List<Long> findCancelableIds(LocalDateTime from, LocalDateTime to, DeliveryStatus deliveryStatus, Long afterId, int limit) {
+        TypedQuery<Long> query = entityManager.createQuery(
+                "select o.id from Order o" + (deliveryStatus == null ? "" : " join o.delivery d") +
+                        " where o.status = :status and o.id > :afterId" +
+                        (from == null ? "" : " and o.orderDate >= :from") +
+                        (to == null ? "" : " and o.orderDate < :to") +
+                        (deliveryStatus == null ? "" : " and d.status = :deliveryStatus") +
+                        " order by o.id", Long.class)
+                .setParameter("status", OrderStatus.ORDER)
+                .setParameter("afterId", afterId)
+                .setMaxResults(limit);
+        if (from != null) {
+            query.setParameter("from", from);
+        }
+        if (to != null) {
+            query.setParameter("to", to);
+        }
+        if (deliveryStatus != null) {
+            query.setParameter("deliveryStatus", deliveryStatus);
+        }
+        return query.getResultList();
+    }
+
+    // 일괄 취소 - 상태 변경을 update 한번으로 한다, 잠근 행 중 아직 주문 상태인 것만 바뀐다
+    // 주문은 2차 캐시 대상이 아니고, 벌크 update 라 hibernate 가 orders 를 참조하는 쿼리 캐시를 무효화한다
+    public int cancelAll(Collection<Long> orderIds) {
+        return entityManager.createQuery("update Order o set o.status = :cancel where o.id in :ids and o.status = :order")
+                .setParameter("cancel", OrderStatus.CANCEL)
+                .setParameter("order", OrderStatus.ORDER)
+                .setParameter("ids", orderIds)
+                .executeUpdate();
+    }
+
+    // 상품 id -> 주문 수량 합 (일괄 취소 재고 복구)
+    public Map<Long, Integer> sumCountByItem(Collection<Long> orderIds) {
+        Map<Long, Integer> result = new TreeMap<>(); // 상품 id 순서로 update 해서 교착을 피한다
+        entityManager.createQuery(
+                "select oi.item.id, sum(oi.count) from OrderItem oi where oi.order.id in :ids group by oi.item.id", Object[].class)
+                .setParameter("ids", orderIds)
+                .getResultList()
+                .forEach(row -> result.put((Long) row[0], ((Number) row[1]).intValue()));
+        return result;
+    }
+
+    // 주문 id -> {수량 합, 금액 합} (일괄 취소 매출 요약)
+    public Map<Long, long[]> sumByOrder(Collection<Long> orderIds) {
+        Map<Long, long[]> result = new HashMap<>();
+        entityManager.createQuery(
+                "select oi.order.id, sum(oi.count), sum(oi.orderPrice * oi.count) from OrderItem oi" +
+                        " where oi.order.id in :ids group by oi.order.id", Object[].class)
+                .setParameter("ids", orderIds)
+                .getResultList()
+                .forEach(row -> result.put((Long) row[0], new long[]{((Number) row[1]).longValue(), ((Number) row[2]).longValue()}));
+        return result;
+    }
+
+    // 인기 상품 재고 차감 중 아직 item.stock_quantity 에 반영되지 않은 것, 상품 id -> 수량 합 (취소된 주문은 차감/복구가 서로 상쇄되므로 뺀다)
+    public Map<Long, Long> findPendingStock() {
+        Map<Long, Long> result = new HashMap<>();
+        entityManager.createQuery(
+                "select oi.item.id, sum(oi.count) from OrderItem oi" +
+                        " where oi.stockPending = true and oi.order.status = :status group by oi.item.id", Object[].class)
+                .setParameter("status", OrderStatus.ORDER)
+                .getResultList()
+                .forEach(row -> result.put((Long) row[0], (Long) row[1]));
+        return result;
+    }
+
+    public int markStockApplied(Collection<Long> orderItemIds) {
+        if (orderItemIds.isEmpty()) {
+            return 0;
+        }
+        return entityManager.createQuery("update OrderItem oi set oi.stockPending = false where oi.id in :ids")
+                .setParameter("ids", orderItemIds)
+                .executeUpdate();
+    }
+
+    public int markAllStockApplied() {
+        return entityManager.createQuery("update OrderItem oi set oi.stockPending = false where oi.stockPending = true")
+                .executeUpdate();
+    }
+
     //문자열 조립
+    // 조립한 문자열은 모양별로 한번만 만들고, 같은 문자열이라 hibernate 계획 캐시에서 번역된 계획을 꺼낸다
     public List<Order> findAllByString(OrderSearch orderSearch) {
+        Shape shape = Shape.of(orderSearch.getOrderStatus(), orderSearch.getMemberName());
+        String jpql = queryPlans.compiled(Path.JPQL, shape, () -> assembleJpql(orderSearch));
+        TypedQuery<Order> query = queryPlans.create(Path.JPQL, shape, () -> entityManager.createQuery(jpql, Order.class))
+                .setMaxResults(OrderSearchQueryPlans.MAX_RESULTS); //최대 1000건
+        if (orderSearch.getOrderStatus() != null) {
+            query = query.setParameter("status", orderSearch.getOrderStatus());
+        }
+        if (StringUtils.hasText(orderSearch.getMemberName())) {
+            query = query.setParameter("name", orderSearch.getMemberName());
+        }
+        return query.getResultList();
+    }
+
+    private static String assembleJpql(OrderSearch orderSearch) {
         //language=JPQL
         String jpql = "select o From Order o join o.member m";
         boolean isFirstCondition = true;
@@ -60,89 +215,195 @@ public class OrderRepository {
                 jpql += " and";
             }
             jpql += " m.name like :name";
-        } TypedQuery<Order> query = entityManager.createQuery(jpql, Order.class)
-                .setMaxResults(1000); //최대 1000건
-        if (orderSearch.getOrderStatus() != null) {
-            query = query.setParameter("status", orderSearch.getOrderStatus());
         }
-        if (StringUtils.hasText(orderSearch.getMemberName())) {
-            query = query.setParameter("name", orderSearch.getMemberName());
-        }
-        return query.getResultList();
+        return jpql;
     }
-    
+
     // JPA CRITERIA
+    // 값을 그대로 넣으면 모양이 같아도 매번 트리를 만들고 렌더링해야 하므로 파라미터로 만든 트리를 모양별로 한번 렌더링한 jpql 을 다시 쓴다
+    // CriteriaQuery 는 바꿀 수 있는 객체라 스레드 사이에 공유하지 않고 렌더링한 문자열만 둔다
     public List<Order> findAllByCriteria(OrderSearch orderSearch) {
+        Shape shape = Shape.of(orderSearch.getOrderStatus(), orderSearch.getMemberName());
+        String jpql = queryPlans.compiled(Path.CRITERIA, shape,
+                () -> entityManager.createQuery(criteriaQuery(shape)).unwrap(org.hibernate.query.Query.class).getQueryString());
+        TypedQuery<Order> query = queryPlans.create(Path.CRITERIA, shape, () -> entityManager.createQuery(jpql, Order.class))
+                .setMaxResults(OrderSearchQueryPlans.MAX_RESULTS); //최대1000건
+        if (shape.hasStatus()) {
+            query.setParameter("status", orderSearch.getOrderStatus());
+        }
+        if (shape.hasName()) {
+            query.setParameter("name", "%" + orderSearch.getMemberName() + "%");
+        }
+        return query.getResultList();
+    }
+
+    private CriteriaQuery<Order> criteriaQuery(Shape shape) {
         CriteriaBuilder cb = entityManager.getCriteriaBuilder();
         CriteriaQuery<Order> cq = cb.createQuery(Order.class);
         Root<Order> o = cq.from(Order.class);
         Join<Order, Member> m = o.join("member", JoinType.INNER); //회원과 조인
         List<Predicate> criteria = new ArrayList<>();
         //주문 상태 검색
-        if (orderSearch.getOrderStatus() != null) {
+        if (shape.hasStatus()) {
             Predicate status = cb.equal(o.get("status"),
-                    orderSearch.getOrderStatus());
+                    cb.parameter(OrderStatus.class, "status"));
             criteria.add(status);
         }
         //회원 이름 검색
-        if (StringUtils.hasText(orderSearch.getMemberName())) {
+        if (shape.hasName()) {
             Predicate name =
-                    cb.like(m.<String>get("name"), "%" +
-                            orderSearch.getMemberName() + "%");
+                    cb.like(m.<String>get("name"), cb.parameter(String.class, "name"));
             criteria.add(name); }
         cq.where(cb.and(criteria.toArray(new Predicate[criteria.size()])));
-        TypedQuery<Order> query = entityManager.createQuery(cq).setMaxResults(1000); //최대1000건
-        return query.getResultList();
+        return cq;
     }
 
-
-
-
-    public List<Order> findAllWithMemberDelivery() {
-        return entityManager.createQuery(
-                "select o from Order o" +
-                        " join fetch o.member" +
-                        " join fetch o.delivery", Order.class
-        ).getResultList();
+    // 연관을 어디까지 같이 읽을지는 OrderFetchPlan 으로 고른다 (이전의 findAllWithMemberDelivery / findAllWithItem)
+    // FULL 은 주문상품/상품과의 조인이라 행이 주문상품 수만큼 늘어나지만 (1 x n) 같은 주문 엔티티는 하나로 합쳐서 돌려준다
+    public List<Order> findAll(OrderFetchPlan plan) {
+        return fetch(entityManager.createQuery("select o from Order o", Order.class), plan);
     }
 
-
-    public List<Order> findAllWithItem() {
-        return entityManager.createQuery(
-                "select distinct o from Order o" +
-                        " join fetch o.member m " +
-                        " join  fetch o.delivery d " +
-                        " join  fetch o.orderItems oi " +
-                        "join  fetch oi.item i ", Order.class)
-//                .setFirstResult(1).setMaxResults(100) // 넣어도 안먹힌다, 로그에 컬렉션 페치랑 같이쓰면 applying memory 로그가 뜬다 - 메모리에서 페이징 한다는 뜻(성능 저하)
-                .getResultList();
+    // 오프셋 페이징, 컬렉션 계획이어도 페이지는 주문 단위로 자른다
+    public List<Order> findPage(int offset, int limit, OrderFetchPlan plan) {
+        return fetchPage(entityManager.createQuery("select o from Order o order by o.id", Order.class)
+                .setFirstResult(offset).setMaxResults(limit), plan);
     }
 
+    // 키셋 페이징, offset 대신 마지막으로 읽은 (orderDate, id) 이후부터 읽으므로 앞 페이지를 스캔하고 버리지 않는다
+    // 페이지 깊이와 상관없이 일정한 속도가 나온다
+    public List<Order> findPage(OrderCursor cursor, int limit, OrderFetchPlan plan) {
+        String jpql = "select o from Order o";
+        if (cursor != null) {
+            jpql += " where o.orderDate > :orderDate" +
+                    " or (o.orderDate = :orderDate and o.id > :orderId)";
+        }
+        TypedQuery<Order> query = entityManager.createQuery(jpql + " order by o.orderDate, o.id", Order.class)
+                .setMaxResults(limit);
+        if (cursor != null) {
+            query.setParameter("orderDate", cursor.getOrderDate())
+                    .setParameter("orderId", cursor.getOrderId());
+        }
+        return fetchPage(query, plan);
+    }
 
-    public List<Order> findAllWithMemberDelivery(int offset, int limit) {
-        return entityManager.createQuery(
-                "select o from Order o" +
-                        " join fetch o.member" +
-                        " join fetch o.delivery", Order.class)
-                .setFirstResult(offset).setMaxResults(limit).getResultList();
-    } // 페이징용 to One 관계만 페치 전역 배치사이즈를 잡았다면 페치조인을 안해도 어느정도 최적화가 되지만 페치조인이 좋다
+    private List<Order> fetch(TypedQuery<Order> query, OrderFetchPlan plan) {
+        List<Order> orders = plan.apply(entityManager, query).getResultList();
+        return plan.fetchesCollection() ? new ArrayList<>(new LinkedHashSet<>(orders)) : orders;
+    }
 
+    // 페이지는 to-one 만 조인해서 자르고, 컬렉션 계획이면 그 페이지의 주문상품을 한번에 채운다
+    private List<Order> fetchPage(TypedQuery<Order> query, OrderFetchPlan plan) {
+        if (!plan.fetchesCollection()) {
+            return plan.apply(entityManager, query).getResultList();
+        }
+        return fetchCollections(OrderFetchPlan.SUMMARY.apply(entityManager, query).getResultList(), plan);
+    }
 
+    // 이미 읽은 주문들의 컬렉션을 plan 대로 id in 쿼리 한번으로 초기화한다 (같은 영속성 컨텍스트의 엔티티가 채워진다)
+    private List<Order> fetchCollections(List<Order> orders, OrderFetchPlan plan) {
+        if (!orders.isEmpty()) {
+            plan.apply(entityManager, entityManager.createQuery("select o from Order o where o.id in :ids", Order.class))
+                    .setParameter("ids", orders.stream().map(Order::getId).collect(Collectors.toList()))
+                    .getResultList();
+        }
+        return orders;
+    }
 
     //쿼리 dsl
+    @SuppressWarnings("unchecked")
     public List<Order> findAll(OrderSearch orderSearch) {
 
 //        JPAQueryFactory query = new JPAQueryFactory(entityManager);
 //        QOrder order = QOrder.order;
 //        QMember member = QMember.member;
 
+        // 값 대신 Param 으로 만들어서 모양이 같으면 jpql 도 같다 (JPAQuery 는 바꿀 수 있는 객체라 호출마다 새로 만든다)
+        Shape shape = Shape.of(orderSearch.getOrderStatus(), orderSearch.getMemberName());
+        JPAQuery<Order> select = querydslQuery(shape);
+        if (shape.hasStatus()) {
+            select.set(STATUS_PARAM, orderSearch.getOrderStatus());
+        }
+        if (shape.hasName()) {
+            select.set(NAME_PARAM, orderSearch.getMemberName());
+        }
+        return queryPlans.create(Path.QUERYDSL, shape, select::createQuery).getResultList();
+    }
+
+    private JPAQuery<Order> querydslQuery(Shape shape) {
         return query
                 .select(QOrder.order)
                 .from(QOrder.order)
                 .join(QOrder.order.member, QMember.member)
-                .where(stsusEq(orderSearch.getOrderStatus()), nameLike(orderSearch.getMemberName())) // 조건이 없다면(null) where 절 비활성화 있다면 조건 활성화
-                .limit(1000)
-                .fetch();
+                .where(shape.hasStatus() ? QOrder.order.status.eq(STATUS_PARAM) : null,
+                        shape.hasName() ? QMember.member.name.like(NAME_PARAM) : null) // 조건이 없다면(null) where 절 비활성화 있다면 조건 활성화
+                .limit(OrderSearchQueryPlans.MAX_RESULTS);
+    }
+
+    // 검색 + orderDate 정렬 키셋 페이징, 회원/배송은 SUMMARY 계획으로 같이 읽는다
+    // 상태 조건이 있으면 idx_orders_status_order_date_id, 없으면 idx_orders_order_date_id 순서로 읽다가 limit 에서 멈춘다
+    public List<Order> search(OrderSearch orderSearch, OrderCursor cursor, int limit, boolean trigramIndex) {
+        return search(orderSearch, cursor, limit, trigramIndex, OrderFetchPlan.SUMMARY);
+    }
+
+    // 회원 조인은 이름 조건용, 연관은 plan 의 fetchgraph 로 읽는다 (컬렉션 계획이면 페이지를 자른 뒤 id in 으로 채운다)
+    public List<Order> search(OrderSearch orderSearch, OrderCursor cursor, int limit, boolean trigramIndex, OrderFetchPlan plan) {
+        QOrder order = QOrder.order;
+        boolean desc = orderSearch.isLatestFirst();
+        OrderFetchPlan pagePlan = plan.fetchesCollection() ? OrderFetchPlan.SUMMARY : plan;
+        JPAQuery<Order> select = query
+                .select(order)
+                .from(order)
+                .join(order.member, QMember.member)
+                .where(stsusEq(orderSearch.getOrderStatus()),
+                        nameMatches(orderSearch.getMemberName(), orderSearch.getNameMatch(), trigramIndex),
+                        orderDateSeek(cursor, desc))
+                .orderBy(desc ? new OrderSpecifier[]{order.orderDate.desc(), order.id.desc()}
+                        : new OrderSpecifier[]{order.orderDate.asc(), order.id.asc()})
+                .limit(limit);
+        if (pagePlan.getGraph() != null) {
+            select.setHint(QueryHints.HINT_FETCHGRAPH, entityManager.getEntityGraph(pagePlan.getGraph()));
+        }
+        List<Order> orders = select.fetch();
+        return plan.fetchesCollection() ? fetchCollections(orders, plan) : orders;
+    }
+
+    private BooleanExpression nameMatches(String memberName, MemberNameMatch match, boolean trigramIndex) {
+        if (!StringUtils.hasText(memberName)) {
+            return null;
+        }
+        QMember member = QMember.member;
+        if (match == MemberNameMatch.PREFIX) {
+            return member.name.startsWith(memberName); // like 'x%' (와일드카드 문자는 이스케이프) 라 인덱스 범위 검색이 된다
+        }
+        if (match == MemberNameMatch.INFIX) {
+            Set<String> grams = MemberNameGramRepository.grams(memberName);
+            if (!trigramIndex || grams.isEmpty()) {
+                return member.name.contains(memberName); // like '%x%', 이름 인덱스를 못 타고 회원 전체를 읽는다
+            }
+            QMemberNameGram gram = QMemberNameGram.memberNameGram;
+            return member.id.in(JPAExpressions
+                            .select(gram.id.memberId)
+                            .from(gram)
+                            .where(gram.id.gram.in(grams))
+                            .groupBy(gram.id.memberId)
+                            .having(gram.id.gram.countDistinct().eq((long) grams.size())))
+                    .and(member.name.contains(memberName)); // 조각이 모두 있어도 순서가 다를수 있어서 한번 더 확인한다
+        }
+        return nameLike(memberName);
+    }
+
+    private BooleanExpression orderDateSeek(OrderCursor cursor, boolean desc) {
+        if (cursor == null) {
+            return null;
+        }
+        QOrder order = QOrder.order;
+        if (desc) {
+            return order.orderDate.lt(cursor.getOrderDate())
+                    .or(order.orderDate.eq(cursor.getOrderDate()).and(order.id.lt(cursor.getOrderId())));
+        }
+        return order.orderDate.gt(cursor.getOrderDate())
+                .or(order.orderDate.eq(cursor.getOrderDate()).and(order.id.gt(cursor.getOrderId())));
     }
 
     private BooleanExpression nameLike(String mamberName) {
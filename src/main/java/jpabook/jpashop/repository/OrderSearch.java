@@ -10,4 +10,6 @@ public class OrderSearch {
 
     private String memberName;
     private OrderStatus orderStatus;
+    private MemberNameMatch nameMatch = MemberNameMatch.LIKE;
+    private boolean latestFirst; // orderDate 내림차순
 }
@@ -0,0 +1,142 @@
+package jpabook.jpashop.repository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jpabook.jpashop.domain.OrderStatus;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/*
+ * OrderSearch 조회 계획 캐시
+ * 어떤 조건(상태 / 회원 이름) 이 들어왔는지에 따라 쿼리 모양은 네 가지 뿐이므로, 모양별로 jpql 문자열을 한번만 만들어두고 다시 쓴다
+ * - 문자열 조립(findAllByString): 조립한 jpql 문자열
+ * - Criteria(findAllByCriteria): 값 대신 파라미터로 만든 CriteriaQuery 를 한번 렌더링한 jpql 문자열
+ * - Querydsl(findAll): 호출마다 Param 으로 쿼리를 만든다 (트리는 가볍고 jpql 직렬화는 어차피 호출마다 한다)
+ * 여러 스레드가 같이 꺼내 쓰므로 캐시에는 바뀌지 않는 문자열만 둔다 (CriteriaQuery / JPAQuery 는 바꿀 수 있는 객체라 공유하지 않는다)
+ * 세 경로 모두 만들어지는 jpql 이 모양마다 같으므로 hibernate 계획 캐시에서 번역된 계획을 꺼내 쓴다
+ * 지표: jpashop.query.plan.compile (문자열 / Criteria 경로의 모양별 jpql 을 처음 만든 시간)
+ *      jpashop.query.plan.create (쿼리 객체 생성 시간, 계획 캐시 miss 면 HQL 번역 시간 포함), jpashop.query.plan.lookup (경로/모양별 호출 수)
+ *      hibernate statistics 가 켜져 있으면 jpashop.query.plan.cache (hibernate 계획 캐시 hit / miss)
+ * 지표는 생성자에서 한번만 등록한다
+ * */
+@Component
+public class OrderSearchQueryPlans {
+
+    public enum Path {
+        JPQL(true), CRITERIA(true), QUERYDSL(false);
+
+        private final boolean compiles;
+
+        Path(boolean compiles) {
+            this.compiles = compiles;
+        }
+
+        String tag() {
+            return name().toLowerCase();
+        }
+    }
+
+    public enum Shape {
+        ALL(false, false),
+        STATUS(true, false),
+        NAME(false, true),
+        STATUS_NAME(true, true);
+
+        private final boolean status;
+        private final boolean name;
+
+        Shape(boolean status, boolean name) {
+            this.status = status;
+            this.name = name;
+        }
+
+        public static Shape of(OrderStatus status, String memberName) {
+            boolean hasName = StringUtils.hasText(memberName);
+            if (status != null) {
+                return hasName ? STATUS_NAME : STATUS;
+            }
+            return hasName ? NAME : ALL;
+        }
+
+        public boolean hasStatus() {
+            return status;
+        }
+
+        public boolean hasName() {
+            return name;
+        }
+    }
+
+    public static final int MAX_RESULTS = 1000; // 최대 1000건
+
+    private final Map<Path, Map<Shape, Plan>> plans = new EnumMap<>(Path.class);
+
+    public OrderSearchQueryPlans(EntityManagerFactory emf, MeterRegistry registry) {
+        for (Path path : Path.values()) {
+            Map<Shape, Plan> shapes = new EnumMap<>(Shape.class);
+            for (Shape shape : Shape.values()) {
+                shapes.put(shape, new Plan(
+                        path.compiles ? Timer.builder("jpashop.query.plan.compile").tag("path", path.tag()).tag("shape", shape.name()).register(registry) : null,
+                        Timer.builder("jpashop.query.plan.create").tag("path", path.tag()).tag("shape", shape.name()).register(registry),
+                        Counter.builder("jpashop.query.plan.lookup").tag("path", path.tag()).tag("shape", shape.name()).register(registry)));
+            }
+            plans.put(path, shapes);
+        }
+
+        Statistics statistics = emf.unwrap(SessionFactory.class).getStatistics();
+        if (statistics.isStatisticsEnabled()) {
+            FunctionCounter.builder("jpashop.query.plan.cache", statistics, Statistics::getQueryPlanCacheHitCount)
+                    .tag("result", "hit").register(registry);
+            FunctionCounter.builder("jpashop.query.plan.cache", statistics, Statistics::getQueryPlanCacheMissCount)
+                    .tag("result", "miss").register(registry);
+        }
+    }
+
+    // 경로/모양별로 처음 한번만 compiler 를 부르고 그 jpql 을 계속 돌려준다
+    public String compiled(Path path, Shape shape, Supplier<String> compiler) {
+        if (!path.compiles) {
+            throw new IllegalArgumentException("만들어 두지 않는 경로입니다: " + path);
+        }
+        Plan plan = plans.get(path).get(shape);
+        String compiled = plan.compiled;
+        if (compiled == null) {
+            synchronized (plan) {
+                compiled = plan.compiled;
+                if (compiled == null) {
+                    compiled = plan.compileTimer.record(compiler);
+                    plan.compiled = compiled;
+                }
+            }
+        }
+        return compiled;
+    }
+
+    // 쿼리 객체 생성 (hibernate 는 여기서 계획 캐시를 찾고, 없으면 번역한다)
+    public <Q> Q create(Path path, Shape shape, Supplier<Q> creator) {
+        Plan plan = plans.get(path).get(shape);
+        plan.lookups.increment();
+        return plan.createTimer.record(creator);
+    }
+
+    private static class Plan {
+        private final Timer compileTimer;
+        private final Timer createTimer;
+        private final Counter lookups;
+        private volatile String compiled;
+
+        Plan(Timer compileTimer, Timer createTimer, Counter lookups) {
+            this.compileTimer = compileTimer;
+            this.createTimer = createTimer;
+            this.lookups = lookups;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package jpabook.jpashop.repository.order.query;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/*
+ * o.id 로 정렬된 OrderFlatDto 행들을 OrderQueryDto 로 접는다
+ * 같은 주문의 행은 연속으로 들어오므로 주문 id 가 바뀌는 순간 이전 주문을 완성해서 넘긴다
+ * groupingBy 처럼 행마다 키 dto 를 만들고 해시할 필요가 없고, 진행중인 주문 하나만 메모리에 들고 있는다
+ * */
+public class OrderFlatFolder implements Consumer<OrderFlatDto> {
+
+    private final Consumer<OrderQueryDto> downstream;
+    private OrderQueryDto current;
+
+    public OrderFlatFolder(Consumer<OrderQueryDto> downstream) {
+        this.downstream = downstream;
+    }
+
+    @Override
+    public void accept(OrderFlatDto row) {
+        if (current == null || !current.getOrderId().equals(row.getOrderId())) {
+            finish();
+            current = new OrderQueryDto(row.getOrderId(), row.getName(), row.getOrderDate(), row.getOrderStatus(),
+                    row.getAddress(), new ArrayList<>());
+        }
+        current.getOrderItems().add(new OrderItemQueryDto(row.getOrderId(), row.getItemName(), row.getOrderPrice(), row.getCount()));
+    }
+
+    // 마지막 주문은 다음 주문 행이 오지 않으므로 입력이 끝나면 반드시 호출해야 한다
+    public void finish() {
+        if (current != null) {
+            downstream.accept(current);
+            current = null;
+        }
+    }
+
+    public static List<OrderQueryDto> fold(List<OrderFlatDto> rows) {
+        List<OrderQueryDto> result = new ArrayList<>();
+        OrderFlatFolder folder = new OrderFlatFolder(result::add);
+        rows.forEach(folder);
+        folder.finish();
+        return result;
+    }
+}
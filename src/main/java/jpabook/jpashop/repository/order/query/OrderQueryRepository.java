@@ -1,18 +1,46 @@
 package jpabook.jpashop.repository.order.query;
 
+import jpabook.jpashop.repository.IdBatchLoader;
+import jpabook.jpashop.repository.OrderCursor;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.query.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 @Repository
 @RequiredArgsConstructor
 public class OrderQueryRepository {
 
+    private static final String ORDER_JPQL =
+            "select new jpabook.jpashop.repository.order.query.OrderQueryDto(o.id, m.name, o.orderDate, o.status, d.address) " +
+                    "from Order o " +
+                    "join o.member m " +
+                    "join o.delivery d";
+
+    private static final String FLAT_JPQL =
+            "select new jpabook.jpashop.repository.order.query.OrderFlatDto( o.id, m.name, o.orderDate, o.status, d.address, i.name, oi.orderPrice, oi.count) " +
+                    "from Order o " +
+                    "join o.member m " +
+                    "join o.delivery d " +
+                    "join o.orderItems oi " +
+                    "join oi.item i";
+
+    private static final int STREAM_FETCH_SIZE = 500; // 커서가 한번에 가져올 행 수
+    private static final int STREAM_CHUNK_SIZE = 500; // 이 단위로 영속성 컨텍스트를 비운다
+
     private final EntityManager em;
+    private final IdBatchLoader batchLoader;
 
     public List<OrderQueryDto> findOrderQueryDtos() {
         List<OrderQueryDto> result = findOrders();
@@ -40,19 +68,22 @@ public class OrderQueryRepository {
         return result;
     }
 
+    public List<OrderQueryDto> findAllByDto_optimization(OrderCursor cursor, int limit) {
+        List<OrderQueryDto> result = findOrders(cursor, limit);
+        Map<Long, List<OrderItemQueryDto>> orderItemMap = findOrderItemMap(toOrderIds(result));
+        result.forEach(o -> o.setOrderItems(orderItemMap.get(o.getOrderId())));
+        return result;
+    } // 키셋 페이징 버전, 주문을 커서 이후로 limit 만큼 가져오고 컬렉션은 in 절로 한번에 가져온다
+
     private Map<Long, List<OrderItemQueryDto>> findOrderItemMap(List<Long> orderIds) {
-        List<OrderItemQueryDto> orderItems = em.createQuery(
+        return batchLoader.load(orderIds, (entityManager, chunk) -> entityManager.createQuery(
                 "select new jpabook.jpashop.repository.order.query.OrderItemQueryDto( oi.order.id, i.name, oi.orderPrice, oi.count )" +
                         "from OrderItem oi " +
                         "join oi.item i " +
                         "where oi.order.id in :orderId ", OrderItemQueryDto.class)
-                .setParameter("orderId", orderIds)
-                .getResultList();
-
-        Map<Long, List<OrderItemQueryDto>> orderItemMap = orderItems.stream()
-                .collect(Collectors.groupingBy(orderItemQueryDto -> orderItemQueryDto.getOrderId()));
-        return orderItemMap;
-    }
+                .setParameter("orderId", chunk)
+                .getResultList(), OrderItemQueryDto::getOrderId);
+    } // in 절 파라미터가 많아지면 IdBatchLoader 가 고정 크기 청크로 나눠서 조회한뒤 주문 id 기준 map 으로 합쳐준다
 
     private List<Long> toOrderIds(List<OrderQueryDto> result) {
         List<Long> orderIds = result.stream().map(orderQueryDto -> orderQueryDto.getOrderId()).collect(Collectors.toList());
@@ -72,24 +103,117 @@ public class OrderQueryRepository {
     }
 
     private List<OrderQueryDto> findOrders() {
-        return em.createQuery(
-                "select new jpabook.jpashop.repository.order.query.OrderQueryDto(o.id, m.name, o.orderDate, o.status, d.address) " +
-                        "from Order o " +
-                        "join o.member m " +
-                        "join o.delivery d", OrderQueryDto.class)
+        return em.createQuery(ORDER_JPQL, OrderQueryDto.class)
                 .getResultList();
         // 컬렉션은 바로 넣을수 없다
     }
 
+    private List<OrderQueryDto> findOrders(OrderCursor cursor, int limit) {
+        String jpql = ORDER_JPQL;
+        if (cursor != null) {
+            jpql += " where o.orderDate > :orderDate" +
+                    " or (o.orderDate = :orderDate and o.id > :orderId)";
+        }
+        TypedQuery<OrderQueryDto> query = em.createQuery(jpql + " order by o.orderDate, o.id", OrderQueryDto.class)
+                .setMaxResults(limit);
+        if (cursor != null) {
+            query.setParameter("orderDate", cursor.getOrderDate())
+                    .setParameter("orderId", cursor.getOrderId());
+        }
+        return query.getResultList();
+    }
+
+
+    // 스트리밍 조회, 전체 결과를 List 로 만들지 않고 forward-only 커서로 한 행씩 넘긴다
+    // 커서가 열려있는 동안 커넥션을 잡고 있어야 하므로 트랜잭션 안에서 실행한다
+    @Transactional(readOnly = true)
+    public void streamAllByDto_flat(Consumer<OrderFlatDto> action) {
+        scroll(em.createQuery(FLAT_JPQL + " order by o.id", OrderFlatDto.class), row -> {
+            action.accept(row);
+            return true;
+        });
+    }
+
+    @Transactional(readOnly = true)
+    public void streamAllByDto_grouped(Consumer<OrderQueryDto> action) {
+        OrderFlatFolder folder = new OrderFlatFolder(action);
+        streamAllByDto_flat(folder);
+        folder.finish();
+    } // flat 행을 커서에서 읽는 대로 주문 단위로 접어서 넘긴다
+
+    // 주문 경계 기준 페이징, lastOrderId 이후의 주문을 limit 건 만큼 가져온다
+    // 행 수는 주문마다 달라서 setMaxResults 를 쓸수 없으므로 limit 건이 완성되면 커서 읽기를 멈춘다
+    @Transactional(readOnly = true)
+    public List<OrderQueryDto> findAllByDto_grouped(Long lastOrderId, int limit) {
+        List<OrderQueryDto> result = new ArrayList<>();
+        if (limit <= 0) {
+            return result;
+        }
+        OrderFlatFolder folder = new OrderFlatFolder(result::add);
+        TypedQuery<OrderFlatDto> query = em.createQuery(FLAT_JPQL + " where o.id > :lastOrderId order by o.id", OrderFlatDto.class)
+                .setParameter("lastOrderId", lastOrderId == null ? 0L : lastOrderId);
+        scroll(query, row -> {
+            folder.accept(row);
+            return result.size() < limit; // limit 번째 주문은 다음 주문의 첫 행이 들어올때 완성된다
+        });
+        if (result.size() < limit) {
+            folder.finish();
+        }
+        return result;
+    }
+
+    @Transactional(readOnly = true)
+    public void streamAllByDto_optimization(Consumer<OrderQueryDto> action) {
+        List<OrderQueryDto> chunk = new ArrayList<>(STREAM_CHUNK_SIZE);
+        scroll(em.createQuery(ORDER_JPQL + " order by o.id", OrderQueryDto.class), o -> {
+            chunk.add(o);
+            if (chunk.size() == STREAM_CHUNK_SIZE) {
+                flushChunk(chunk, action);
+            }
+            return true;
+        });
+        flushChunk(chunk, action);
+    } // 주문을 커서로 읽어 청크 단위로 모은뒤 청크마다 in 절 한번으로 컬렉션을 채워서 넘긴다, 메모리는 청크 크기만큼만 쓴다
+
+    private void flushChunk(List<OrderQueryDto> chunk, Consumer<OrderQueryDto> action) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        Map<Long, List<OrderItemQueryDto>> orderItemMap = findOrderItemMap(toOrderIds(chunk));
+        for (OrderQueryDto o : chunk) {
+            o.setOrderItems(orderItemMap.get(o.getOrderId()));
+            action.accept(o);
+        }
+        chunk.clear();
+    }
+
+    // action 이 false 를 반환하면 남은 행을 읽지 않고 멈춘다
+    private <T> void scroll(TypedQuery<T> typedQuery, Predicate<T> action) {
+        @SuppressWarnings("unchecked")
+        Query<T> query = typedQuery.unwrap(Query.class);
+        ScrollableResults results = query
+                .setFetchSize(STREAM_FETCH_SIZE)
+                .setReadOnly(true)
+                .scroll(ScrollMode.FORWARD_ONLY);
+        try {
+            int count = 0;
+            while (results.next()) {
+                @SuppressWarnings("unchecked")
+                T row = (T) results.get(0);
+                if (!action.test(row)) {
+                    break;
+                }
+                if (++count % STREAM_CHUNK_SIZE == 0) {
+                    em.clear(); // 영속성 컨텍스트가 계속 커지지 않도록 주기적으로 비운다
+                }
+            }
+        } finally {
+            results.close();
+        }
+    }
 
     public List<OrderFlatDto> findAllByDto_flat() {
-        return em.createQuery(
-                "select new jpabook.jpashop.repository.order.query.OrderFlatDto( o.id, m.name, o.orderDate, o.status, d.address, i.name, oi.orderPrice, oi.count) " +
-                        "from Order o " +
-                        "join o.member m " +
-                        "join o.delivery d " +
-                        "join o.orderItems oi " +
-                        "join oi.item i", OrderFlatDto.class)
+        return em.createQuery(FLAT_JPQL + " order by o.id", OrderFlatDto.class)
                 .getResultList();
     }
 }
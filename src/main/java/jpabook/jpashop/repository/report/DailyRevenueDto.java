@@ -0,0 +1,30 @@
+package jpabook.jpashop.repository.report;
+
+import jpabook.jpashop.domain.OrderStatus;
+import lombok.Getter;
+
+import java.time.LocalDate;
+import java.util.Date;
+
+@Getter
+public class DailyRevenueDto {
+
+    private final LocalDate date;
+    private final OrderStatus status;
+    private final long orderCount;
+    private final long itemQuantity;
+    private final long revenue;
+
+    public DailyRevenueDto(LocalDate date, OrderStatus status, long orderCount, long itemQuantity, long revenue) {
+        this.date = date;
+        this.status = status;
+        this.orderCount = orderCount;
+        this.itemQuantity = itemQuantity;
+        this.revenue = revenue;
+    }
+
+    // 집계 쿼리의 cast(o.orderDate as date) 결과용
+    public DailyRevenueDto(Date date, OrderStatus status, Long orderCount, Long itemQuantity, Long revenue) {
+        this(new java.sql.Date(date.getTime()).toLocalDate(), status, orderCount, itemQuantity, revenue);
+    }
+}
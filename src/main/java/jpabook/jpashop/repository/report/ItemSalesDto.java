@@ -0,0 +1,19 @@
+package jpabook.jpashop.repository.report;
+
+import lombok.Getter;
+
+@Getter
+public class ItemSalesDto {
+
+    private final Long itemId;
+    private final String name;
+    private final long quantity;
+    private final long revenue;
+
+    public ItemSalesDto(Long itemId, String name, Long quantity, Long revenue) {
+        this.itemId = itemId;
+        this.name = name;
+        this.quantity = quantity;
+        this.revenue = revenue;
+    }
+}
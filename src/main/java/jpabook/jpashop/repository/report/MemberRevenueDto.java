@@ -0,0 +1,19 @@
+package jpabook.jpashop.repository.report;
+
+import lombok.Getter;
+
+@Getter
+public class MemberRevenueDto {
+
+    private final Long memberId;
+    private final String name;
+    private final long orderCount;
+    private final long revenue;
+
+    public MemberRevenueDto(Long memberId, String name, Long orderCount, Long revenue) {
+        this.memberId = memberId;
+        this.name = name;
+        this.orderCount = orderCount;
+        this.revenue = revenue;
+    }
+}
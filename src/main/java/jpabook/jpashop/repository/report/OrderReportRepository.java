@@ -0,0 +1,147 @@
+package jpabook.jpashop.repository.report;
+
+import jpabook.jpashop.domain.DailyRevenue;
+import jpabook.jpashop.domain.OrderStatus;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.Session;
+import org.hibernate.query.NativeQuery;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.time.LocalDate;
+import java.util.List;
+
+/*
+ * 매출 리포트 전용 조회
+ * Order.getTotalPrice() 처럼 엔티티를 올려서 자바에서 더하지 않고 DB 집계 함수로 계산한 결과만 프로젝션으로 가져온다
+ * 기간 조건은 [from, to) 로 orderDate 인덱스(idx_orders_order_date_id) 를 탄다
+ * */
+@Repository
+@RequiredArgsConstructor
+public class OrderReportRepository {
+
+    private final EntityManager em;
+
+    public List<DailyRevenueDto> revenueByDay(LocalDate from, LocalDate to) {
+        return em.createQuery(
+                "select new jpabook.jpashop.repository.report.DailyRevenueDto(" +
+                        " cast(o.orderDate as date), o.status, count(distinct o.id), sum(oi.count), sum(oi.orderPrice * oi.count))" +
+                        " from Order o" +
+                        " join o.orderItems oi" +
+                        " where o.orderDate >= :from and o.orderDate < :to" +
+                        " group by cast(o.orderDate as date), o.status" +
+                        " order by cast(o.orderDate as date), o.status", DailyRevenueDto.class)
+                .setParameter("from", from.atStartOfDay())
+                .setParameter("to", to.atStartOfDay())
+                .getResultList();
+    }
+
+    // 취소된 주문은 빼고 수량이 많은 순으로 limit 개
+    public List<ItemSalesDto> topItemsByQuantity(LocalDate from, LocalDate to, int limit) {
+        return em.createQuery(
+                "select new jpabook.jpashop.repository.report.ItemSalesDto(i.id, i.name, sum(oi.count), sum(oi.orderPrice * oi.count))" +
+                        " from OrderItem oi" +
+                        " join oi.order o" +
+                        " join oi.item i" +
+                        " where o.orderDate >= :from and o.orderDate < :to and o.status = :status" +
+                        " group by i.id, i.name" +
+                        " order by sum(oi.count) desc, i.id", ItemSalesDto.class)
+                .setParameter("from", from.atStartOfDay())
+                .setParameter("to", to.atStartOfDay())
+                .setParameter("status", OrderStatus.ORDER)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    public List<MemberRevenueDto> revenueByMember(LocalDate from, LocalDate to, int limit) {
+        return em.createQuery(
+                "select new jpabook.jpashop.repository.report.MemberRevenueDto(m.id, m.name, count(distinct o.id), sum(oi.orderPrice * oi.count))" +
+                        " from Order o" +
+                        " join o.member m" +
+                        " join o.orderItems oi" +
+                        " where o.orderDate >= :from and o.orderDate < :to and o.status = :status" +
+                        " group by m.id, m.name" +
+                        " order by sum(oi.orderPrice * oi.count) desc, m.id", MemberRevenueDto.class)
+                .setParameter("from", from.atStartOfDay())
+                .setParameter("to", to.atStartOfDay())
+                .setParameter("status", OrderStatus.ORDER)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    //== 요약 테이블 (daily_revenue) ==//
+
+    public List<DailyRevenueDto> findDailyRevenue(LocalDate from, LocalDate to) {
+        return em.createQuery(
+                "select new jpabook.jpashop.repository.report.DailyRevenueDto(d.id.salesDate, d.id.status, d.orderCount, d.itemQuantity, d.revenue)" +
+                        " from DailyRevenue d" +
+                        " where d.id.salesDate >= :from and d.id.salesDate < :to and d.orderCount <> 0" + // 미리 만든 빈 행은 빼고
+                        " order by d.id.salesDate, d.id.status", DailyRevenueDto.class)
+                .setParameter("from", from)
+                .setParameter("to", to)
+                .getResultList();
+    }
+
+    // 해당 일자/상태 행에 더한다 (음수면 뺀다), 행이 없으면 0 을 반환한다
+    public int addDailyRevenue(LocalDate date, OrderStatus status, long orders, long quantity, long revenue) {
+        return em.createQuery(
+                "update DailyRevenue d" +
+                        " set d.orderCount = d.orderCount + :orders," +
+                        " d.itemQuantity = d.itemQuantity + :quantity," +
+                        " d.revenue = d.revenue + :revenue" +
+                        " where d.id.salesDate = :date and d.id.status = :status")
+                .setParameter("orders", orders)
+                .setParameter("quantity", quantity)
+                .setParameter("revenue", revenue)
+                .setParameter("date", date)
+                .setParameter("status", status)
+                .executeUpdate();
+    }
+
+    public void saveDailyRevenue(DailyRevenue dailyRevenue) {
+        em.persist(dailyRevenue);
+    }
+
+    // 해당 일자/상태 행이 없으면 0 으로 만든다, 현재 트랜잭션의 커넥션에서 savepoint 를 걸고 실행한다
+    // 다른 트랜잭션이 동시에 만들어서 키가 겹치면 savepoint 로 되돌리고 0 을 반환한다 (현재 트랜잭션은 계속 쓸 수 있다)
+    // hibernate 쿼리로 실행하면 키 중복 예외가 트랜잭션을 rollback-only 로 표시하므로 jdbc 로 직접 실행한다
+    public int insertDailyRevenueIfAbsent(LocalDate date, OrderStatus status) {
+        return em.unwrap(Session.class).doReturningWork(connection -> {
+            Savepoint savepoint = connection.setSavepoint();
+            try (PreparedStatement insert = connection.prepareStatement(
+                    "insert into daily_revenue (sales_date, status, order_count, item_quantity, revenue)" +
+                            " select ?, ?, 0, 0, 0 from dual" +
+                            " where not exists (select 1 from daily_revenue where sales_date = ? and status = ?)")) {
+                insert.setObject(1, date);
+                insert.setString(2, status.name());
+                insert.setObject(3, date);
+                insert.setString(4, status.name());
+                int inserted = insert.executeUpdate();
+                connection.releaseSavepoint(savepoint);
+                return inserted;
+            } catch (SQLException e) {
+                connection.rollback(savepoint);
+                if (e.getSQLState() != null && e.getSQLState().startsWith("23")) { // 무결성 제약 위반 (키 중복)
+                    return 0;
+                }
+                throw e;
+            }
+        });
+    }
+
+    // 요약 테이블을 주문 테이블에서 다시 만든다 (요약을 처음 켤때 / 어긋났을때)
+    public int rebuildDailyRevenue() {
+        em.createQuery("delete from DailyRevenue").executeUpdate();
+        return em.createNativeQuery(
+                "insert into daily_revenue (sales_date, status, order_count, item_quantity, revenue)" +
+                        " select cast(o.order_date as date), o.status, count(distinct o.order_id), sum(oi.count), sum(oi.order_price * oi.count)" +
+                        " from orders o join order_item oi on oi.order_id = o.order_id" +
+                        " group by cast(o.order_date as date), o.status")
+                .unwrap(NativeQuery.class)
+                .addSynchronizedEntityClass(DailyRevenue.class)
+                .executeUpdate();
+    }
+}
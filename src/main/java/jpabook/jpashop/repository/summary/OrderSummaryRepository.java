@@ -0,0 +1,101 @@
+package jpabook.jpashop.repository.summary;
+
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.domain.OrderSummary;
+import jpabook.jpashop.repository.OrderCursor;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import java.util.Collection;
+import java.util.List;
+
+/*
+ * 주문 요약 읽기 모델 (order_summary)
+ * 목록 조회는 idx_order_summary_order_date_id 로 (orderDate, order_id) 키셋 페이징, 조인 없이 테이블 하나만 읽는다
+ * */
+@Repository
+@RequiredArgsConstructor
+public class OrderSummaryRepository {
+
+    private static final String SEEK = " where s.orderDate > :orderDate or (s.orderDate = :orderDate and s.orderId > :orderId)";
+
+    private final EntityManager em;
+
+    public void save(OrderSummary summary) {
+        em.persist(summary);
+    }
+
+    public List<OrderSummary> findPage(OrderCursor cursor, int limit) {
+        return seek(em.createQuery("select s from OrderSummary s" + (cursor == null ? "" : SEEK)
+                + " order by s.orderDate, s.orderId", OrderSummary.class), cursor, limit).getResultList();
+    }
+
+    public List<OrderSummarySimpleDto> findSimplePage(OrderCursor cursor, int limit) {
+        return seek(em.createQuery(
+                "select new jpabook.jpashop.repository.summary.OrderSummarySimpleDto(" +
+                        "s.orderId, s.memberName, s.orderDate, s.status, s.address, s.totalPrice, s.itemCount)" +
+                        " from OrderSummary s" + (cursor == null ? "" : SEEK) +
+                        " order by s.orderDate, s.orderId", OrderSummarySimpleDto.class), cursor, limit).getResultList();
+    }
+
+    private <T> TypedQuery<T> seek(TypedQuery<T> query, OrderCursor cursor, int limit) {
+        if (cursor != null) {
+            query.setParameter("orderDate", cursor.getOrderDate())
+                    .setParameter("orderId", cursor.getOrderId());
+        }
+        return query.setMaxResults(limit);
+    }
+
+    public int updateStatus(Long orderId, OrderStatus status) {
+        return em.createQuery("update OrderSummary s set s.status = :status where s.orderId = :orderId")
+                .setParameter("status", status)
+                .setParameter("orderId", orderId)
+                .executeUpdate();
+    }
+
+    public int updateStatuses(Collection<Long> orderIds, OrderStatus status) {
+        return em.createQuery("update OrderSummary s set s.status = :status where s.orderId in :orderIds")
+                .setParameter("status", status)
+                .setParameter("orderIds", orderIds)
+                .executeUpdate();
+    }
+
+    public int updateMemberName(Long memberId, String name) {
+        return em.createQuery("update OrderSummary s set s.memberName = :name where s.memberId = :memberId")
+                .setParameter("name", name)
+                .setParameter("memberId", memberId)
+                .executeUpdate();
+    }
+
+    //== 재생성 ==//
+
+    public Long[] findOrderIdRange() {
+        Object[] row = em.createQuery("select min(o.id), max(o.id) from Order o", Object[].class).getSingleResult();
+        return new Long[]{(Long) row[0], (Long) row[1]};
+    }
+
+    // (afterId, toId] 구간 주문을 id 순서로 limit 건, 회원/배송은 페치조인, 주문상품/상품은 배치 페치로 읽는다
+    public List<Order> findOrdersForRebuild(Long afterId, Long toId, int limit) {
+        return em.createQuery("select o from Order o join fetch o.member join fetch o.delivery" +
+                " where o.id > :afterId and o.id <= :toId order by o.id", Order.class)
+                .setParameter("afterId", afterId)
+                .setParameter("toId", toId)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    public int deleteRange(Long afterId, Long toId) {
+        return em.createQuery("delete from OrderSummary s where s.orderId > :afterId and s.orderId <= :toId")
+                .setParameter("afterId", afterId)
+                .setParameter("toId", toId)
+                .executeUpdate();
+    }
+
+    public void flushAndClear() {
+        em.flush();
+        em.clear();
+    }
+}
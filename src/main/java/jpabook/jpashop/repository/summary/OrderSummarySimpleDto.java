@@ -0,0 +1,22 @@
+package jpabook.jpashop.repository.summary;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.OrderStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+// 주문상품 JSON 컬럼은 읽지 않는 요약 (/api/v5/simple-orders)
+@Data
+@AllArgsConstructor
+public class OrderSummarySimpleDto {
+
+    private Long orderId;
+    private String name;
+    private LocalDateTime orderDate;
+    private OrderStatus orderStatus;
+    private Address address;
+    private int totalPrice;
+    private int itemCount;
+}
@@ -0,0 +1,20 @@
+package jpabook.jpashop.repository.view;
+
+import lombok.Getter;
+
+// 상품 목록 / 주문 화면 상품 선택용 프로젝션
+@Getter
+public class ItemListView {
+
+    private final Long id;
+    private final String name;
+    private final int price;
+    private final int stockQuantity;
+
+    public ItemListView(Long id, String name, int price, int stockQuantity) {
+        this.id = id;
+        this.name = name;
+        this.price = price;
+        this.stockQuantity = stockQuantity;
+    }
+}
@@ -0,0 +1,22 @@
+package jpabook.jpashop.repository.view;
+
+import lombok.Getter;
+
+// 회원 목록 / 주문 화면 회원 선택용 프로젝션
+@Getter
+public class MemberListView {
+
+    private final Long id;
+    private final String name;
+    private final String city;
+    private final String street;
+    private final String zipcode;
+
+    public MemberListView(Long id, String name, String city, String street, String zipcode) {
+        this.id = id;
+        this.name = name;
+        this.city = city;
+        this.street = street;
+        this.zipcode = zipcode;
+    }
+}
@@ -0,0 +1,30 @@
+package jpabook.jpashop.repository.view;
+
+import jpabook.jpashop.domain.OrderStatus;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+// 주문 목록 화면(order/orderList) 전용 프로젝션, 대표상품은 주문의 첫번째 주문상품
+@Getter
+public class OrderListView {
+
+    private final Long id;
+    private final String memberName;
+    private final String itemName;
+    private final Integer orderPrice;
+    private final Integer count;
+    private final OrderStatus status;
+    private final LocalDateTime orderDate;
+
+    public OrderListView(Long id, String memberName, String itemName, Integer orderPrice, Integer count,
+                         OrderStatus status, LocalDateTime orderDate) {
+        this.id = id;
+        this.memberName = memberName;
+        this.itemName = itemName;
+        this.orderPrice = orderPrice;
+        this.count = count;
+        this.status = status;
+        this.orderDate = orderDate;
+    }
+}
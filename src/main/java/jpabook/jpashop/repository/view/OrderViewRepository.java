@@ -0,0 +1,72 @@
+package jpabook.jpashop.repository.view;
+
+import com.querydsl.core.types.Projections;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.jpa.JPAExpressions;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.domain.QMember;
+import jpabook.jpashop.domain.QOrder;
+import jpabook.jpashop.domain.QOrderItem;
+import jpabook.jpashop.domain.item.QItem;
+import jpabook.jpashop.repository.OrderSearch;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+import org.springframework.util.StringUtils;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+/*
+ * 화면 전용 조회, 엔티티 대신 화면에 찍을 값만 쿼리 한번으로 가져온다
+ * 뷰 렌더링 중에 지연로딩이 없으므로 OSIV 를 꺼도 (osiv-off 프로필) 화면이 그대로 동작한다
+ * */
+@Repository
+public class OrderViewRepository {
+
+    private final JPAQueryFactory query;
+
+    @Autowired
+    public OrderViewRepository(EntityManager entityManager) {
+        this.query = new JPAQueryFactory(entityManager);
+    }
+
+    // OrderRepository.findAll(OrderSearch) 와 같은 조건, 대표상품(가장 먼저 담긴 주문상품) 은 서브쿼리로 한건만 조인한다
+    public List<OrderListView> findOrderList(OrderSearch orderSearch) {
+        QOrder order = QOrder.order;
+        QMember member = QMember.member;
+        QOrderItem orderItem = QOrderItem.orderItem;
+        QOrderItem firstItem = new QOrderItem("firstItem");
+        QItem item = QItem.item;
+
+        return query
+                .select(Projections.constructor(OrderListView.class,
+                        order.id, member.name, item.name, orderItem.orderPrice, orderItem.count, order.status, order.orderDate))
+                .from(order)
+                .join(order.member, member)
+                .leftJoin(order.orderItems, orderItem)
+                .leftJoin(orderItem.item, item)
+                .where(orderItem.id.isNull().or(orderItem.id.eq(JPAExpressions
+                                .select(firstItem.id.min())
+                                .from(firstItem)
+                                .where(firstItem.order.eq(order)))),
+                        statusEq(orderSearch.getOrderStatus()), nameLike(orderSearch.getMemberName()))
+                .orderBy(order.id.asc())
+                .limit(1000)
+                .fetch();
+    }
+
+    private BooleanExpression nameLike(String memberName) {
+        if (!StringUtils.hasText(memberName)) {
+            return null;
+        }
+        return QMember.member.name.like(memberName);
+    }
+
+    private BooleanExpression statusEq(OrderStatus statusCond) {
+        if (statusCond == null) {
+            return null;
+        }
+        return QOrder.order.status.eq(statusCond);
+    }
+}
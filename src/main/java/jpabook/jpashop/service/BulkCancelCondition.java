@@ -0,0 +1,27 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.DeliveryStatus;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// 일괄 취소 대상 - 주문 id 목록, 또는 주문 상태인 주문 중 주문일 구간/배송 상태 조건
+@Getter
+@AllArgsConstructor
+public class BulkCancelCondition {
+
+    private List<Long> orderIds;
+    private LocalDateTime orderDateFrom; // 포함
+    private LocalDateTime orderDateTo; // 미포함
+    private DeliveryStatus deliveryStatus;
+
+    public boolean hasOrderIds() {
+        return orderIds != null && !orderIds.isEmpty();
+    }
+
+    public boolean hasPredicate() {
+        return orderDateFrom != null || orderDateTo != null || deliveryStatus != null;
+    }
+}
@@ -0,0 +1,28 @@
+package jpabook.jpashop.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class BulkCancelResult {
+
+    private int requested;
+    private int canceled;
+    private List<Failure> failures;
+    private long elapsedMillis;
+
+    public enum Reason {
+        NOT_FOUND, ALREADY_CANCELED, DELIVERY_COMPLETED, ERROR
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Failure {
+        private Long orderId;
+        private Reason reason;
+        private String message;
+    }
+}
@@ -0,0 +1,22 @@
+package jpabook.jpashop.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+// 대량 주문 한 건 - 회원 한명이 여러 상품을 주문한다
+@Getter
+@AllArgsConstructor
+public class BulkOrderCommand {
+
+    private Long memberId;
+    private List<OrderLine> lines;
+
+    @Getter
+    @AllArgsConstructor
+    public static class OrderLine {
+        private Long itemId;
+        private int count;
+    }
+}
@@ -0,0 +1,109 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.Category;
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.repository.CategoryRepository;
+import jpabook.jpashop.repository.ItemCategoryDto;
+import jpabook.jpashop.repository.ItemRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+@Service
+@Transactional(readOnly = true)
+@RequiredArgsConstructor
+public class CategoryService {
+
+    private final CategoryRepository categoryRepository;
+    private final CategoryTreeCache treeCache;
+    private final ItemRepository itemRepository;
+    private final EntityManager em;
+
+    @Transactional
+    public Long saveCategory(String name, Long parentId) {
+        Category category = new Category();
+        category.setName(name);
+        categoryRepository.save(category);
+        if (parentId != null) {
+            addChild(parentId, category.getId());
+        }
+        treeCache.invalidateAfterCompletion();
+        return category.getId();
+    }
+
+    // 부모를 바꾸면 parent/child 매핑과 클로저 테이블을 같이 고친다, 이미 다른 부모 밑에 있으면 서브트리째 옮긴다
+    @Transactional
+    public void addChild(Long parentId, Long childId) {
+        Category parent = categoryRepository.findOne(parentId);
+        Category child = categoryRepository.findOne(childId);
+        if (categoryRepository.isDescendant(childId, parentId)) {
+            throw new IllegalStateException("자기 자신이나 하위 카테고리 밑으로는 옮길수 없습니다.");
+        }
+        if (child.getParent() != null) {
+            child.getParent().getChild().remove(child);
+            categoryRepository.unlinkSubtree(childId);
+        }
+        parent.addChildCategory(child);
+        categoryRepository.linkSubtree(parentId, childId);
+        treeCache.invalidateAfterCompletion();
+    }
+
+    // 한두건은 엔티티 연관관계로 (Set 이라 바뀐 조인 행만 insert/delete 된다)
+    @Transactional
+    public void addItem(Long categoryId, Long itemId) {
+        categoryRepository.findOne(categoryId).addItem(itemRepository.findOne(itemId));
+    }
+
+    @Transactional
+    public void removeItem(Long categoryId, Long itemId) {
+        categoryRepository.findOne(categoryId).removeItem(itemRepository.findOne(itemId));
+    }
+
+    // 수천건 재분류는 엔티티를 읽지 않고 조인 테이블에 벌크로 넣고 뺀다
+    @Transactional
+    public int assignItems(Long categoryId, Collection<Long> itemIds) {
+        int inserted = categoryRepository.assignItems(categoryId, itemIds);
+        em.clear(); // 이미 올라온 카테고리/상품 컬렉션이 옛 상태로 남지 않게 한다
+        return inserted;
+    }
+
+    @Transactional
+    public int unassignItems(Long categoryId, Collection<Long> itemIds) {
+        int deleted = categoryRepository.unassignItems(categoryId, itemIds);
+        em.clear();
+        return deleted;
+    }
+
+    @Transactional
+    public void moveItems(Long fromCategoryId, Long toCategoryId, Collection<Long> itemIds) {
+        categoryRepository.unassignItems(fromCategoryId, itemIds);
+        categoryRepository.assignItems(toCategoryId, itemIds);
+        em.clear();
+    }
+
+    public Map<Long, List<ItemCategoryDto>> findCategoriesByItemIds(Collection<Long> itemIds) {
+        return categoryRepository.findCategoriesByItemIds(itemIds);
+    }
+
+    public List<Category> findDescendants(Long categoryId) {
+        return categoryRepository.findDescendants(categoryId);
+    }
+
+    public List<Category> findAncestors(Long categoryId) {
+        return categoryRepository.findAncestors(categoryId);
+    }
+
+    public List<Item> findItemsInSubtree(Long categoryId, int offset, int limit) {
+        return categoryRepository.findItemsInSubtree(categoryId, offset, limit);
+    }
+
+    public long countItemsInSubtree(Long categoryId) {
+        return categoryRepository.countItemsInSubtree(categoryId);
+    }
+}
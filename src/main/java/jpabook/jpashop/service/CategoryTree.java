@@ -0,0 +1,71 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.repository.CategoryNode;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// 카테고리 전체 트리의 불변 스냅샷, 만든 뒤에는 바뀌지 않으므로 여러 스레드가 락 없이 읽는다
+public class CategoryTree {
+
+    private final Map<Long, CategoryNode> nodes = new HashMap<>();
+    private final Map<Long, List<CategoryNode>> children = new HashMap<>();
+    private final List<CategoryNode> roots = new ArrayList<>();
+
+    public CategoryTree(List<CategoryNode> all) {
+        for (CategoryNode node : all) {
+            nodes.put(node.getId(), node);
+            if (node.getParentId() == null) {
+                roots.add(node);
+            } else {
+                children.computeIfAbsent(node.getParentId(), id -> new ArrayList<>()).add(node);
+            }
+        }
+    }
+
+    public CategoryNode node(Long id) {
+        return nodes.get(id);
+    }
+
+    public List<CategoryNode> roots() {
+        return Collections.unmodifiableList(roots);
+    }
+
+    public List<CategoryNode> children(Long id) {
+        return Collections.unmodifiableList(children.getOrDefault(id, Collections.emptyList()));
+    }
+
+    // 자기 자신을 제외한 하위 전체, 가까운 깊이부터 (CategoryRepository.findDescendants 와 같은 순서)
+    public List<CategoryNode> descendants(Long id) {
+        List<CategoryNode> result = new ArrayList<>();
+        Deque<CategoryNode> queue = new ArrayDeque<>(children(id));
+        while (!queue.isEmpty()) {
+            CategoryNode node = queue.poll();
+            result.add(node);
+            queue.addAll(children(node.getId()));
+        }
+        return result;
+    }
+
+    // 루트부터 자기 자신까지
+    public List<CategoryNode> breadcrumb(Long id) {
+        List<CategoryNode> path = new ArrayList<>();
+        for (CategoryNode node = nodes.get(id); node != null; node = nodes.get(node.getParentId())) {
+            path.add(node);
+            if (node.getParentId() == null) {
+                break;
+            }
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    public int size() {
+        return nodes.size();
+    }
+}
@@ -0,0 +1,60 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.repository.CategoryRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * 카테고리 전체 트리 read-through 캐시
+ * 처음 읽을때 쿼리 한번으로 전체를 올리고, 카테고리 구조가 바뀌면 트랜잭션이 끝난 뒤 비운다
+ * 적재 도중 무효화가 일어나면 (세대 번호가 바뀌면) 적재한 스냅샷은 버린다
+ * */
+@Component
+@RequiredArgsConstructor
+public class CategoryTreeCache {
+
+    private final CategoryRepository categoryRepository;
+
+    private final AtomicLong generation = new AtomicLong();
+    private volatile CategoryTree tree;
+
+    public CategoryTree get() {
+        CategoryTree current = tree;
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            if (tree == null) {
+                long loadingGeneration = generation.get();
+                CategoryTree loaded = new CategoryTree(categoryRepository.findAllNodes());
+                if (generation.get() != loadingGeneration) {
+                    return loaded; // 이번 호출에서만 쓰고 캐시에는 올리지 않는다
+                }
+                tree = loaded;
+            }
+            return tree;
+        }
+    }
+
+    public void invalidate() {
+        generation.incrementAndGet();
+        tree = null;
+    }
+
+    // 커밋 전에 다른 스레드가 옛 구조를 다시 올릴수 있으므로 트랜잭션이 끝난 뒤에 한번 더 비운다
+    public void invalidateAfterCompletion() {
+        invalidate();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    invalidate();
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.DailyRevenue;
+import jpabook.jpashop.domain.DailyRevenueId;
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderItem;
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.repository.report.OrderReportRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/*
+ * 주문/취소 시점에 daily_revenue 요약 행을 증분으로 갱신한다
+ * 주문 트랜잭션 안에서 같이 실행되므로 주문이 롤백되면 요약도 롤백된다
+ * 같은 트랜잭션(같은 커넥션) 에서 행이 없으면 0 인 행을 먼저 만들고 더한다, 요청마다 커넥션을 더 빌리지 않는다
+ * - 그날 첫 주문이 동시에 들어와 키가 겹친 쪽은 savepoint 로 insert 만 되돌리고 (다른 트랜잭션이 만든 행에) 더한다
+ * - 0 인 행이 없는지 보는 update 를 먼저 하지 않으므로 update 가 남긴 갭 락에 insert 가 걸리지 않는다
+ * 시드 데이터(InitDB) 는 주문마다 기록하고, 대량 생성(LoadDataGenerator) 은 끝난 뒤 요약을 다시 만든다
+ * */
+@Component
+public class DailyRevenueRecorder {
+
+    private final OrderReportRepository reportRepository;
+    private final boolean enabled;
+
+    public DailyRevenueRecorder(OrderReportRepository reportRepository,
+                                @Value("${jpashop.report.summary.enabled:false}") boolean enabled) {
+        this.reportRepository = reportRepository;
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void orderPlaced(Order order) {
+        ordersPlaced(Collections.singletonList(order));
+    }
+
+    // 대량 주문은 일자별로 먼저 합쳐서 일자당 update 한번만 한다
+    public void ordersPlaced(Collection<Order> orders) {
+        if (!enabled) {
+            return;
+        }
+        Map<LocalDate, long[]> byDate = new TreeMap<>();
+        for (Order order : orders) {
+            long[] sum = byDate.computeIfAbsent(order.getOrderDate().toLocalDate(), d -> new long[3]);
+            sum[0]++;
+            sum[1] += quantity(order);
+            sum[2] += order.getTotalPrice();
+        }
+        byDate.forEach((date, sum) -> add(date, OrderStatus.ORDER, sum[0], sum[1], sum[2]));
+    }
+
+    // 주문일 기준으로 ORDER 에서 빼서 CANCEL 로 옮긴다
+    public void orderCanceled(Order order) {
+        if (!enabled) {
+            return;
+        }
+        canceled(order.getOrderDate().toLocalDate(), 1, quantity(order), order.getTotalPrice());
+    }
+
+    // 일괄 취소는 일자별로 합쳐서 호출한다
+    public void canceled(LocalDate date, long orders, long quantity, long revenue) {
+        if (!enabled) {
+            return;
+        }
+        add(date, OrderStatus.ORDER, -orders, -quantity, -revenue);
+        add(date, OrderStatus.CANCEL, orders, quantity, revenue);
+    }
+
+    private void add(LocalDate date, OrderStatus status, long orders, long quantity, long revenue) {
+        reportRepository.insertDailyRevenueIfAbsent(date, status);
+        if (reportRepository.addDailyRevenue(date, status, orders, quantity, revenue) == 0) {
+            // 키가 겹쳐 insert 를 되돌렸는데 행이 보이지 않는 경우 (먼저 만든 트랜잭션이 롤백된 경우) 에만 여기로 온다
+            reportRepository.saveDailyRevenue(new DailyRevenue(new DailyRevenueId(date, status), orders, quantity, revenue));
+        }
+    }
+
+    private long quantity(Order order) {
+        long quantity = 0;
+        for (OrderItem orderItem : order.getOrderItems()) {
+            quantity += orderItem.getCount();
+        }
+        return quantity;
+    }
+}
@@ -3,6 +3,8 @@ package jpabook.jpashop.service;
 import jpabook.jpashop.domain.item.Book;
 import jpabook.jpashop.domain.item.Item;
 import jpabook.jpashop.repository.ItemRepository;
+import jpabook.jpashop.repository.view.ItemListView;
+import jpabook.jpashop.stock.HotStockLedger;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -16,10 +18,12 @@ import java.util.List;
 public class ItemService {
 
     private final ItemRepository itemRepository;
+    private final HotStockLedger hotStockLedger;
 
     @Transactional
     public void saveItem(Item item) {
         itemRepository.save(item);
+        itemRepository.evictFindAllCache();
     }
 
     @Transactional
@@ -28,7 +32,10 @@ public class ItemService {
         findItem.setName(name);
         findItem.setPrice(price);
 
-        findItem.setStockQuantity(stockQuantity);
+        if (!hotStockLedger.adjust(itemId, stockQuantity)) { // 인기 상품 재고는 장부가 커밋 후에 맞춘다
+            findItem.setStockQuantity(stockQuantity);
+        }
+        itemRepository.evictFindAllCache(); // 상품 목록 쿼리 캐시 무효화
         return findItem;
     }
 
@@ -36,6 +43,10 @@ public class ItemService {
         return itemRepository.findAll();
     }
 
+    public List<ItemListView> findItemViews() {
+        return itemRepository.findAllViews();
+    }
+
     public Item findOne(Long itemId) {
         return itemRepository.findOne(itemId);
     }
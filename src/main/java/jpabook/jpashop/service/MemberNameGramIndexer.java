@@ -0,0 +1,82 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.repository.MemberNameGramRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/*
+ * 회원 이름 트라이그램 인덱스 관리
+ * 회원 가입 / 이름 변경시 MemberService 가 index 를 호출하고,
+ * InitDB, 데이터 생성기처럼 서비스를 거치지 않고 들어간 회원은 시작시 rebuild 로 채운다
+ * */
+@Slf4j
+@Component
+public class MemberNameGramIndexer {
+
+    private static final int REBUILD_CHUNK_SIZE = 5000;
+
+    private final MemberNameGramRepository gramRepository;
+    private final TransactionTemplate tx;
+    private final boolean enabled;
+
+    public MemberNameGramIndexer(MemberNameGramRepository gramRepository, PlatformTransactionManager transactionManager,
+                                 @Value("${jpashop.search.member-name-trigram:false}") boolean enabled) {
+        this.gramRepository = gramRepository;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // 호출한 쪽 트랜잭션 안에서 실행된다
+    public void index(Long memberId, String name) {
+        if (enabled) {
+            gramRepository.index(memberId, name);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        if (enabled) {
+            rebuild();
+        }
+    }
+
+    // 회원을 id 순서로 청크 단위 트랜잭션에서 다시 색인한다
+    // 청크마다 그 id 구간의 조각만 지우고 같은 트랜잭션에서 다시 넣으므로 재색인 중에도 검색 결과가 빠지지 않는다
+    public long rebuild() {
+        long start = System.nanoTime();
+        long indexed = 0;
+        Long lastId = 0L;
+        while (true) {
+            Long afterId = lastId;
+            List<Object[]> members = tx.execute(status -> {
+                List<Object[]> chunk = gramRepository.findMemberNames(afterId, REBUILD_CHUNK_SIZE);
+                // 마지막 청크는 남은 구간 전부 (그 사이 탈퇴한 회원 조각도 지운다)
+                Long toId = chunk.size() < REBUILD_CHUNK_SIZE ? null : (Long) chunk.get(chunk.size() - 1)[0];
+                gramRepository.deleteByMemberIdRange(afterId, toId);
+                for (Object[] member : chunk) {
+                    gramRepository.add((Long) member[0], (String) member[1]);
+                }
+                gramRepository.flushAndClear();
+                return chunk;
+            });
+            indexed += members.size();
+            if (members.size() < REBUILD_CHUNK_SIZE) {
+                break;
+            }
+            lastId = (Long) members.get(members.size() - 1)[0];
+        }
+        log.info("member name trigram index rebuilt: {} members in {}ms", indexed, (System.nanoTime() - start) / 1_000_000);
+        return indexed;
+    }
+}
@@ -2,6 +2,7 @@ package jpabook.jpashop.service;
 
 import jpabook.jpashop.domain.Member;
 import jpabook.jpashop.repository.MemberRepository;
+import jpabook.jpashop.repository.view.MemberListView;
 import lombok.AllArgsConstructor;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -9,6 +10,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Objects;
 
 @Service
 @Transactional(readOnly = true)
@@ -16,6 +18,8 @@ import java.util.List;
 public class MemberService {
 
     private final MemberRepository memberRepository;
+    private final MemberNameGramIndexer nameGramIndexer;
+    private final OrderSummaryRecorder orderSummaryRecorder;
 
 
     //회원 가입
@@ -24,6 +28,7 @@ public class MemberService {
         validateDuplicateMember(member); // 중복 회원 검증
 
         memberRepository.save(member);
+        nameGramIndexer.index(member.getId(), member.getName());
         return member.getId();
     }
 
@@ -41,6 +46,10 @@ public class MemberService {
         return memberRepository.findAll();
     }
 
+    public List<MemberListView> findMemberViews() {
+        return memberRepository.findAllViews();
+    }
+
     public Member findOne(Long memberId) {
         return memberRepository.findById(memberId).get();
     }
@@ -48,6 +57,11 @@ public class MemberService {
     @Transactional
     public void update(Long id, String name) {
         Member one = memberRepository.findById(id).get();
+        boolean renamed = !Objects.equals(one.getName(), name);
         one.setName(name);
+        nameGramIndexer.index(id, name);
+        if (renamed) {
+            orderSummaryRecorder.memberRenamed(id, name); // 회원의 주문 요약 행들의 이름을 update 한번으로 바꾼다
+        }
     }
 }
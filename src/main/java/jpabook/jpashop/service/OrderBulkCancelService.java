@@ -0,0 +1,167 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.DeliveryStatus;
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.exception.InvalidRequestException;
+import jpabook.jpashop.repository.ItemRepository;
+import jpabook.jpashop.repository.OrderCancelRow;
+import jpabook.jpashop.repository.OrderRepository;
+import jpabook.jpashop.stock.HotStockLedger;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/*
+ * 주문 일괄 취소
+ * cancelOrder 는 주문마다 트랜잭션 하나, 주문/주문상품/상품 엔티티를 올려서 변경감지로 재고를 되돌린다
+ * 여기서는 CHUNK_SIZE 건씩 트랜잭션 하나로 엔티티를 올리지 않고 집합 단위로 처리한다
+ * - 주문 행을 id 순서로 잠그고 (select ... for update) 상태/배송 상태를 읽어서 취소할 수 없는 주문을 걸러낸다
+ * - 상태 변경은 update 한번, 재고 복구는 상품마다 update 한번 (stock_quantity + 수량 합), 상품 2차 캐시는 상품별로 비운다
+ * - 매출 요약은 주문일별로, 주문 요약은 update 한번으로 옮긴다
+ * 청크가 실패하면 그 청크만 롤백되고 주문 한건씩 다시 처리해서 실패한 주문만 결과에 남긴다
+ * */
+@Slf4j
+@Service
+public class OrderBulkCancelService {
+
+    private static final int CHUNK_SIZE = 1000;
+
+    private final OrderRepository orderRepository;
+    private final ItemRepository itemRepository;
+    private final HotStockLedger hotStockLedger;
+    private final DailyRevenueRecorder dailyRevenueRecorder;
+    private final OrderSummaryRecorder orderSummaryRecorder;
+    private final TransactionTemplate chunkTx;
+    private final TransactionTemplate readTx;
+
+    public OrderBulkCancelService(OrderRepository orderRepository, ItemRepository itemRepository, HotStockLedger hotStockLedger,
+                                  DailyRevenueRecorder dailyRevenueRecorder, OrderSummaryRecorder orderSummaryRecorder,
+                                  PlatformTransactionManager transactionManager) {
+        this.orderRepository = orderRepository;
+        this.itemRepository = itemRepository;
+        this.hotStockLedger = hotStockLedger;
+        this.dailyRevenueRecorder = dailyRevenueRecorder;
+        this.orderSummaryRecorder = orderSummaryRecorder;
+        this.chunkTx = new TransactionTemplate(transactionManager);
+        this.chunkTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readTx = new TransactionTemplate(transactionManager);
+        this.readTx.setReadOnly(true);
+    }
+
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public BulkCancelResult cancel(BulkCancelCondition condition) {
+        long start = System.nanoTime();
+        List<BulkCancelResult.Failure> failures = new ArrayList<>();
+        int requested = 0;
+        int canceled = 0;
+
+        if (condition.hasOrderIds()) {
+            List<Long> orderIds = new ArrayList<>(new LinkedHashSet<>(condition.getOrderIds())); // 중복 제거
+            requested = orderIds.size();
+            for (int from = 0; from < orderIds.size(); from += CHUNK_SIZE) {
+                canceled += cancelChunk(orderIds.subList(from, Math.min(from + CHUNK_SIZE, orderIds.size())), failures);
+            }
+        } else if (condition.hasPredicate()) {
+            // 취소된 주문은 다음 페이지 조건에서 빠지지만 실패한 주문은 남으므로 id 로 seek 한다
+            long afterId = 0;
+            while (true) {
+                long cursor = afterId;
+                List<Long> orderIds = readTx.execute(status -> orderRepository.findCancelableIds(
+                        condition.getOrderDateFrom(), condition.getOrderDateTo(), condition.getDeliveryStatus(), cursor, CHUNK_SIZE));
+                if (orderIds.isEmpty()) {
+                    break;
+                }
+                requested += orderIds.size();
+                canceled += cancelChunk(orderIds, failures);
+                afterId = orderIds.get(orderIds.size() - 1);
+            }
+        } else {
+            throw new InvalidRequestException("취소할 주문 id 목록이나 조건(주문일 구간, 배송 상태)이 필요합니다.");
+        }
+
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        log.info("bulk cancel: requested={} canceled={} failed={} in {}ms", requested, canceled, failures.size(), elapsedMillis);
+        return new BulkCancelResult(requested, canceled, failures, elapsedMillis);
+    }
+
+    private int cancelChunk(List<Long> orderIds, List<BulkCancelResult.Failure> failures) {
+        try {
+            List<BulkCancelResult.Failure> chunkFailures = new ArrayList<>();
+            int canceled = chunkTx.execute(status -> cancelInTransaction(orderIds, chunkFailures));
+            failures.addAll(chunkFailures);
+            return canceled;
+        } catch (RuntimeException e) {
+            if (orderIds.size() == 1) {
+                failures.add(new BulkCancelResult.Failure(orderIds.get(0), BulkCancelResult.Reason.ERROR, e.getMessage()));
+                return 0;
+            }
+            log.warn("bulk cancel chunk failed, retrying one by one: {}", e.getMessage());
+            int canceled = 0;
+            for (Long orderId : orderIds) {
+                canceled += cancelChunk(Collections.singletonList(orderId), failures);
+            }
+            return canceled;
+        }
+    }
+
+    private int cancelInTransaction(List<Long> orderIds, List<BulkCancelResult.Failure> failures) {
+        List<OrderCancelRow> rows = orderRepository.lockForCancel(orderIds);
+        Set<Long> found = rows.stream().map(OrderCancelRow::getOrderId).collect(Collectors.toSet());
+        orderIds.stream().filter(id -> !found.contains(id)).forEach(id ->
+                failures.add(new BulkCancelResult.Failure(id, BulkCancelResult.Reason.NOT_FOUND, "존재하지 않는 주문입니다.")));
+
+        List<OrderCancelRow> cancelable = new ArrayList<>(rows.size());
+        for (OrderCancelRow row : rows) {
+            if (row.getStatus() == OrderStatus.CANCEL) {
+                failures.add(new BulkCancelResult.Failure(row.getOrderId(), BulkCancelResult.Reason.ALREADY_CANCELED, "이미 취소된 주문입니다."));
+            } else if (row.getDeliveryStatus() == DeliveryStatus.COMP) {
+                failures.add(new BulkCancelResult.Failure(row.getOrderId(), BulkCancelResult.Reason.DELIVERY_COMPLETED, "이미 배송완료된 상품은 취소가 불가능 합니다."));
+            } else {
+                cancelable.add(row);
+            }
+        }
+        if (cancelable.isEmpty()) {
+            return 0;
+        }
+
+        List<Long> ids = cancelable.stream().map(OrderCancelRow::getOrderId).collect(Collectors.toList());
+        int canceled = orderRepository.cancelAll(ids);
+
+        // 재고 복구, 상품 id 순서로 상품당 update 한번 (인기 상품은 장부로 되돌린다)
+        orderRepository.sumCountByItem(ids).forEach((itemId, count) -> {
+            if (!hotStockLedger.restock(itemId, count)) {
+                itemRepository.applyStockDelta(itemId, count);
+            }
+        });
+        itemRepository.evictFindAllCache(); // 상품 목록 쿼리 캐시 무효화 (applyStockDelta 의 타임스탬프 갱신과 별개로 명시적으로 비운다)
+
+        if (dailyRevenueRecorder.isEnabled()) {
+            Map<Long, long[]> totals = orderRepository.sumByOrder(ids);
+            Map<LocalDate, long[]> byDate = new TreeMap<>();
+            for (OrderCancelRow row : cancelable) {
+                long[] total = totals.getOrDefault(row.getOrderId(), new long[2]);
+                long[] sum = byDate.computeIfAbsent(row.getOrderDate().toLocalDate(), d -> new long[3]);
+                sum[0]++;
+                sum[1] += total[0];
+                sum[2] += total[1];
+            }
+            byDate.forEach((date, sum) -> dailyRevenueRecorder.canceled(date, sum[0], sum[1], sum[2]));
+        }
+        orderSummaryRecorder.ordersCanceled(ids);
+        return canceled;
+    }
+}
@@ -4,25 +4,44 @@ import jpabook.jpashop.domain.Delivery;
 import jpabook.jpashop.domain.Member;
 import jpabook.jpashop.domain.Order;
 import jpabook.jpashop.domain.OrderItem;
+import jpabook.jpashop.domain.OrderStatus;
 import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.intake.IntakeReservation;
+import jpabook.jpashop.intake.OrderIntakeEntry;
 import jpabook.jpashop.repository.ItemRepository;
+import jpabook.jpashop.repository.OrderCursor;
+import jpabook.jpashop.repository.OrderFetchPlan;
 import jpabook.jpashop.repository.MemberRepository;
 import jpabook.jpashop.repository.OrderRepository;
 import jpabook.jpashop.repository.OrderSearch;
+import jpabook.jpashop.repository.view.OrderListView;
+import jpabook.jpashop.repository.view.OrderViewRepository;
+import jpabook.jpashop.stock.HotStockLedger;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 @Service
 @Transactional(readOnly = true)
 @RequiredArgsConstructor
 public class OrderService {
 
+    private static final int BULK_FLUSH_SIZE = 500;
+
     private final OrderRepository orderRepository;
     private final MemberRepository memberRepository;
     private  final ItemRepository itemRepository;
+    private final OrderViewRepository orderViewRepository;
+    private final DailyRevenueRecorder dailyRevenueRecorder;
+    private final OrderSummaryRecorder orderSummaryRecorder;
+    private final MemberNameGramIndexer nameGramIndexer;
+    private final HotStockLedger hotStockLedger;
 
 
     //주문
@@ -38,30 +57,204 @@ public class OrderService {
         delivery.setAddress(member.getAddress());
 
         //주문상품 생성
-        OrderItem orderItem = OrderItem.createOrderItem(item, item.getPrice(), count);
+        OrderItem orderItem = createOrderItem(item, item.getPrice(), count);
 
         //주문 생성
         Order order = Order.createOrder(member, delivery, orderItem);
 
         //주문 저장
         orderRepository.save(order);
+        dailyRevenueRecorder.orderPlaced(order); // 매출 요약 증분 갱신 (jpashop.report.summary.enabled)
+        orderSummaryRecorder.orderPlaced(order); // 주문 요약 읽기 모델 (jpashop.read-model.order-summary.enabled)
 
         return order.getId();
 
     }
 
 
+    //주문 - 조건부 update 로 재고 차감
+    // 상품 엔티티의 재고를 변경감지로 쓰지 않으므로 같은 상품에 주문이 몰려도 버전 충돌이나 갱신 분실이 없다
+    @Transactional
+    public Long orderAtomic(Long memberId, Long itemId, int count) {
+
+        Member member = memberRepository.findById(memberId).get();
+        Item item = itemRepository.findOne(itemId); // 가격 조회용, 2차 캐시에서 읽는다
+
+        // 장부에 있는 인기 상품은 메모리에서, 아니면 조건부 update 로 차감한다 (캐시에서 읽은 hot 표시 대신 장부를 본다)
+        OrderItem orderItem = hotStockLedger.reserve(item, item.getPrice(), count);
+
+        Delivery delivery = new Delivery();
+        delivery.setAddress(member.getAddress());
+
+        Order order = Order.createOrder(member, delivery, orderItem);
+        orderRepository.save(order);
+        dailyRevenueRecorder.orderPlaced(order);
+        orderSummaryRecorder.orderPlaced(order);
+
+        return order.getId();
+    }
+
+    // 인기 상품은 HotStockLedger 에서 재고를 예약한다, 그 외에는 상품 엔티티 변경감지로 차감
+    private OrderItem createOrderItem(Item item, int orderPrice, int count) {
+        if (item.isHot()) {
+            return hotStockLedger.reserve(item, orderPrice, count);
+        }
+        return OrderItem.createOrderItem(item, orderPrice, count);
+    }
+
+    //대량 주문
+    // BULK_FLUSH_SIZE 건 마다 insert 를 jdbc 배치로 내보내고 영속성 컨텍스트를 비워서 메모리를 일정하게 유지한다
+    // 회원 / 상품은 청크마다 in 절로 한번에 조회하고, 같은 상품의 재고 차감은 flush 시점에 update 한번으로 나간다
+    @Transactional
+    public List<Long> bulkOrder(List<BulkOrderCommand> commands) {
+        List<Long> orderIds = new ArrayList<>(commands.size());
+        for (int from = 0; from < commands.size(); from += BULK_FLUSH_SIZE) {
+            List<BulkOrderCommand> chunk = commands.subList(from, Math.min(from + BULK_FLUSH_SIZE, commands.size()));
+
+            Map<Long, Member> members = memberRepository.findAllById(chunk.stream()
+                    .map(BulkOrderCommand::getMemberId).collect(Collectors.toSet()))
+                    .stream().collect(Collectors.toMap(Member::getId, m -> m));
+            Map<Long, Item> items = itemRepository.findAllById(chunk.stream()
+                    .flatMap(c -> c.getLines().stream()).map(BulkOrderCommand.OrderLine::getItemId).collect(Collectors.toSet()))
+                    .stream().collect(Collectors.toMap(Item::getId, i -> i));
+
+            List<Order> orders = new ArrayList<>(chunk.size());
+            for (BulkOrderCommand command : chunk) {
+                Member member = members.get(command.getMemberId());
+                if (member == null) {
+                    throw new IllegalArgumentException("존재하지 않는 회원입니다. memberId=" + command.getMemberId());
+                }
+                Delivery delivery = new Delivery();
+                delivery.setAddress(member.getAddress());
+
+                OrderItem[] orderItems = new OrderItem[command.getLines().size()];
+                for (int i = 0; i < orderItems.length; i++) {
+                    BulkOrderCommand.OrderLine line = command.getLines().get(i);
+                    Item item = items.get(line.getItemId());
+                    if (item == null) {
+                        throw new IllegalArgumentException("존재하지 않는 상품입니다. itemId=" + line.getItemId());
+                    }
+                    orderItems[i] = createOrderItem(item, item.getPrice(), line.getCount());
+                }
+                Order order = Order.createOrder(member, delivery, orderItems);
+                orderRepository.save(order);
+                orders.add(order);
+            }
+            dailyRevenueRecorder.ordersPlaced(orders);
+            orderSummaryRecorder.ordersPlaced(orders);
+            orderRepository.flushAndClear();
+            orders.forEach(o -> orderIds.add(o.getId())); // 시퀀스 방식이라 persist 시점에 id 가 정해져 있다
+        }
+        return orderIds;
+    }
+
+    //비동기 접수 - 재고 예약
+    // 회원/상품을 확인하고 재고만 먼저 예약한다 (인기 상품 장부 또는 조건부 update), 주문 저장은 writeIntake 가 모아서 한다
+    // 반환값은 접수 시점 가격과 장부에서 잡았는지
+    @Transactional
+    public IntakeReservation reserveIntake(Long memberId, Long itemId, int count) {
+        if (!memberRepository.existsById(memberId)) {
+            throw new IllegalArgumentException("존재하지 않는 회원입니다. memberId=" + memberId);
+        }
+        Item item = itemRepository.findOne(itemId); // 2차 캐시에서 읽는다
+        if (item == null) {
+            throw new IllegalArgumentException("존재하지 않는 상품입니다. itemId=" + itemId);
+        }
+        // 인기 상품은 메모리에서 잡아두고 주문상품이 저장될 때 반영 대기열에 넣는다
+        return new IntakeReservation(item.getPrice(), hotStockLedger.hold(itemId, count));
+    }
+
+    //비동기 접수 - 배치 저장
+    // 접수 여러건을 한 트랜잭션에서 jdbc 배치로 저장한다, 재고는 이미 예약되어 있으므로 createReservedOrderItem 을 쓴다
+    // 로그 재처리로 이미 저장된 접수가 다시 들어오면 건너뛴다 (orders.intake_id 유니크)
+    // 반환값은 접수 번호 -> 주문 id
+    @Transactional
+    public Map<Long, Long> writeIntake(List<OrderIntakeEntry> entries) {
+        Map<Long, Long> orderIds = orderRepository.findIdsByIntakeIds(entries.stream()
+                .map(OrderIntakeEntry::getIntakeId).collect(Collectors.toList()));
+        List<OrderIntakeEntry> toWrite = entries.stream()
+                .filter(e -> !orderIds.containsKey(e.getIntakeId())).collect(Collectors.toList());
+        if (toWrite.isEmpty()) {
+            return orderIds;
+        }
+
+        Map<Long, Member> members = memberRepository.findAllById(toWrite.stream()
+                .map(OrderIntakeEntry::getMemberId).collect(Collectors.toSet()))
+                .stream().collect(Collectors.toMap(Member::getId, m -> m));
+        Map<Long, Item> items = itemRepository.findAllById(toWrite.stream()
+                .map(OrderIntakeEntry::getItemId).collect(Collectors.toSet()))
+                .stream().collect(Collectors.toMap(Item::getId, i -> i));
+
+        List<Order> orders = new ArrayList<>(toWrite.size());
+        for (OrderIntakeEntry entry : toWrite) {
+            Member member = members.get(entry.getMemberId());
+            Item item = items.get(entry.getItemId());
+            if (member == null || item == null) {
+                throw new IllegalArgumentException("회원 또는 상품이 없습니다. intakeId=" + entry.getIntakeId());
+            }
+            Delivery delivery = new Delivery();
+            delivery.setAddress(member.getAddress());
+
+            OrderItem orderItem = entry.isHeld() ? hotStockLedger.place(item, entry.getPrice(), entry.getCount())
+                    : OrderItem.createReservedOrderItem(item, entry.getPrice(), entry.getCount());
+            Order order = Order.createOrder(member, delivery, orderItem);
+            order.setOrderDate(entry.getOrderDate());
+            order.setIntakeId(entry.getIntakeId());
+            orderRepository.save(order);
+            orders.add(order);
+        }
+        dailyRevenueRecorder.ordersPlaced(orders);
+        orderSummaryRecorder.ordersPlaced(orders);
+        orders.forEach(o -> orderIds.put(o.getIntakeId(), o.getId()));
+        return orderIds;
+    }
+
+    //비동기 접수 - 저장에 실패한 접수의 재고 예약을 되돌린다
+    // 장부에서 잡은 접수는 장부에만 되돌린다 (장부가 없어졌으면 잡아둔 재고도 메모리와 함께 사라졌다)
+    @Transactional
+    public void releaseIntake(OrderIntakeEntry entry) {
+        if (entry.isHeld()) {
+            hotStockLedger.releaseHeld(entry.getItemId(), entry.getCount());
+        } else {
+            itemRepository.increaseStock(entry.getItemId(), entry.getCount());
+        }
+    }
+
+    public Long findOrderIdByIntakeId(Long intakeId) {
+        return orderRepository.findIdsByIntakeIds(Collections.singletonList(intakeId)).get(intakeId);
+    }
+
     //취소
     @Transactional
     public void cancelOrder(Long orderId) {
         //주문 엔터티 검색
         Order order = orderRepository.findOne(orderId);
+        boolean ordered = order.getStatus() == OrderStatus.ORDER;
         //주문 취소
         order.cancel();
+        if (ordered) { // 이미 취소된 주문을 다시 취소해도 요약이 두번 옮겨지지 않게 한다
+            dailyRevenueRecorder.orderCanceled(order);
+            hotStockLedger.orderCanceled(order); // 인기 상품 재고는 장부로 되돌린다
+        }
+        orderSummaryRecorder.orderCanceled(order);
     }
 
     //검색
     public List<Order> findOrders(OrderSearch orderSearch) {
         return  orderRepository.findAll(orderSearch);
     }
+
+    // 검색 + orderDate 키셋 페이징, INFIX 이름 검색은 트라이그램 인덱스가 켜져 있으면 사용한다
+    public List<Order> searchOrders(OrderSearch orderSearch, OrderCursor cursor, int limit) {
+        return searchOrders(orderSearch, cursor, limit, OrderFetchPlan.SUMMARY);
+    }
+
+    public List<Order> searchOrders(OrderSearch orderSearch, OrderCursor cursor, int limit, OrderFetchPlan plan) {
+        return orderRepository.search(orderSearch, cursor, limit, nameGramIndexer.isEnabled(), plan);
+    } // plan 으로 회원/배송/주문상품을 어디까지 같이 읽을지 고른다
+
+    // 주문 목록 화면용, 회원/대표상품까지 쿼리 한번
+    public List<OrderListView> findOrderViews(OrderSearch orderSearch) {
+        return orderViewRepository.findOrderList(orderSearch);
+    }
 }
@@ -0,0 +1,63 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.domain.OrderSummary;
+import jpabook.jpashop.repository.summary.OrderSummaryRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+
+/*
+ * 주문 요약 읽기 모델(order_summary) 을 원본과 같은 트랜잭션에서 갱신한다
+ * 주문 생성은 insert 한번, 취소/회원 이름 변경은 update 한번 (주문 또는 회원 id 인덱스)
+ * jpashop.read-model.order-summary.enabled=false 면 아무것도 하지 않는다 (다시 켤때는 rebuild)
+ * */
+@Component
+public class OrderSummaryRecorder {
+
+    private final OrderSummaryRepository summaryRepository;
+    private final boolean enabled;
+
+    public OrderSummaryRecorder(OrderSummaryRepository summaryRepository,
+                                @Value("${jpashop.read-model.order-summary.enabled:true}") boolean enabled) {
+        this.summaryRepository = summaryRepository;
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // 주문이 persist 된 뒤 (id 가 정해진 뒤) 호출한다
+    public void orderPlaced(Order order) {
+        if (enabled) {
+            summaryRepository.save(OrderSummary.of(order));
+        }
+    }
+
+    public void ordersPlaced(Collection<Order> orders) {
+        if (enabled) {
+            orders.forEach(order -> summaryRepository.save(OrderSummary.of(order)));
+        }
+    }
+
+    public void orderCanceled(Order order) {
+        if (enabled) {
+            summaryRepository.updateStatus(order.getId(), OrderStatus.CANCEL);
+        }
+    }
+
+    public void ordersCanceled(Collection<Long> orderIds) {
+        if (enabled) {
+            summaryRepository.updateStatuses(orderIds, OrderStatus.CANCEL);
+        }
+    }
+
+    public void memberRenamed(Long memberId, String name) {
+        if (enabled) {
+            summaryRepository.updateMemberName(memberId, name);
+        }
+    }
+}
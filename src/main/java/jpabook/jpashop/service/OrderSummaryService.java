@@ -0,0 +1,115 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderSummary;
+import jpabook.jpashop.exception.InvalidRequestException;
+import jpabook.jpashop.repository.OrderCursor;
+import jpabook.jpashop.repository.summary.OrderSummaryRepository;
+import jpabook.jpashop.repository.summary.OrderSummarySimpleDto;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+@Slf4j
+@Service
+@Transactional(readOnly = true)
+public class OrderSummaryService {
+
+    private static final int REBUILD_CHUNK_SIZE = 1000;
+
+    private final OrderSummaryRepository summaryRepository;
+    private final TransactionTemplate tx;
+    private final int maxWorkers;
+
+    public OrderSummaryService(OrderSummaryRepository summaryRepository, PlatformTransactionManager transactionManager,
+                               @Value("${spring.datasource.hikari.maximum-pool-size:10}") int poolSize) {
+        this.summaryRepository = summaryRepository;
+        this.tx = new TransactionTemplate(transactionManager);
+        // 작업자마다 트랜잭션 동안 커넥션을 하나씩 잡으므로 재생성 중에도 주문/조회가 쓸 커넥션을 하나는 남긴다
+        this.maxWorkers = Math.max(1, poolSize - 1);
+    }
+
+    public int getMaxWorkers() {
+        return maxWorkers;
+    }
+
+    public List<OrderSummary> findSummaries(OrderCursor cursor, int limit) {
+        return summaryRepository.findPage(cursor, limit);
+    }
+
+    public List<OrderSummarySimpleDto> findSimpleSummaries(OrderCursor cursor, int limit) {
+        return summaryRepository.findSimplePage(cursor, limit);
+    }
+
+    // 주문 id 범위를 workers 개 구간으로 나눠서 병렬로 다시 만든다
+    // 구간 안에서는 REBUILD_CHUNK_SIZE 건씩 (지우고 -> 주문을 읽어서 -> 요약 insert) 를 한 트랜잭션으로 처리한다
+    // 재생성 중에 들어온 주문과 겹치면 해당 청크가 키 중복으로 실패하므로 다시 실행하면 된다
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public long rebuild(int workers) {
+        if (workers < 1 || workers > maxWorkers) {
+            throw new InvalidRequestException("workers 는 1 이상 " + maxWorkers + " 이하여야 합니다. workers=" + workers);
+        }
+        long start = System.nanoTime();
+        Long[] range = tx.execute(status -> summaryRepository.findOrderIdRange());
+        if (range[0] == null) {
+            return 0;
+        }
+        long first = range[0] - 1;
+        long last = range[1];
+        long sliceSize = Math.max(1, (last - first + workers - 1) / workers);
+
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        long rebuilt = 0;
+        try {
+            List<Future<Long>> futures = new ArrayList<>();
+            for (long from = first; from < last; from += sliceSize) {
+                long sliceFrom = from;
+                long sliceTo = Math.min(from + sliceSize, last);
+                futures.add(executor.submit(() -> rebuildSlice(sliceFrom, sliceTo)));
+            }
+            for (Future<Long> future : futures) {
+                rebuilt += future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("주문 요약 재생성이 중단되었습니다.", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("주문 요약 재생성에 실패했습니다.", e.getCause());
+        } finally {
+            executor.shutdown();
+        }
+        log.info("order summary rebuilt: {} orders in {}ms ({} workers)", rebuilt, (System.nanoTime() - start) / 1_000_000, workers);
+        return rebuilt;
+    }
+
+    // (afterId, toId] 구간
+    private long rebuildSlice(long afterId, long toId) {
+        long rebuilt = 0;
+        long cursor = afterId;
+        while (cursor < toId) {
+            long chunkFrom = cursor;
+            long[] chunk = tx.execute(status -> {
+                List<Order> orders = summaryRepository.findOrdersForRebuild(chunkFrom, toId, REBUILD_CHUNK_SIZE);
+                long end = orders.size() < REBUILD_CHUNK_SIZE ? toId : orders.get(orders.size() - 1).getId();
+                summaryRepository.deleteRange(chunkFrom, end);
+                orders.forEach(order -> summaryRepository.save(OrderSummary.of(order)));
+                summaryRepository.flushAndClear();
+                return new long[]{end, orders.size()};
+            });
+            cursor = chunk[0];
+            rebuilt += chunk[1];
+        }
+        return rebuilt;
+    }
+}
@@ -0,0 +1,42 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.repository.report.DailyRevenueDto;
+import jpabook.jpashop.repository.report.ItemSalesDto;
+import jpabook.jpashop.repository.report.MemberRevenueDto;
+import jpabook.jpashop.repository.report.OrderReportRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Service
+@Transactional(readOnly = true)
+@RequiredArgsConstructor
+public class ReportService {
+
+    private final OrderReportRepository reportRepository;
+    private final DailyRevenueRecorder dailyRevenueRecorder;
+
+    // 요약 테이블을 켰으면 일 수 만큼만 읽고, 아니면 주문 테이블을 기간 집계한다
+    public List<DailyRevenueDto> dailyRevenue(LocalDate from, LocalDate to) {
+        if (dailyRevenueRecorder.isEnabled()) {
+            return reportRepository.findDailyRevenue(from, to);
+        }
+        return reportRepository.revenueByDay(from, to);
+    }
+
+    public List<ItemSalesDto> topItems(LocalDate from, LocalDate to, int limit) {
+        return reportRepository.topItemsByQuantity(from, to, limit);
+    }
+
+    public List<MemberRevenueDto> memberRevenue(LocalDate from, LocalDate to, int limit) {
+        return reportRepository.revenueByMember(from, to, limit);
+    }
+
+    @Transactional
+    public int rebuildDailyRevenue() {
+        return reportRepository.rebuildDailyRevenue();
+    }
+}
@@ -0,0 +1,11 @@
+package jpabook.jpashop.service;
+
+/*
+ * 주문시 재고 차감 방식
+ * ENTITY     : 상품 엔티티를 읽고 변경감지로 차감 (기존 방식), 충돌하면 그대로 실패
+ * OPTIMISTIC : ENTITY 와 같지만 버전 충돌시 backoff 후 재시도
+ * ATOMIC     : 엔티티를 읽지 않고 조건부 update 한번으로 차감
+ * */
+public enum StockMode {
+    ENTITY, OPTIMISTIC, ATOMIC
+}
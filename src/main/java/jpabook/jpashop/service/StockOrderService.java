@@ -0,0 +1,68 @@
+package jpabook.jpashop.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/*
+ * 재고 차감 방식(StockMode)에 따라 주문을 실행한다
+ * 재시도는 트랜잭션 밖에서 해야 하므로 트랜잭션을 걸지 않는다 (시도마다 OrderService 가 새 트랜잭션을 연다)
+ * */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class StockOrderService {
+
+    private static final int MAX_ATTEMPTS = 5;
+    private static final long BASE_BACKOFF_MS = 5;
+    private static final long MAX_BACKOFF_MS = 200;
+
+    private final OrderService orderService;
+
+    @Value("${jpashop.order.stock-mode:ENTITY}")
+    private StockMode defaultMode;
+
+    public Long order(Long memberId, Long itemId, int count) {
+        return order(defaultMode, memberId, itemId, count);
+    }
+
+    public Long order(StockMode mode, Long memberId, Long itemId, int count) {
+        switch (mode) {
+            case ATOMIC:
+                return orderService.orderAtomic(memberId, itemId, count);
+            case OPTIMISTIC:
+                return orderWithRetry(memberId, itemId, count);
+            default:
+                return orderService.order(memberId, itemId, count);
+        }
+    }
+
+    private Long orderWithRetry(Long memberId, Long itemId, int count) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return orderService.order(memberId, itemId, count);
+            } catch (OptimisticLockingFailureException e) {
+                if (attempt >= MAX_ATTEMPTS) {
+                    throw e;
+                }
+                log.debug("stock version conflict itemId={} attempt={}", itemId, attempt);
+                backoff(attempt);
+            }
+        }
+    }
+
+    // 지수 backoff + jitter, 동시에 실패한 요청들이 같은 시점에 다시 부딪히지 않게 한다
+    private void backoff(int attempt) {
+        long max = Math.min(MAX_BACKOFF_MS, BASE_BACKOFF_MS << attempt);
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(max / 2, max + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("주문 재시도가 중단되었습니다.", e);
+        }
+    }
+}
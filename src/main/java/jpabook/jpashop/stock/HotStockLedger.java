@@ -0,0 +1,401 @@
+package jpabook.jpashop.stock;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderItem;
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.exception.NotEnoughStockExcoption;
+import jpabook.jpashop.intake.OrderIntakeEntry;
+import jpabook.jpashop.intake.OrderIntakeLog;
+import jpabook.jpashop.intake.OrderIntakeProperties;
+import jpabook.jpashop.repository.ItemRepository;
+import jpabook.jpashop.repository.OrderRepository;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/*
+ * 인기 상품(Item.hot) 재고 장부 (jpashop.stock.hot.enabled)
+ * 주문마다 같은 item 행을 update 하는 대신 남은 재고를 메모리의 칸 나눈 카운터(StripedStock)에서 차감하고
+ * 커밋된 차감/복구를 모아서 flushIntervalMillis 마다 (또는 flushThreshold 건이 쌓이면) 상품당 update 한번으로 반영한다
+ * - 초과 판매 방지: 카운터는 0 밑으로 내려가지 않고, 인기 상품 재고는 이 장부로만 바뀐다 (주문/원자적 주문/대량 주문/비동기 접수/취소/상품 수정)
+ *   주문 트랜잭션이 롤백되면 예약을 카운터에 되돌린다
+ * - 반영 전 주문상품은 stock_pending = true 로 저장되고, 반영하는 트랜잭션에서 재고 update 와 함께 false 로 바뀐다
+ * - 시작시 재조정: 반영되지 못한 채 죽은 차감(stock_pending 인 주문 상태 주문상품)을 먼저 재고에 반영한 뒤 카운터를 읽는다
+ *   비동기 접수가 켜져 있으면 접수 로그에서 아직 저장되지 않은 채 메모리에서만 잡아둔 접수(held)를 카운터에서 뺀 뒤에 카운터를 연다
+ *   반영 전 취소분이 같이 사라지면 stock_pending 인 취소 주문은 차감/복구가 상쇄되므로 건너뛴다
+ *   이미 반영된 주문의 취소 복구분이 반영 전에 사라지면 재고가 적게 남는다 (초과 판매 대신 덜 파는 쪽)
+ * - 카운터가 인스턴스 메모리에 있으므로 애플리케이션 인스턴스 하나일 때만 켠다
+ * 장부를 끄면 인기 상품도 조건부 update 로 바로 차감한다 (엔티티 변경감지는 쓰지 않는다)
+ * */
+@Slf4j
+@Component
+public class HotStockLedger {
+
+    private final HotStockProperties props;
+    private final OrderIntakeProperties intakeProps;
+    private final ItemRepository itemRepository;
+    private final OrderRepository orderRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry registry;
+
+    private final Map<Long, Ledger> ledgers = new ConcurrentHashMap<>();
+    private final Counter reserved;
+    private final Counter insufficient;
+    private final Counter flushFailed;
+    private final Timer flushTimer;
+    private ScheduledExecutorService scheduler;
+
+    public HotStockLedger(HotStockProperties props, OrderIntakeProperties intakeProps, ItemRepository itemRepository,
+                          OrderRepository orderRepository, PlatformTransactionManager transactionManager, MeterRegistry registry) {
+        this.props = props;
+        this.intakeProps = intakeProps;
+        this.itemRepository = itemRepository;
+        this.orderRepository = orderRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.registry = registry;
+        this.reserved = Counter.builder("jpashop.stock.hot.reserve").tag("result", "reserved").register(registry);
+        this.insufficient = Counter.builder("jpashop.stock.hot.reserve").tag("result", "insufficient").register(registry);
+        this.flushFailed = Counter.builder("jpashop.stock.hot.flush.failed").register(registry);
+        this.flushTimer = Timer.builder("jpashop.stock.hot.flush").register(registry);
+        Gauge.builder("jpashop.stock.hot.pending", ledgers, l -> l.values().stream().mapToInt(e -> e.pendingCount.get()).sum())
+                .register(registry);
+    }
+
+    @PostConstruct
+    public void start() {
+        reconcile(); // 장부를 꺼도 이전에 반영되지 못한 차감은 반영한다
+        if (!props.isEnabled()) {
+            return;
+        }
+        Map<Long, Integer> held = replayedHolds();
+        itemRepository.findHotStocks().forEach((itemId, stock) -> load(itemId, stock - held.getOrDefault(itemId, 0)));
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "hot-stock-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::flush, props.getFlushIntervalMillis(), props.getFlushIntervalMillis(), TimeUnit.MILLISECONDS);
+        log.info("hot stock ledger started, items={}", ledgers.keySet());
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        flush(); // 커밋된 차감을 남기지 않는다
+    }
+
+    // 반영되지 못한 차감을 재고에 반영한다, 주문을 받기 전(시작시)에만 호출한다
+    public void reconcile() {
+        transactionTemplate.executeWithoutResult(status -> {
+            Map<Long, Long> pending = orderRepository.findPendingStock();
+            pending.forEach((itemId, count) -> itemRepository.applyStockDelta(itemId, -count.intValue()));
+            int orderItems = orderRepository.markAllStockApplied();
+            if (orderItems > 0) {
+                log.info("hot stock reconcile: {} order items, stock delta {}", orderItems, pending);
+            }
+        });
+    }
+
+    // 재시작 전에 메모리에서만 잡아두고 아직 저장되지 않은 접수, 상품 id -> 수량 합
+    // 카운터를 열기 전에 빼야 그 사이에 들어온 주문이 같은 재고를 다시 팔지 않는다 (접수 로그 재처리는 ApplicationReadyEvent 에 시작한다)
+    private Map<Long, Integer> replayedHolds() {
+        if (!intakeProps.isEnabled()) {
+            return Collections.emptyMap();
+        }
+        List<OrderIntakeEntry> held;
+        try {
+            held = OrderIntakeLog.read(Paths.get(intakeProps.getLogPath())).getPending().stream()
+                    .filter(OrderIntakeEntry::isHeld).collect(Collectors.toList());
+        } catch (IOException e) {
+            throw new UncheckedIOException("주문 접수 로그를 읽을 수 없습니다. path=" + intakeProps.getLogPath(), e);
+        }
+        if (held.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<Long, Long> written = orderRepository.findIdsByIntakeIds(held.stream()
+                .map(OrderIntakeEntry::getIntakeId).collect(Collectors.toList()));
+        Map<Long, Integer> result = new HashMap<>();
+        held.stream()
+                .filter(e -> !written.containsKey(e.getIntakeId()))
+                .forEach(e -> result.merge(e.getItemId(), e.getCount(), Integer::sum));
+        log.info("hot stock replayed intake holds: {}", result);
+        return result;
+    }
+
+    // 실행 중에 상품을 인기 상품으로 바꾼다, 행 락을 잡은 뒤 재고를 읽으므로 진행중인 차감은 기다린다
+    // 장부는 행 락을 쥔 채로(커밋 전에) 올린다, 장부가 없는 것을 보고 조건부 update 로 넘어간 차감은 행 락이 풀린 뒤에 실행되므로
+    // update 뒤에 장부를 다시 보고 장부로 옮긴다 (trackedSince)
+    // markHot 은 version 도 올리므로 표시 전에 읽은 상품 엔티티의 변경감지 차감은 낙관적 락 충돌로 실패한다
+    public void track(Long itemId) {
+        if (!props.isEnabled()) {
+            throw new IllegalStateException("인기 상품 재고 장부가 꺼져 있습니다. (jpashop.stock.hot.enabled)");
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            if (itemRepository.markHot(itemId) == 0) {
+                throw new IllegalArgumentException("존재하지 않는 상품입니다. itemId=" + itemId);
+            }
+            if (load(itemId, itemRepository.findHotStocks().get(itemId))) {
+                afterCompletion(committed -> {
+                    if (!committed) {
+                        ledgers.remove(itemId);
+                    }
+                });
+            }
+        });
+    }
+
+    // 새로 장부에 올렸으면 true
+    private boolean load(Long itemId, Integer stock) {
+        boolean[] created = {false};
+        ledgers.computeIfAbsent(itemId, id -> {
+            Ledger ledger = new Ledger(id, new StripedStock(props.getStripes(), stock));
+            Gauge.builder("jpashop.stock.hot.available", ledger.stock, StripedStock::available)
+                    .tag("item", String.valueOf(id)).register(registry);
+            created[0] = true;
+            return ledger;
+        });
+        return created[0];
+    }
+
+    public boolean isTracked(Long itemId) {
+        return ledgers.containsKey(itemId);
+    }
+
+    public Integer available(Long itemId) {
+        Ledger ledger = ledgers.get(itemId);
+        return ledger == null ? null : ledger.stock.available();
+    }
+
+    // 재고를 예약한 주문상품을 만든다, 장부에 있으면 메모리에서 차감하고 커밋되면 반영 대기열에 넣는다, 없으면 조건부 update
+    public OrderItem reserve(Item item, int orderPrice, int count) {
+        Ledger ledger = ledgers.get(item.getId());
+        if (ledger == null) {
+            ledger = decreaseUntracked(item.getId(), count);
+            if (ledger == null) {
+                return OrderItem.createReservedOrderItem(item, orderPrice, count);
+            }
+        }
+        take(ledger, count);
+        OrderItem orderItem = OrderItem.createHotOrderItem(item, orderPrice, count);
+        afterCompletion(committed -> {
+            if (committed) {
+                ledger.enqueue(orderItem.getId(), -count);
+            } else {
+                ledger.stock.release(count);
+            }
+        });
+        return orderItem;
+    }
+
+    // 비동기 접수 - 재고만 예약한다, 장부에 있으면 메모리에서 잡아두고 true, 없으면 조건부 update 로 차감하고 false
+    // 잡아둔 재고는 place 로 주문상품이 저장될 때 반영 대기열에 들어가고, 저장에 실패하면 releaseHeld 로 되돌린다
+    public boolean hold(Long itemId, int count) {
+        Ledger ledger = ledgers.get(itemId);
+        if (ledger == null) {
+            ledger = decreaseUntracked(itemId, count);
+            if (ledger == null) {
+                return false;
+            }
+        }
+        take(ledger, count);
+        afterCompletion(committed -> {
+            if (!committed) {
+                ledger.stock.release(count);
+            }
+        });
+        return true;
+    }
+
+    // 장부에 없는 상품을 조건부 update 로 차감한다, 장부에 없으면 null
+    // update 뒤에 장부가 보이면 track 이 행 락을 놓은 뒤에 차감한 것이라 카운터에 빠져 있다, update 를 되돌리고 장부를 돌려준다
+    private Ledger decreaseUntracked(Long itemId, int count) {
+        if (itemRepository.decreaseStock(itemId, count) == 0) {
+            throw new NotEnoughStockExcoption("need more stock");
+        }
+        Ledger ledger = ledgers.get(itemId);
+        if (ledger != null) {
+            itemRepository.applyStockDelta(itemId, count);
+        }
+        return ledger;
+    }
+
+    // 접수할 때 장부에서 잡아둔(hold 가 true) 재고의 주문상품
+    public OrderItem place(Item item, int orderPrice, int count) {
+        Ledger ledger = ledgers.get(item.getId());
+        if (ledger == null) {
+            return OrderItem.createReservedOrderItem(item, orderPrice, count);
+        }
+        OrderItem orderItem = OrderItem.createHotOrderItem(item, orderPrice, count);
+        afterCompletion(committed -> {
+            if (committed) {
+                ledger.enqueue(orderItem.getId(), -count);
+            }
+        });
+        return orderItem;
+    }
+
+    public boolean releaseHeld(Long itemId, int count) {
+        Ledger ledger = ledgers.get(itemId);
+        if (ledger == null) {
+            return false;
+        }
+        ledger.stock.release(count);
+        return true;
+    }
+
+    // 주문 취소, 인기 상품 주문상품의 재고를 되돌린다 (OrderItem.cancel 은 인기 상품을 건드리지 않는다)
+    public void orderCanceled(Order order) {
+        for (OrderItem orderItem : order.getOrderItems()) {
+            Item item = orderItem.getItem();
+            if (item.isHot() && !restock(item.getId(), orderItem.getCount())) {
+                itemRepository.increaseStock(item.getId(), orderItem.getCount());
+            }
+        }
+    }
+
+    // 장부에 있는 상품이면 커밋된 뒤 재고를 되돌리고 반영 대기열에 넣는다, 없으면 false (호출한 쪽이 update 로 되돌린다)
+    public boolean restock(Long itemId, int count) {
+        Ledger ledger = ledgers.get(itemId);
+        if (ledger == null) {
+            return false;
+        }
+        afterCompletion(committed -> {
+            if (committed) {
+                ledger.stock.release(count);
+                ledger.enqueue(null, count);
+            }
+        });
+        return true;
+    }
+
+    // 상품 수정 화면, 남은 재고를 stockQuantity 로 맞춘다 (커밋된 뒤 적용)
+    public boolean adjust(Long itemId, int stockQuantity) {
+        Ledger ledger = ledgers.get(itemId);
+        if (ledger == null) {
+            return false;
+        }
+        afterCompletion(committed -> {
+            if (committed) {
+                ledger.enqueue(null, ledger.stock.adjustTo(stockQuantity));
+            }
+        });
+        return true;
+    }
+
+    private void take(Ledger ledger, int count) {
+        if (!ledger.stock.tryReserve(count)) {
+            insufficient.increment();
+            throw new NotEnoughStockExcoption("need more stock");
+        }
+        reserved.increment();
+    }
+
+    private void afterCompletion(BooleanCallback callback) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("인기 상품 재고는 트랜잭션 안에서만 바꿀 수 있습니다.");
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                callback.accept(status == STATUS_COMMITTED);
+            }
+        });
+    }
+
+    // 상품마다 대기열을 비워서 트랜잭션 하나로 재고 update + 주문상품 stock_pending 해제, 실패하면 대기열에 되돌리고 다음 주기에 다시 한다
+    public synchronized void flush() {
+        for (Ledger ledger : ledgers.values()) {
+            List<Pending> batch = new ArrayList<>();
+            for (Pending pending = ledger.queue.poll(); pending != null; pending = ledger.queue.poll()) {
+                batch.add(pending);
+            }
+            if (batch.isEmpty()) {
+                continue;
+            }
+            ledger.pendingCount.addAndGet(-batch.size());
+            int delta = batch.stream().mapToInt(p -> p.delta).sum();
+            List<Long> orderItemIds = new ArrayList<>(batch.size());
+            batch.stream().filter(p -> p.orderItemId != null).forEach(p -> orderItemIds.add(p.orderItemId));
+            try {
+                flushTimer.record(() -> transactionTemplate.executeWithoutResult(status -> {
+                    if (delta != 0) {
+                        itemRepository.applyStockDelta(ledger.itemId, delta);
+                    }
+                    for (int from = 0; from < orderItemIds.size(); from += 1000) { // in 절 크기 제한
+                        orderRepository.markStockApplied(orderItemIds.subList(from, Math.min(from + 1000, orderItemIds.size())));
+                    }
+                }));
+            } catch (RuntimeException e) {
+                log.warn("hot stock flush failed itemId={}, {} entries requeued: {}", ledger.itemId, batch.size(), e.getMessage());
+                flushFailed.increment();
+                ledger.queue.addAll(batch);
+                ledger.pendingCount.addAndGet(batch.size());
+            }
+        }
+    }
+
+    private void requestFlush() {
+        ScheduledExecutorService current = scheduler;
+        if (current != null && !current.isShutdown()) {
+            current.execute(this::flush);
+        }
+    }
+
+    private interface BooleanCallback {
+        void accept(boolean committed);
+    }
+
+    @AllArgsConstructor
+    private static class Pending {
+        final Long orderItemId; // 반영되면 stock_pending 을 풀 주문상품, 취소/수정분은 null
+        final int delta;
+    }
+
+    private class Ledger {
+        final Long itemId;
+        final StripedStock stock;
+        final Queue<Pending> queue = new ConcurrentLinkedQueue<>();
+        final AtomicInteger pendingCount = new AtomicInteger();
+
+        Ledger(Long itemId, StripedStock stock) {
+            this.itemId = itemId;
+            this.stock = stock;
+        }
+
+        void enqueue(Long orderItemId, int delta) {
+            queue.add(new Pending(orderItemId, delta));
+            if (pendingCount.incrementAndGet() == props.getFlushThreshold()) { // 기준을 넘어서는 순간 한번만 요청한다
+                requestFlush();
+            }
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package jpabook.jpashop.stock;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties("jpashop.stock.hot")
+public class HotStockProperties {
+
+    private boolean enabled = false;
+    private int stripes = 8; // 재고 카운터를 나눌 칸 수 (2의 거듭제곱으로 올림), 많을수록 CAS 경합이 줄어든다
+    private long flushIntervalMillis = 100; // 모인 차감/복구를 item.stock_quantity 에 반영하는 주기
+    private int flushThreshold = 1000; // 한 상품에 반영 대기가 이만큼 쌓이면 주기를 기다리지 않고 반영한다
+}
@@ -0,0 +1,87 @@
+package jpabook.jpashop.stock;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/*
+ * 칸으로 나눈 재고 카운터
+ * 스레드마다 정해진 칸에서 CAS 로 차감하고, 칸에 모자라면 다른 칸을 차례로 본다
+ * 어느 칸에도 한번에 차감할 만큼이 없으면 락을 잡고 모든 칸을 비워 합친 값으로 판단한다, 합이 모자랄 때만 실패하므로 음수가 되지 않는다
+ * */
+class StripedStock {
+
+    private static final int PAD = 16; // int 16개 = 64바이트, 칸마다 캐시 라인을 따로 쓴다
+
+    private final AtomicIntegerArray cells;
+    private final int mask;
+
+    StripedStock(int stripes, int initial) {
+        int size = stripes <= 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1;
+        this.cells = new AtomicIntegerArray(size * PAD);
+        this.mask = size - 1;
+        spread(initial);
+    }
+
+    boolean tryReserve(int count) {
+        int home = home();
+        for (int i = 0; i <= mask; i++) {
+            int slot = ((home + i) & mask) * PAD;
+            for (int value = cells.get(slot); value >= count; value = cells.get(slot)) {
+                if (cells.compareAndSet(slot, value, value - count)) {
+                    return true;
+                }
+            }
+        }
+        return reserveSlow(count);
+    }
+
+    private synchronized boolean reserveSlow(int count) {
+        int total = drain();
+        if (total < count) {
+            spread(total);
+            return false;
+        }
+        spread(total - count);
+        return true;
+    }
+
+    // 음수도 받는다 (재시작시 다시 들어온 접수 예약), 합이 맞으면 어느 칸이 음수여도 괜찮다
+    void release(int count) {
+        cells.addAndGet(home() * PAD, count);
+    }
+
+    // 남은 재고를 target 으로 맞추고 바뀐 양을 반환한다
+    synchronized int adjustTo(int target) {
+        int total = drain();
+        spread(target);
+        return target - total;
+    }
+
+    int available() {
+        int total = 0;
+        for (int i = 0; i <= mask; i++) {
+            total += cells.get(i * PAD);
+        }
+        return total;
+    }
+
+    private int drain() {
+        int total = 0;
+        for (int i = 0; i <= mask; i++) {
+            total += cells.getAndSet(i * PAD, 0);
+        }
+        return total;
+    }
+
+    // 비우는 사이에 들어온 복구분이 지워지지 않도록 set 이 아니라 add 로 나눠 넣는다
+    private void spread(int total) {
+        int stripes = mask + 1;
+        int share = total / stripes;
+        for (int i = 0; i <= mask; i++) {
+            cells.addAndGet(i * PAD, i == 0 ? total - share * (stripes - 1) : share);
+        }
+    }
+
+    private int home() {
+        return (int) Thread.currentThread().getId() & mask;
+    }
+}
@@ -0,0 +1,35 @@
+package jpabook.jpashop.api;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+public class CategoryApiControllerTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Test
+    public void 범위를_벗어난_limit_은_400() throws Exception {
+        for (String limit : new String[]{"0", "-1", String.valueOf(ApiParams.MAX_LIMIT + 1)}) {
+            mockMvc.perform(get("/api/v1/categories/1/items").param("limit", limit)).andExpect(status().isBadRequest());
+        }
+        mockMvc.perform(get("/api/v1/categories/1/items").param("limit", "10")).andExpect(status().isOk());
+    }
+
+    @Test
+    public void 음수_offset_은_400() throws Exception {
+        mockMvc.perform(get("/api/v1/categories/1/items").param("offset", "-1")).andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/v1/categories/1/items").param("offset", "0")).andExpect(status().isOk());
+    }
+}
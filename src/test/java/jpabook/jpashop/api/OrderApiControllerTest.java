@@ -0,0 +1,63 @@
+package jpabook.jpashop.api;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+public class OrderApiControllerTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Value("${spring.datasource.hikari.maximum-pool-size:10}")
+    int poolSize;
+
+    @Test
+    public void 범위를_벗어난_limit_은_400() throws Exception {
+        for (String limit : new String[]{"0", "-1", String.valueOf(ApiParams.MAX_LIMIT + 1)}) {
+            mockMvc.perform(get("/api/v3.1/orders/seek").param("limit", limit)).andExpect(status().isBadRequest());
+            mockMvc.perform(get("/api/v5/orders/seek").param("limit", limit)).andExpect(status().isBadRequest());
+            mockMvc.perform(get("/api/v3.2/orders/search").param("limit", limit)).andExpect(status().isBadRequest());
+            mockMvc.perform(get("/api/v7/orders").param("limit", limit)).andExpect(status().isBadRequest());
+            mockMvc.perform(get("/api/v5/simple-orders").param("limit", limit)).andExpect(status().isBadRequest());
+            mockMvc.perform(get("/api/v6/orders/page").param("limit", limit)).andExpect(status().isBadRequest());
+        }
+        mockMvc.perform(get("/api/v3.1/orders/seek").param("limit", "10")).andExpect(status().isOk());
+    }
+
+    @Test
+    public void 깨진_커서는_400() throws Exception {
+        mockMvc.perform(get("/api/v3.1/orders/seek").param("cursor", "not-a-cursor")).andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/v5/orders/seek").param("cursor", "%%%")).andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/v3.2/orders/search").param("cursor", "not-a-cursor")).andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/v7/orders").param("cursor", "not-a-cursor")).andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/v5/simple-orders").param("cursor", "not-a-cursor")).andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void 주문_id_도_조건도_없는_일괄취소는_400() throws Exception {
+        mockMvc.perform(post("/api/v1/orders/cancel").contentType(MediaType.APPLICATION_JSON).content("{}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void 요약_재구성_작업자_수가_범위를_벗어나면_400() throws Exception {
+        for (String workers : new String[]{"0", "-1", String.valueOf(poolSize)}) { // 풀의 커넥션을 전부 잡지 못한다
+            mockMvc.perform(post("/api/v1/order-summaries/rebuild").param("workers", workers)).andExpect(status().isBadRequest());
+        }
+        mockMvc.perform(post("/api/v1/order-summaries/rebuild").param("workers", "1")).andExpect(status().isOk());
+    }
+}
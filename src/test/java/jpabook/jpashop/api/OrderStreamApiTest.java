@@ -0,0 +1,138 @@
+package jpabook.jpashop.api;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Delivery;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderItem;
+import jpabook.jpashop.domain.item.Book;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/*
+ * /api/v5/orders/stream, /api/v6/orders/stream 의 NDJSON 응답
+ * 청크(500) 경계를 넘도록 주문상품 두개짜리 주문을 520 건 넣고, 주문마다 한 줄씩 주문상품이 제대로 접혀 나오는지 본다
+ * 스트리밍은 비동기 스레드의 읽기 트랜잭션에서 실행되므로 데이터를 커밋해야 한다, 전용 메모리 DB 를 쓰고 끝나면 컨텍스트를 버린다
+ * */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:order-stream;DB_CLOSE_DELAY=-1")
+@AutoConfigureMockMvc
+@DirtiesContext
+public class OrderStreamApiTest {
+
+    private static final int ORDERS = 520;
+
+    @Autowired
+    MockMvc mockMvc;
+    @Autowired
+    ObjectMapper objectMapper;
+    @Autowired
+    EntityManager em;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Before
+    public void setUp() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            if (em.createQuery("select count(i) from Item i where i.name = 'stream-A'", Long.class).getSingleResult() > 0) {
+                return; // 테스트마다 다시 넣지 않는다
+            }
+            Member member = new Member();
+            member.setName("stream");
+            member.setAddress(new Address("서울", "강가", "123-123"));
+            em.persist(member);
+            Book bookA = book("stream-A");
+            Book bookB = book("stream-B");
+            for (int i = 0; i < ORDERS; i++) {
+                int count = i % 7 + 1; // 이웃한 주문끼리 수량이 달라서 다른 주문의 주문상품이 섞이면 드러난다
+                Delivery delivery = new Delivery();
+                delivery.setAddress(member.getAddress());
+                em.persist(Order.createOrder(member, delivery,
+                        OrderItem.createOrderItem(bookA, 1000, count),
+                        OrderItem.createOrderItem(bookB, 2000, count)));
+                if (i % 100 == 99) {
+                    em.flush();
+                }
+            }
+        });
+    }
+
+    @Test
+    public void v5_스트림은_청크_경계를_넘어도_주문마다_한줄씩_주문상품을_채운다() throws Exception {
+        assertStream("/api/v5/orders/stream");
+    }
+
+    @Test
+    public void v6_스트림은_청크_경계를_넘어도_주문마다_한줄씩_주문상품을_접는다() throws Exception {
+        assertStream("/api/v6/orders/stream");
+    }
+
+    private void assertStream(String url) throws Exception {
+        //when
+        MvcResult result = mockMvc.perform(get(url))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"));
+
+        //then
+        List<JsonNode> lines = new ArrayList<>();
+        for (String line : result.getResponse().getContentAsString(StandardCharsets.UTF_8).split("\n")) {
+            if (!line.isEmpty()) {
+                lines.add(objectMapper.readTree(line));
+            }
+        }
+        long orders = new TransactionTemplate(transactionManager).execute(status ->
+                em.createQuery("select count(o) from Order o", Long.class).getSingleResult());
+        assertEquals("주문마다 한 줄", orders, lines.size());
+
+        long lastOrderId = 0;
+        int streamOrders = 0;
+        for (JsonNode line : lines) {
+            long orderId = line.get("orderId").asLong();
+            assertTrue("주문 id 순서로 한번씩 나온다", orderId > lastOrderId);
+            lastOrderId = orderId;
+            JsonNode orderItems = line.get("orderItems");
+            if (!orderItems.get(0).get("itemName").asText().startsWith("stream-")) {
+                continue; // InitDB 가 넣은 주문
+            }
+            streamOrders++;
+            assertEquals(2, orderItems.size());
+            assertEquals("같은 주문의 주문상품끼리 묶인다",
+                    orderItems.get(0).get("count").asInt(), orderItems.get(1).get("count").asInt());
+        }
+        assertEquals(ORDERS, streamOrders);
+    }
+
+    private Book book(String name) {
+        Book book = new Book();
+        book.setName(name);
+        book.setPrice(1000);
+        book.setStockQuantity(ORDERS * 10);
+        em.persist(book);
+        return book;
+    }
+}
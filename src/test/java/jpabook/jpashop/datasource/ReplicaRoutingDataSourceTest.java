@@ -0,0 +1,98 @@
+package jpabook.jpashop.datasource;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+// 원본/복제본을 각각 다른 H2 메모리 DB 로 띄우고 어느 쪽에서 읽었는지 route 테이블 값으로 확인한다
+public class ReplicaRoutingDataSourceTest {
+
+    private DataSource replica;
+    private RoutingProperties props;
+    private ReplicaHealth health;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate writeTx;
+    private TransactionTemplate readTx;
+
+    @Before
+    public void setUp() {
+        DataSource primary = h2("routing_primary", "primary");
+        replica = h2("routing_replica", "replica");
+        new JdbcTemplate(replica).execute("create table replica_lag (ms bigint)");
+        new JdbcTemplate(replica).update("insert into replica_lag values (0)");
+
+        props = new RoutingProperties();
+        props.setLagQuery("select ms from replica_lag");
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        replicas.put("replica", replica);
+        health = new ReplicaHealth(replicas, props, null);
+
+        DataSource dataSource = new LazyConnectionDataSourceProxy(
+                new ReplicaRoutingDataSource(primary, replicas, health, true, null));
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        writeTx = new TransactionTemplate(transactionManager);
+        readTx = new TransactionTemplate(transactionManager);
+        readTx.setReadOnly(true);
+    }
+
+    @After
+    public void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+        new JdbcTemplate(replica).execute("drop table replica_lag");
+    }
+
+    @Test
+    public void 읽기전용은_복제본_쓰기는_원본() throws Exception {
+        assertEquals("replica", readTx.execute(status -> currentRoute()));
+        assertEquals("primary", writeTx.execute(status -> currentRoute()));
+    }
+
+    @Test
+    public void 복제_지연이_크면_원본으로() throws Exception {
+        new JdbcTemplate(replica).update("update replica_lag set ms = ?", props.getMaxLagMillis() + 1);
+        health.check();
+        assertEquals("primary", readTx.execute(status -> currentRoute()));
+
+        new JdbcTemplate(replica).update("update replica_lag set ms = 0");
+        health.check();
+        assertEquals("replica", readTx.execute(status -> currentRoute()));
+    }
+
+    @Test
+    public void 같은_요청에서_쓰기후_읽기는_원본() throws Exception {
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+        assertEquals("replica", readTx.execute(status -> currentRoute()));
+
+        writeTx.execute(status -> currentRoute());
+
+        assertEquals("primary", readTx.execute(status -> currentRoute()));
+    }
+
+    private String currentRoute() {
+        return jdbcTemplate.queryForObject("select name from route", String.class);
+    }
+
+    private static DataSource h2(String db, String routeName) {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + db + ";DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("create table if not exists route (name varchar(20))");
+        jdbc.update("delete from route");
+        jdbc.update("insert into route values (?)", routeName);
+        return dataSource;
+    }
+}
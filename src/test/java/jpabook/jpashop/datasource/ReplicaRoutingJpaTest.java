@@ -0,0 +1,109 @@
+package jpabook.jpashop.datasource;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/*
+ * JpaTransactionManager 로 라우팅 확인 (ReplicaRoutingDataSourceTest 는 DataSourceTransactionManager)
+ * OSIV 는 OpenEntityManagerInViewInterceptor 처럼 요청 동안 EntityManager 를 스레드에 묶어서 흉내낸다
+ * */
+public class ReplicaRoutingJpaTest {
+
+    private LocalContainerEntityManagerFactoryBean factoryBean;
+    private EntityManagerFactory emf;
+    private TransactionTemplate writeTx;
+    private TransactionTemplate readTx;
+
+    @Before
+    public void setUp() {
+        DataSource primary = h2("routing_jpa_primary", "primary");
+        DataSource replica = h2("routing_jpa_replica", "replica");
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        replicas.put("replica", replica);
+        ReplicaHealth health = new ReplicaHealth(replicas, new RoutingProperties(), null);
+        DataSource dataSource = new LazyConnectionDataSourceProxy(
+                new ReplicaRoutingDataSource(primary, replicas, health, false, null));
+
+        factoryBean = new LocalContainerEntityManagerFactoryBean();
+        factoryBean.setDataSource(dataSource);
+        factoryBean.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        factoryBean.setPackagesToScan("jpabook.jpashop.datasource"); // 엔티티 없이 네이티브 쿼리만
+        factoryBean.getJpaPropertyMap().put("hibernate.dialect", "org.hibernate.dialect.H2Dialect");
+        factoryBean.afterPropertiesSet();
+        emf = factoryBean.getObject();
+
+        JpaTransactionManager transactionManager = new JpaTransactionManager(emf);
+        writeTx = new TransactionTemplate(transactionManager);
+        readTx = new TransactionTemplate(transactionManager);
+        readTx.setReadOnly(true);
+    }
+
+    @After
+    public void tearDown() {
+        if (TransactionSynchronizationManager.hasResource(emf)) {
+            ((EntityManagerHolder) TransactionSynchronizationManager.unbindResource(emf)).getEntityManager().close();
+        }
+        factoryBean.destroy();
+    }
+
+    @Test
+    public void 읽기전용은_복제본_쓰기는_원본() throws Exception {
+        assertEquals("replica", readTx.execute(status -> currentRoute()));
+        assertEquals("primary", writeTx.execute(status -> currentRoute()));
+        assertEquals("replica", readTx.execute(status -> currentRoute()));
+    }
+
+    @Test
+    public void OSIV_는_첫_트랜잭션의_커넥션을_요청_끝까지_잡는다() throws Exception {
+        EntityManager requestEntityManager = emf.createEntityManager();
+        TransactionSynchronizationManager.bindResource(emf, new EntityManagerHolder(requestEntityManager));
+
+        assertEquals("replica", readTx.execute(status -> currentRoute()));
+        assertEquals("쓰기 트랜잭션도 복제본 커넥션에서 실행된다, 그래서 라우팅은 OSIV 를 끄고 쓴다",
+                "replica", writeTx.execute(status -> currentRoute()));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void 라우팅은_OSIV_가_켜져있으면_시작하지_않는다() throws Exception {
+        RoutingDataSourceConfig.checkOpenInView(new MockEnvironment()); // 설정하지 않으면 OSIV 는 켜져있다
+    }
+
+    @Test
+    public void 라우팅은_OSIV_를_끄면_시작한다() throws Exception {
+        RoutingDataSourceConfig.checkOpenInView(new MockEnvironment().withProperty("spring.jpa.open-in-view", "false"));
+    }
+
+    private String currentRoute() {
+        EntityManager em = EntityManagerFactoryUtils.getTransactionalEntityManager(emf);
+        return (String) em.createNativeQuery("select name from route").getSingleResult();
+    }
+
+    private static DataSource h2(String db, String routeName) {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + db + ";DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("create table if not exists route (name varchar(20))");
+        jdbc.update("delete from route");
+        jdbc.update("insert into route values (?)", routeName);
+        return dataSource;
+    }
+}
@@ -0,0 +1,92 @@
+package jpabook.jpashop.execution;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import static org.junit.Assert.*;
+
+public class EndpointConcurrencyLimiterTest {
+
+    private static final String ENDPOINT = "/api/v1/orders";
+
+    SimpleMeterRegistry registry;
+    EndpointConcurrencyLimiter limiter;
+
+    @Before
+    public void setUp() {
+        ApiExecutionProperties props = new ApiExecutionProperties();
+        props.setPoolShare(0.5);
+        props.setAcquireTimeoutMillis(10);
+        props.getLimits().put(ENDPOINT, 1);
+        registry = new SimpleMeterRegistry();
+        limiter = new EndpointConcurrencyLimiter(props, 10, registry);
+    }
+
+    @Test
+    public void 제한을_넘으면_503_이고_끝난_요청이_자리를_돌려준다() throws Exception {
+        MockHttpServletRequest first = request(ENDPOINT);
+        assertTrue(limiter.preHandle(first, new MockHttpServletResponse(), null));
+        assertEquals(1.0, inflight(ENDPOINT), 0);
+
+        MockHttpServletResponse rejected = new MockHttpServletResponse();
+        assertFalse(limiter.preHandle(request(ENDPOINT), rejected, null));
+        assertEquals(503, rejected.getStatus());
+        assertEquals("1", rejected.getHeader("Retry-After"));
+        assertEquals(1.0, registry.get("jpashop.api.limit.rejected").tag("endpoint", ENDPOINT).counter().count(), 0);
+
+        limiter.afterCompletion(first, new MockHttpServletResponse(), null, null);
+        limiter.afterCompletion(first, new MockHttpServletResponse(), null, null); // 두번 불려도 한번만 돌려준다
+        assertEquals(0.0, inflight(ENDPOINT), 0);
+        assertTrue(limiter.preHandle(request(ENDPOINT), new MockHttpServletResponse(), null));
+        assertFalse(limiter.preHandle(request(ENDPOINT), new MockHttpServletResponse(), null));
+    }
+
+    @Test
+    public void 기본_제한은_커넥션_풀_크기_곱하기_pool_share() throws Exception {
+        String other = "/api/v2/members";
+        for (int i = 0; i < 5; i++) {
+            assertTrue(limiter.preHandle(request(other), new MockHttpServletResponse(), null));
+        }
+        assertFalse(limiter.preHandle(request(other), new MockHttpServletResponse(), null));
+    }
+
+    @Test
+    public void 매핑_패턴이_없는_요청은_제한하지_않는다() throws Exception {
+        assertTrue(limiter.preHandle(new MockHttpServletRequest("GET", "/api/none"), new MockHttpServletResponse(), null));
+    }
+
+    @Test
+    public void 비동기로_넘어간_요청은_자리를_돌려주고_OFFLOAD_요청은_디스패치까지_잡고_있다() throws Exception {
+        // 스트리밍: 비동기로 넘어가면 바로 돌려준다
+        MockHttpServletRequest stream = request(ENDPOINT);
+        assertTrue(limiter.preHandle(stream, new MockHttpServletResponse(), null));
+        limiter.afterConcurrentHandlingStarted(stream, new MockHttpServletResponse(), null);
+        assertEquals(0.0, inflight(ENDPOINT), 0);
+
+        // OFFLOAD: 풀에서 실행되는 동안 잡고 있다가 비동기 디스패치가 끝날때 돌려준다
+        MockHttpServletRequest offloaded = request(ENDPOINT);
+        assertTrue(limiter.preHandle(offloaded, new MockHttpServletResponse(), null));
+        offloaded.setAttribute(OffloadHandlerAdapter.OFFLOADED_ATTRIBUTE, Boolean.TRUE);
+        limiter.afterConcurrentHandlingStarted(offloaded, new MockHttpServletResponse(), null);
+        assertEquals(1.0, inflight(ENDPOINT), 0);
+        assertFalse(limiter.preHandle(request(ENDPOINT), new MockHttpServletResponse(), null));
+
+        assertTrue("디스패치는 자리를 다시 잡지 않는다", limiter.preHandle(offloaded, new MockHttpServletResponse(), null));
+        limiter.afterCompletion(offloaded, new MockHttpServletResponse(), null, null);
+        assertEquals(0.0, inflight(ENDPOINT), 0);
+    }
+
+    private MockHttpServletRequest request(String pattern) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", pattern);
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, pattern);
+        return request;
+    }
+
+    private double inflight(String pattern) {
+        return registry.get("jpashop.api.inflight").tag("endpoint", pattern).gauge().value();
+    }
+}
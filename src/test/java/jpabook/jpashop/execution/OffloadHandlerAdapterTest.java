@@ -0,0 +1,93 @@
+package jpabook.jpashop.execution;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "jpashop.api.execution.mode=OFFLOAD")
+@AutoConfigureMockMvc
+public class OffloadHandlerAdapterTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Test
+    public void api_요청은_비동기로_넘어가고_디스패치에서_응답한다() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/v2/members"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data").isArray())
+                .andExpect(header().exists("X-Sql-Statements")); // 작업 스레드에서 실행한 쿼리도 요청 구간에 잡힌다
+        assertNotEquals("0", result.getResponse().getHeader("X-Sql-Statements"));
+    }
+
+    @Test
+    public void 컨트롤러_예외는_디스패치에서_상태코드로_바뀐다() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/v3.1/orders/seek").param("limit", "0"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result)).andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void 인자_바인딩_실패는_비동기로_넘어가기_전에_응답한다() throws Exception {
+        mockMvc.perform(get("/api/v3.1/orders/seek").param("limit", "abc"))
+                .andExpect(request().asyncNotStarted())
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void 화면_요청은_톰캣_스레드에서_그대로_처리한다() throws Exception {
+        mockMvc.perform(get("/"))
+                .andExpect(request().asyncNotStarted())
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    public void 스스로_비동기를_쓰거나_본문이_없는_핸들러는_감싸지_않는다() throws Exception {
+        assertTrue(OffloadHandlerAdapter.offloadable(handler("list")));
+        assertFalse(OffloadHandlerAdapter.offloadable(handler("stream")));
+        assertFalse(OffloadHandlerAdapter.offloadable(handler("nothing")));
+    }
+
+    private HandlerMethod handler(String name) throws NoSuchMethodException {
+        return new HandlerMethod(new SampleController(), SampleController.class.getMethod(name));
+    }
+
+    @ResponseBody // 스캔되지 않도록 @RestController 대신
+    static class SampleController {
+
+        public List<String> list() {
+            return List.of();
+        }
+
+        public ResponseEntity<StreamingResponseBody> stream() {
+            return ResponseEntity.ok(out -> {
+            });
+        }
+
+        public void nothing() {
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package jpabook.jpashop.intake;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class OrderIntakeLogTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void 완료_표시_이후의_접수만_다시_읽는다() throws Exception {
+        Path path = folder.getRoot().toPath().resolve("intake.log");
+        try (OrderIntakeLog log = new OrderIntakeLog(path, false)) {
+            assertTrue(log.open().getPending().isEmpty());
+            log.append(entry(1));
+            log.append(entry(2));
+            log.commit(2);
+            log.append(entry(3));
+            log.append(entry(4));
+        }
+        Files.write(path, "A\t5\t1\t1".getBytes(StandardCharsets.US_ASCII), StandardOpenOption.APPEND); // 쓰다가 죽은 줄
+
+        try (OrderIntakeLog log = new OrderIntakeLog(path, false)) {
+            OrderIntakeLog.Replay replay = log.open();
+            assertEquals(4, replay.getMaxIntakeId());
+            assertEquals(3, replay.getPending().get(0).getCount());
+            assertFalse(replay.getPending().get(0).isHeld());
+            assertTrue("장부에서 잡아둔 접수인지 같이 남는다", replay.getPending().get(1).isHeld());
+            assertEquals(List.of(3L, 4L), ids(replay.getPending()));
+
+            log.append(entry(6)); // 잘린 줄은 잘라내고 이어 쓴다
+        }
+
+        try (OrderIntakeLog log = new OrderIntakeLog(path, false)) {
+            assertEquals(List.of(3L, 4L, 6L), ids(log.open().getPending()));
+        }
+    }
+
+    @Test
+    public void 실패_표시가_있는_접수는_완료_표시가_없어도_다시_읽지_않는다() throws Exception {
+        Path path = folder.getRoot().toPath().resolve("intake.log");
+        try (OrderIntakeLog log = new OrderIntakeLog(path, false)) {
+            log.open();
+            log.append(entry(1));
+            log.append(entry(2));
+            log.fail(1); // 완료 표시를 쓰기 전에 죽었다
+        }
+
+        try (OrderIntakeLog log = new OrderIntakeLog(path, false)) {
+            OrderIntakeLog.Replay replay = log.open();
+            assertEquals(List.of(2L), ids(replay.getPending()));
+            assertEquals(List.of(1L), replay.getFailed());
+        }
+    }
+
+    private OrderIntakeEntry entry(long intakeId) {
+        return new OrderIntakeEntry(intakeId, 1L, 2L, (int) intakeId, 1000, System.currentTimeMillis(), intakeId % 2 == 0);
+    }
+
+    private List<Long> ids(List<OrderIntakeEntry> entries) {
+        return entries.stream().map(OrderIntakeEntry::getIntakeId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,194 @@
+package jpabook.jpashop.intake;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.exception.IntakeQueueFullException;
+import jpabook.jpashop.service.ItemService;
+import jpabook.jpashop.service.MemberService;
+import jpabook.jpashop.service.OrderService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+/*
+ * 접수 -> 쓰기 스레드 저장 -> 로그 재처리를 실제 OrderService / DB 로 확인한다
+ * 쓰기 스레드가 자기 트랜잭션으로 커밋하므로 전용 메모리 DB 를 쓰고 끝나면 컨텍스트를 버린다
+ * */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:order-intake;DB_CLOSE_DELAY=-1")
+@DirtiesContext
+public class OrderIntakeServiceTest {
+
+    private static final int STOCK = 100;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Autowired
+    OrderService orderService;
+    @Autowired
+    MemberService memberService;
+    @Autowired
+    ItemService itemService;
+
+    Path logPath;
+    Long memberId;
+    Long itemId;
+    OrderIntakeService service;
+
+    @Before
+    public void setUp() {
+        logPath = folder.getRoot().toPath().resolve("intake.log");
+        Member member = new Member();
+        member.setName("intake");
+        member.setAddress(new Address("서울", "강가", "123-123"));
+        memberId = memberService.join(member);
+        Book book = new Book();
+        book.setName("intake");
+        book.setPrice(1000);
+        book.setStockQuantity(STOCK);
+        itemService.saveItem(book);
+        itemId = book.getId();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (service != null) {
+            service.stop();
+        }
+    }
+
+    @Test
+    public void 접수는_쓰기_스레드가_저장하고_완료_표시를_남긴다() throws Exception {
+        service = start(100, 20);
+        long first = service.accept(memberId, itemId, 1);
+        long second = service.accept(memberId, itemId, 2);
+
+        assertTrue(service.awaitIdle(5000));
+        assertEquals(OrderIntakeStatus.State.WRITTEN, service.status(first).getState());
+        assertNotNull(service.status(second).getOrderId());
+        assertEquals("재고는 접수 시점에 한번만 차감된다", STOCK - 3, stock());
+        assertEquals(2, service.stats().getWritten());
+
+        service.stop();
+        service = null;
+        try (OrderIntakeLog log = new OrderIntakeLog(logPath, false)) {
+            assertTrue("완료 표시 이후에 남은 접수가 없다", log.open().getPending().isEmpty());
+        }
+    }
+
+    @Test
+    public void 재시작시_이미_저장된_접수는_다시_저장하지_않는다() throws Exception {
+        //given  1 은 완료 표시 전, 2 는 완료 표시 없이 저장까지 끝났고, 3 은 저장되지 않았다
+        OrderIntakeEntry saved = entry(2, memberId);
+        Long savedOrderId = orderService.writeIntake(Collections.singletonList(saved)).get(2L);
+        writeLog(line(entry(1, memberId)) + "C\t1\n" + line(saved) + line(entry(3, memberId)));
+
+        //when
+        service = start(100, 20);
+        assertTrue(service.awaitIdle(5000));
+
+        //then
+        assertEquals(2, service.stats().getReplayed());
+        assertEquals(0, service.stats().getFailed());
+        assertEquals(savedOrderId, service.status(2).getOrderId());
+        assertEquals(OrderIntakeStatus.State.WRITTEN, service.status(3).getState());
+        assertEquals(OrderIntakeStatus.State.UNKNOWN, service.status(1).getState());
+        assertEquals("재처리로 재고가 바뀌지 않는다", STOCK, stock());
+    }
+
+    @Test
+    public void 저장에_실패한_접수는_실패_표시를_남기고_재고를_한번만_되돌린다() throws Exception {
+        //given  없는 회원의 접수가 로그에 남아있다 (재고 2 가 잡혀있는 상태)
+        writeLog(line(entry(1, -1L)));
+
+        //when
+        service = start(100, 20);
+        assertTrue(service.awaitIdle(5000));
+
+        //then
+        assertEquals(OrderIntakeStatus.State.FAILED, service.status(1).getState());
+        assertEquals(STOCK + 2, stock());
+        String content = new String(Files.readAllBytes(logPath), StandardCharsets.US_ASCII);
+        assertTrue(content.contains("F\t1\n"));
+
+        //when  완료 표시를 잃어버린 채 재시작 (C 는 강제로 쓰지 않는다)
+        service.stop();
+        writeLog(content.replace("C\t1\n", ""));
+        service = start(100, 20);
+        assertTrue(service.awaitIdle(5000));
+
+        //then
+        assertEquals(0, service.stats().getReplayed());
+        assertEquals(OrderIntakeStatus.State.FAILED, service.status(1).getState());
+        assertEquals("재고를 두번 되돌리지 않는다", STOCK + 2, stock());
+    }
+
+    @Test
+    public void 대기열이_차면_거절하고_자리가_나면_다시_받는다() throws Exception {
+        //given  쓰기 스레드가 첫 접수를 꺼낸 뒤 배치를 채우려고 기다리는 동안은 자리가 돌아오지 않는다
+        service = start(2, 2000);
+        service.accept(memberId, itemId, 1);
+        service.accept(memberId, itemId, 1);
+
+        //when
+        try {
+            service.accept(memberId, itemId, 1);
+            fail("대기열이 가득 차면 거절해야 한다");
+        } catch (IntakeQueueFullException e) {
+            //then
+            assertEquals(1, service.stats().getRejected());
+        }
+        assertEquals("거절된 접수는 재고를 잡지 않는다", STOCK - 2, stock());
+
+        assertTrue(service.awaitIdle(5000));
+        service.accept(memberId, itemId, 1);
+        assertTrue(service.awaitIdle(5000));
+        assertEquals(3, service.stats().getWritten());
+    }
+
+    private OrderIntakeService start(int queueCapacity, long lingerMillis) {
+        OrderIntakeProperties props = new OrderIntakeProperties();
+        props.setLogPath(logPath.toString());
+        props.setFsync(false);
+        props.setQueueCapacity(queueCapacity);
+        props.setOfferTimeoutMillis(10);
+        props.setLingerMillis(lingerMillis);
+        OrderIntakeService intakeService = new OrderIntakeService(props, orderService, new SimpleMeterRegistry());
+        intakeService.start();
+        return intakeService;
+    }
+
+    private int stock() {
+        return itemService.findOne(itemId).getStockQuantity();
+    }
+
+    private OrderIntakeEntry entry(long intakeId, Long memberId) {
+        return new OrderIntakeEntry(intakeId, memberId, itemId, 2, 1000, System.currentTimeMillis(), false);
+    }
+
+    private String line(OrderIntakeEntry e) {
+        return "A\t" + e.getIntakeId() + "\t" + e.getMemberId() + "\t" + e.getItemId() + "\t" + e.getCount()
+                + "\t" + e.getPrice() + "\t" + e.getAcceptedAt() + "\t" + (e.isHeld() ? "H" : "-") + "\n";
+    }
+
+    private void writeLog(String content) throws Exception {
+        Files.write(logPath, content.getBytes(StandardCharsets.US_ASCII));
+    }
+}
@@ -0,0 +1,75 @@
+package jpabook.jpashop.monitor;
+
+import com.p6spy.engine.common.StatementInformation;
+import jpabook.jpashop.service.MemberService;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+public class HibernateStatisticsEndpointTest {
+
+    @Autowired
+    MockMvc mockMvc;
+    @Autowired
+    HibernateStatisticsEndpoint endpoint;
+    @Autowired
+    SlowQueryListener slowQueryListener;
+    @Autowired
+    MemberService memberService;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void 통계와_느린_쿼리를_보여주고_reset_으로_비운다() {
+        //given
+        memberService.findMembers();
+        StatementInformation statement = new StatementInformation(null);
+        statement.setStatementQuery("select * from member where name = ?");
+        slowQueryListener.onAfterAnyExecute(statement, TimeUnit.SECONDS.toNanos(1), null);
+
+        //when
+        Map<String, Object> result = endpoint.hibernate();
+
+        //then
+        assertEquals(true, result.get("enabled"));
+        Map<String, Object> summary = (Map<String, Object>) result.get("summary");
+        assertTrue((Long) summary.get("queryExecutions") > 0);
+        List<HibernateStatisticsEndpoint.QueryStat> queries = (List<HibernateStatisticsEndpoint.QueryStat>) result.get("queries");
+        assertTrue(queries.stream().anyMatch(q -> q.getQuery().contains("Member")));
+        List<HibernateStatisticsEndpoint.EntityStat> entities = (List<HibernateStatisticsEndpoint.EntityStat>) result.get("entities");
+        assertTrue(entities.stream().anyMatch(e -> e.getEntity().equals("Member")));
+        assertFalse(((List<?>) result.get("slowQueries")).isEmpty());
+
+        //when
+        endpoint.reset();
+
+        //then
+        result = endpoint.hibernate();
+        assertEquals(0L, ((Map<String, Object>) result.get("summary")).get("queryExecutions"));
+        assertTrue(((List<?>) result.get("slowQueries")).isEmpty());
+    }
+
+    @Test
+    public void 웹으로는_조회만_열고_통계_초기화는_열지_않는다() throws Exception {
+        mockMvc.perform(get("/actuator/hibernate"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.enabled").value(true));
+        mockMvc.perform(delete("/actuator/hibernate")).andExpect(status().isMethodNotAllowed());
+    }
+}
@@ -0,0 +1,96 @@
+package jpabook.jpashop.monitor;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+// 스프링 없이 임베디드 H2 풀과 SimpleMeterRegistry 로 확인한다
+public class PoolMonitorTest {
+
+    private SimpleMeterRegistry registry;
+    private HikariDataSource dataSource;
+    private PoolMonitorProperties props;
+
+    @Before
+    public void setUp() {
+        registry = new SimpleMeterRegistry();
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:mem:pool_monitor;DB_CLOSE_DELAY=-1");
+        dataSource.setUsername("sa");
+        dataSource.setPoolName("test-pool");
+        dataSource.setMaximumPoolSize(8);
+        dataSource.setMetricRegistry(registry);
+        props = new PoolMonitorProperties();
+    }
+
+    @After
+    public void tearDown() {
+        dataSource.close();
+    }
+
+    @Test
+    public void 관측한_최대_수요로_풀_크기를_추천한다() throws Exception {
+        PoolSizingAdvisor advisor = new PoolSizingAdvisor(props, registry);
+        List<Connection> held = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            held.add(dataSource.getConnection());
+        }
+        advisor.sample();
+        for (Connection connection : held) {
+            connection.close();
+        }
+        Thread.sleep(20);
+        advisor.sample();
+
+        PoolSizingAdvisor.PoolAdvice advice = advisor.advise().get(0);
+        assertEquals("test-pool", advice.getPool());
+        assertEquals(8, advice.getCurrentMaximumPoolSize());
+        assertEquals(3, advice.getPeakDemand());
+        assertTrue(advice.getRecommendedMaximumPoolSize() >= 3);
+        assertTrue(advice.getRecommendedMaximumPoolSize() < 8);
+    }
+
+    @Test
+    public void 오래_반납하지_않은_커넥션을_누수로_의심한다() throws Exception {
+        props.setLeakThresholdMillis(50);
+        ConnectionBorrowTracker tracker = new ConnectionBorrowTracker(props, registry);
+
+        tracker.acquired(1, 1_000);
+        tracker.acquired(2, 1_000);
+        tracker.released(2);
+        Thread.sleep(80);
+        tracker.checkLeaks();
+
+        assertEquals(1, tracker.suspects().size());
+        assertEquals(ConnectionBorrowTracker.BACKGROUND, tracker.suspects().get(0).getEndpoint());
+        assertEquals(1.0, registry.get("jpashop.pool.leak.suspected").counter().count(), 0);
+
+        tracker.released(1);
+        assertTrue(tracker.suspects().isEmpty());
+        assertEquals(2, tracker.topUsage(10).get(0).getCount());
+    }
+
+    @Test
+    public void 스택은_capture_stack_을_켰을때만_남긴다() throws Exception {
+        props.setLeakThresholdMillis(1);
+        ConnectionBorrowTracker tracker = new ConnectionBorrowTracker(props, registry);
+        tracker.acquired(1, 1_000);
+        Thread.sleep(5);
+        tracker.checkLeaks();
+        assertNull("기본값은 빌릴때 스택을 만들지 않는다", tracker.suspects().get(0).getStack());
+
+        props.setCaptureStack(true);
+        tracker.acquired(2, 1_000);
+        Thread.sleep(5);
+        tracker.checkLeaks();
+        assertTrue(tracker.suspects().stream().anyMatch(suspect -> suspect.getStack() != null));
+    }
+}
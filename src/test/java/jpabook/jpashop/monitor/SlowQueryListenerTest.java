@@ -0,0 +1,111 @@
+package jpabook.jpashop.monitor;
+
+import com.p6spy.engine.common.StatementInformation;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+// 스프링 없이 SimpleMeterRegistry 와 쿼리 정보만 흉내낸 StatementInformation 으로 확인한다
+public class SlowQueryListenerTest {
+
+    private SimpleMeterRegistry registry;
+    private SlowQueryProperties props;
+    private SlowQueryListener listener;
+
+    @Before
+    public void setUp() {
+        registry = new SimpleMeterRegistry();
+        props = new SlowQueryProperties();
+        props.setThresholdMillis(100);
+        props.setWithValues(true); // 로그를 남겼는지 getSqlWithValues 호출로 확인한다
+        listener = new SlowQueryListener(props, registry);
+    }
+
+    @Test
+    public void 기준보다_빠른_쿼리는_세지_않는다() {
+        Statement fast = new Statement("select 1");
+        listener.onAfterAnyExecute(fast, millis(99), null);
+
+        assertEquals(0, slowCount(), 0);
+        assertTrue(listener.top(10).isEmpty());
+        assertEquals(0, fast.logged);
+    }
+
+    @Test
+    public void 기준을_넘긴_쿼리는_모양별로_모은다() {
+        listener.onAfterAnyExecute(new Statement("select a"), millis(100), null);
+        listener.onAfterAnyExecute(new Statement("select a"), millis(300), null);
+        listener.onAfterAnyExecute(new Statement("select b"), millis(150), null);
+
+        assertEquals(3, slowCount(), 0);
+        List<SlowQueryListener.SlowQuery> top = listener.top(10);
+        assertEquals("총 시간이 큰 순서", "select a", top.get(0).getSql());
+        assertEquals(2, top.get(0).getCount());
+        assertEquals(300, top.get(0).getMaxMillis());
+        assertEquals(200, top.get(0).getAvgMillis());
+        assertEquals(1, listener.top(1).size());
+
+        listener.reset();
+        assertTrue(listener.top(10).isEmpty());
+    }
+
+    @Test
+    public void 로그는_표본만_남기고_집계와_지표는_전부_센다() {
+        props.setSampleRate(0);
+        Statement slow = new Statement("select a");
+        for (int i = 0; i < 10; i++) {
+            listener.onAfterAnyExecute(slow, millis(200), null);
+        }
+
+        assertEquals(0, slow.logged);
+        assertEquals(10, slowCount(), 0);
+        assertEquals(10, listener.top(10).get(0).getCount());
+
+        props.setSampleRate(1.0);
+        listener.onAfterAnyExecute(slow, millis(200), null);
+        assertEquals(1, slow.logged);
+    }
+
+    @Test
+    public void 모양_수가_maxShapes_에_차면_새_모양은_집계하지_않는다() {
+        props.setMaxShapes(2);
+        listener.onAfterAnyExecute(new Statement("select a"), millis(200), null);
+        listener.onAfterAnyExecute(new Statement("select b"), millis(200), null);
+        listener.onAfterAnyExecute(new Statement("select c"), millis(200), null);
+        listener.onAfterAnyExecute(new Statement("select a"), millis(200), null);
+
+        List<SlowQueryListener.SlowQuery> top = listener.top(10);
+        assertEquals(2, top.size());
+        assertTrue(top.stream().noneMatch(q -> q.getSql().equals("select c")));
+        assertEquals("이미 있는 모양은 계속 센다", 2, top.get(0).getCount());
+        assertEquals("지표는 전부 센다", 4, slowCount(), 0);
+    }
+
+    private double slowCount() {
+        return registry.get("jpashop.sql.slow").counter().count();
+    }
+
+    private static long millis(long millis) {
+        return TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    private static class Statement extends StatementInformation {
+        int logged;
+
+        Statement(String sql) {
+            super(null);
+            setStatementQuery(sql);
+        }
+
+        @Override
+        public String getSqlWithValues() {
+            logged++;
+            return getSql();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package jpabook.jpashop.monitor;
+
+import jpabook.jpashop.repository.OrderSearch;
+import jpabook.jpashop.repository.order.query.OrderQueryRepository;
+import jpabook.jpashop.repository.view.OrderListView;
+import jpabook.jpashop.repository.view.OrderViewRepository;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+public class SqlBudgetTest {
+
+    @Autowired
+    MockMvc mockMvc;
+    @Autowired
+    OrderQueryRepository orderQueryRepository;
+    @Autowired
+    OrderViewRepository orderViewRepository;
+
+    @Test
+    public void v5_주문조회는_쿼리_2번() throws Exception {
+        SqlBudget.assertMaxStatements(2, () -> orderQueryRepository.findAllByDto_optimization());
+
+        mockMvc.perform(get("/api/v5/orders"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Sql-Statements", "2"));
+    }
+
+    @Test
+    public void v4_주문조회는_N플러스1_감지() throws Exception {
+        SqlStats stats = SqlBudget.measure(() -> orderQueryRepository.findOrderQueryDtos());
+
+        assertTrue("주문마다 같은 컬렉션 조회가 반복되어야 한다", stats.getMaxRepeated() >= 2);
+        assertEquals(1 + stats.getMaxRepeated(), stats.getStatements());
+    }
+
+    @Test
+    public void 주문목록_화면은_쿼리_1번() throws Exception {
+        List<OrderListView> orders = SqlBudget.assertMaxStatements(1, () -> orderViewRepository.findOrderList(new OrderSearch()));
+
+        OrderListView first = orders.get(0); // InitDB 의 userA 주문, 대표상품은 처음 담은 JPA1 BOOK
+        assertEquals("userA", first.getMemberName());
+        assertEquals("JPA1 BOOK", first.getItemName());
+        assertEquals(Integer.valueOf(1), first.getCount());
+    }
+
+    @Test
+    public void 구간이_끝나면_스레드에_남기지_않는다() throws Exception {
+        SqlBudget.measure(() -> orderQueryRepository.findAllByDto_optimization());
+        assertFalse(SqlStatsHolder.isBound());
+
+        orderQueryRepository.findAllByDto_optimization(); // 구간 밖 SQL
+        assertFalse("구간 밖 SQL 은 ThreadLocal 을 만들지 않는다", SqlStatsHolder.isBound());
+    }
+
+    @Test(expected = AssertionError.class)
+    public void 쿼리_예산_초과() throws Exception {
+        SqlBudget.assertMaxStatements(1, () -> orderQueryRepository.findOrderQueryDtos());
+    }
+}
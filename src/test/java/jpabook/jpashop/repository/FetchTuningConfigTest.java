@@ -0,0 +1,42 @@
+package jpabook.jpashop.repository;
+
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.domain.item.Item;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.metamodel.spi.MetamodelImplementor;
+import org.hibernate.persister.collection.AbstractCollectionPersister;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import javax.persistence.EntityManagerFactory;
+
+import static org.junit.Assert.*;
+
+/*
+ * jpashop.fetch.batch-sizes 로 덮어쓴 값이 @BatchSize / default_batch_fetch_size 대신 persister 에 들어가는지 확인한다
+ * */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+        "jpashop.fetch.batch-sizes[Order.orderItems]=7",
+        "jpashop.fetch.batch-sizes[Item]=1"})
+public class FetchTuningConfigTest {
+
+    @Autowired
+    EntityManagerFactory emf;
+
+    @Test
+    public void 설정한_배치_크기가_persister_에_반영된다() {
+        MetamodelImplementor metamodel = emf.unwrap(SessionFactoryImplementor.class).getMetamodel();
+
+        AbstractCollectionPersister orderItems = (AbstractCollectionPersister)
+                metamodel.collectionPersister(Order.class.getName() + ".orderItems");
+        assertEquals("@BatchSize(16) 를 덮어쓴다", 7, orderItems.getBatchSize());
+
+        assertFalse("배치 크기 1 이면 배치 로딩하지 않는다", metamodel.entityPersister(Item.class).isBatchLoadable());
+        assertFalse("하위 타입에도 같이 걸린다", metamodel.entityPersister(Book.class).isBatchLoadable());
+    }
+}
@@ -0,0 +1,88 @@
+package jpabook.jpashop.repository;
+
+import org.junit.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManagerFactory;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.Assert.*;
+
+public class IdBatchLoaderTest {
+
+    @Test
+    public void 청크는_2의_거듭제곱으로_채운다() throws Exception {
+        //given
+        List<Long> ids = Arrays.asList(5L, 3L, 3L, 1L);
+
+        //when
+        List<List<Long>> chunks = IdBatchLoader.chunk(ids);
+
+        //then
+        assertEquals(1, chunks.size());
+        assertEquals(IdBatchLoader.MIN_CHUNK_SIZE, chunks.get(0).size());
+        assertEquals("중복 제거 후 정렬", Arrays.asList(1L, 3L, 5L), chunks.get(0).subList(0, 3));
+        assertEquals("남는 자리는 마지막 id 로 채운다", Long.valueOf(5L), chunks.get(0).get(IdBatchLoader.MIN_CHUNK_SIZE - 1));
+    }
+
+    @Test
+    public void 최대_청크_크기로_나눈다() throws Exception {
+        //given
+        List<Long> ids = LongStream.rangeClosed(1, IdBatchLoader.MAX_CHUNK_SIZE + 100).boxed().collect(Collectors.toList());
+
+        //when
+        List<List<Long>> chunks = IdBatchLoader.chunk(ids);
+
+        //then
+        assertEquals(2, chunks.size());
+        assertEquals(IdBatchLoader.MAX_CHUNK_SIZE, chunks.get(0).size());
+        assertEquals(128, chunks.get(1).size());
+    }
+
+    @Test
+    public void 빈_입력() throws Exception {
+        assertTrue(IdBatchLoader.chunk(Arrays.asList()).isEmpty());
+    }
+
+    @Test
+    public void OSIV_로_EntityManager_가_묶여있으면_호출한_스레드에서_순서대로_조회한다() throws Exception {
+        //given  트랜잭션 없이 요청 스레드에 EntityManager 가 묶여 있다 (커넥션을 이미 쥐고 있다)
+        EntityManagerFactory emf = (EntityManagerFactory) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{EntityManagerFactory.class}, (proxy, method, args) -> {
+                    switch (method.getName()) { // 리소스 map 의 키로만 쓴다
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        default:
+                            return null;
+                    }
+                });
+        IdBatchLoader loader = new IdBatchLoader(null, emf, null, 4);
+        List<Long> ids = LongStream.rangeClosed(1, IdBatchLoader.MAX_CHUNK_SIZE * 3).boxed().collect(Collectors.toList());
+        Set<Thread> threads = ConcurrentHashMap.newKeySet();
+        TransactionSynchronizationManager.bindResource(emf, new Object());
+        try {
+            //when
+            Map<Long, List<Long>> result = loader.load(ids, (em, chunk) -> {
+                threads.add(Thread.currentThread());
+                return chunk;
+            }, id -> id);
+
+            //then
+            assertEquals(ids.size(), result.size());
+            assertEquals("로더 스레드의 커넥션을 더 빌리지 않는다", Collections.singleton(Thread.currentThread()), threads);
+        } finally {
+            TransactionSynchronizationManager.unbindResource(emf);
+            loader.shutdown();
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package jpabook.jpashop.repository;
+
+import org.junit.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.Assert.*;
+
+public class OrderCursorTest {
+
+    @Test
+    public void 커서_인코딩_디코딩() throws Exception {
+        //given
+        LocalDateTime orderDate = LocalDateTime.of(2021, 6, 1, 12, 30, 15, 123456789);
+        OrderCursor cursor = new OrderCursor(orderDate, 42L);
+
+        //when
+        OrderCursor decoded = OrderCursor.decode(cursor.encode());
+
+        //then
+        assertEquals(orderDate, decoded.getOrderDate());
+        assertEquals(Long.valueOf(42L), decoded.getOrderId());
+    }
+
+    @Test
+    public void 토큰이_없으면_첫페이지() throws Exception {
+        assertNull(OrderCursor.decode(null));
+        assertNull(OrderCursor.decode(""));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void 잘못된_토큰() throws Exception {
+        OrderCursor.decode("not-a-cursor");
+    }
+}
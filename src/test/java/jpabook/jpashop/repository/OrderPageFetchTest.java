@@ -0,0 +1,120 @@
+package jpabook.jpashop.repository;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Delivery;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderItem;
+import jpabook.jpashop.domain.item.Book;
+import org.hibernate.Hibernate;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+/*
+ * 컬렉션 계획(WITH_ITEMS, FULL) 으로 페이지를 읽어도 페이지는 주문 단위로 잘리고 (주문상품 수만큼 늘어나지 않는다)
+ * 계획에 들어있는 연관은 초기화되어 있어야 한다
+ * 다른 테스트가 커밋한 주문이 있을 수 있으므로 페이지 시작 위치를 여기서 만든 첫 주문에 맞춘다
+ * */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@Transactional
+public class OrderPageFetchTest {
+
+    private static final int ORDERS = 4;
+    private static final int PAGE = 3;
+
+    @PersistenceContext
+    EntityManager entityManager;
+    @Autowired
+    OrderRepository orderRepository;
+
+    List<Order> created = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        Member member = new Member();
+        member.setName("page-fetch");
+        member.setAddress(new Address("서울", "강가", "123-123"));
+        entityManager.persist(member);
+        Book first = book("페이지 책 1");
+        Book second = book("페이지 책 2");
+        for (int i = 0; i < ORDERS; i++) {
+            Delivery delivery = new Delivery();
+            delivery.setAddress(member.getAddress());
+            Order order = Order.createOrder(member, delivery,
+                    OrderItem.createOrderItem(first, 1000, 1), OrderItem.createOrderItem(second, 2000, 1));
+            entityManager.persist(order);
+            created.add(order);
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    public void 오프셋_페이지는_주문_단위로_자르고_주문상품을_채운다() {
+        int offset = entityManager.createQuery("select count(o) from Order o where o.id < :id", Long.class)
+                .setParameter("id", created.get(0).getId())
+                .getSingleResult().intValue();
+
+        List<Order> page = orderRepository.findPage(offset, PAGE, OrderFetchPlan.WITH_ITEMS);
+
+        assertEquals(expectedIds(), ids(page));
+        for (Order order : page) {
+            assertTrue(Hibernate.isInitialized(order.getMember()));
+            assertTrue(Hibernate.isInitialized(order.getDelivery()));
+            assertTrue(Hibernate.isInitialized(order.getOrderItems()));
+            assertEquals("페치 조인으로 주문상품이 중복되지 않는다", 2, order.getOrderItems().size());
+        }
+    }
+
+    @Test
+    public void 키셋_페이지는_주문_단위로_자르고_상품까지_채운다() {
+        Order first = created.get(0);
+        OrderCursor before = new OrderCursor(first.getOrderDate(), first.getId() - 1);
+
+        List<Order> page = orderRepository.findPage(before, PAGE, OrderFetchPlan.FULL);
+
+        assertEquals(expectedIds(), ids(page));
+        for (Order order : page) {
+            assertTrue(Hibernate.isInitialized(order.getOrderItems()));
+            assertEquals(2, order.getOrderItems().size());
+            for (OrderItem orderItem : order.getOrderItems()) {
+                assertTrue("FULL 은 상품까지 읽는다", Hibernate.isInitialized(orderItem.getItem()));
+            }
+        }
+
+        Order last = page.get(page.size() - 1);
+        List<Order> next = orderRepository.findPage(new OrderCursor(last.getOrderDate(), last.getId()), PAGE, OrderFetchPlan.FULL);
+        assertEquals(created.get(ORDERS - 1).getId(), next.get(0).getId());
+    }
+
+    private Book book(String name) {
+        Book book = new Book();
+        book.setName(name);
+        book.setPrice(1000);
+        book.setStockQuantity(100);
+        entityManager.persist(book);
+        return book;
+    }
+
+    private List<Long> expectedIds() {
+        return ids(created.subList(0, PAGE));
+    }
+
+    private static List<Long> ids(List<Order> orders) {
+        return orders.stream().map(Order::getId).collect(Collectors.toList());
+    }
+}
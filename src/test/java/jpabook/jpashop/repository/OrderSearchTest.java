@@ -0,0 +1,182 @@
+package jpabook.jpashop.repository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.MemberNameGram;
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.service.MemberNameGramIndexer;
+import jpabook.jpashop.service.MemberService;
+import jpabook.jpashop.service.OrderService;
+import org.hibernate.Hibernate;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "jpashop.search.member-name-trigram=true")
+@Transactional
+public class OrderSearchTest {
+
+    @PersistenceContext
+    EntityManager entityManager;
+    @Autowired
+    MemberService memberService;
+    @Autowired
+    OrderService orderService;
+    @Autowired
+    OrderRepository orderRepository;
+    @Autowired
+    MemberNameGramIndexer nameGramIndexer;
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    Long alphaOrder1;
+    Long alphaOrder2;
+    Long alphaBetaOrder;
+    Long gamma;
+
+    @Before
+    public void setUp() {
+        Long alpha = join("searchAlpha");
+        Long alphaBeta = join("xxAlphaBeta");
+        gamma = join("searchGamma");
+        Book book = new Book();
+        book.setName("검색 책");
+        book.setPrice(1000);
+        book.setStockQuantity(100);
+        entityManager.persist(book);
+
+        alphaOrder1 = orderService.order(alpha, book.getId(), 1);
+        alphaOrder2 = orderService.order(alpha, book.getId(), 1);
+        alphaBetaOrder = orderService.order(alphaBeta, book.getId(), 1);
+        orderService.order(gamma, book.getId(), 1);
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    public void 접두어_검색() throws Exception {
+        assertEquals(Arrays.asList(alphaOrder1, alphaOrder2), search("searchAl", MemberNameMatch.PREFIX, false));
+        assertTrue(search("Alpha", MemberNameMatch.PREFIX, false).isEmpty());
+    }
+
+    @Test
+    public void 중간_일치_검색은_트라이그램_사용여부와_결과가_같다() throws Exception {
+        List<Long> expected = Arrays.asList(alphaOrder1, alphaOrder2, alphaBetaOrder);
+        assertEquals(expected, search("Alpha", MemberNameMatch.INFIX, true));
+        assertEquals(expected, search("Alpha", MemberNameMatch.INFIX, false));
+        assertEquals(Arrays.asList(alphaBetaOrder), search("phaBe", MemberNameMatch.INFIX, true));
+        assertTrue(search("ahplA", MemberNameMatch.INFIX, true).isEmpty());
+    }
+
+    @Test
+    public void 재색인은_어긋난_조각을_지우고_같은_결과를_낸다() throws Exception {
+        //given  이름과 맞지 않는 조각이 남아있다
+        for (String gram : MemberNameGramRepository.grams("Alpha")) {
+            entityManager.persist(new MemberNameGram(gram, gamma));
+        }
+        entityManager.flush();
+        entityManager.clear();
+        assertEquals(4, search("Alpha", MemberNameMatch.INFIX, true).size());
+
+        //when
+        nameGramIndexer.rebuild();
+
+        //then
+        assertEquals(Arrays.asList(alphaOrder1, alphaOrder2, alphaBetaOrder), search("Alpha", MemberNameMatch.INFIX, true));
+        assertEquals(search("search", MemberNameMatch.INFIX, false), search("search", MemberNameMatch.INFIX, true));
+    }
+
+    @Test
+    public void 최신순_키셋_페이징() throws Exception {
+        OrderSearch orderSearch = new OrderSearch();
+        orderSearch.setMemberName("searchAlpha");
+        orderSearch.setLatestFirst(true);
+
+        List<Order> first = orderService.searchOrders(orderSearch, null, 1);
+        Order last = first.get(0);
+        List<Order> second = orderService.searchOrders(orderSearch, new OrderCursor(last.getOrderDate(), last.getId()), 1);
+        List<Order> third = orderService.searchOrders(orderSearch, new OrderCursor(second.get(0).getOrderDate(), second.get(0).getId()), 1);
+
+        assertEquals(alphaOrder2, last.getId());
+        assertEquals(alphaOrder1, second.get(0).getId());
+        assertTrue(third.isEmpty());
+    }
+
+    @Test
+    public void 컬렉션_조회계획도_주문_단위로_페이징한다() throws Exception {
+        OrderSearch orderSearch = new OrderSearch();
+        orderSearch.setMemberName("searchAlpha");
+
+        List<Order> page = orderService.searchOrders(orderSearch, null, 1, OrderFetchPlan.FULL);
+
+        assertEquals(1, page.size());
+        assertEquals(alphaOrder1, page.get(0).getId());
+        assertTrue("주문상품이 같이 읽혀 있다", Hibernate.isInitialized(page.get(0).getOrderItems()));
+        assertTrue(Hibernate.isInitialized(page.get(0).getOrderItems().get(0).getItem()));
+    }
+
+    @Test
+    public void 문자열_Criteria_경로는_모양별로_jpql_을_한번만_만든다() throws Exception {
+        OrderSearch orderSearch = new OrderSearch();
+        orderSearch.setOrderStatus(OrderStatus.ORDER);
+        orderSearch.setMemberName("searchAlpha");
+
+        List<Long> expected = Arrays.asList(alphaOrder1, alphaOrder2);
+        for (int i = 0; i < 2; i++) { // 두번째는 만들어둔 쿼리를 다시 쓴다
+            assertEquals(expected, ids(orderRepository.findAllByString(orderSearch)));
+            assertEquals(expected, ids(orderRepository.findAllByCriteria(orderSearch)));
+            assertEquals(expected, ids(orderRepository.findAll(orderSearch)));
+        }
+        for (String path : new String[]{"jpql", "criteria"}) {
+            assertEquals(1, meterRegistry.get("jpashop.query.plan.compile").tag("path", path).tag("shape", "STATUS_NAME").timer().count());
+        }
+        for (String path : new String[]{"jpql", "criteria", "querydsl"}) {
+            assertTrue(meterRegistry.get("jpashop.query.plan.create").tag("path", path).tag("shape", "STATUS_NAME").timer().count() >= 2);
+        }
+        assertNull("Querydsl 은 호출마다 새로 만든다", meterRegistry.find("jpashop.query.plan.compile").tag("path", "querydsl").timer());
+
+        orderSearch.setMemberName("searchGamma"); // 값이 바뀌어도 같은 모양이면 다시 만들지 않는다
+        assertEquals(1, orderRepository.findAll(orderSearch).size());
+        assertEquals(1, orderRepository.findAllByCriteria(orderSearch).size());
+        assertEquals(1, meterRegistry.get("jpashop.query.plan.compile").tag("path", "criteria").tag("shape", "STATUS_NAME").timer().count());
+
+        orderSearch.setMemberName("Alpha"); // Criteria 경로만 '%이름%' 으로 바인딩한다
+        assertEquals(Arrays.asList(alphaOrder1, alphaOrder2, alphaBetaOrder), ids(orderRepository.findAllByCriteria(orderSearch)));
+        assertTrue(orderRepository.findAllByString(orderSearch).isEmpty());
+        assertTrue(orderRepository.findAll(orderSearch).isEmpty());
+    }
+
+    private List<Long> ids(List<Order> orders) {
+        return orders.stream().map(Order::getId).sorted().collect(Collectors.toList());
+    }
+
+    private List<Long> search(String name, MemberNameMatch match, boolean trigramIndex) {
+        OrderSearch orderSearch = new OrderSearch();
+        orderSearch.setMemberName(name);
+        orderSearch.setNameMatch(match);
+        return orderRepository.search(orderSearch, null, 100, trigramIndex).stream().map(Order::getId).collect(Collectors.toList());
+    }
+
+    private Long join(String name) {
+        Member member = new Member();
+        member.setName(name);
+        member.setAddress(new Address("서울", "강가", "123-123"));
+        return memberService.join(member);
+    }
+}
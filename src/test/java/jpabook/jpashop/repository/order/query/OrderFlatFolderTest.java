@@ -0,0 +1,48 @@
+package jpabook.jpashop.repository.order.query;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.OrderStatus;
+import org.junit.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class OrderFlatFolderTest {
+
+    @Test
+    public void 주문단위로_접기() throws Exception {
+        //given
+        List<OrderFlatDto> rows = createRows(3, 2);
+
+        //when
+        List<OrderQueryDto> result = OrderFlatFolder.fold(rows);
+
+        //then
+        assertEquals("주문 수만큼 접혀야 한다", 3, result.size());
+        assertEquals("주문 순서가 유지되어야 한다", Long.valueOf(1L), result.get(0).getOrderId());
+        assertEquals(Long.valueOf(3L), result.get(2).getOrderId());
+        assertEquals("주문상품은 주문에 모여야 한다", 2, result.get(1).getOrderItems().size());
+        assertEquals("item-2-1", result.get(1).getOrderItems().get(1).getItemName());
+    }
+
+    @Test
+    public void 빈_입력() throws Exception {
+        assertTrue(OrderFlatFolder.fold(new ArrayList<>()).isEmpty());
+    }
+
+    private List<OrderFlatDto> createRows(int orders, int itemsPerOrder) {
+        List<OrderFlatDto> rows = new ArrayList<>(orders * itemsPerOrder);
+        LocalDateTime now = LocalDateTime.now();
+        Address address = new Address("서울", "강가", "123-123");
+        for (long orderId = 1; orderId <= orders; orderId++) {
+            for (int i = 1; i <= itemsPerOrder; i++) {
+                rows.add(new OrderFlatDto(orderId, "member" + orderId, now, OrderStatus.ORDER, address,
+                        "item-" + orderId + "-" + i, 1000 * i, i));
+            }
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,134 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.Category;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.repository.ItemCategoryDto;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@Transactional
+public class CategoryServiceTest {
+
+    @PersistenceContext
+    EntityManager entityManager;
+    @Autowired
+    CategoryService categoryService;
+
+    @Test
+    public void 하위_카테고리와_경로_조회() throws Exception {
+        //given  도서 > 국내 > 소설, 도서 > 해외
+        Long books = categoryService.saveCategory("도서", null);
+        Long domestic = categoryService.saveCategory("국내", books);
+        Long novel = categoryService.saveCategory("소설", domestic);
+        Long foreign = categoryService.saveCategory("해외", books);
+
+        //then
+        assertEquals(Arrays.asList(domestic, foreign, novel), ids(categoryService.findDescendants(books)));
+        assertEquals(Arrays.asList(books, domestic, novel), ids(categoryService.findAncestors(novel)));
+        assertTrue(categoryService.findDescendants(novel).isEmpty());
+    }
+
+    @Test
+    public void 서브트리_이동() throws Exception {
+        //given
+        Long books = categoryService.saveCategory("도서", null);
+        Long domestic = categoryService.saveCategory("국내", books);
+        Long novel = categoryService.saveCategory("소설", domestic);
+        Long foreign = categoryService.saveCategory("해외", books);
+
+        //when  국내 > 소설 을 해외 밑으로 옮긴다
+        categoryService.addChild(foreign, domestic);
+
+        //then
+        assertEquals(Arrays.asList(books, foreign, domestic, novel), ids(categoryService.findAncestors(novel)));
+        assertEquals(Arrays.asList(domestic, novel), ids(categoryService.findDescendants(foreign)));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void 하위_카테고리_밑으로_이동_불가() throws Exception {
+        Long books = categoryService.saveCategory("도서", null);
+        Long domestic = categoryService.saveCategory("국내", books);
+
+        categoryService.addChild(domestic, books);
+    }
+
+    @Test
+    public void 서브트리_상품_페이징() throws Exception {
+        //given
+        Long books = categoryService.saveCategory("도서", null);
+        Long domestic = categoryService.saveCategory("국내", books);
+        Long foreign = categoryService.saveCategory("해외", books);
+        Item a = createBook("A", domestic);
+        Item b = createBook("B", foreign);
+        Item c = createBook("C", domestic, foreign); // 두 카테고리에 걸친 상품은 한번만 나온다
+        entityManager.flush();
+        entityManager.clear();
+
+        //then
+        assertEquals(3, categoryService.countItemsInSubtree(books));
+        List<Item> page = categoryService.findItemsInSubtree(books, 1, 2);
+        assertEquals(Arrays.asList(b.getId(), c.getId()), page.stream().map(Item::getId).collect(Collectors.toList()));
+        assertEquals(2, categoryService.countItemsInSubtree(foreign));
+    }
+
+    @Test
+    public void 상품_벌크_분류와_카테고리_배치조회() throws Exception {
+        //given
+        Long books = categoryService.saveCategory("도서", null);
+        Long sale = categoryService.saveCategory("할인", null);
+        Item a = createBook("A", books);
+        Item b = createBook("B");
+        Item c = createBook("C");
+        List<Long> itemIds = Arrays.asList(a.getId(), b.getId(), c.getId());
+
+        //when
+        int inserted = categoryService.assignItems(books, itemIds); // a 는 이미 들어있어서 빠진다
+        categoryService.moveItems(books, sale, Arrays.asList(c.getId()));
+
+        //then
+        assertEquals(2, inserted);
+        Map<Long, List<ItemCategoryDto>> categories = categoryService.findCategoriesByItemIds(itemIds);
+        assertEquals(Arrays.asList(books), categoryIds(categories.get(a.getId())));
+        assertEquals(Arrays.asList(books), categoryIds(categories.get(b.getId())));
+        assertEquals(Arrays.asList(sale), categoryIds(categories.get(c.getId())));
+
+        assertEquals(2, categoryService.unassignItems(books, itemIds));
+        assertNull(categoryService.findCategoriesByItemIds(itemIds).get(a.getId()));
+    }
+
+    private List<Long> categoryIds(List<ItemCategoryDto> categories) {
+        return categories.stream().map(ItemCategoryDto::getCategoryId).collect(Collectors.toList());
+    }
+
+    private Item createBook(String name, Long... categoryIds) {
+        Book book = new Book();
+        book.setName(name);
+        book.setPrice(10000);
+        book.setStockQuantity(10);
+        entityManager.persist(book);
+        for (Long categoryId : categoryIds) {
+            entityManager.find(Category.class, categoryId).addItem(book);
+        }
+        return book;
+    }
+
+    private List<Long> ids(List<Category> categories) {
+        return categories.stream().map(Category::getId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,106 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.repository.report.DailyRevenueDto;
+import jpabook.jpashop.repository.report.OrderReportRepository;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+/*
+ * 그날 첫 주문이 동시에 들어와도 요약 행 insert 충돌로 주문이 실패하지 않는지 확인한다
+ * 각 주문이 커밋되어야 하므로 전용 메모리 DB 를 쓰고 끝나면 컨텍스트를 버린다
+ * */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:daily-revenue;DB_CLOSE_DELAY=-1",
+        "jpashop.report.summary.enabled=true"})
+@DirtiesContext
+public class DailyRevenueRecorderTest {
+
+    private static final int THREADS = 8;
+
+    @Autowired
+    OrderService orderService;
+    @Autowired
+    MemberService memberService;
+    @Autowired
+    ItemService itemService;
+    @Autowired
+    ReportService reportService;
+    @Autowired
+    OrderReportRepository reportRepository;
+
+    @Test
+    public void 그날_첫_주문이_동시에_들어와도_모두_성공한다() throws Exception {
+        //given  요약 행이 하나도 없는 상태
+        Long memberId = createMember();
+        Long itemId = createBook();
+        CountDownLatch start = new CountDownLatch(1);
+
+        //when
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Callable<Long>> tasks = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            tasks.add(() -> {
+                start.await();
+                return orderService.orderAtomic(memberId, itemId, 1); // 재고는 조건부 update 라 버전 충돌이 없다
+            });
+        }
+        List<Future<Long>> futures = new ArrayList<>();
+        for (Callable<Long> task : tasks) {
+            futures.add(executor.submit(task));
+        }
+        start.countDown();
+        for (Future<Long> future : futures) {
+            assertNotNull(future.get()); // 키 중복으로 실패하면 여기서 예외가 난다
+        }
+        executor.shutdown();
+
+        //then
+        LocalDate today = LocalDate.now();
+        List<DailyRevenueDto> summary = reportService.dailyRevenue(today, today.plusDays(1));
+        assertEquals(1, summary.size());
+        assertEquals(THREADS, summary.get(0).getOrderCount());
+        assertEquals(describe(reportRepository.revenueByDay(today, today.plusDays(1))), describe(summary));
+    }
+
+    private List<String> describe(List<DailyRevenueDto> rows) {
+        return rows.stream()
+                .map(r -> r.getDate() + " " + r.getStatus() + " " + r.getOrderCount() + " " + r.getItemQuantity() + " " + r.getRevenue())
+                .collect(Collectors.toList());
+    }
+
+    private Long createMember() {
+        Member member = new Member();
+        member.setName("daily-revenue");
+        member.setAddress(new Address("서울", "강가", "123-123"));
+        return memberService.join(member);
+    }
+
+    private Long createBook() {
+        Book book = new Book();
+        book.setName("daily-revenue");
+        book.setPrice(10000);
+        book.setStockQuantity(100);
+        itemService.saveItem(book);
+        return book.getId();
+    }
+}
@@ -0,0 +1,134 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.repository.ItemRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+
+import static org.junit.Assert.*;
+
+/*
+ * 상품/회원 2차 캐시와 상품 목록 쿼리 캐시
+ * 캐시는 커밋되어야 채워지므로 테스트 트랜잭션 없이 전용 메모리 DB 에 커밋한다
+ * */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:item-cache;DB_CLOSE_DELAY=-1")
+@DirtiesContext
+public class ItemCacheTest {
+
+    @Autowired
+    ItemService itemService;
+    @Autowired
+    MemberService memberService;
+    @Autowired
+    OrderService orderService;
+    @Autowired
+    ItemRepository itemRepository;
+    @Autowired
+    EntityManagerFactory emf;
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    Statistics statistics;
+
+    @Before
+    public void setUp() {
+        statistics = emf.unwrap(SessionFactory.class).getStatistics();
+        emf.getCache().evictAll();
+        statistics.clear();
+    }
+
+    @Test
+    public void 상품과_회원은_두번째_조회부터_2차_캐시에서_읽는다() throws Exception {
+        //given
+        Book book = new Book();
+        book.setName("cache-book");
+        book.setPrice(1000);
+        book.setStockQuantity(10);
+        itemService.saveItem(book);
+        Member member = new Member();
+        member.setName("cache-member");
+        member.setAddress(new Address("서울", "강가", "123-123"));
+        Long memberId = memberService.join(member);
+        emf.getCache().evictAll();
+
+        //when
+        itemService.findOne(book.getId()); // 트랜잭션마다 새 영속성 컨텍스트
+        memberService.findOne(memberId);
+        long hitsBefore = statistics.getSecondLevelCacheHitCount();
+        Item cached = itemService.findOne(book.getId());
+        memberService.findOne(memberId);
+
+        //then
+        assertTrue(emf.getCache().contains(Item.class, book.getId()));
+        assertTrue(emf.getCache().contains(Member.class, memberId));
+        assertEquals("상품, 회원 각각 캐시 적중", hitsBefore + 2, statistics.getSecondLevelCacheHitCount());
+        assertEquals("cache-book", cached.getName());
+    }
+
+    @Test
+    public void 상품_수정은_상품_목록_쿼리_캐시를_비운다() throws Exception {
+        //given
+        Book book = new Book();
+        book.setName("cache-list-book");
+        book.setPrice(1000);
+        book.setStockQuantity(10);
+        itemService.saveItem(book);
+        itemService.findItems();
+        long hits = statistics.getQueryCacheHitCount();
+        itemService.findItems();
+        assertEquals("같은 목록 조회는 쿼리 캐시에서", hits + 1, statistics.getQueryCacheHitCount());
+
+        //when
+        itemService.updateItem(book.getId(), "renamed", 2000, 20);
+        long misses = statistics.getQueryCacheMissCount();
+
+        //then
+        assertTrue(itemService.findItems().stream().anyMatch(i -> "renamed".equals(i.getName())));
+        assertEquals("수정 후 첫 조회는 쿼리 캐시를 쓰지 않는다", misses + 1, statistics.getQueryCacheMissCount());
+    }
+
+    @Test
+    public void 재고_update_후_상품_목록_화면은_새_재고를_보여준다() throws Exception {
+        //given
+        Book book = new Book();
+        book.setName("cache-stock-book");
+        book.setPrice(1000);
+        book.setStockQuantity(10);
+        itemService.saveItem(book);
+        Member member = new Member();
+        member.setName("cache-stock-member");
+        member.setAddress(new Address("서울", "강가", "123-123"));
+        Long memberId = memberService.join(member);
+        assertEquals(10, viewStock(book.getId()));
+        assertEquals(10, viewStock(book.getId())); // 쿼리 캐시에서
+
+        //when
+        orderService.orderAtomic(memberId, book.getId(), 3); // 네이티브 조건부 update
+
+        //then
+        assertEquals(7, viewStock(book.getId()));
+        transactionTemplate.executeWithoutResult(status -> itemRepository.increaseStock(book.getId(), 2));
+        assertEquals(9, viewStock(book.getId()));
+    }
+
+    private int viewStock(Long itemId) {
+        return itemService.findItemViews().stream()
+                .filter(view -> view.getId().equals(itemId))
+                .findFirst().orElseThrow(IllegalStateException::new)
+                .getStockQuantity();
+    }
+}
@@ -0,0 +1,121 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.exception.InvalidRequestException;
+import jpabook.jpashop.repository.ItemRepository;
+import jpabook.jpashop.repository.OrderRepository;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+/*
+ * 일괄 취소는 청크마다 새 트랜잭션을 커밋하므로 테스트 트랜잭션을 걸지 않는다
+ * */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class OrderBulkCancelTest {
+
+    @Autowired
+    OrderBulkCancelService orderBulkCancelService;
+    @Autowired
+    OrderService orderService;
+    @Autowired
+    OrderRepository orderRepository;
+    @Autowired
+    MemberService memberService;
+    @Autowired
+    ItemService itemService;
+    @Autowired
+    ItemRepository itemRepository;
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void 일괄취소_실패한_주문만_남기고_나머지는_취소한다() throws Exception {
+        //given
+        Member member = new Member();
+        member.setName("bulk-cancel-" + System.nanoTime());
+        member.setAddress(new Address("서울", "강가", "123-123"));
+        Long memberId = memberService.join(member);
+        Book book = new Book();
+        book.setName("bulk-cancel-book");
+        book.setPrice(10000);
+        book.setStockQuantity(100);
+        itemService.saveItem(book);
+
+        Long first = orderService.order(memberId, book.getId(), 2);
+        Long second = orderService.order(memberId, book.getId(), 3);
+        Long canceled = orderService.order(memberId, book.getId(), 4);
+        Long delivered = orderService.order(memberId, book.getId(), 5);
+        orderService.cancelOrder(canceled);
+        jdbcTemplate.update("update delivery set status = 'COMP'" +
+                " where delivery_id = (select delivery_id from orders where order_id = ?)", delivered);
+
+        //when
+        BulkCancelResult result = orderBulkCancelService.cancel(new BulkCancelCondition(
+                Arrays.asList(first, second, canceled, delivered, -1L), null, null, null));
+
+        //then
+        assertEquals(5, result.getRequested());
+        assertEquals(2, result.getCanceled());
+        Map<Long, BulkCancelResult.Reason> reasons = result.getFailures().stream()
+                .collect(Collectors.toMap(BulkCancelResult.Failure::getOrderId, BulkCancelResult.Failure::getReason));
+        assertEquals(BulkCancelResult.Reason.ALREADY_CANCELED, reasons.get(canceled));
+        assertEquals(BulkCancelResult.Reason.DELIVERY_COMPLETED, reasons.get(delivered));
+        assertEquals(BulkCancelResult.Reason.NOT_FOUND, reasons.get(-1L));
+
+        assertEquals(OrderStatus.CANCEL, orderRepository.findOne(first).getStatus());
+        assertEquals(OrderStatus.CANCEL, orderRepository.findOne(second).getStatus());
+        assertEquals(OrderStatus.ORDER, orderRepository.findOne(delivered).getStatus());
+        assertEquals("취소한 주문 수량만 재고로 돌아온다", 100 - 5, itemService.findOne(book.getId()).getStockQuantity());
+        assertEquals("주문 요약도 취소 상태", "CANCEL", jdbcTemplate.queryForObject(
+                "select status from order_summary where order_id = ?", String.class, second));
+    }
+
+    @Test
+    public void 일괄취소로_되돌린_재고는_상품_목록에도_바로_보인다() throws Exception {
+        //given  상품 목록이 쿼리 캐시에 올라가 있다
+        Member member = new Member();
+        member.setName("bulk-cancel-" + System.nanoTime());
+        member.setAddress(new Address("서울", "강가", "123-123"));
+        Long memberId = memberService.join(member);
+        Book book = new Book();
+        book.setName("bulk-cancel-list");
+        book.setPrice(10000);
+        book.setStockQuantity(50);
+        itemService.saveItem(book);
+        Long orderId = orderService.order(memberId, book.getId(), 7);
+        assertEquals(50 - 7, listedStock(book.getId()));
+
+        //when
+        orderBulkCancelService.cancel(new BulkCancelCondition(Collections.singletonList(orderId), null, null, null));
+
+        //then
+        assertEquals(50, listedStock(book.getId()));
+    }
+
+    @Test(expected = InvalidRequestException.class)
+    public void 주문_id_도_조건도_없으면_잘못된_요청이다() {
+        orderBulkCancelService.cancel(new BulkCancelCondition(null, null, null, null));
+    }
+
+    private int listedStock(Long itemId) {
+        return itemRepository.findAllViews().stream()
+                .filter(v -> v.getId().equals(itemId))
+                .findFirst().orElseThrow(AssertionError::new)
+                .getStockQuantity();
+    }
+}
@@ -4,6 +4,7 @@ import jpabook.jpashop.domain.Address;
 import jpabook.jpashop.domain.Member;
 import jpabook.jpashop.domain.Order;
 import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.domain.OrderSummary;
 import jpabook.jpashop.domain.item.Book;
 import jpabook.jpashop.domain.item.Item;
 import jpabook.jpashop.exception.NotEnoughStockExcoption;
@@ -17,6 +18,9 @@ import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import static org.junit.Assert.*;
 
@@ -31,6 +35,8 @@ public class OrderServiceTest {
     OrderService orderService;
     @Autowired
     OrderRepository orderRepository;
+    @Autowired
+    MemberService memberService;
 
     @Test
     public void 상품주문() throws Exception {
@@ -85,6 +91,53 @@ public class OrderServiceTest {
         assertEquals("주문 취소시 상품 재고가 증가해야 한다", 10, item.getStockQuantity());
     }
 
+    @Test
+    public void 대량주문() throws Exception {
+        //given
+        Member member = createMember();
+        Item book1 = createBook("시골 JPA", 10000, 1000);
+        Item book2 = createBook("시골 Spring", 20000, 2000);
+        List<BulkOrderCommand> commands = new ArrayList<>();
+        for (int i = 0; i < 600; i++) { // flush 단위(500)를 넘긴다
+            commands.add(new BulkOrderCommand(member.getId(), Arrays.asList(
+                    new BulkOrderCommand.OrderLine(book1.getId(), 1),
+                    new BulkOrderCommand.OrderLine(book2.getId(), 2))));
+        }
+
+        //when
+        List<Long> orderIds = orderService.bulkOrder(commands);
+
+        //then
+        assertEquals("요청한 주문 수만큼 저장되어야 한다", 600, orderIds.size());
+        Order getOrder = orderRepository.findOne(orderIds.get(599));
+        assertEquals("주문상품은 2개", 2, getOrder.getOrderItems().size());
+        assertEquals("주문 가격", 10000 + 20000 * 2, getOrder.getTotalPrice());
+        assertEquals("재고가 주문 수량만큼 줄어야 한다", 400, entityManager.find(Item.class, book1.getId()).getStockQuantity());
+        assertEquals(800, entityManager.find(Item.class, book2.getId()).getStockQuantity());
+    }
+
+    @Test
+    public void 주문요약_읽기모델_갱신() throws Exception {
+        //given
+        Member member = createMember();
+        Item book = createBook("시골 JPA", 10000, 10);
+
+        //when
+        Long orderId = orderService.order(member.getId(), book.getId(), 3);
+        orderService.cancelOrder(orderId);
+        memberService.update(member.getId(), "회원2");
+        entityManager.flush();
+        entityManager.clear();
+
+        //then
+        OrderSummary summary = entityManager.find(OrderSummary.class, orderId);
+        assertEquals("취소 상태가 반영되어야 한다", OrderStatus.CANCEL, summary.getStatus());
+        assertEquals("회원 이름 변경이 반영되어야 한다", "회원2", summary.getMemberName());
+        assertEquals("주문 가격", 30000, summary.getTotalPrice());
+        assertEquals("주문상품은 행에 함께 들어있다", 1, summary.getItems().size());
+        assertEquals(book.getId(), summary.getItems().get(0).getItemId());
+    }
+
     private Item createBook(String name, int price, int stockQuantity) {
         Item book = new Book();
         book.setName(name);
@@ -0,0 +1,108 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.repository.report.DailyRevenueDto;
+import jpabook.jpashop.repository.report.ItemSalesDto;
+import jpabook.jpashop.repository.report.MemberRevenueDto;
+import jpabook.jpashop.repository.report.OrderReportRepository;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "jpashop.report.summary.enabled=true")
+@Transactional
+public class ReportServiceTest {
+
+    @PersistenceContext
+    EntityManager entityManager;
+    @Autowired
+    OrderService orderService;
+    @Autowired
+    ReportService reportService;
+    @Autowired
+    OrderReportRepository reportRepository;
+
+    @Test
+    public void 상품별_회원별_집계() throws Exception {
+        //given
+        Member member = createMember("리포트회원");
+        Book book = createBook("리포트 책", 10000);
+        orderService.order(member.getId(), book.getId(), 2);
+        orderService.order(member.getId(), book.getId(), 3);
+        Long canceled = orderService.order(member.getId(), book.getId(), 4);
+        orderService.cancelOrder(canceled); // 취소 주문은 빠진다
+        entityManager.flush();
+
+        //when
+        LocalDate today = LocalDate.now();
+        List<ItemSalesDto> items = reportService.topItems(today, today.plusDays(1), 1000);
+        List<MemberRevenueDto> members = reportService.memberRevenue(today, today.plusDays(1), 1000);
+
+        //then
+        ItemSalesDto itemSales = items.stream().filter(i -> i.getItemId().equals(book.getId())).findFirst().get();
+        assertEquals(5, itemSales.getQuantity());
+        assertEquals(50000, itemSales.getRevenue());
+        MemberRevenueDto memberRevenue = members.stream().filter(m -> m.getMemberId().equals(member.getId())).findFirst().get();
+        assertEquals(2, memberRevenue.getOrderCount());
+        assertEquals(50000, memberRevenue.getRevenue());
+    }
+
+    @Test
+    public void 요약테이블은_집계쿼리와_같다() throws Exception {
+        //given  기존 주문으로 요약을 만든 뒤 증분으로 주문/취소를 반영한다
+        reportService.rebuildDailyRevenue();
+        Member member = createMember("요약회원");
+        Book book = createBook("요약 책", 7000);
+        orderService.order(member.getId(), book.getId(), 1);
+        Long canceled = orderService.order(member.getId(), book.getId(), 2);
+        orderService.cancelOrder(canceled);
+        orderService.cancelOrder(canceled); // 두번 취소해도 한번만 옮겨진다
+        entityManager.flush();
+
+        //when
+        LocalDate today = LocalDate.now();
+        List<DailyRevenueDto> summary = reportService.dailyRevenue(today, today.plusDays(1));
+        List<DailyRevenueDto> aggregate = reportRepository.revenueByDay(today, today.plusDays(1));
+
+        //then
+        assertFalse(summary.isEmpty());
+        assertEquals(describe(aggregate), describe(summary));
+    }
+
+    private List<String> describe(List<DailyRevenueDto> rows) {
+        return rows.stream()
+                .map(r -> r.getDate() + " " + r.getStatus() + " " + r.getOrderCount() + " " + r.getItemQuantity() + " " + r.getRevenue())
+                .collect(Collectors.toList());
+    }
+
+    private Member createMember(String name) {
+        Member member = new Member();
+        member.setName(name);
+        member.setAddress(new Address("서울", "강가", "123-123"));
+        entityManager.persist(member);
+        return member;
+    }
+
+    private Book createBook(String name, int price) {
+        Book book = new Book();
+        book.setName(name);
+        book.setPrice(price);
+        book.setStockQuantity(100);
+        entityManager.persist(book);
+        return book;
+    }
+}
@@ -0,0 +1,119 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.item.Book;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/*
+ * 같은 상품에 동시에 주문할때 재고 차감 방식별 정합성 / 처리량 비교
+ * 여러 스레드가 각자 트랜잭션을 커밋해야 하므로 테스트 트랜잭션을 걸지 않는다
+ * 커밋한 행이 다른 테스트에 남지 않도록 전용 메모리 DB 를 쓰고 끝나면 컨텍스트를 버린다
+ * */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:stock-concurrency;DB_CLOSE_DELAY=-1")
+@DirtiesContext
+public class StockConcurrencyTest {
+
+    private static final int THREADS = 8;
+    private static final int ORDERS_PER_THREAD = 25;
+    private static final int STOCK = 100;
+
+    @Autowired
+    StockOrderService stockOrderService;
+    @Autowired
+    MemberService memberService;
+    @Autowired
+    ItemService itemService;
+
+    @Test
+    public void 엔티티_변경감지() throws Exception {
+        run(StockMode.ENTITY);
+    }
+
+    @Test
+    public void 낙관적락_재시도() throws Exception {
+        run(StockMode.OPTIMISTIC);
+    }
+
+    @Test
+    public void 조건부_update() throws Exception {
+        Result result = run(StockMode.ATOMIC);
+        assertEquals("재고가 남아있는 동안은 실패하지 않는다", STOCK, result.success);
+    }
+
+    private Result run(StockMode mode) throws Exception {
+        //given
+        Long memberId = createMember(mode);
+        Long itemId = createBook(mode);
+        AtomicInteger success = new AtomicInteger();
+        AtomicInteger failure = new AtomicInteger();
+
+        //when
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            tasks.add(() -> {
+                for (int i = 0; i < ORDERS_PER_THREAD; i++) {
+                    try {
+                        stockOrderService.order(mode, memberId, itemId, 1);
+                        success.incrementAndGet();
+                    } catch (RuntimeException e) {
+                        failure.incrementAndGet(); // 재고 부족 또는 버전 충돌
+                    }
+                }
+                return null;
+            });
+        }
+        for (Future<Void> future : executor.invokeAll(tasks)) {
+            future.get();
+        }
+        executor.shutdown();
+
+        //then
+        int stock = itemService.findOne(itemId).getStockQuantity();
+        assertEquals(THREADS * ORDERS_PER_THREAD, success.get() + failure.get());
+        assertTrue("재고는 음수가 될수 없다", stock >= 0);
+        assertEquals("성공한 주문 수만큼만 재고가 줄어야 한다 (갱신 분실 없음)", STOCK - success.get(), stock);
+        return new Result(success.get());
+    }
+
+    private Long createMember(StockMode mode) {
+        Member member = new Member();
+        member.setName("stock-" + mode);
+        member.setAddress(new Address("서울", "강가", "123-123"));
+        return memberService.join(member);
+    }
+
+    private Long createBook(StockMode mode) {
+        Book book = new Book();
+        book.setName("hot-" + mode);
+        book.setPrice(10000);
+        book.setStockQuantity(STOCK);
+        itemService.saveItem(book);
+        return book.getId();
+    }
+
+    private static class Result {
+        final int success;
+
+        Result(int success) {
+            this.success = success;
+        }
+    }
+}
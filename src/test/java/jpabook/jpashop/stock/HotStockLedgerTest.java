@@ -0,0 +1,201 @@
+package jpabook.jpashop.stock;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.exception.NotEnoughStockExcoption;
+import jpabook.jpashop.intake.OrderIntakeEntry;
+import jpabook.jpashop.intake.OrderIntakeProperties;
+import jpabook.jpashop.repository.ItemRepository;
+import jpabook.jpashop.repository.OrderRepository;
+import jpabook.jpashop.service.ItemService;
+import jpabook.jpashop.service.MemberService;
+import jpabook.jpashop.service.OrderService;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+/*
+ * 인기 상품 재고 장부의 차감 / 롤백 / 반영 / 취소 / 재조정 / 접수 재처리를 실제 DB 로 확인한다
+ * 주문이 커밋되어야 장부가 움직이므로 전용 메모리 DB 를 쓰고 끝나면 컨텍스트를 버린다
+ * 반영 주기는 길게 잡고 flush 를 직접 부른다
+ * */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:hot-stock;DB_CLOSE_DELAY=-1",
+        "jpashop.stock.hot.enabled=true",
+        "jpashop.stock.hot.flush-interval-millis=3600000",
+        "jpashop.stock.hot.flush-threshold=1000000"})
+@DirtiesContext
+public class HotStockLedgerTest {
+
+    private static final int STOCK = 100;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Autowired
+    HotStockLedger ledger;
+    @Autowired
+    OrderService orderService;
+    @Autowired
+    MemberService memberService;
+    @Autowired
+    ItemService itemService;
+    @Autowired
+    ItemRepository itemRepository;
+    @Autowired
+    OrderRepository orderRepository;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    Long memberId;
+    Long itemId;
+
+    @Before
+    public void setUp() {
+        Member member = new Member();
+        member.setName("hot");
+        member.setAddress(new Address("서울", "강가", "123-123"));
+        memberId = memberService.join(member);
+        Book book = new Book();
+        book.setName("hot");
+        book.setPrice(1000);
+        book.setStockQuantity(STOCK);
+        itemService.saveItem(book);
+        itemId = book.getId();
+        ledger.track(itemId);
+    }
+
+    @Test
+    public void 커밋된_주문은_장부에서_차감하고_flush_때_재고에_반영한다() {
+        //when
+        orderService.order(memberId, itemId, 3);
+        orderService.orderAtomic(memberId, itemId, 2);
+
+        //then
+        assertEquals(Integer.valueOf(STOCK - 5), ledger.available(itemId));
+        assertEquals("반영 전에는 재고 행이 바뀌지 않는다", STOCK, stock());
+        assertEquals(Long.valueOf(5), orderRepository.findPendingStock().get(itemId));
+
+        //when
+        ledger.flush();
+
+        //then
+        assertEquals(STOCK - 5, stock());
+        assertNull(orderRepository.findPendingStock().get(itemId));
+    }
+
+    @Test
+    public void 롤백된_주문은_장부에_되돌린다() {
+        //when
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            orderService.order(memberId, itemId, 3);
+            assertEquals(Integer.valueOf(STOCK - 3), ledger.available(itemId));
+            status.setRollbackOnly();
+        });
+
+        //then
+        assertEquals(Integer.valueOf(STOCK), ledger.available(itemId));
+        ledger.flush();
+        assertEquals(STOCK, stock());
+    }
+
+    @Test(expected = NotEnoughStockExcoption.class)
+    public void 장부_재고보다_많이_주문하면_실패한다() {
+        orderService.order(memberId, itemId, STOCK + 1);
+    }
+
+    @Test
+    public void 취소는_커밋된_뒤_장부에_되돌리고_flush_때_재고에_반영한다() {
+        //given
+        Long orderId = orderService.order(memberId, itemId, 5);
+        ledger.flush();
+        assertEquals(STOCK - 5, stock());
+
+        //when
+        orderService.cancelOrder(orderId);
+
+        //then
+        assertEquals(Integer.valueOf(STOCK), ledger.available(itemId));
+        ledger.flush();
+        assertEquals(STOCK, stock());
+    }
+
+    @Test
+    public void 재시작시_반영되지_못한_차감을_재고에_반영한_뒤_카운터를_읽는다() {
+        //given  반영 전에 죽었다
+        ledger.flush();
+        orderService.order(memberId, itemId, 4);
+
+        //when
+        HotStockLedger restarted = newLedger(new OrderIntakeProperties());
+        try {
+            //then
+            assertEquals(STOCK - 4, stock());
+            assertTrue(orderRepository.findPendingStock().isEmpty());
+            assertEquals(Integer.valueOf(STOCK - 4), restarted.available(itemId));
+        } finally {
+            restarted.stop();
+        }
+    }
+
+    @Test
+    public void 재시작시_장부에서_잡아둔_접수는_카운터를_열기_전에_다시_잡는다() throws Exception {
+        //given  1 은 장부에서 잡아둔 채 저장되지 않았고, 2 는 저장까지 끝났고, 3 은 조건부 update 로 차감한 접수다
+        OrderIntakeEntry saved = new OrderIntakeEntry(2, memberId, itemId, 5, 1000, System.currentTimeMillis(), false);
+        orderService.writeIntake(Collections.singletonList(saved));
+        Path logPath = folder.getRoot().toPath().resolve("intake.log");
+        String log = line(new OrderIntakeEntry(1, memberId, itemId, 2, 1000, System.currentTimeMillis(), true))
+                + line(new OrderIntakeEntry(2, memberId, itemId, 5, 1000, System.currentTimeMillis(), true))
+                + line(new OrderIntakeEntry(3, memberId, itemId, 7, 1000, System.currentTimeMillis(), false));
+        Files.write(logPath, log.getBytes(StandardCharsets.US_ASCII));
+        OrderIntakeProperties intakeProps = new OrderIntakeProperties();
+        intakeProps.setEnabled(true);
+        intakeProps.setLogPath(logPath.toString());
+
+        //when
+        HotStockLedger restarted = newLedger(intakeProps);
+        try {
+            //then
+            assertEquals(Integer.valueOf(stock() - 2), restarted.available(itemId));
+        } finally {
+            restarted.stop();
+        }
+    }
+
+    private HotStockLedger newLedger(OrderIntakeProperties intakeProps) {
+        HotStockProperties props = new HotStockProperties();
+        props.setEnabled(true);
+        props.setFlushIntervalMillis(3_600_000);
+        HotStockLedger restarted = new HotStockLedger(props, intakeProps, itemRepository, orderRepository,
+                transactionManager, new SimpleMeterRegistry());
+        restarted.start();
+        return restarted;
+    }
+
+    private int stock() {
+        return itemService.findOne(itemId).getStockQuantity();
+    }
+
+    private String line(OrderIntakeEntry e) {
+        return "A\t" + e.getIntakeId() + "\t" + e.getMemberId() + "\t" + e.getItemId() + "\t" + e.getCount()
+                + "\t" + e.getPrice() + "\t" + e.getAcceptedAt() + "\t" + (e.isHeld() ? "H" : "-") + "\n";
+    }
+}
@@ -0,0 +1,66 @@
+package jpabook.jpashop.stock;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class StripedStockTest {
+
+    @Test
+    public void 동시에_차감해도_재고보다_많이_팔지_않는다() throws Exception {
+        //given
+        StripedStock stock = new StripedStock(8, 1000);
+        AtomicInteger sold = new AtomicInteger();
+
+        //when
+        ExecutorService executor = Executors.newFixedThreadPool(32);
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int t = 0; t < 32; t++) {
+            tasks.add(() -> {
+                for (int i = 0; i < 100; i++) {
+                    if (stock.tryReserve(1)) {
+                        sold.incrementAndGet();
+                    }
+                }
+                return null;
+            });
+        }
+        executor.invokeAll(tasks);
+        executor.shutdown();
+
+        //then
+        assertEquals("재고만큼만 팔린다", 1000, sold.get());
+        assertEquals(0, stock.available());
+    }
+
+    @Test
+    public void 한칸에_모자라도_합이_충분하면_차감한다() throws Exception {
+        //given
+        StripedStock stock = new StripedStock(8, 10); // 칸마다 1~3 개
+
+        //when
+        boolean reserved = stock.tryReserve(9);
+
+        //then
+        assertTrue(reserved);
+        assertEquals(1, stock.available());
+        assertFalse("합이 모자라면 실패한다", stock.tryReserve(2));
+        assertEquals("실패해도 남은 재고는 그대로", 1, stock.available());
+    }
+
+    @Test
+    public void 재고를_맞추면_바뀐_양을_돌려준다() throws Exception {
+        StripedStock stock = new StripedStock(4, 100);
+        stock.tryReserve(30);
+
+        assertEquals(50 - 70, stock.adjustTo(50));
+        assertEquals(50, stock.available());
+    }
+}